@@ -0,0 +1,76 @@
+package com.example.example_blog;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * ベンチマーク用の組み込みデータベース
+ * PostgreSQLの代わりにH2をメモリ上に起動し、指定件数の記事を登録しておく。
+ * @author Chiba
+ */
+/*
+ * データベースとの通信時間を含まないので、計測されるのはSQLの実行とマッピングの処理時間になる。
+ * PostgreSQL固有の機能（全文検索の生成列など）は使えないので、記事の基本の列だけを作る。
+ */
+public final class BenchmarkDatabase {
+
+	private BenchmarkDatabase() {
+	}
+
+	/**
+	 * 記事テーブルを作成し、指定件数の記事を登録したデータベースを起動する
+	 * @param rows 登録する記事数
+	 * @return データベース 使用後はshutdownすること
+	 */
+	public static EmbeddedDatabase create(int rows) {
+
+		EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2)
+				.generateUniqueName(true)
+				.build();
+
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+
+		jdbcTemplate.execute("CREATE TABLE articles ("
+				+ " id int AUTO_INCREMENT PRIMARY KEY,"
+				+ " title varchar(30) NOT NULL,"
+				+ " date timestamp NOT NULL,"
+				+ " content varchar(1000) NOT NULL,"
+				+ " version int NOT NULL DEFAULT 0)");
+
+		jdbcTemplate.execute("CREATE INDEX articles_date_id_idx ON articles (date DESC, id DESC)");
+
+		//本文は実際の記事に近い長さにしておく
+		StringBuilder content = new StringBuilder();
+		while (content.length() < 300) {
+			content.append("ベンチマーク用の記事の本文です。");
+		}
+
+		long now = System.currentTimeMillis();
+
+		jdbcTemplate.batchUpdate("INSERT INTO articles (title, date, content) VALUES (?, ?, ?)",
+				new BatchPreparedStatementSetter() {
+
+					@Override
+					public void setValues(PreparedStatement ps, int i) throws SQLException {
+						ps.setString(1, "記事" + i);
+						ps.setTimestamp(2, new Timestamp(now - i * 60_000L));
+						ps.setString(3, content.toString());
+					}
+
+					@Override
+					public int getBatchSize() {
+						return rows;
+					}
+				});
+
+		return database;
+	}
+}
@@ -0,0 +1,192 @@
+package com.example.example_blog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 負荷試験
+ * 指定したURLに、指定した数のクライアントから指定した時間だけ繰り返しリクエストを送り、
+ * スループットと応答時間の分布を出力する。
+ * @author Chiba
+ */
+/*
+ * 仮想スレッドとプラットフォームスレッドの比較は、同じデータベースに対してアプリケーションを2通りに起動して行う。
+ *
+ *   プラットフォームスレッド（Tomcatのスレッドプール）
+ *     ./gradlew bootRun
+ *   仮想スレッド
+ *     ./gradlew bootRun -PvirtualThreads --args='--blog.execution.mode=virtual'
+ *
+ *   ./gradlew loadTest -PloadTestArgs="http://localhost:8080/SearchArticles?q=abc 2000 60"
+ *
+ * 記事一覧のページはキャッシュされるので、データベースへの問い合わせを含めて比べる場合は検索などのURLを指定する。
+ * クライアント数をTomcatの最大スレッド数（既定200）より十分多くすると、
+ * プラットフォームスレッドではスレッドの空き待ちで応答時間が伸び、仮想スレッドでは接続プールの空き待ちになる。
+ */
+public final class LoadTest {
+
+	private LoadTest() {
+	}
+
+	/**
+	 * 負荷試験を実行する
+	 * @param args URL クライアント数（既定100） 秒数（既定30）
+	 * @throws InterruptedException 待機中に割り込まれた場合
+	 */
+	public static void main(String[] args) throws InterruptedException {
+
+		if (args.length < 1) {
+			System.err.println("usage: LoadTest <url> [clients] [seconds]");
+			System.exit(2);
+		}
+
+		String url = args[0];
+		int clients = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+		//クライアントごとに接続を使い回せるようにする
+		System.setProperty("http.maxConnections", Integer.toString(clients));
+
+		//最初の数秒はJITのウォームアップとして計測しない
+		long warmupNanos = Math.min(5, seconds / 5) * 1_000_000_000L;
+		long start = System.nanoTime();
+		long measureFrom = start + warmupNanos;
+		long end = start + seconds * 1_000_000_000L;
+
+		AtomicLong errors = new AtomicLong();
+		List<long[]> results = new ArrayList<>();
+		CountDownLatch done = new CountDownLatch(clients);
+
+		for (int i = 0; i < clients; i++) {
+			LatencyRecorder recorder = new LatencyRecorder();
+
+			Thread thread = new Thread(() -> {
+				try {
+					while (true) {
+						long requestStart = System.nanoTime();
+						if (requestStart >= end) {
+							break;
+						}
+
+						boolean ok = get(url);
+						long requestEnd = System.nanoTime();
+
+						if (requestStart >= measureFrom) {
+							if (ok) {
+								recorder.record(requestEnd - requestStart);
+							} else {
+								errors.incrementAndGet();
+							}
+						}
+					}
+				} finally {
+					synchronized (results) {
+						results.add(recorder.toArray());
+					}
+					done.countDown();
+				}
+			}, "load-test-" + i);
+
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		done.await();
+
+		//全クライアントの応答時間をまとめて並べる
+		int total = 0;
+		for (long[] result : results) {
+			total += result.length;
+		}
+
+		long[] latencies = new long[total];
+		int offset = 0;
+		for (long[] result : results) {
+			System.arraycopy(result, 0, latencies, offset, result.length);
+			offset += result.length;
+		}
+		Arrays.sort(latencies);
+
+		double measuredSeconds = (end - measureFrom) / 1e9;
+
+		System.out.printf("url         %s%n", url);
+		System.out.printf("clients     %d%n", clients);
+		System.out.printf("duration    %.1f s (after %.1f s warm-up)%n", measuredSeconds, warmupNanos / 1e9);
+		System.out.printf("requests    %d%n", total);
+		System.out.printf("errors      %d%n", errors.get());
+		System.out.printf("throughput  %.1f req/s%n", total / measuredSeconds);
+
+		if (total > 0) {
+			System.out.printf("latency p50 %.2f ms%n", percentile(latencies, 0.50));
+			System.out.printf("latency p90 %.2f ms%n", percentile(latencies, 0.90));
+			System.out.printf("latency p99 %.2f ms%n", percentile(latencies, 0.99));
+			System.out.printf("latency max %.2f ms%n", latencies[latencies.length - 1] / 1e6);
+		}
+	}
+
+	//GETリクエストを送り、応答を最後まで読む 成功した場合はtrue
+	private static boolean get(String url) {
+
+		HttpURLConnection connection = null;
+
+		try {
+			connection = (HttpURLConnection) new URL(url).openConnection();
+			connection.setConnectTimeout(10_000);
+			connection.setReadTimeout(60_000);
+
+			int status = connection.getResponseCode();
+
+			//接続を使い回すため、応答は最後まで読む
+			try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+				if (in != null) {
+					byte[] buffer = new byte[8192];
+					while (in.read(buffer) >= 0) {
+						//読み捨てる
+					}
+				}
+			}
+
+			return status < 400;
+
+		} catch (IOException e) {
+			if (connection != null) {
+				connection.disconnect();
+			}
+			return false;
+		}
+	}
+
+	//並べた応答時間の百分位数（ミリ秒）
+	private static double percentile(long[] sorted, double p) {
+		int index = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+
+	/**
+	 * クライアントごとの応答時間の記録
+	 */
+	private static final class LatencyRecorder {
+
+		private long[] values = new long[1024];
+
+		private int size = 0;
+
+		void record(long nanos) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = nanos;
+		}
+
+		long[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
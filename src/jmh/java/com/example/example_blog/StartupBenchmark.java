@@ -0,0 +1,119 @@
+package com.example.example_blog;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 起動時間の計測
+ * アプリケーションを別のプロセスで起動し、リクエストを受け付けられるようになるまでの時間を計測する。
+ * 次の3通りをそれぞれ指定回数起動して比べる。
+ *   default：通常の起動
+ *   lazy：起動を速くするプロファイル（fast）で、Beanを遅延生成する
+ *   lazy+cds：fast プロファイルに加えて、CDSのアーカイブを使用する
+ * JMHは1つのJVMの中での計測なので、JVMの起動を含む起動時間はこのクラスで計測する。
+ * @author Chiba
+ */
+/*
+ * 起動したアプリケーションはデータベースに接続してマイグレーションを確認するので、データベースを起動しておく。
+ * アプリケーションは StartupProbe から起動し、起動が終わると StartupProbe が SpringApplication.exit で終了させる。
+ *
+ *   ./gradlew cdsArchive startupBenchmark -PstartupRuns=10
+ *
+ * 計測する時間は2つ。
+ *   JVM：アプリケーションのJVMの起動からの時間（StartupProbe が出力する値）
+ *   wall：プロセスを起動してから、起動時間の行が出力されるまでの時間
+ */
+public final class StartupBenchmark {
+
+	private StartupBenchmark() {
+	}
+
+	/**
+	 * 起動時間を計測する
+	 * @param args アプリケーションとStartupProbeのクラスパス CDSのアーカイブのパス 起動回数（既定5）
+	 * @throws IOException プロセスを起動できなかった場合
+	 * @throws InterruptedException 待機中に割り込まれた場合
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		if (args.length < 2) {
+			System.err.println("usage: StartupBenchmark <classpath> <cds-archive> [runs]");
+			System.exit(2);
+		}
+
+		String classpath = args[0];
+		String archive = args[1];
+		int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		measure("default", classpath, runs, Collections.emptyList(), Collections.emptyList());
+
+		measure("lazy", classpath, runs, Collections.emptyList(),
+				Collections.singletonList("--spring.profiles.active=fast"));
+
+		if (new File(archive).isFile()) {
+			measure("lazy+cds", classpath, runs, Arrays.asList("-XX:SharedArchiveFile=" + archive, "-Xshare:auto"),
+					Collections.singletonList("--spring.profiles.active=fast"));
+		} else {
+			System.out.println("CDSのアーカイブがないので lazy+cds は計測しません（./gradlew cdsArchive で作成する）");
+		}
+	}
+
+	//指定回数起動して、起動時間の中央値と最小値を出力する
+	private static void measure(String name, String classpath, int runs, List<String> jvmArgs, List<String> appArgs)
+			throws IOException, InterruptedException {
+
+		long[] jvmMillis = new long[runs];
+		long[] wallMillis = new long[runs];
+
+		for (int i = 0; i < runs; i++) {
+			List<String> command = new ArrayList<>();
+			command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+			command.addAll(jvmArgs);
+			command.add("-cp");
+			command.add(classpath);
+			command.add(StartupProbe.class.getName());
+			command.addAll(appArgs);
+
+			//計測中のポートの競合を避ける
+			command.add("--server.port=0");
+
+			long start = System.nanoTime();
+			Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+			long ready = -1;
+
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (ready < 0 && line.startsWith(StartupProbe.READY_PREFIX)) {
+						wallMillis[i] = (System.nanoTime() - start) / 1_000_000;
+						ready = Long.parseLong(line.substring(StartupProbe.READY_PREFIX.length()).trim());
+					}
+				}
+			}
+
+			int exitCode = process.waitFor();
+
+			if (ready < 0) {
+				throw new IllegalStateException(name + " の起動に失敗しました（終了コード " + exitCode + "）");
+			}
+
+			jvmMillis[i] = ready;
+		}
+
+		Arrays.sort(jvmMillis);
+		Arrays.sort(wallMillis);
+
+		System.out.printf("%-10s JVM median %5d ms  min %5d ms | wall median %5d ms  min %5d ms  (%d runs)%n",
+				name, jvmMillis[runs / 2], jvmMillis[0], wallMillis[runs / 2], wallMillis[0], runs);
+	}
+}
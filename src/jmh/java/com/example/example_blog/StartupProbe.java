@@ -0,0 +1,41 @@
+package com.example.example_blog;
+
+import java.lang.management.ManagementFactory;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * 起動時間の計測用の起動クラス
+ * アプリケーションを起動し、起動が終わったら（SpringApplication.run から戻ったら）起動時間を出力して終了する。
+ * CDSのアーカイブの作成（./gradlew cdsArchive）と、起動時間の計測（StartupBenchmark）で使用する。
+ * @author Chiba
+ */
+/*
+ * アプリケーションのリスナーから System.exit を呼ぶと、起動処理の途中でJVMを止めることになる。
+ * 計測する側で起動を待ってから SpringApplication.exit でコンテキストを閉じ、その終了コードで終了する。
+ */
+public final class StartupProbe {
+
+	/**
+	 * 起動時間の行の先頭 StartupBenchmark がこの行を読み取る
+	 */
+	public static final String READY_PREFIX = "blog.startup.ready-millis=";
+
+	private StartupProbe() {
+	}
+
+	/**
+	 * アプリケーションを起動して、起動時間を出力したら終了する
+	 * @param args アプリケーションの引数
+	 */
+	public static void main(String[] args) {
+
+		ConfigurableApplicationContext context = SpringApplication.run(ExampleBlogApplication.class, args);
+
+		//JVMの起動からの経過時間 ログの設定に関わらず読み取れるよう、標準出力に出力する
+		System.out.println(READY_PREFIX + ManagementFactory.getRuntimeMXBean().getUptime());
+
+		System.exit(SpringApplication.exit(context));
+	}
+}
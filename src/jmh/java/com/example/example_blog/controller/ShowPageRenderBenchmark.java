@@ -0,0 +1,137 @@
+package com.example.example_blog.controller;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.ui.ExtendedModelMap;
+import org.springframework.ui.ModelMap;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import com.example.example_blog.repository.ArticleCursor;
+import com.example.example_blog.repository.ArticleSummary;
+import com.example.example_blog.repository.ArticleSummaryPage;
+import com.example.example_blog.repository.Tag;
+import com.example.example_blog.service.impl.ArticleServiceImpl;
+
+/**
+ * 記事一覧ページの表示のベンチマーク
+ * 記事一覧コントローラの処理と、Show.html のThymeleafによる描画を合わせて計測する。
+ * 描画済みページのキャッシュは使用しないので、キャッシュがない場合の描画のコストになる。
+ * 記事管理サービスは、指定件数の記事を返すスタブに置き換える。
+ * @author Chiba
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShowPageRenderBenchmark {
+
+	//1ページに表示する記事数
+	@Param({ "20", "100", "1000" })
+	int articles;
+
+	private ShowArticlesController controller;
+
+	private SpringTemplateEngine templateEngine;
+
+	private MockServletContext servletContext;
+
+	@Setup
+	public void setUp() {
+
+		//指定件数の記事を用意する
+		List<ArticleSummary> articleList = new ArrayList<>();
+		long now = System.currentTimeMillis();
+
+		for (int i = 0; i < articles; i++) {
+			ArticleSummary article = new ArticleSummary();
+			article.setId(articles - i);
+			article.setTitle("記事" + i);
+			article.setDate(new Timestamp(now - i * 60_000L));
+			article.setExcerpt("ベンチマーク用の記事の本文です。ベンチマーク用の記事の本文です。");
+			article.setTruncated(i % 2 == 0);
+			articleList.add(article);
+		}
+
+		//タグの一覧
+		List<Tag> tagList = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			Tag tag = new Tag();
+			tag.setId(i + 1);
+			tag.setName("タグ" + i);
+			tag.setArticleCount(20 - i);
+			tagList.add(tag);
+		}
+
+		ArticleSummaryPage page = new ArticleSummaryPage(articleList,
+				ArticleCursor.of(articleList.get(articleList.size() - 1)), null);
+
+		//常に用意したページを返すスタブ
+		controller = new ShowArticlesController();
+		controller.excerptLength = 200;
+		controller.service = new ArticleServiceImpl() {
+
+			@Override
+			public ArticleSummaryPage getArticleSummariesAfter(ArticleCursor cursor, int size, int excerptLength) {
+				return page;
+			}
+
+			@Override
+			public List<Tag> getTags() {
+				return tagList;
+			}
+		};
+
+		//アプリケーションと同じく templates/ 以下のHTMLファイルを読み込む
+		ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+		resolver.setPrefix("templates/");
+		resolver.setSuffix(".html");
+		resolver.setTemplateMode(TemplateMode.HTML);
+		resolver.setCharacterEncoding("UTF-8");
+
+		templateEngine = new SpringTemplateEngine();
+		templateEngine.setTemplateResolver(resolver);
+
+		servletContext = new MockServletContext();
+	}
+
+	/**
+	 * 記事一覧ページの表示
+	 */
+	@Benchmark
+	public String render() {
+
+		MockHttpServletRequest request = new MockHttpServletRequest(servletContext, "GET", PathName.SHOW_ARTICLES);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		ExtendedModelMap model = new ExtendedModelMap();
+		String viewName = controller.prepare(model, new ModelMap(), null, null, Collections.emptySet());
+
+		WebContext context = new WebContext(request, response, servletContext, Locale.JAPAN, model);
+
+		return templateEngine.process(viewName, context);
+	}
+}
@@ -0,0 +1,105 @@
+package com.example.example_blog.repository.impl;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import com.example.example_blog.BenchmarkDatabase;
+import com.example.example_blog.repository.ArticleDAO;
+
+/**
+ * 記事の全件取得と、取得結果から記事オブジェクトへの変換のベンチマーク
+ * 列名のMapを経由する変換（以前の toArticleDAO）と、列番号で直接変換する ArticleRowMapper を比べる。
+ * @author Chiba
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMappingBenchmark {
+
+	//登録する記事数
+	@Param({ "1000", "10000", "100000" })
+	int rows;
+
+	private EmbeddedDatabase database;
+
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	private ArticleRepositoryImpl repository;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		database = BenchmarkDatabase.create(rows);
+		jdbcTemplate = new NamedParameterJdbcTemplate(database);
+
+		repository = new ArticleRepositoryImpl();
+		repository.jdbcTemplate = jdbcTemplate;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		database.shutdown();
+	}
+
+	/**
+	 * 列名のMapを経由して変換する
+	 */
+	@Benchmark
+	public List<ArticleDAO> mapBased() {
+
+		List<Map<String, Object>> resultList = jdbcTemplate.queryForList(
+				"SELECT * FROM articles ORDER BY date DESC", new MapSqlParameterSource());
+
+		List<ArticleDAO> articleList = new ArrayList<>();
+
+		for (Map<String, Object> result : resultList) {
+			ArticleDAO dao = new ArticleDAO();
+			dao.setId((int) result.get("id"));
+			dao.setTitle((String) result.get("title"));
+			dao.setDate((Timestamp) result.get("date"));
+			dao.setContent((String) result.get("content"));
+			articleList.add(dao);
+		}
+
+		return articleList;
+	}
+
+	/**
+	 * 列番号で直接変換する
+	 */
+	@Benchmark
+	public List<ArticleDAO> rowMapper() {
+		return jdbcTemplate.query("SELECT " + ArticleRowMapper.COLUMNS + " FROM articles ORDER BY date DESC",
+				new MapSqlParameterSource(), ArticleRowMapper.INSTANCE);
+	}
+
+	/**
+	 * リポジトリの全件取得
+	 */
+	@Benchmark
+	public List<ArticleDAO> getAllArticles() {
+		return repository.getAllArticles();
+	}
+}
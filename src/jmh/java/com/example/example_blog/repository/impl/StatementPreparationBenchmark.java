@@ -0,0 +1,121 @@
+package com.example.example_blog.repository.impl;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.ArticleSummaryPage;
+import com.example.example_blog.repository.NoArticleFoundException;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * SQL文の準備のベンチマーク
+ * 記事の取得と記事一覧の1ページの取得について、1回あたりの時間を計測する。
+ * 以下の組み合わせを比べる。
+ *   prepareThreshold：PostgreSQLのJDBCドライバがサーバ側で準備済みの文を使うまでの実行回数（0は使わない）
+ *   parsedSqlCacheLimit：NamedParameterJdbcTemplateの解析済みSQL文のキャッシュ件数（0はキャッシュしない）
+ * サーバ側の準備済みの文はPostgreSQLの機能なので、H2ではなくPostgreSQLに接続して計測する。
+ * @author Chiba
+ */
+/*
+ * 接続先は次のシステムプロパティで指定する。記事が登録済みのデータベースを指定すること。
+ *   bench.jdbc.url（既定 jdbc:postgresql://localhost:5432/blogapp）
+ *   bench.jdbc.username（既定 postgres）
+ *   bench.jdbc.password（既定 password）
+ *
+ *   ./gradlew jmh -PjmhArgs="StatementPreparationBenchmark -jvmArgs -Dbench.jdbc.url=jdbc:postgresql://db:5432/blogapp"
+ *
+ * prepareThreshold=5 はドライバの既定値、parsedSqlCacheLimit=256 はNamedParameterJdbcTemplateの既定値。
+ * application-production.properties の設定は prepareThreshold=1 にあたる。解析済みSQL文のキャッシュは設定せず既定値のまま使う。
+ * parsedSqlCacheLimit=0 は、既定のキャッシュがどれだけ効いているかを比べるためのもの。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementPreparationBenchmark {
+
+	@Param({ "0", "5", "1" })
+	int prepareThreshold;
+
+	@Param({ "0", "256" })
+	int parsedSqlCacheLimit;
+
+	private HikariDataSource dataSource;
+
+	private ArticleRepositoryImpl repository;
+
+	//取得する記事のID
+	private int[] ids;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		HikariConfig config = new HikariConfig();
+		config.setJdbcUrl(System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5432/blogapp"));
+		config.setUsername(System.getProperty("bench.jdbc.username", "postgres"));
+		config.setPassword(System.getProperty("bench.jdbc.password", "password"));
+		config.setMaximumPoolSize(1);
+		config.addDataSourceProperty("prepareThreshold", prepareThreshold);
+
+		dataSource = new HikariDataSource(config);
+
+		NamedParameterJdbcTemplate jdbcTemplate = new NamedParameterJdbcTemplate(new JdbcTemplate(dataSource));
+		jdbcTemplate.setCacheLimit(parsedSqlCacheLimit);
+
+		repository = new ArticleRepositoryImpl();
+		repository.jdbcTemplate = jdbcTemplate;
+
+		//取得する記事のIDを用意する
+		List<Integer> idList = jdbcTemplate.queryForList("SELECT id FROM articles ORDER BY id LIMIT 1000",
+				new MapSqlParameterSource(), Integer.class);
+
+		if (idList.isEmpty()) {
+			throw new IllegalStateException("記事が登録されていません");
+		}
+
+		ids = idList.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		dataSource.close();
+	}
+
+	/**
+	 * IDを指定した記事の取得
+	 */
+	@Benchmark
+	public ArticleDAO getArticle() throws NoArticleFoundException {
+		return repository.getArticle(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+	}
+
+	/**
+	 * 記事一覧の先頭のページの取得
+	 */
+	@Benchmark
+	public ArticleSummaryPage getArticleSummaries() {
+		return repository.getArticleSummariesAfter(null, 20, 200);
+	}
+}
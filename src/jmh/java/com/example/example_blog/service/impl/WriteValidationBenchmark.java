@@ -0,0 +1,175 @@
+package com.example.example_blog.service.impl;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.ArticleEvent;
+import com.example.example_blog.repository.ArticleEventRepository;
+import com.example.example_blog.repository.ArticleEventType;
+import com.example.example_blog.repository.impl.ArticleRepositoryImpl;
+import com.example.example_blog.service.cache.ArticleCache;
+import com.example.example_blog.service.validation.ArticleCommand;
+import com.example.example_blog.service.validation.ArticleValidator;
+
+/**
+ * 記事の書き込み時の入力チェックのベンチマーク
+ * コントローラ・サービス・リポジトリで3回繰り返していた入力チェックと、ArticleValidator での1回の入力チェックを比べる。
+ * 記事管理サービスの記事追加は、入力チェックを含む場合と、チェック済みの書き込み内容を渡す場合を比べる。
+ * データベースには接続せず、SQLの実行は何もしないスタブに置き換える。
+ * @author Chiba
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteValidationBenchmark {
+
+	private final String title = "ベンチマークの記事";
+
+	private final String content = "ベンチマーク用の記事の本文です。ベンチマーク用の記事の本文です。";
+
+	private ArticleServiceImpl service;
+
+	private ArticleValidator validator;
+
+	//チェック済みの書き込み内容
+	private ArticleCommand command;
+
+	@Setup
+	public void setUp() {
+
+		//SQLを実行せずに空の記事オブジェクトを返すスタブ
+		NamedParameterJdbcTemplate stubTemplate = new NamedParameterJdbcTemplate(new JdbcTemplate()) {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public <T> T queryForObject(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper) {
+				return (T) new ArticleDAO();
+			}
+		};
+
+		ArticleRepositoryImpl repository = new ArticleRepositoryImpl();
+		ReflectionTestUtils.setField(repository, "jdbcTemplate", stubTemplate);
+
+		//上限値はマイグレーションの列の定義と同じ値にする
+		validator = new ArticleValidator(30, 1000, 30, 10);
+		command = validator.validate(title, content);
+
+		service = new ArticleServiceImpl();
+		service.repository = repository;
+		service.cache = new ArticleCache(1000, 60);
+		service.events = new NoOpEventRepository();
+		service.validator = validator;
+	}
+
+	/**
+	 * 記事管理サービスの記事追加 入力チェックを1回含む
+	 */
+	@Benchmark
+	public void serviceAddArticle() {
+		service.addArticle(title, content);
+	}
+
+	/**
+	 * 記事管理サービスのチェック済みの記事追加 入力チェックを含まない
+	 */
+	@Benchmark
+	public void serviceAddValidatedArticle() {
+		service.addArticle(command);
+	}
+
+	/**
+	 * ArticleValidator での1回の入力チェック
+	 */
+	@Benchmark
+	public void validatorCheck(Blackhole blackhole) {
+		blackhole.consume(validator.check(title, content));
+	}
+
+	/**
+	 * 以前の、コントローラ・サービス・リポジトリでそれぞれ行っていた入力チェック
+	 */
+	@Benchmark
+	public void tripleValidation(Blackhole blackhole) {
+		blackhole.consume(legacyValidation(title, content));
+		blackhole.consume(legacyValidation(title, content));
+		blackhole.consume(legacyValidation(title, content));
+	}
+
+	//以前の各層の入力チェックと同じ処理 通らなかった場合は例外の代わりにfalseを返す
+	private static boolean legacyValidation(String title, String content) {
+		final int MAX_TITLE_SIZE = 30;
+		final int MAX_CONTENT_SIZE = 1000;
+
+		return !(title == null || title.equals("")
+				|| content == null || content.equals("")
+				|| title.length() > MAX_TITLE_SIZE
+				|| content.length() > MAX_CONTENT_SIZE);
+	}
+
+	/**
+	 * 何もしない変更イベントのリポジトリ
+	 */
+	private static final class NoOpEventRepository implements ArticleEventRepository {
+
+		@Override
+		public void append(ArticleEventType type, ArticleDAO article) {
+		}
+
+		@Override
+		public void appendAll(ArticleEventType type, List<ArticleDAO> articles) {
+		}
+
+		@Override
+		public int appendCreatedAfter(int afterId) {
+			return 0;
+		}
+
+		@Override
+		public List<ArticleEvent> getEventsAfter(long seq, int limit) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public long getLatestSeq() {
+			return 0;
+		}
+
+		@Override
+		public long getOldestSeq() {
+			return 0;
+		}
+
+		@Override
+		public ArticleEvent getLatestEvent() {
+			return null;
+		}
+
+		@Override
+		public int deleteEventsBefore(Timestamp time) {
+			return 0;
+		}
+	}
+}
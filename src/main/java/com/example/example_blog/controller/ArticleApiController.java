@@ -0,0 +1,301 @@
+package com.example.example_blog.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.example_blog.datasource.ReadRoute;
+import com.example.example_blog.repository.ArticleCursor;
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.ArticleField;
+import com.example.example_blog.service.AcquisitionFailedException;
+import com.example.example_blog.service.ArticleService;
+import com.example.example_blog.service.DeleteFailedException;
+import com.example.example_blog.service.UpdateConflictException;
+import com.example.example_blog.service.UpdateFailedException;
+import com.example.example_blog.service.WriteQueueClosedException;
+import com.example.example_blog.service.WriteQueueFullException;
+import com.example.example_blog.service.idempotency.IdempotencyKeyConflictException;
+import com.example.example_blog.service.idempotency.IdempotencyStore;
+import com.example.example_blog.service.validation.ArticleValidationException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 記事のJSON APIのコントローラ
+ * 記事の一覧・取得・作成・更新・削除をする。
+ * @author Chiba
+ */
+@RestController
+@RequestMapping(PathName.API_ARTICLES)
+public class ArticleApiController {
+
+	@Autowired
+	ArticleService service;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	//記事の作成の冪等キーのストア
+	@Autowired
+	IdempotencyStore<ArticleDAO> idempotency;
+
+	//sizeが指定されていない場合の記事数
+	private final int DEFAULT_LIST_SIZE = 20;
+
+	//一覧の最大記事数
+	private final int MAX_LIST_SIZE = 1000;
+
+	/**
+	 * 記事の一覧を新しい順に返す
+	 * {"articles":[...],"next":"続きのカーソル"} の形式で、記事は取得した順に書き出す。
+	 * @param after 前回の一覧の next カーソル 指定しない場合は最新の記事から返す
+	 * @param size 記事数
+	 * @param fields 返す項目（id,title,date,content のカンマ区切り） 指定しない場合は全項目
+	 * @return 記事の一覧
+	 */
+	/*
+	 * 記事のリストを作ってから変換するのではなく、データベースから1行読むごとにJSONを書き出す。
+	 * 記事数が多くても、メモリには書き出し前のバッファ分しか保持しない。
+	 * fields に content を指定しない場合は、SQLでも本文の列を取得しない。
+	 */
+	@GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> list(@RequestParam(name = "after", required = false) String after,
+			@RequestParam(name = "size", required = false) Integer size,
+			@RequestParam(name = "fields", required = false) String fields) {
+
+		//書き出しを始めてからは400を返せないので、入力チェックは先に行う
+		ArticleCursor cursor = (after != null) ? ArticleCursor.decode(after) : null;
+		Set<ArticleField> projection = ArticleField.parse(fields);
+		int listSize = (size != null) ? size : DEFAULT_LIST_SIZE;
+
+		if (listSize < 1 || listSize > MAX_LIST_SIZE) {
+			throw new IllegalArgumentException("記事数が1未満もしくは" + MAX_LIST_SIZE + "より多いです");
+		}
+
+		/*
+		 * 書き出しは非同期処理のスレッドで行われ、リクエストのスレッドで設定したプライマリでの実行の強制が引き継がれない
+		 * 書き込み直後の一覧に追加した記事が含まれるように、このスレッドでの設定を書き出すスレッドでも設定する
+		 */
+		boolean primaryForced = ReadRoute.isPrimaryForced();
+
+		StreamingResponseBody body = out -> {
+			boolean forced = ReadRoute.isPrimaryForced();
+			ReadRoute.setPrimaryForced(primaryForced);
+
+			try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+
+				generator.writeStartObject();
+				generator.writeArrayFieldStart("articles");
+
+				ArticleCursor next = service.forEachArticleAfter(cursor, listSize, projection,
+						article -> writeArticle(generator, article, projection));
+
+				generator.writeEndArray();
+
+				if (next != null) {
+					generator.writeStringField("next", next.encode());
+				} else {
+					generator.writeNullField("next");
+				}
+
+				generator.writeEndObject();
+
+			} finally {
+				ReadRoute.setPrimaryForced(forced);
+			}
+		};
+
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(body);
+	}
+
+	/**
+	 * 記事を返す
+	 * @param id 記事のID
+	 * @return 記事
+	 * @throws AcquisitionFailedException 記事が見つからなかった場合 404を返す
+	 */
+	@GetMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+	public ArticleDAO get(@PathVariable("id") int id) throws AcquisitionFailedException {
+		return service.getArticle(id);
+	}
+
+	/**
+	 * 記事を作成する
+	 * Idempotency-Key ヘッダを指定した場合、同じキーで再送された作成は記事を追加せずに最初の結果を返す。
+	 * @param request タイトルと本文
+	 * @param idempotencyKey 冪等キー 指定しない場合は再送のたびに記事を追加する
+	 * @return 作成した記事 201を返す
+	 * @throws WriteQueueFullException 書き込み待ちの列が満杯の場合 503を返す
+	 * @throws IdempotencyKeyConflictException 同じキーで違う内容が作成済みの場合 422を返す
+	 * @throws IllegalStateException 書き込み待ちの列が停止している場合 503を返す
+	 */
+	@PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<ArticleDAO> create(@RequestBody ArticleRequest request,
+			@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey)
+			throws WriteQueueFullException, IdempotencyKeyConflictException {
+
+		//書き込み待ちの列を使用する場合も、追加が終わるまで待つ
+		ArticleDAO article = (idempotencyKey != null)
+				? idempotency.execute(idempotencyKey,
+						IdempotencyStore.fingerprint(request.getTitle(), request.getContent()),
+						() -> SubmittedArticle.await(service.submitArticle(request.getTitle(), request.getContent())))
+				: SubmittedArticle.await(service.submitArticle(request.getTitle(), request.getContent()));
+
+		return ResponseEntity.created(URI.create(PathName.API_ARTICLES + "/" + article.getId()))
+				.body(article);
+	}
+
+	/**
+	 * 記事を更新する
+	 * @param id 記事のID
+	 * @param request タイトルと本文 版番号を指定した場合は、版番号が一致するときだけ更新する
+	 * @return 更新後の記事
+	 * @throws UpdateFailedException 記事が見つからなかった場合 404を返す
+	 * @throws UpdateConflictException 版番号が一致しなかった場合 409を返す
+	 */
+	@PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE,
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	public ArticleDAO update(@PathVariable("id") int id, @RequestBody ArticleRequest request)
+			throws UpdateFailedException, UpdateConflictException {
+
+		if (request.getVersion() != null) {
+			return service.modifyArticle(id, request.getVersion(), request.getTitle(), request.getContent());
+		}
+
+		return service.modifyArticle(id, request.getTitle(), request.getContent());
+	}
+
+	/**
+	 * 記事を削除する
+	 * @param id 記事のID
+	 * @throws DeleteFailedException 記事が見つからなかった場合 404を返す
+	 */
+	@DeleteMapping(path = "/{id}")
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	public void delete(@PathVariable("id") int id) throws DeleteFailedException {
+		service.deleteArticle(id);
+	}
+
+	/**
+	 * 入力値が不正な場合 400を返す
+	 */
+	@ExceptionHandler(IllegalArgumentException.class)
+	@ResponseStatus(HttpStatus.BAD_REQUEST)
+	public Map<String, String> badRequest(IllegalArgumentException e) {
+		return Collections.singletonMap("message", e.getMessage());
+	}
+
+	/**
+	 * 記事の入力チェックが通らなかった場合 400を返す
+	 * メッセージに加えて、エラーの種類と原因の項目を返す。
+	 */
+	@ExceptionHandler(ArticleValidationException.class)
+	@ResponseStatus(HttpStatus.BAD_REQUEST)
+	public Map<String, String> invalidArticle(ArticleValidationException e) {
+		Map<String, String> body = new LinkedHashMap<>();
+		body.put("message", e.getMessage());
+		body.put("error", e.getError().name());
+		body.put("field", e.getError().getField());
+		return body;
+	}
+
+	/**
+	 * 記事が見つからなかった場合 404を返す
+	 */
+	@ExceptionHandler({ AcquisitionFailedException.class, UpdateFailedException.class, DeleteFailedException.class })
+	@ResponseStatus(HttpStatus.NOT_FOUND)
+	public Map<String, String> notFound() {
+		return Collections.singletonMap("message", "記事が見つかりませんでした");
+	}
+
+	/**
+	 * 他の更新と競合した場合 409を返す
+	 */
+	@ExceptionHandler(UpdateConflictException.class)
+	@ResponseStatus(HttpStatus.CONFLICT)
+	public Map<String, String> conflict() {
+		return Collections.singletonMap("message", "記事が他の更新で変更されています");
+	}
+
+	/**
+	 * 冪等キーが違う内容の作成で使用済みの場合 422を返す
+	 */
+	@ExceptionHandler(IdempotencyKeyConflictException.class)
+	@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+	public Map<String, String> idempotencyKeyConflict() {
+		return Collections.singletonMap("message", "冪等キーが別の内容の作成で使用されています");
+	}
+
+	/**
+	 * 書き込み待ちの列が満杯の場合 503を返す
+	 */
+	@ExceptionHandler(WriteQueueFullException.class)
+	public ResponseEntity<Map<String, String>> busy() {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, "1")
+				.body(Collections.singletonMap("message", "混み合っています"));
+	}
+
+	/**
+	 * 停止処理中で書き込み待ちの列が記事を受け付けなかった場合 503を返す
+	 */
+	@ExceptionHandler(WriteQueueClosedException.class)
+	public ResponseEntity<Map<String, String>> unavailable() {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.body(Collections.singletonMap("message", "記事を追加できませんでした"));
+	}
+
+	//記事の指定された項目を書き出す
+	private void writeArticle(JsonGenerator generator, ArticleDAO article, Set<ArticleField> fields) {
+		try {
+			generator.writeStartObject();
+
+			if (fields.contains(ArticleField.ID)) {
+				generator.writeNumberField("id", article.getId());
+			}
+			if (fields.contains(ArticleField.TITLE)) {
+				generator.writeStringField("title", article.getTitle());
+			}
+			if (fields.contains(ArticleField.DATE)) {
+				//投稿日は記事を返す場合と同じ形式にする
+				generator.writeFieldName("date");
+				generator.writeObject(article.getDate());
+			}
+			if (fields.contains(ArticleField.CONTENT)) {
+				generator.writeStringField("content", article.getContent());
+			}
+
+			generator.writeEndObject();
+
+		} catch (IOException e) {
+			//クライアントが切断した場合など 取得処理ごと中断する
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.example.example_blog.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.service.AcquisitionFailedException;
+import com.example.example_blog.service.ArticleService;
+
+/**
+ * 記事ページのコントローラ
+ * 記事を1件、読み取り専用で表示する。
+ * @author Chiba
+ */
+/*
+ * 記事は記事管理サービスのキャッシュから取得し、キャッシュにない場合は主キーで1行だけを読み込む。
+ * 同じ記事への同時のリクエストは1回の読み込みにまとめられるので（SingleFlight）、
+ * 人気の記事にリクエストが集中しても、データベースへの問い合わせはキャッシュの有効期間ごとに1回になる。
+ *
+ * 本文は最大1000文字で、全ての列を含む索引は1行の大きさの上限（約2700バイト）を超えうるので、
+ * 索引だけで読み込む（Index Only Scan）ことはせず、主キーの索引と表の1行を読む。
+ *
+ * 記事の版番号をETagにし、クライアントが同じ版を持っていれば304を返す。
+ */
+@Controller
+public class ArticleController {
+
+	@Autowired
+	ArticleService service;
+
+	private final String VIEW_NAME = "Article";
+
+	/**
+	 * 記事ページを表示する
+	 * @param model 記事ページの表示に必要なものを格納する
+	 * @param id 記事のID
+	 * @param webRequest 条件付きリクエストの判定に使用する
+	 * @return 記事ページのHTMLファイル名 304の場合はnull
+	 * @throws ResponseStatusException 記事が存在しない場合 404を返す
+	 */
+	@GetMapping(path = PathName.ARTICLE + "/{id}")
+	public String show(Model model, @PathVariable("id") int id, WebRequest webRequest) {
+
+		//IDが1未満の記事は存在しない
+		if (id < 1) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "対象の記事が存在しません。");
+		}
+
+		ArticleDAO article;
+
+		try {
+			//記事の取得 キャッシュになければデータベースから取得する
+			article = service.getArticle(id);
+
+		} catch (AcquisitionFailedException e) {
+			//指定されたIDの記事が見つからなかった場合
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "対象の記事が存在しません。", e);
+		}
+
+		//クライアントが同じ版の記事を持っていれば304を返す
+		if (webRequest.checkNotModified("\"" + article.getId() + "-" + article.getVersion() + "\"")) {
+			return null;
+		}
+
+		//modelに記事を格納
+		model.addAttribute("article", article);
+
+		return VIEW_NAME;
+	}
+}
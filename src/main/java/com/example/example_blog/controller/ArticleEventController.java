@@ -0,0 +1,81 @@
+package com.example.example_blog.controller;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.example_blog.service.event.ArticleEventStream;
+import com.example.example_blog.service.event.EventsExpiredException;
+
+/**
+ * 記事の変更イベントを配信するコントローラ
+ * 記事の追加・更新・削除を、通し番号の順にServer-Sent Eventsで送る。
+ * 各イベントのIDは通し番号で、データは {"seq":…,"type":"CREATED","articleId":…,"version":…,"occurredAt":…} の形式。
+ * @author Chiba
+ */
+@RestController
+public class ArticleEventController {
+
+	@Autowired
+	ArticleEventStream stream;
+
+	/**
+	 * 変更イベントの購読
+	 * 再開する位置は Last-Event-ID ヘッダ（ブラウザのEventSourceが再接続時に送る）、after パラメータの順に参照する。
+	 * どちらもない場合は、購読した時点より後のイベントから送る。
+	 * @param lastEventId 前回受け取った最後のイベントのID
+	 * @param after 前回受け取った最後のイベントの通し番号
+	 * @return 変更イベントのストリーム
+	 * @throws EventsExpiredException 再開する位置より後のイベントが削除されている場合 410を返す
+	 */
+	@GetMapping(path = PathName.ARTICLE_EVENTS, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter subscribe(@RequestHeader(name = "Last-Event-ID", required = false) String lastEventId,
+			@RequestParam(name = "after", required = false) String after) throws EventsExpiredException {
+
+		String offset = (lastEventId != null) ? lastEventId : after;
+
+		//再開する位置がない場合は最新の位置から
+		if (offset == null || offset.equals("")) {
+			return stream.subscribe(stream.getLatestSeq());
+		}
+
+		try {
+			return stream.subscribe(Long.parseLong(offset));
+
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("通し番号の形式が正しくありません", e);
+		}
+	}
+
+	/**
+	 * 再開する位置より後のイベントが保持期間を過ぎて削除されている場合 410を返す
+	 * クライアントは記事の一覧を読み込み直してから、最新の位置で購読し直す。
+	 */
+	@ExceptionHandler(EventsExpiredException.class)
+	public ResponseEntity<Map<String, String>> expired(EventsExpiredException e) {
+		return ResponseEntity.status(HttpStatus.GONE)
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(Collections.singletonMap("message", e.getMessage()));
+	}
+
+	/**
+	 * 入力値が不正な場合 400を返す
+	 * 購読のリクエストは text/event-stream を受け付けるので、エラーの本文はJSONであることを明示する。
+	 */
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+		return ResponseEntity.badRequest()
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(Collections.singletonMap("message", e.getMessage()));
+	}
+}
@@ -0,0 +1,47 @@
+package com.example.example_blog.controller;
+
+/**
+ * 記事のJSON APIで、記事の作成・更新時に受け取る内容
+ * @author Chiba
+ */
+public class ArticleRequest {
+
+	//記事のタイトル
+	private String title;
+
+	//記事の本文
+	private String content;
+
+	//更新時に、記事を取得したときの版番号 指定しない場合は版番号を確認せずに更新する
+	private Integer version;
+
+	//タイトルのゲッタ
+	public String getTitle() {
+		return title;
+	}
+
+	//タイトルのセッタ
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	//本文のゲッタ
+	public String getContent() {
+		return content;
+	}
+
+	//本文のセッタ
+	public void setContent(String content) {
+		this.content = content;
+	}
+
+	//版番号のゲッタ
+	public Integer getVersion() {
+		return version;
+	}
+
+	//版番号のセッタ
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+}
@@ -1,14 +1,28 @@
 package com.example.example_blog.controller;
 
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.Tag;
 import com.example.example_blog.service.ArticleService;
+import com.example.example_blog.service.WriteQueueClosedException;
+import com.example.example_blog.service.WriteQueueFullException;
+import com.example.example_blog.service.idempotency.IdempotencyKeyConflictException;
+import com.example.example_blog.service.idempotency.IdempotencyStore;
+import com.example.example_blog.service.validation.ArticleCommand;
+import com.example.example_blog.service.validation.ArticleValidationException;
+import com.example.example_blog.service.validation.ArticleValidator;
 
 /**
  * 記事作成ページのコントローラ
@@ -21,6 +35,13 @@ public class CreateArticleController {
 	@Autowired
 	ArticleService service;
 
+	@Autowired
+	ArticleValidator validator;
+
+	//記事の作成の冪等キーのストア
+	@Autowired
+	IdempotencyStore<ArticleDAO> idempotency;
+
 	private final String VIEW_NAME = "Create";
 
 	/**
@@ -32,15 +53,23 @@ public class CreateArticleController {
 	@GetMapping(path = PathName.CREATE_ARTICLE)
 	public String init(Model model) {
 
-		//タイトル・本文・メッセージにそれぞれ空値を格納
+		//タイトル・本文・タグ・メッセージにそれぞれ空値を格納
 		model.addAttribute("title", "");
 		model.addAttribute("content", "");
+		model.addAttribute("tags", "");
 		model.addAttribute("message", "");
 		model.addAttribute("messageType", MessageType.NONE);
 
+		//作成ボタンの二重押しや再送を見分けるため、ページを表示するたびに冪等キーを発行する
+		model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
+
 		return VIEW_NAME;
 	}
 
+	/*
+	 * GETで記事を作成すると、ブラウザの先読みやクローラ、再送するプロキシがリンクをたどるだけで記事が追加される。
+	 * 作成はPOSTで受け付け、同じ冪等キーで再送された場合はデータベースに書き込まずに最初の結果を返す。
+	 */
 	/**
 	 * 記事作成ページで作成ボタンが押されたとき,記事を作成する。
 	 * 作成に成功した場合は記事一覧ページを表示し、
@@ -49,56 +78,77 @@ public class CreateArticleController {
 	 * @param redirectAttributes 記事一覧ページにリダイレクトする際に送るものを格納する
 	 * @param title 入力されたタイトル
 	 * @param content 入力された本文
+	 * @param tags 入力されたタグ 空白かカンマで区切る
+	 * @param idempotencyKey 記事作成ページを表示したときに発行した冪等キー
 	 * @return 結果を表示するHTMLファイル名
 	 */
-	@GetMapping(path = PathName.CREATE_ARTICLE, params = "create")
+	@PostMapping(path = PathName.CREATE_ARTICLE)
 	public String create(Model model,
 			RedirectAttributes redirectAttributes,
 			@ModelAttribute("title") String title,
-			@ModelAttribute("content") String content) {
+			@ModelAttribute("content") String content,
+			@ModelAttribute("tags") String tags,
+			@ModelAttribute("idempotencyKey") String idempotencyKey) {
 
 		//入力チェックが通らなかった時のために入力内容を格納する
 		model.addAttribute("title", title);
 		model.addAttribute("content", content);
+		model.addAttribute("tags", tags);
+		model.addAttribute("idempotencyKey", idempotencyKey);
 
-		//入力チェック
-		//タイトルの最大文字数
-		final int MAX_TITLE_SIZE = 30;
+		//入力されたタグ名
+		Set<String> tagNames = Tag.parseNames(tags);
 
-		//本文の最大文字数
-		final int MAX_CONTENT_SIZE = 1000;
+		//入力チェック チェック済みの書き込み内容はサービスでチェックし直さない
+		ArticleCommand command;
+		try {
+			command = validator.validate(title, content, tagNames);
 
-		//タイトルがnullでも空値でもないことを確認する
-		if (title == null || title.equals("")) {
-			model.addAttribute("message", "タイトルが入力されていません。");
+		} catch (ArticleValidationException e) {
+			model.addAttribute("message", validator.getFormMessage(e.getError()));
 			model.addAttribute("messageType", MessageType.ALERT);
 			return VIEW_NAME;
 		}
 
-		//本文がnullでも空値でもないことを確認する
-		if (content == null || content.equals("")) {
-			model.addAttribute("message", "本文が入力されていません。");
+		//冪等キーの形式チェック ページで発行したキーが書き換えられた場合は、新しいキーで作成し直してもらう
+		if (idempotencyKey != null && idempotencyKey.length() > IdempotencyStore.MAX_KEY_SIZE) {
+			model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
+			model.addAttribute("message", "この内容はまだ作成されていません。内容を確認して、もう一度作成ボタンを押してください。");
 			model.addAttribute("messageType", MessageType.ALERT);
 			return VIEW_NAME;
 		}
 
-		//タイトルの最大文字数チェック
-		if (title.length() > MAX_TITLE_SIZE) {
-			model.addAttribute("message", "タイトルは" + MAX_TITLE_SIZE + "字以内で入力してください。");
+		/*
+		 * 記事の作成
+		 * 書き込み待ちの列を使用する場合も、追加が終わるまで待ってからリダイレクトする
+		 * 待たずにリダイレクトすると、記事一覧ページに作成した記事が表示されないことがある
+		 * タグを付ける場合は記事とタグを1つのトランザクションで追加するので、書き込み待ちの列は使わない
+		 * 同じ冪等キーで作成済み・作成中の場合は、追加せずに最初の結果を待つ
+		 */
+		try {
+			if (idempotencyKey == null || idempotencyKey.equals("")) {
+				SubmittedArticle.await(service.submitArticle(command));
+			} else {
+				idempotency.execute(idempotencyKey,
+						IdempotencyStore.fingerprint(command.getTitle(), command.getContent(),
+								(command.getTags() != null) ? new TreeSet<>(command.getTags()) : null),
+						() -> SubmittedArticle.await(service.submitArticle(command)));
+			}
+
+		} catch (WriteQueueFullException | WriteQueueClosedException e) {
+			//列が満杯の場合と、停止処理中で列が記事を受け付けなかった場合
+			model.addAttribute("message", "ただいま混み合っています。しばらくしてから再度作成してください。");
 			model.addAttribute("messageType", MessageType.ALERT);
 			return VIEW_NAME;
-		}
 
-		//本文の最大文字数チェック
-		if (content.length() > MAX_CONTENT_SIZE) {
-			model.addAttribute("message", "本文は" + MAX_CONTENT_SIZE + "字以内で入力してください。");
+		} catch (IdempotencyKeyConflictException e) {
+			//作成済みのページから入力内容を変えて再送された場合 新しい冪等キーで作成し直してもらう
+			model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
+			model.addAttribute("message", "この内容はまだ作成されていません。内容を確認して、もう一度作成ボタンを押してください。");
 			model.addAttribute("messageType", MessageType.ALERT);
 			return VIEW_NAME;
 		}
 
-		//記事の作成
-		service.addArticle(title, content);
-
 		/*
 		 * 記事作成の成功メッセージを格納する
 		 */
@@ -0,0 +1,99 @@
+package com.example.example_blog.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import com.example.example_blog.importer.ArticleImporter;
+import com.example.example_blog.importer.ArticleRecordReader;
+import com.example.example_blog.importer.CsvArticleRecordReader;
+import com.example.example_blog.importer.ImportResult;
+import com.example.example_blog.importer.NdjsonArticleRecordReader;
+import com.example.example_blog.service.validation.ArticleValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 記事一括取り込みのコントローラ
+ * リクエストボディのCSV・NDJSONを読み込みながら記事を追加し、取り込み結果をJSONで返す。
+ * @author Chiba
+ */
+@Controller
+public class ImportArticlesController {
+
+	@Autowired
+	ArticleImporter importer;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@Autowired
+	ArticleValidator validator;
+
+	//1レコードの最大文字数に加える余裕 投稿日・JSONのキーや記号の分
+	private static final int RECORD_SIZE_SLACK = 1024;
+
+	/**
+	 * CSV形式の記事を取り込む
+	 * @param body リクエストボディ（UTF-8）
+	 * @return 取り込み結果
+	 * @throws IOException リクエストボディの読み込みに失敗した場合
+	 */
+	/*
+	 * リクエストボディはInputStreamのまま受け取り、ファイル全体を読み込まずに少しずつ処理する。
+	 */
+	@PostMapping(path = PathName.IMPORT_ARTICLES, consumes = "text/csv")
+	@ResponseBody
+	public ImportResult importCsv(InputStream body) throws IOException {
+
+		//タイトル・本文のどちらにも収まらない長さの値は、入力チェックを通らない
+		int maxFieldSize = Math.max(validator.getMaxTitleSize(), validator.getMaxContentSize()) + RECORD_SIZE_SLACK;
+
+		try (ArticleRecordReader reader = new CsvArticleRecordReader(
+				new InputStreamReader(body, StandardCharsets.UTF_8), maxFieldSize)) {
+
+			return importer.importArticles(reader);
+		}
+	}
+
+	/**
+	 * NDJSON形式の記事を取り込む
+	 * @param body リクエストボディ（UTF-8）
+	 * @return 取り込み結果
+	 * @throws IOException リクエストボディの読み込みに失敗した場合
+	 */
+	@PostMapping(path = PathName.IMPORT_ARTICLES, consumes = "application/x-ndjson")
+	@ResponseBody
+	public ImportResult importNdjson(InputStream body) throws IOException {
+
+		//JSONのエスケープで長くなる分として、タイトルと本文の最大文字数の2倍まで受け付ける
+		int maxLineSize = (validator.getMaxTitleSize() + validator.getMaxContentSize()) * 2 + RECORD_SIZE_SLACK;
+
+		try (ArticleRecordReader reader = new NdjsonArticleRecordReader(
+				new InputStreamReader(body, StandardCharsets.UTF_8), objectMapper, maxLineSize)) {
+
+			return importer.importArticles(reader);
+		}
+	}
+
+	/**
+	 * ヘッダ行がない・必須の列がないなど、ファイルの形式が正しくない場合 400を返す
+	 * レコードごとの不正は取り込み結果で返すので、ここには来ない。
+	 */
+	@ExceptionHandler(IllegalArgumentException.class)
+	@ResponseStatus(HttpStatus.BAD_REQUEST)
+	@ResponseBody
+	public Map<String, String> badRequest(IllegalArgumentException e) {
+		return Collections.singletonMap("message", e.getMessage());
+	}
+}
@@ -1,32 +1,48 @@
 package com.example.example_blog.controller;
 
 import java.sql.Timestamp;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.ui.ModelMap;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.Tag;
 import com.example.example_blog.service.AcquisitionFailedException;
 import com.example.example_blog.service.ArticleService;
 import com.example.example_blog.service.DeleteFailedException;
+import com.example.example_blog.service.UpdateConflictException;
 import com.example.example_blog.service.UpdateFailedException;
+import com.example.example_blog.service.validation.ArticleCommand;
+import com.example.example_blog.service.validation.ArticleValidationException;
+import com.example.example_blog.service.validation.ArticleValidator;
 
 /**
  * 記事編集ページのコントローラ
  * 記事の編集・削除をする。
  * @author Chiba
  */
+/*
+ * 編集はPUT、削除はDELETEで受け付け、リンクの先読みやクローラで書き込まれないようにする。
+ * HTMLのフォームはGETとPOSTしか送れないので、POSTの _method パラメータで本来のメソッドを指定する（HiddenHttpMethodFilter）。
+ * 編集は版番号を確認し、削除は記事がなければ何もしないので、再送されても二重に書き込むことはない。
+ */
 @Controller
 public class ModifyArticleController {
 
 	@Autowired
 	ArticleService service;
 
+	@Autowired
+	ArticleValidator validator;
+
 	private final String VIEW_NAME = "Modify";
 
 	/**
@@ -44,17 +60,16 @@ public class ModifyArticleController {
 
 		//入力チェック
 		//IDが1未満でないことを確認する。
-		if (id < 1) {
-			throw new IllegalArgumentException("IDが1未満です");
-		}
+		validator.requireValidId(id);
 
 		try {
 
 			//編集対象の記事オブジェクトを取得する
 			ArticleDAO article = service.getArticle(id);
 
-			//modelに記事を格納
+			//modelに記事と、記事に付いているタグを空白区切りで格納
 			model.addAttribute("article", article);
+			model.addAttribute("tags", String.join(" ", service.getArticleTags(id)));
 			model.addAttribute("message", "");
 			model.addAttribute("messageType", MessageType.NONE);
 
@@ -84,19 +99,26 @@ public class ModifyArticleController {
 	 * @param model 記事編集ページの表示に必要なものを格納する
 	 * @param redirectAttributes 記事一覧ページにリダイレクトする際に送るものを格納する
 	 * @param id 入力された編集対象の記事ID
+	 * @param version 編集ページを表示したときの記事の版番号
 	 * @param date 入力された日付
 	 * @param title 入力された編集後のタイトル
 	 * @param content 入力された編集語の本文
+	 * @param tags 入力された編集後のタグ 空白かカンマで区切る
 	 * @return 結果を表示するHTMLファイル名
 	 */
-	@GetMapping(path = PathName.MODIFY_ARTICLE, params = "modify")
+	@PutMapping(path = PathName.MODIFY_ARTICLE)
 	public String modify(Model model,
 			RedirectAttributes redirectAttributes,
 			@ModelAttribute("id") int id,
+			@ModelAttribute("version") int version,
 			//String型で受け取って後でValueOfに変換する。
 			@ModelAttribute("date") String date,
 			@ModelAttribute("title") String title,
-			@ModelAttribute("content") String content) {
+			@ModelAttribute("content") String content,
+			@ModelAttribute("tags") String tags) {
+
+		//入力されたタグ名
+		Set<String> tagNames = Tag.parseNames(tags);
 
 		//入力チェックが通らなかった時のために入力内容を格納する
 		ArticleDAO article = new ArticleDAO();
@@ -104,49 +126,26 @@ public class ModifyArticleController {
 		article.setDate(Timestamp.valueOf(date));
 		article.setTitle(title);
 		article.setContent(content);
+		article.setVersion(version);
 
 		model.addAttribute("article", article);
+		model.addAttribute("tags", tags);
 
-		//入力チェック
-		//タイトルの最大文字数
-		final int MAX_TITLE_SIZE = 30;
-
-		//本文の最大文字数
-		final int MAX_CONTENT_SIZE = 1000;
-
-		//タイトルがnullでも空値でもないことを確認する
-		if (title == null || title.equals("")) {
-			model.addAttribute("message", "タイトルが入力されていません。");
-			model.addAttribute("messageType", MessageType.ALERT);
-			return VIEW_NAME;
-		}
-
-		//本文がnullでも空値でもないことを確認する
-		if (content == null || content.equals("")) {
-			model.addAttribute("message", "本文が入力されていません。");
-			model.addAttribute("messageType", MessageType.ALERT);
-			return VIEW_NAME;
-		}
-
-		//タイトルの最大文字数チェック
-		if (title.length() > MAX_TITLE_SIZE) {
-			model.addAttribute("message", "タイトルは" + MAX_TITLE_SIZE + "字以内で入力してください。");
-			model.addAttribute("messageType", MessageType.ALERT);
-			return VIEW_NAME;
-		}
+		//入力チェック チェック済みの書き込み内容はサービスでチェックし直さない
+		ArticleCommand command;
+		try {
+			command = validator.validate(title, content, tagNames);
 
-		//本文の最大文字数チェック
-		if (content.length() > MAX_CONTENT_SIZE) {
-			model.addAttribute("message", "本文は" + MAX_CONTENT_SIZE + "字以内で入力してください。");
+		} catch (ArticleValidationException e) {
+			model.addAttribute("message", validator.getFormMessage(e.getError()));
 			model.addAttribute("messageType", MessageType.ALERT);
 			return VIEW_NAME;
 		}
 
-
 		try {
 
-			//記事を更新
-			service.modifyArticle(id, title, content);
+			//編集ページを表示してから他の更新が行われていない場合だけ、記事とタグを更新
+			service.modifyArticle(id, version, command);
 
 			//記事更新の完了メッセージを格納する。
 			ModelMap modelMap = new ModelMap();
@@ -157,6 +156,32 @@ public class ModifyArticleController {
 
 			return "redirect:" + PathName.SHOW_ARTICLES;
 
+		}
+		/*
+		 * 編集ページを表示してから、他の人が先に記事を更新していた場合
+		 * 入力内容は残したまま、版番号を最新にして編集ページを再表示する
+		 * もう一度編集ボタンが押されたら、他の人の更新を確認したうえで上書きするものとして扱う
+		 */
+		catch (UpdateConflictException e) {
+
+			try {
+				article.setVersion(service.getArticle(id).getVersion());
+
+			} catch (AcquisitionFailedException notFound) {
+				//再表示する前に削除されていた場合
+				ModelMap modelMap = new ModelMap();
+				modelMap.addAttribute("message", "対象の記事が存在しません。");
+				modelMap.addAttribute("messageType", MessageType.ALERT);
+
+				redirectAttributes.addFlashAttribute("model", modelMap);
+
+				return "redirect:" + PathName.SHOW_ARTICLES;
+			}
+
+			model.addAttribute("message", "他の人が先に記事を編集しました。記事一覧で最新の内容を確認してください。このまま編集ボタンを押すと上書きします。");
+			model.addAttribute("messageType", MessageType.ALERT);
+			return VIEW_NAME;
+
 		}
 		//記事の編集に失敗した場合
 		catch (UpdateFailedException e) {
@@ -179,15 +204,13 @@ public class ModifyArticleController {
 	 * @param id 入力された削除対象の記事ID
 	 * @return 記事一覧のHTMLファイル名
 	 */
-	@GetMapping(path = PathName.MODIFY_ARTICLE, params = "delete")
+	@DeleteMapping(path = PathName.MODIFY_ARTICLE)
 	public String delete(RedirectAttributes redirectAttributes,
 			@ModelAttribute("id") int id) {
 
 		//入力チェック
 		//IDが1未満でないことを確認する。
-		if (id < 1) {
-			throw new IllegalArgumentException("IDが1未満です");
-		}
+		validator.requireValidId(id);
 
 		try {
 
@@ -0,0 +1,83 @@
+package com.example.example_blog.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.stereotype.Component;
+import org.springframework.ui.Model;
+import org.springframework.web.servlet.support.RequestContext;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.springframework.web.servlet.view.AbstractTemplateView;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring5.context.webmvc.SpringWebMvcThymeleafRequestContext;
+import org.thymeleaf.spring5.expression.ThymeleafEvaluationContext;
+import org.thymeleaf.spring5.naming.SpringContextVariableNames;
+
+import com.example.example_blog.metrics.RenderTimingInterceptor;
+
+/**
+ * ページの描画
+ * ビューとして返す代わりに、コントローラ内でテンプレートを文字列に描画する。
+ * 描画結果をキャッシュする場合に使用する。
+ * 描画にかかった時間は、ビューの描画時間と同じメーター（blog.controller.render）に記録させる。
+ * @author Chiba
+ */
+/*
+ * Thymeleafのビュー（ThymeleafView）が描画前にモデルへ追加する変数を同じように追加しているので、
+ * テンプレートはビューとして返した場合と同じように書ける。
+ */
+@Component
+public class PageRenderer {
+
+	@Autowired
+	ITemplateEngine templateEngine;
+
+	@Autowired
+	ApplicationContext applicationContext;
+
+	/**
+	 * テンプレートを描画する
+	 * @param viewName HTMLファイル名
+	 * @param model テンプレートに渡す値
+	 * @param request リクエスト
+	 * @param response レスポンス リンクのURLの生成に使用する
+	 * @return 描画したHTML
+	 */
+	public String render(String viewName, Model model, HttpServletRequest request, HttpServletResponse response) {
+
+		long start = System.nanoTime();
+
+		try {
+			return process(viewName, model, request, response);
+		} finally {
+			RenderTimingInterceptor.addRenderTime(request, System.nanoTime() - start);
+		}
+	}
+
+	//テンプレートを描画する
+	private String process(String viewName, Model model, HttpServletRequest request, HttpServletResponse response) {
+
+		Map<String, Object> variables = new HashMap<>(model.asMap());
+
+		RequestContext requestContext = new RequestContext(request, response, request.getServletContext(), variables);
+		variables.put(AbstractTemplateView.SPRING_MACRO_REQUEST_CONTEXT_ATTRIBUTE, requestContext);
+		variables.put(SpringContextVariableNames.THYMELEAF_REQUEST_CONTEXT,
+				new SpringWebMvcThymeleafRequestContext(requestContext, request));
+
+		ConversionService conversionService = (ConversionService) request.getAttribute(ConversionService.class.getName());
+		variables.put(ThymeleafEvaluationContext.THYMELEAF_EVALUATION_CONTEXT_CONTEXT_VARIABLE_NAME,
+				new ThymeleafEvaluationContext(applicationContext, conversionService));
+
+		WebContext context = new WebContext(request, response, request.getServletContext(),
+				RequestContextUtils.getLocale(request), variables);
+
+		return templateEngine.process(viewName, context);
+	}
+}
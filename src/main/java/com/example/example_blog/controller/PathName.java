@@ -14,7 +14,25 @@ public class PathName {
 	//ModifyArticleControllerのパス
 	public static final String MODIFY_ARTICLE = "/ModifyArticle";
 
+	//ArticleControllerのパス 記事のIDを続ける
+	public static final String ARTICLE = "/Article";
+
 	//ShowArticlesControllerのパス
 	public static final String SHOW_ARTICLES = "/ShowArticles";
 
+	//SearchArticlesControllerのパス
+	public static final String SEARCH_ARTICLES = "/SearchArticles";
+
+	//ImportArticlesControllerのパス
+	public static final String IMPORT_ARTICLES = "/ImportArticles";
+
+	//記事のJSON API（ArticleApiController）のパス
+	public static final String API_ARTICLES = "/api/articles";
+
+	//記事の変更イベントの配信（ArticleEventController）のパス
+	public static final String ARTICLE_EVENTS = "/api/article-events";
+
+	//ノンブロッキングの記事API（ReactiveArticleHandler）のパス
+	public static final String REACTIVE_ARTICLES = "/reactive/articles";
+
 }
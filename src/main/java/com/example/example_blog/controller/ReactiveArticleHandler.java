@@ -0,0 +1,90 @@
+package com.example.example_blog.controller;
+
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.example.example_blog.repository.ArticleCursor;
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.service.AcquisitionFailedException;
+import com.example.example_blog.service.ReactiveArticleService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * ノンブロッキングの記事APIのハンドラ
+ * 記事の一覧と記事を返す。一覧は1行に1記事のJSON（NDJSON）で、取得した順に送る。
+ * @author Chiba
+ */
+@Component
+public class ReactiveArticleHandler {
+
+	@Autowired
+	ReactiveArticleService service;
+
+	//sizeが指定されていない場合の1ページあたりの記事数
+	private final int DEFAULT_PAGE_SIZE = 20;
+
+	/**
+	 * 記事の一覧を返す
+	 * カーソルより古い記事を1ページ分返す。afterが指定されていない場合は最新の記事から、
+	 * sizeが指定されていない場合は既定の記事数だけ返す。
+	 * @param request リクエスト
+	 * @return 記事の一覧 入力値が不正な場合は400
+	 */
+	public Mono<ServerResponse> getArticles(ServerRequest request) {
+
+		//入力チェックの例外もエラーのレスポンスにするため、購読時に取得を開始する
+		return Mono.defer(() -> {
+
+			Optional<String> after = request.queryParam("after");
+			Optional<String> size = request.queryParam("size");
+
+			/*
+			 * 全記事を返すと、テーブル全体を1つのレスポンスで読み込むことになるので、常に1ページ分だけ返す
+			 * クライアントは最後の記事からカーソルを作って続きを取得する
+			 */
+			ArticleCursor cursor = after.isPresent() ? ArticleCursor.decode(after.get()) : null;
+			int pageSize = size.isPresent() ? Integer.parseInt(size.get()) : DEFAULT_PAGE_SIZE;
+
+			Flux<ArticleDAO> articles = service.getArticlesAfter(cursor, pageSize);
+
+			return ServerResponse.ok()
+					.contentType(MediaType.APPLICATION_NDJSON)
+					.body(articles, ArticleDAO.class);
+
+		}).onErrorResume(IllegalArgumentException.class, this::badRequest);
+	}
+
+	/**
+	 * 記事を返す
+	 * @param request リクエスト
+	 * @return 記事 見つからない場合は404、IDが不正な場合は400
+	 */
+	public Mono<ServerResponse> getArticle(ServerRequest request) {
+
+		return Mono.defer(() -> {
+
+			int id = Integer.parseInt(request.pathVariable("id"));
+
+			return service.getArticle(id)
+					.flatMap(article -> ServerResponse.ok()
+							.contentType(MediaType.APPLICATION_JSON)
+							.bodyValue(article));
+
+		}).onErrorResume(AcquisitionFailedException.class, e -> ServerResponse.notFound().build())
+				.onErrorResume(IllegalArgumentException.class, this::badRequest);
+	}
+
+	//入力値が不正な場合のレスポンス
+	private Mono<ServerResponse> badRequest(IllegalArgumentException e) {
+		return ServerResponse.badRequest()
+				.contentType(MediaType.TEXT_PLAIN)
+				.bodyValue(e.getMessage() != null ? e.getMessage() : "");
+	}
+}
@@ -0,0 +1,64 @@
+package com.example.example_blog.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * ノンブロッキングの記事APIのサーバの設定
+ * 記事一覧などの画面はTomcatで提供し、記事APIはNettyで別のポートから提供する。
+ * blog.reactive.port が設定されている場合だけ起動する。
+ * @author Chiba
+ */
+/*
+ * Tomcatではリクエストごとにスレッドを1つ使うので、データベースの応答や遅いクライアントを待つ間もスレッドが埋まる。
+ * Nettyは少数のスレッドで全ての接続を処理し、待っている間はスレッドを使わないので、
+ * 遅いクライアントが多数接続しても同時接続数がスレッド数で頭打ちにならない。
+ * 同じアプリケーションでSpring MVCとWebFluxのサーバを1つのポートで共存させることはできないので、ポートを分けている。
+ */
+@Configuration
+@ConditionalOnProperty(name = "blog.reactive.port")
+public class ReactiveServerConfiguration {
+
+	/**
+	 * 記事APIのサーバを起動する
+	 * @param handler 記事APIのハンドラ
+	 * @param objectMapper 記事をJSONに変換する
+	 * @param port 待ち受けるポート
+	 * @return 起動したサーバ アプリケーションの終了時に停止する
+	 */
+	@Bean(destroyMethod = "disposeNow")
+	public DisposableServer reactiveArticleServer(ReactiveArticleHandler handler, ObjectMapper objectMapper,
+			@Value("${blog.reactive.port}") int port) {
+
+		RouterFunction<ServerResponse> routes = RouterFunctions.route()
+				.GET(PathName.REACTIVE_ARTICLES + "/{id}", handler::getArticle)
+				.GET(PathName.REACTIVE_ARTICLES, handler::getArticles)
+				.build();
+
+		//JSONへの変換はSpring MVCと同じ設定にする
+		HandlerStrategies strategies = HandlerStrategies.builder()
+				.codecs(configurer -> configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper)))
+				.build();
+
+		HttpHandler httpHandler = RouterFunctions.toHttpHandler(routes, strategies);
+
+		return HttpServer.create()
+				.port(port)
+				.handle(new ReactorHttpHandlerAdapter(httpHandler))
+				.bindNow();
+	}
+}
@@ -0,0 +1,75 @@
+package com.example.example_blog.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 描画済みのページ
+ * HTMLと、あらかじめgzipで圧縮したHTMLを保持する。
+ * @author Chiba
+ */
+final class RenderedPage {
+
+	//HTML（UTF-8）
+	private final byte[] body;
+
+	//gzipで圧縮したHTML
+	private final byte[] gzipBody;
+
+	//ETagにする版 ETagは圧縮形式ごとに異なるので、レスポンスを返すときに作る
+	private final String versionTag;
+
+	//最終更新日時（ミリ秒）
+	private final long lastModified;
+
+	/**
+	 * コンストラクタ
+	 * @param html 描画したHTML
+	 * @param versionTag ETagにする版 キャッシュしないページの場合はnull
+	 * @param lastModified 最終更新日時（ミリ秒）
+	 */
+	RenderedPage(String html, String versionTag, long lastModified) {
+		this.body = html.getBytes(StandardCharsets.UTF_8);
+		this.gzipBody = gzip(body);
+		this.versionTag = versionTag;
+		this.lastModified = lastModified;
+	}
+
+	//gzipで圧縮する
+	private static byte[] gzip(byte[] data) {
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(data);
+		} catch (IOException e) {
+			//メモリ上の書き込みなので発生しない
+			throw new UncheckedIOException(e);
+		}
+
+		return out.toByteArray();
+	}
+
+	//HTMLのゲッタ
+	byte[] getBody() {
+		return body;
+	}
+
+	//gzipで圧縮したHTMLのゲッタ
+	byte[] getGzipBody() {
+		return gzipBody;
+	}
+
+	//ETagにする版のゲッタ
+	String getVersionTag() {
+		return versionTag;
+	}
+
+	//最終更新日時のゲッタ
+	long getLastModified() {
+		return lastModified;
+	}
+}
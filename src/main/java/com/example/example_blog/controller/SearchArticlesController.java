@@ -0,0 +1,66 @@
+package com.example.example_blog.controller;
+
+import java.util.Collections;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import com.example.example_blog.repository.SearchCursor;
+import com.example.example_blog.repository.SearchPage;
+import com.example.example_blog.service.ArticleService;
+
+/**
+ * 記事検索ページのコントローラ
+ * タイトル・本文にキーワードを含む記事を関連度の高い順に表示する
+ * @author Chiba
+ */
+@Controller
+public class SearchArticlesController {
+
+	@Autowired
+	ArticleService service;
+
+	private final String VIEW_NAME = "Search";
+
+	//1ページあたりの記事数
+	private final int PAGE_SIZE = 20;
+
+	/**
+	 * 記事一覧ページで検索ボタンが押されたとき、
+	 * 記事検索ページを表示する。
+	 * @param model 記事検索ページの表示に必要なものを格納する
+	 * @param query 入力された検索キーワード
+	 * @param after 次のページを表示する場合のカーソル
+	 * @return 記事検索のHTMLファイル名
+	 */
+	@GetMapping(path = PathName.SEARCH_ARTICLES)
+	public String search(Model model,
+			@RequestParam(name = "q", required = false) String query,
+			@RequestParam(name = "after", required = false) String after) {
+
+		//前後の空白は検索キーワードに含めない
+		query = (query == null) ? "" : query.trim();
+
+		model.addAttribute("query", query);
+
+		//検索キーワードが入力されていない場合は検索しない
+		if (query.equals("")) {
+			model.addAttribute("articles", Collections.emptyList());
+			model.addAttribute("nextCursor", null);
+			return VIEW_NAME;
+		}
+
+		//検索の実行
+		SearchCursor cursor = (after != null) ? SearchCursor.decode(after) : null;
+		SearchPage page = service.searchArticles(query, cursor, PAGE_SIZE);
+
+		//modelに検索結果と次のページのカーソルを格納 次のページがなければnull
+		model.addAttribute("articles", page.getArticles());
+		model.addAttribute("nextCursor", page.getNext() != null ? page.getNext().encode() : null);
+
+		return VIEW_NAME;
+	}
+}
@@ -1,16 +1,40 @@
 package com.example.example_blog.controller;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
-import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.datasource.ReadRoute;
+import com.example.example_blog.repository.ArticleCursor;
+import com.example.example_blog.repository.ArticleSummaryPage;
+import com.example.example_blog.repository.Tag;
 import com.example.example_blog.service.ArticleService;
+import com.example.example_blog.service.ContentVersion;
+import com.example.example_blog.service.cache.BoundedCache;
+import com.example.example_blog.service.validation.ArticleError;
+import com.example.example_blog.service.validation.ArticleValidator;
 
 /**
  * 記事一覧ページのコントローラ
@@ -23,20 +47,232 @@ public class ShowArticlesController {
 	@Autowired
 	ArticleService service;
 
+	@Autowired
+	PageRenderer renderer;
+
+	@Autowired
+	ArticleValidator validator;
+
+	//描画済みページのキャッシュの最大件数
+	@Value("${blog.page-cache.max-size:100}")
+	int pageCacheMaxSize;
+
+	//描画済みページのキャッシュの有効期間（秒）
+	@Value("${blog.page-cache.ttl-seconds:600}")
+	long pageCacheTtlSeconds;
+
+	private static final MediaType HTML_UTF8 = new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8);
+
 	private final String VIEW_NAME = "Show";
 
+	//1ページあたりの記事数
+	private final int PAGE_SIZE = 20;
+
+	//一覧に表示する本文の抜粋の文字数
+	@Value("${blog.show.excerpt-length:200}")
+	int excerptLength;
+
+	/*
+	 * 描画済みページのキャッシュ キーは記事の版とカーソル
+	 * 記事が書き込まれると版が変わり、古い版のページは参照されなくなって順に破棄される
+	 */
+	private BoundedCache<String, RenderedPage> pageCache;
+
+	@PostConstruct
+	void init() {
+		pageCache = new BoundedCache<>(pageCacheMaxSize, pageCacheTtlSeconds * 1000);
+	}
+
 	/**
 	 * 記事一覧ページを表示する
+	 * 記事は1ページ分だけ表示し、前後のページへはカーソルで移動する。
+	 * 描画したページは記事の版ごとにキャッシュし、記事が変わっていなければ描画し直さない。
+	 * クライアントが同じ版のページを持っている場合は、304 Not Modified を返す。
 	 * @param model 記事一覧ページの表示に必要なものを格納する
 	 * @param modelMap リダイレクト元から送られたメッセージとメッセージタイプが格納されている
-	 * @return 記事一覧のHTMLファイル名
+	 * @param after 次のページを表示する場合のカーソル
+	 * @param before 前のページを表示する場合のカーソル
+	 * @param tag 絞り込むタグ 複数指定した場合は全てのタグが付いた記事を表示する
+	 * @param webRequest 条件付きリクエストの判定に使用する
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @return 記事一覧のHTML 304の場合はnull
+	 * @throws ResponseStatusException カーソルの形式が正しくない場合と、絞り込むタグが多すぎる場合 400を返す
 	 */
 	@GetMapping(path = PathName.SHOW_ARTICLES)
 	/*
 	 * @ModelAttributeを使用して、リダイレクト元が設定したメッセージ・メッセージタイプの入ったModelMapオブジェクトを受け取っている
 	 */
-	public String show(Model model, @ModelAttribute("model")ModelMap modelMap) {
+	public ResponseEntity<byte[]> show(Model model, @ModelAttribute("model")ModelMap modelMap,
+			@RequestParam(name = "after", required = false) String after,
+			@RequestParam(name = "before", required = false) String before,
+			@RequestParam(name = "tag", required = false) List<String> tag,
+			WebRequest webRequest, HttpServletRequest request, HttpServletResponse response) {
+
+		//絞り込むタグ 空のタグと重複したタグは無視する
+		Set<String> tags = Tag.parseNames(tag != null ? String.join(",", tag) : null);
+
+		//絞り込むタグの最大数チェック 記事に付けられるタグの数より多く指定しても該当する記事はない
+		if (tags.size() > validator.getMaxTagCount()) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, validator.getMessage(ArticleError.TOO_MANY_TAGS));
+		}
+
+		//前後のページのカーソル 書き換えられたカーソルは記事の取得前に断る
+		ArticleCursor afterCursor = decodeCursor(after);
+		ArticleCursor beforeCursor = decodeCursor(before);
+
+		//リダイレクト元からのメッセージがある場合は、その場限りのページなのでキャッシュしない
+		if (modelMap.get("message") != null) {
+			String viewName = prepare(model, modelMap, afterCursor, beforeCursor, tags);
+			RenderedPage page = new RenderedPage(renderer.render(viewName, model, request, response), null, 0);
+
+			return toResponse(page, CacheControl.noStore(), acceptsGzip(request));
+		}
+
+		/*
+		 * 記事を取得する前に版を取得しておく
+		 * 取得中に記事が書き込まれても、古い版として扱われるので、新しい版に古い内容がキャッシュされることはない
+		 */
+		ContentVersion version = service.getContentVersion();
+		boolean gzip = acceptsGzip(request);
+
+		//クライアントが同じ版の同じ圧縮形式を持っていれば、記事を取得せずに304を返す
+		if (webRequest.checkNotModified(etag(version.getTag(), gzip), version.getLastModified())) {
+			return null;
+		}
+
+		/*
+		 * キャッシュになければ描画する 他のクライアントのためにURLにセッションIDを含めない
+		 * 版はプライマリの変更イベントから取得しているので、記事もプライマリから読み込む
+		 * レプリカから読み込むと、遅れているレプリカの書き込み前の一覧が新しい版として描画・キャッシュされ、
+		 * 同じ版のETagで確認するクライアントには次の書き込みまで304が返り続けてしまう
+		 */
+		RenderedPage page = pageCache.get(version.getTag() + ":" + after + ":" + before + ":" + tags, () -> {
+
+			//既にプライマリでの実行を強制されている場合は、そのままにする
+			boolean forced = ReadRoute.isPrimaryForced();
+			ReadRoute.setPrimaryForced(true);
+
+			try {
+				String viewName = prepare(model, modelMap, afterCursor, beforeCursor, tags);
+				String html = renderer.render(viewName, model, request, new HttpServletResponseWrapper(response) {
+
+					@Override
+					public String encodeURL(String url) {
+						return url;
+					}
+				});
+				return new RenderedPage(html, version.getTag(), version.getLastModified());
+
+			} finally {
+				ReadRoute.setPrimaryForced(forced);
+			}
+		});
+
+		//クライアント・リバースプロキシには、使用する前に毎回版を確認させる
+		return toResponse(page, CacheControl.noCache(), gzip);
+	}
+
+	//カーソル文字列を復元する 指定されていない場合はnull
+	private ArticleCursor decodeCursor(String value) {
+		if (value == null) {
+			return null;
+		}
+
+		try {
+			return ArticleCursor.decode(value);
+
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ページの指定が正しくありません。", e);
+		}
+	}
+
+	//描画済みのページのレスポンス クライアントがgzipを受け付ける場合は圧縮済みのHTMLを返す
+	private ResponseEntity<byte[]> toResponse(RenderedPage page, CacheControl cacheControl, boolean gzip) {
+
+		ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+				.contentType(HTML_UTF8)
+				.cacheControl(cacheControl)
+				.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+		if (page.getVersionTag() != null) {
+			builder.eTag(etag(page.getVersionTag(), gzip)).lastModified(page.getLastModified());
+		}
+
+		if (gzip) {
+			return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(page.getGzipBody());
+		}
+
+		return builder.body(page.getBody());
+	}
+
+	/*
+	 * 圧縮したHTMLと圧縮していないHTMLはバイト列が異なるので、強いETagは圧縮形式ごとに別の値にする
+	 * 同じ値にすると、リバースプロキシが片方の形式を持っているときに、もう片方の形式のリクエストにも304で応えてしまう
+	 */
+	//版と圧縮形式のETag
+	private static String etag(String versionTag, boolean gzip) {
+		return "\"" + versionTag + (gzip ? "-gz" : "") + "\"";
+	}
+
+	/**
+	 * クライアントがgzipを受け付けるかを判定する
+	 * Accept-Encoding の gzip（なければ *）の品質値が0の場合は、受け付けないものとして扱う。
+	 * @param request リクエスト
+	 * @return gzipを受け付ける場合はtrue
+	 */
+	private static boolean acceptsGzip(HttpServletRequest request) {
+		String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+
+		if (acceptEncoding == null) {
+			return false;
+		}
 
+		//* の指定 gzipの指定がない場合に使用する
+		Boolean wildcard = null;
+
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parameters = coding.split(";");
+			String name = parameters[0].trim();
+
+			if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+				return quality(parameters) > 0;
+			}
+			if (name.equals("*")) {
+				wildcard = quality(parameters) > 0;
+			}
+		}
+
+		return wildcard != null && wildcard;
+	}
+
+	//Accept-Encoding の品質値 指定がない場合は1 形式が正しくない場合は受け付けないものとして0
+	private static double quality(String[] parameters) {
+		for (int i = 1; i < parameters.length; i++) {
+			String parameter = parameters[i].trim();
+
+			if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+				try {
+					return Double.parseDouble(parameter.substring(2).trim());
+				} catch (NumberFormatException e) {
+					return 0;
+				}
+			}
+		}
+
+		return 1;
+	}
+
+	/**
+	 * 記事一覧ページの表示に必要なものをmodelに格納する
+	 * @param model 記事一覧ページの表示に必要なものを格納する
+	 * @param modelMap リダイレクト元から送られたメッセージとメッセージタイプが格納されている
+	 * @param after 次のページを表示する場合のカーソル
+	 * @param before 前のページを表示する場合のカーソル
+	 * @param tags 絞り込むタグ 空の場合は絞り込まない
+	 * @return 記事一覧のHTMLファイル名
+	 */
+	String prepare(Model model, ModelMap modelMap, ArticleCursor after, ArticleCursor before, Set<String> tags) {
 
 		//リダイレクト元から受け取ったメッセージを取得
 		String message = (String) modelMap.get("message");
@@ -55,11 +291,38 @@ public class ShowArticlesController {
 		model.addAttribute("message", message);
 		model.addAttribute("messageType", messageType);
 
-		//全ての記事を取得
-		List<ArticleDAO> articles = service.getAllArticles();
+		/*
+		 * 表示するページの記事の要約を取得
+		 * 一覧では本文の全文は表示しないので、本文は抜粋だけをデータベースから取得する
+		 */
+		ArticleSummaryPage page;
+
+		if (!tags.isEmpty()) {
+			//タグで絞り込む場合 タグの付いた記事だけをインデックスで辿る
+			page = (before != null)
+					? service.getArticleSummariesByTagsBefore(tags, before, PAGE_SIZE, excerptLength)
+					: service.getArticleSummariesByTagsAfter(tags, after, PAGE_SIZE, excerptLength);
+		} else if (before != null) {
+			//前のページ
+			page = service.getArticleSummariesBefore(before, PAGE_SIZE, excerptLength);
+		} else if (after != null) {
+			//次のページ
+			page = service.getArticleSummariesAfter(after, PAGE_SIZE, excerptLength);
+		} else {
+			//先頭のページ
+			page = service.getArticleSummariesAfter(null, PAGE_SIZE, excerptLength);
+		}
+
+		//modelに記事の要約リストを格納
+		model.addAttribute("articles", page.getSummaries());
+
+		//modelに前後のページのカーソルを格納 ページがなければnull
+		model.addAttribute("nextCursor", page.getNext() != null ? page.getNext().encode() : null);
+		model.addAttribute("previousCursor", page.getPrevious() != null ? page.getPrevious().encode() : null);
 
-		//modelに記事リストを格納
-		model.addAttribute("articles", articles);
+		//modelにタグの一覧と絞り込み中のタグを格納 ページ送りのリンクにも絞り込み中のタグを付ける
+		model.addAttribute("tags", service.getTags());
+		model.addAttribute("selectedTags", new ArrayList<>(tags));
 
 		return VIEW_NAME;
 
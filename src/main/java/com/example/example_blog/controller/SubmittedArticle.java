@@ -0,0 +1,43 @@
+package com.example.example_blog.controller;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.example.example_blog.repository.ArticleDAO;
+
+/**
+ * 受け付けた記事の追加の完了待ち
+ * 書き込み待ちの列で失敗した場合は、CompletionExceptionに包まれた元の例外をスローする。
+ * @author Chiba
+ */
+/*
+ * join() はFutureが例外で完了すると CompletionException をスローするので、
+ * そのままではコントローラの例外ハンドラで元の例外（停止中の IllegalStateException やデータベースの例外）を区別できない。
+ */
+final class SubmittedArticle {
+
+	private SubmittedArticle() {
+	}
+
+	/**
+	 * 記事の追加が終わるまで待つ
+	 * @param future 記事の追加を受け付けたときに返されたFuture
+	 * @return 追加した記事
+	 */
+	static ArticleDAO await(CompletableFuture<ArticleDAO> future) {
+		try {
+			return future.join();
+
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package com.example.example_blog.datasource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * JDBCのデータソースの設定
+ * spring.datasource の設定で接続する。
+ * レプリカに振り分ける場合は ReplicaDataSourceConfiguration が振り分けるデータソースを登録するので、ここでは登録しない。
+ * @author Chiba
+ */
+/*
+ * R2DBCの接続（spring.r2dbc）を設定すると、Spring BootはJDBCのデータソースを自動で登録しなくなり、
+ * spring.datasource の設定も読み込まなくなる。
+ * リポジトリ・トランザクション管理・Flywayは全てJDBCを使用するので、明示的に登録している。
+ */
+@Configuration
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class PrimaryDataSourceConfiguration {
+
+	/**
+	 * データソース
+	 * blog.datasource.replica-urls が設定されていない場合だけ登録する。
+	 * @param properties spring.datasource の設定
+	 * @return データソース
+	 */
+	@Bean
+	@ConditionalOnExpression("'${blog.datasource.replica-urls:}'.isEmpty()")
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource dataSource(DataSourceProperties properties) {
+		return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+}
@@ -0,0 +1,60 @@
+package com.example.example_blog.datasource;
+
+/**
+ * 現在のスレッドのSQLの実行先の指定
+ * レプリカでの読み込み中か、プライマリでの実行を強制されているかを保持する。
+ * @author Chiba
+ */
+public final class ReadRoute {
+
+	//レプリカでの読み込みの入れ子の深さ
+	private static final ThreadLocal<int[]> REPLICA_DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+	//プライマリでの実行を強制されているか
+	private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+	private ReadRoute() {
+	}
+
+	/**
+	 * レプリカでの読み込みを開始する 終了時にはendReplicaReadを呼び出すこと
+	 */
+	public static void beginReplicaRead() {
+		REPLICA_DEPTH.get()[0]++;
+	}
+
+	/**
+	 * レプリカでの読み込みを終了する
+	 */
+	public static void endReplicaRead() {
+		REPLICA_DEPTH.get()[0]--;
+	}
+
+	/**
+	 * レプリカでの読み込み中か
+	 * @return 読み込み中の場合はtrue
+	 */
+	public static boolean isReplicaRead() {
+		return REPLICA_DEPTH.get()[0] > 0;
+	}
+
+	/**
+	 * プライマリでの実行を強制するかを設定する
+	 * @param forced 強制する場合はtrue
+	 */
+	public static void setPrimaryForced(boolean forced) {
+		if (forced) {
+			PRIMARY_FORCED.set(Boolean.TRUE);
+		} else {
+			PRIMARY_FORCED.remove();
+		}
+	}
+
+	/**
+	 * プライマリでの実行を強制されているか
+	 * @return 強制されている場合はtrue
+	 */
+	public static boolean isPrimaryForced() {
+		return PRIMARY_FORCED.get() != null;
+	}
+}
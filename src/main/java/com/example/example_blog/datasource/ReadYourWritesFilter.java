@@ -0,0 +1,85 @@
+package com.example.example_blog.datasource;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * 書き込んだクライアントの読み込みをプライマリに振り分けるフィルタ
+ * 書き込みのリクエスト（GET・HEAD・OPTIONS以外）を受けたら、一定期間後の時刻をクッキーに格納する。
+ * その時刻までのそのクライアントからのリクエストでは、レプリカでの読み込みもプライマリで実行する。
+ * @author Chiba
+ */
+/*
+ * 時刻はクッキーで持ち回るので、他のサーバで書き込んだクライアントにも効く。
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+	//プライマリから読み込む期限の時刻（ミリ秒）を格納するクッキー名
+	static final String COOKIE_NAME = "blog_primary_until";
+
+	//書き込み後にプライマリから読み込む期間（ミリ秒）
+	private final long readYourWritesMillis;
+
+	/**
+	 * コンストラクタ
+	 * @param readYourWritesMillis 書き込み後にプライマリから読み込む期間（ミリ秒）
+	 */
+	public ReadYourWritesFilter(long readYourWritesMillis) {
+		this.readYourWritesMillis = readYourWritesMillis;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+
+		long now = System.currentTimeMillis();
+		String method = request.getMethod();
+		boolean write = !("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method));
+
+		//書き込みの場合は期限をクッキーに格納する レスポンスの確定前に設定しておく
+		if (write) {
+			Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(now + readYourWritesMillis));
+			cookie.setPath("/");
+			cookie.setHttpOnly(true);
+			cookie.setMaxAge((int) (readYourWritesMillis / 1000) + 1);
+			response.addCookie(cookie);
+		}
+
+		ReadRoute.setPrimaryForced(write || primaryUntil(request) > now);
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			ReadRoute.setPrimaryForced(false);
+		}
+	}
+
+	//クッキーからプライマリから読み込む期限を取得する なければ0
+	private static long primaryUntil(HttpServletRequest request) {
+
+		Cookie[] cookies = request.getCookies();
+
+		if (cookies == null) {
+			return 0;
+		}
+
+		for (Cookie cookie : cookies) {
+			if (COOKIE_NAME.equals(cookie.getName())) {
+				try {
+					return Long.parseLong(cookie.getValue());
+				} catch (NumberFormatException e) {
+					//改ざんされた値は無視する
+					return 0;
+				}
+			}
+		}
+
+		return 0;
+	}
+}
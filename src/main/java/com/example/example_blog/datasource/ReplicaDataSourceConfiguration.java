@@ -0,0 +1,114 @@
+package com.example.example_blog.datasource;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * レプリカへの振り分けの設定
+ * blog.datasource.replica-urls にレプリカの接続先が設定されている場合だけ有効になる。
+ * プライマリは spring.datasource の設定で接続し、レプリカはプライマリと同じ設定で接続先だけを変える。
+ * @author Chiba
+ */
+@Configuration
+@ConditionalOnProperty(name = "blog.datasource.replica-urls")
+public class ReplicaDataSourceConfiguration {
+
+	//書き込み後にプライマリから読み込む期間（ミリ秒）
+	@Value("${blog.datasource.read-your-writes-millis:2000}")
+	long readYourWritesMillis;
+
+	/**
+	 * プライマリの接続プール
+	 * @param properties spring.datasource の設定
+	 * @return プライマリの接続プール
+	 */
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+		return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+
+	/**
+	 * 読み込みをレプリカに振り分けるデータソース
+	 * リポジトリ・トランザクション管理など、データソースを使用する全ての処理はこのデータソースを使用する。
+	 * @param primaryDataSource プライマリの接続プール
+	 * @param replicaUrls レプリカの接続先
+	 * @param healthCheckMillis レプリカの死活監視の間隔（ミリ秒）
+	 * @param meterRegistry レプリカの接続プールのメーターの登録先
+	 * @return データソース
+	 */
+	@Bean
+	@Primary
+	public ReplicaRoutingDataSource dataSource(HikariDataSource primaryDataSource,
+			@Value("${blog.datasource.replica-urls}") String[] replicaUrls,
+			@Value("${blog.datasource.replica-health-check-millis:5000}") long healthCheckMillis,
+			ObjectProvider<MeterRegistry> meterRegistry) {
+
+		List<DataSource> replicas = new ArrayList<>();
+
+		for (int i = 0; i < replicaUrls.length; i++) {
+			HikariConfig config = new HikariConfig();
+			primaryDataSource.copyStateTo(config);
+
+			config.setJdbcUrl(replicaUrls[i].trim());
+			config.setPoolName("replica-" + (i + 1));
+			config.setReadOnly(true);
+
+			//起動時にレプリカが停止していても起動できるようにする
+			config.setInitializationFailTimeout(-1);
+
+			/*
+			 * レプリカの接続プールはBeanではないので、Spring BootがHikariCPのメーターを登録しない
+			 * プライマリと同じ hikaricp.* のメーターを、プール名（pool タグ）で区別して登録する
+			 */
+			meterRegistry.ifAvailable(registry ->
+					config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+
+			replicas.add(new HikariDataSource(config));
+		}
+
+		ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primaryDataSource, replicas,
+				readYourWritesMillis);
+		dataSource.startHealthCheck(healthCheckMillis, 1);
+
+		return dataSource;
+	}
+
+	/**
+	 * @ReplicaRead を付けたメソッドをレプリカで実行し、書き込みの時刻を記録する
+	 * @param dataSource 読み込みをレプリカに振り分けるデータソース 他のデータソースで包まれている場合がある
+	 * @return アスペクト
+	 * @throws SQLException 振り分けるデータソースを取り出せなかった場合
+	 */
+	@Bean
+	public ReplicaReadAspect replicaReadAspect(DataSource dataSource) throws SQLException {
+		return new ReplicaReadAspect(dataSource.unwrap(ReplicaRoutingDataSource.class));
+	}
+
+	/**
+	 * 書き込んだクライアントの読み込みをプライマリに振り分ける
+	 * @return フィルタ
+	 */
+	@Bean
+	public ReadYourWritesFilter readYourWritesFilter() {
+		return new ReadYourWritesFilter(readYourWritesMillis);
+	}
+}
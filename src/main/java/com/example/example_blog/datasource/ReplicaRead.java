@@ -0,0 +1,19 @@
+package com.example.example_blog.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * レプリカで実行してよい読み込み処理であることを示すアノテーション
+ * レプリカが設定されている場合、このメソッド内のSQLはレプリカで実行される。
+ * ただし、書き込みを含むトランザクションの中で呼び出された場合や、書き込み直後の場合はプライマリで実行される。
+ * @author Chiba
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReplicaRead {
+}
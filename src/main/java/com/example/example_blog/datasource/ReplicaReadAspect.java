@@ -0,0 +1,59 @@
+package com.example.example_blog.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.annotation.Order;
+
+/**
+ * 記事リポジトリのSQLの実行先を指定する
+ * @ReplicaRead を付けたメソッドの実行中はレプリカでの読み込みを指定し、
+ * それ以外の記事リポジトリのメソッド（書き込み）の実行後は書き込みの時刻を記録する。
+ * @author Chiba
+ */
+/*
+ * @Transactional(readOnly = true) と併用した場合にトランザクション開始時の接続もレプリカから取得するように、
+ * トランザクションの処理より外側で実行する。
+ */
+@Aspect
+@Order(0)
+public class ReplicaReadAspect {
+
+	private final ReplicaRoutingDataSource dataSource;
+
+	/**
+	 * コンストラクタ
+	 * @param dataSource 書き込みの時刻を記録するデータソース
+	 */
+	public ReplicaReadAspect(ReplicaRoutingDataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	/**
+	 * レプリカでの読み込み
+	 */
+	@Around("@annotation(com.example.example_blog.datasource.ReplicaRead)")
+	public Object routeToReplica(ProceedingJoinPoint joinPoint) throws Throwable {
+
+		ReadRoute.beginReplicaRead();
+		try {
+			return joinPoint.proceed();
+		} finally {
+			ReadRoute.endReplicaRead();
+		}
+	}
+
+	/**
+	 * 記事リポジトリへの書き込み
+	 * 失敗した場合も一部が書き込まれている可能性があるので記録する。
+	 */
+	@Around("execution(public * com.example.example_blog.repository.ArticleRepository+.*(..))"
+			+ " && !@annotation(com.example.example_blog.datasource.ReplicaRead)")
+	public Object recordWrite(ProceedingJoinPoint joinPoint) throws Throwable {
+		try {
+			return joinPoint.proceed();
+		} finally {
+			dataSource.markWritten();
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package com.example.example_blog.datasource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * 読み込みをレプリカに振り分けるデータソース
+ * レプリカでの読み込み（@ReplicaRead）の場合は、正常なレプリカから順番に接続を取得する。
+ * それ以外の場合と、正常なレプリカがない場合はプライマリから接続を取得する。
+ * @author Chiba
+ */
+/*
+ * レプリカへの反映には遅れがあるので、次の場合はレプリカでの読み込みでもプライマリから接続を取得する。
+ * ・プライマリへの書き込みの直後（このサーバ内の全ての読み込み）
+ *   書き込みで無効化した記事キャッシュに、反映前のレプリカの内容が読み込まれないようにするため
+ * ・書き込んだクライアントからの書き込み直後のリクエスト（ReadYourWritesFilter が指定する）
+ *   他のサーバで書き込んだ内容を、そのクライアントが読めるようにするため
+ * このサーバでの書き込みの時刻は、ReplicaReadAspect が記事リポジトリの書き込みのたびに記録する。
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+	//プライマリ
+	private final DataSource primary;
+
+	//レプリカ
+	private final List<Replica> replicas = new ArrayList<>();
+
+	//次に使用するレプリカの番号
+	private final AtomicInteger next = new AtomicInteger();
+
+	//書き込み後にプライマリから読み込む期間（ミリ秒）
+	private final long readYourWritesMillis;
+
+	//この時刻まではプライマリから読み込む
+	private volatile long primaryUntil = 0;
+
+	//レプリカの死活監視
+	private ScheduledExecutorService healthChecker;
+
+	/**
+	 * コンストラクタ
+	 * @param primary プライマリ
+	 * @param replicas レプリカ
+	 * @param readYourWritesMillis 書き込み後にプライマリから読み込む期間（ミリ秒）
+	 */
+	public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long readYourWritesMillis) {
+		this.primary = primary;
+		for (DataSource replica : replicas) {
+			this.replicas.add(new Replica(replica));
+		}
+		this.readYourWritesMillis = readYourWritesMillis;
+	}
+
+	/**
+	 * レプリカの死活監視を開始する
+	 * 一定間隔でレプリカに接続し、接続できないレプリカには振り分けないようにする。
+	 * @param intervalMillis 監視間隔（ミリ秒）
+	 * @param timeoutSeconds 接続の確認のタイムアウト（秒）
+	 */
+	public synchronized void startHealthCheck(long intervalMillis, int timeoutSeconds) {
+
+		if (healthChecker != null) {
+			return;
+		}
+
+		healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "replica-health-check");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		healthChecker.scheduleWithFixedDelay(() -> checkHealth(timeoutSeconds),
+				intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * プライマリに書き込んだことを記録する
+	 * 一定期間、このサーバの全ての読み込みをプライマリで実行する。
+	 */
+	public void markWritten() {
+		primaryUntil = System.currentTimeMillis() + readYourWritesMillis;
+	}
+
+	/**
+	 * 全てのレプリカの死活を確認する
+	 * @param timeoutSeconds 接続の確認のタイムアウト（秒）
+	 */
+	void checkHealth(int timeoutSeconds) {
+		for (Replica replica : replicas) {
+			boolean healthy;
+
+			try (Connection connection = replica.dataSource.getConnection()) {
+				healthy = connection.isValid(timeoutSeconds);
+			} catch (SQLException e) {
+				healthy = false;
+			}
+
+			replica.setHealthy(healthy);
+		}
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+
+		Replica replica = route();
+
+		if (replica != null) {
+			try {
+				return replica.dataSource.getConnection();
+			} catch (SQLException e) {
+				//接続できなかったレプリカは、死活監視で復旧を確認するまで使用しない
+				replica.setHealthy(false);
+				return primary.getConnection();
+			}
+		}
+
+		return primary.getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+
+		Replica replica = route();
+
+		if (replica != null) {
+			try {
+				return replica.dataSource.getConnection(username, password);
+			} catch (SQLException e) {
+				replica.setHealthy(false);
+				return primary.getConnection(username, password);
+			}
+		}
+
+		return primary.getConnection(username, password);
+	}
+
+	/**
+	 * 接続を取得するレプリカを決める
+	 * @return レプリカ プライマリから取得する場合はnull
+	 */
+	private Replica route() {
+
+		//レプリカでの読み込みでなければプライマリ
+		if (!ReadRoute.isReplicaRead()) {
+			return null;
+		}
+
+		//書き込みの直後はプライマリ
+		if (ReadRoute.isPrimaryForced() || System.currentTimeMillis() < primaryUntil) {
+			return null;
+		}
+
+		//正常なレプリカを順番に選ぶ
+		int size = replicas.size();
+		int start = next.getAndIncrement() & Integer.MAX_VALUE;
+
+		for (int i = 0; i < size; i++) {
+			Replica replica = replicas.get((start + i) % size);
+
+			if (replica.healthy) {
+				return replica;
+			}
+		}
+
+		//正常なレプリカがなければプライマリ
+		return null;
+	}
+
+	/**
+	 * 死活監視を終了し、レプリカを閉じる
+	 * プライマリは閉じない
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+
+		if (healthChecker != null) {
+			healthChecker.shutdownNow();
+			healthChecker = null;
+		}
+
+		for (Replica replica : replicas) {
+			if (replica.dataSource instanceof Closeable) {
+				((Closeable) replica.dataSource).close();
+			}
+		}
+	}
+
+	/**
+	 * レプリカと死活の状態
+	 */
+	private static final class Replica {
+
+		private final DataSource dataSource;
+
+		private volatile boolean healthy = true;
+
+		Replica(DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+
+		//状態が変わった場合だけログを出力する
+		void setHealthy(boolean healthy) {
+			if (this.healthy != healthy) {
+				this.healthy = healthy;
+
+				if (healthy) {
+					LOGGER.info("レプリカ {} に接続できるようになったので、振り分けを再開します", dataSource);
+				} else {
+					LOGGER.warn("レプリカ {} に接続できないので、振り分けを停止します", dataSource);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package com.example.example_blog.datasource;
+
+import javax.sql.DataSource;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+/**
+ * トランザクション管理の設定
+ * @author Chiba
+ */
+/*
+ * R2DBCを使用するとR2DBC用のトランザクション管理も登録されるので、
+ * @Transactional が使用するトランザクション管理を1つに決められなくなる。
+ * JDBCのトランザクション管理を明示的に登録し、@Transactional ではこちらを使用するようにしている。
+ */
+@Configuration
+public class TransactionManagerConfiguration {
+
+	/**
+	 * JDBCのトランザクション管理
+	 * @param dataSource データソース
+	 * @return トランザクション管理
+	 */
+	@Bean
+	@Primary
+	public DataSourceTransactionManager transactionManager(DataSource dataSource) {
+		return new DataSourceTransactionManager(dataSource);
+	}
+}
@@ -0,0 +1,53 @@
+package com.example.example_blog.execution;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * 仮想スレッドで実行する場合の、同時に使用する接続数の制限の設定
+ * blog.execution.mode=virtual の場合だけ有効になる。
+ * アプリケーションが使用するデータソース（dataSource）を ConnectionLimitingDataSource で包む。
+ * @author Chiba
+ */
+/*
+ * レプリカに振り分ける場合は、振り分けるデータソースを包むので、プライマリとレプリカの合計で制限される。
+ */
+@Configuration
+@ConditionalOnProperty(name = "blog.execution.mode", havingValue = "virtual")
+public class ConnectionLimiterConfiguration {
+
+	/**
+	 * データソースを包む
+	 * 他の設定より先に生成する必要があるので、static で定義する。
+	 * @param environment 最大接続数などの設定
+	 * @return データソースを包む処理
+	 */
+	@Bean
+	public static BeanPostProcessor connectionLimiter(Environment environment) {
+
+		//同時に使用する最大接続数 指定がなければ接続プールの最大接続数
+		int maxConnections = environment.getProperty("blog.execution.jdbc-permits", Integer.class,
+				environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+
+		//許可を待つ最大時間 指定がなければ接続プールの接続の取得のタイムアウト
+		long acquireTimeoutMillis = environment.getProperty("blog.execution.jdbc-acquire-timeout-millis", Long.class,
+				environment.getProperty("spring.datasource.hikari.connection-timeout", Long.class, 30000L));
+
+		return new BeanPostProcessor() {
+
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if ("dataSource".equals(beanName) && bean instanceof DataSource
+						&& !(bean instanceof ConnectionLimitingDataSource)) {
+					return new ConnectionLimitingDataSource((DataSource) bean, maxConnections, acquireTimeoutMillis);
+				}
+				return bean;
+			}
+		};
+	}
+}
@@ -0,0 +1,147 @@
+package com.example.example_blog.execution;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * 同時に使用する接続数を制限するデータソース
+ * 接続の取得前に許可を待ち、接続を閉じたときに許可を返す。
+ * 許可の数を接続プールの最大接続数に合わせることで、接続プールの空きを待つスレッドを先着順に並ばせる。
+ * @author Chiba
+ */
+/*
+ * 仮想スレッドではリクエストごとにスレッドを作るので、数千のスレッドが同時に接続を取りにくることがある。
+ * 接続プール（HikariCP）の待ち合わせは多数の待機に向いておらず、順番も保証されないので、
+ * 待ち時間が偏って接続の取得のタイムアウトが起きやすい。
+ * 公平なセマフォで先に並ばせておけば、仮想スレッドは安価に待機でき、接続は来た順に渡る。
+ */
+public class ConnectionLimitingDataSource extends DelegatingDataSource {
+
+	private final Semaphore permits;
+
+	//許可を待つ最大時間（ミリ秒）
+	private final long acquireTimeoutMillis;
+
+	/**
+	 * コンストラクタ
+	 * @param target 接続を取得するデータソース
+	 * @param maxConnections 同時に使用する最大接続数
+	 * @param acquireTimeoutMillis 許可を待つ最大時間（ミリ秒）
+	 */
+	public ConnectionLimitingDataSource(DataSource target, int maxConnections, long acquireTimeoutMillis) {
+		super(target);
+
+		//最大接続数が1未満でないことを確認する。
+		if (maxConnections < 1) {
+			throw new IllegalArgumentException("最大接続数が1未満です");
+		}
+
+		this.permits = new Semaphore(maxConnections, true);
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		acquire();
+		try {
+			return limited(getTargetDataSource().getConnection());
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		acquire();
+		try {
+			return limited(getTargetDataSource().getConnection(username, password));
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * 許可を待っているスレッド数を取得する
+	 * @return 待っているスレッド数の概算
+	 */
+	public int getWaitingThreads() {
+		return permits.getQueueLength();
+	}
+
+	/**
+	 * 使用できる許可の数を取得する
+	 * @return 許可の数
+	 */
+	public int getAvailablePermits() {
+		return permits.availablePermits();
+	}
+
+	//許可を待つ
+	private void acquire() throws SQLException {
+		try {
+			if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new SQLTransientConnectionException(
+						"接続の許可を" + acquireTimeoutMillis + "ミリ秒以内に取得できませんでした");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("接続の許可を待つ間に割り込まれました", e);
+		}
+	}
+
+	//閉じたときに許可を返す接続
+	private Connection limited(Connection target) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new ReleasingHandler(target));
+	}
+
+	/**
+	 * 接続を閉じたときに許可を返す
+	 * 2回閉じられても許可は1回だけ返す。
+	 */
+	private final class ReleasingHandler implements InvocationHandler {
+
+		private final Connection target;
+
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		ReleasingHandler(Connection target) {
+			this.target = target;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+			if (method.getName().equals("close") && method.getParameterCount() == 0) {
+				try {
+					target.close();
+				} finally {
+					if (released.compareAndSet(false, true)) {
+						permits.release();
+					}
+				}
+				return null;
+			}
+
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.example.example_blog.execution;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+/**
+ * 仮想スレッドで実行する設定
+ * blog.execution.mode=virtual の場合だけ有効になる。Java 21以降で実行する必要がある（-PvirtualThreads）。
+ * Tomcatのリクエストの処理と、Spring MVCの非同期処理を仮想スレッドで実行する。
+ * リポジトリのJDBCの呼び出しはリクエストを処理するスレッドで行うので、仮想スレッドで実行される。
+ * @author Chiba
+ */
+/*
+ * 仮想スレッドはJDBCの応答を待つ間キャリアスレッドを手放すので、スレッドプールの大きさで同時リクエスト数が頭打ちにならない。
+ * 代わりに接続プールの空きを待つスレッドが多数になるので、ConnectionLimiterConfiguration で接続の取得を並ばせる。
+ *
+ * Spring Framework 5.3 のASMはJava 21のクラスファイルを読めないので、アプリケーションはJava 8のクラスファイルのままにしている。
+ * 仮想スレッドのAPIはJava 8でコンパイルできないため、実行時にリフレクションで呼び出す。
+ */
+@Configuration
+@ConditionalOnProperty(name = "blog.execution.mode", havingValue = "virtual")
+public class VirtualThreadConfiguration {
+
+	/**
+	 * Tomcatのリクエストを仮想スレッドで処理する
+	 * @return Tomcatの設定
+	 */
+	@Bean
+	public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler() {
+		ExecutorService executor = virtualThreadExecutor("tomcat-");
+		return protocolHandler -> protocolHandler.setExecutor(executor);
+	}
+
+	/**
+	 * Spring MVCの非同期処理を仮想スレッドで実行する
+	 * @return 仮想スレッドで実行するExecutor
+	 */
+	@Bean(name = { TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, "taskExecutor" })
+	public AsyncTaskExecutor applicationTaskExecutor() {
+		return new TaskExecutorAdapter(virtualThreadExecutor("task-"));
+	}
+
+	/**
+	 * タスクごとに名前付きの仮想スレッドを作るExecutorを作成する
+	 * Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory()) と同じ。
+	 * @param prefix スレッド名の接頭辞
+	 * @return Executor
+	 * @throws IllegalStateException 仮想スレッドに対応していないJavaで実行している場合
+	 */
+	static ExecutorService virtualThreadExecutor(String prefix) {
+		try {
+			//ビルダーの実装クラスは公開されていないので、公開されているインタフェース（Thread.Builder）のメソッドを呼ぶ
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+			ThreadFactory threadFactory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+
+			return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+					.invoke(null, threadFactory);
+
+		} catch (ClassNotFoundException | NoSuchMethodException e) {
+			throw new IllegalStateException("仮想スレッドで実行するにはJava 21以降が必要です（実行中のJava："
+					+ System.getProperty("java.version") + "）", e);
+
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new IllegalStateException("仮想スレッドのExecutorを作成できませんでした", e);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.example.example_blog.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 書き出すファイルの書き込み
+ * 同じディレクトリの一時ファイルに書き込んでから置き換えるので、
+ * 配信中のファイルが書きかけの状態で読まれることはない。
+ * @author Chiba
+ */
+/*
+ * 一時ファイルを同じディレクトリに作るのは、リネームが同じファイルシステム内でしかアトミックにならないため。
+ * nginx の gzip_static で圧縮済みのファイルをそのまま返せるように、HTMLと一緒に .gz も書き出す。
+ *
+ * 一時ファイルは所有者しか読めない権限（rw-------）で作成され、置き換えた後もその権限が残る。
+ * アプリケーションと別のユーザで動くnginxが読めるように、置き換える前に rw-r--r-- に変更する。
+ */
+final class StaticFileWriter {
+
+	//圧縮済みファイルの拡張子
+	static final String GZIP_SUFFIX = ".gz";
+
+	//書き出すファイルの権限 POSIXの権限に対応したファイルシステムの場合だけ設定する
+	static final Set<PosixFilePermission> FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-r--r--");
+
+	private StaticFileWriter() {
+	}
+
+	/**
+	 * ファイルをアトミックに書き込む
+	 * 親ディレクトリがなければ作成する。
+	 * @param target 書き込むファイル
+	 * @param content 内容
+	 */
+	static void write(Path target, byte[] content) {
+		try {
+			Path directory = target.toAbsolutePath().getParent();
+			Files.createDirectories(directory);
+
+			//ドットで始まる一時ファイルは配信の対象外にしておく
+			Path temp = Files.createTempFile(directory, "." + target.getFileName(), ".tmp");
+
+			try {
+				Files.write(temp, content);
+
+				//作成時の権限はumaskの影響を受けるので、作成後に変更する
+				if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+					Files.setPosixFilePermissions(temp, FILE_PERMISSIONS);
+				}
+
+				move(temp, target);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * ファイルと圧縮済みのファイルをアトミックに書き込む
+	 * 圧縮済みのファイルを先に置き換えるので、HTMLが新しくなった時点で .gz も新しくなっている。
+	 * @param target 書き込むファイル
+	 * @param content 内容
+	 */
+	static void writeWithGzip(Path target, byte[] content) {
+		write(target.resolveSibling(target.getFileName() + GZIP_SUFFIX), gzip(content));
+		write(target, content);
+	}
+
+	/**
+	 * ファイルと圧縮済みのファイルを削除する
+	 * @param target 削除するファイル
+	 * @return ファイルがあった場合はtrue
+	 */
+	static boolean delete(Path target) {
+		try {
+			//HTMLを先に削除し、圧縮済みのファイルだけが残らないようにする
+			boolean deleted = Files.deleteIfExists(target);
+			Files.deleteIfExists(target.resolveSibling(target.getFileName() + GZIP_SUFFIX));
+			return deleted;
+
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	//一時ファイルで置き換える アトミックな置き換えができないファイルシステムでは通常の置き換えにする
+	private static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	//gzipで圧縮する
+	private static byte[] gzip(byte[] content) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(content);
+		} catch (IOException e) {
+			//メモリ上のストリームなので発生しない
+			throw new UncheckedIOException(e);
+		}
+
+		return out.toByteArray();
+	}
+}
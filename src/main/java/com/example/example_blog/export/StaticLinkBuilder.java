@@ -0,0 +1,24 @@
+package com.example.example_blog.export;
+
+import java.util.Map;
+
+import org.thymeleaf.context.IExpressionContext;
+import org.thymeleaf.linkbuilder.StandardLinkBuilder;
+
+/**
+ * 書き出し用のリンクの生成
+ * リクエストのない描画でも、/ で始まるリンク（@{/ShowArticles} など）をそのままのパスにする。
+ * @author Chiba
+ */
+/*
+ * 標準のリンクの生成は、コンテキストパスをリクエストから取得するので、
+ * リクエストのない描画では / で始まるリンクを生成できずに例外になる。
+ * 書き出したページからアプリケーションへのリンク（検索・編集など）は、アプリケーションがルートにある前提にする。
+ */
+class StaticLinkBuilder extends StandardLinkBuilder {
+
+	@Override
+	protected String computeContextPath(IExpressionContext context, String base, Map<String, Object> parameters) {
+		return "";
+	}
+}
@@ -0,0 +1,604 @@
+package com.example.example_blog.export;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ITemplateResolver;
+
+import com.example.example_blog.controller.MessageType;
+import com.example.example_blog.datasource.ReadRoute;
+import com.example.example_blog.repository.ArticleCursor;
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.ArticleEvent;
+import com.example.example_blog.repository.ArticleEventRepository;
+import com.example.example_blog.repository.ArticleEventType;
+import com.example.example_blog.repository.ArticleRepository;
+import com.example.example_blog.repository.ArticleSummary;
+import com.example.example_blog.repository.NoArticleFoundException;
+import com.example.example_blog.repository.Tag;
+import com.example.example_blog.service.ArticleService;
+
+/**
+ * ブログの静的ページの書き出し
+ * 記事一覧ページ（Show.html）と記事ごとのページ（Article.html）を、アプリケーションと同じテンプレートで描画し、
+ * 指定したディレクトリにHTMLファイルとして書き出す。ディレクトリをnginxなどでそのまま配信すれば、
+ * 読むだけのリクエストにアプリケーションを使わずに済む。
+ * blog.export.enabled=true の場合だけ有効になる。
+ * @author Chiba
+ */
+/*
+ * 書き出すファイル
+ *   index.html        最新の20件の記事とタグの一覧
+ *   page/{n}.html     記事一覧の n ページ目 古い記事から20件ずつ区切り、ページ内は新しい順に並べる
+ *   article/{id}.html 記事ごとのページ
+ *
+ * 最新の記事から区切ると、記事を1件追加しただけで全てのページの区切りがずれて全て書き直しになる。
+ * 古い記事から区切れば、追加で変わるのは最後のページだけになり、削除でも削除した記事のページ以降だけになる。
+ * 最後のページは記事数によっては1件しかないので、最初に開く index.html は最後のページとは別に最新の20件を表示する。
+ * index.html の次へ（より古い記事）は最後の1つ前のページにするので、最後のページが20件に満たない場合は、
+ * 最後の1つ前のページの新しい記事が index.html と重複して表示される。
+ *
+ * 書き出し後の変更は、記事管理サービスが書き込みと同じトランザクションで追加する変更イベントを
+ * 通し番号の順に読み込んで反映する。イベントには記事の投稿日があるので、削除した記事でも何ページ目にあったかが分かる。
+ * 反映し終えた通し番号をディレクトリの .export-seq に保存し、再起動後はその続きから反映する。
+ * 他のサーバでの書き込みもイベントに含まれるので、書き出すサーバは1台だけでよい。
+ *
+ * 全体の書き出しでは、データベースからの読み込みは書き出し用のスレッドで順に行い、
+ * 描画・圧縮・書き込みをCPUのコア数のスレッドで並列に行う。
+ */
+@Component
+@ConditionalOnProperty(name = "blog.export.enabled", havingValue = "true")
+public class StaticSiteExporter {
+
+	private static final Logger logger = LoggerFactory.getLogger(StaticSiteExporter.class);
+
+	@Autowired
+	ArticleRepository repository;
+
+	@Autowired
+	ArticleEventRepository eventRepository;
+
+	@Autowired
+	ArticleService service;
+
+	//アプリケーションのテンプレートの読み込み設定
+	@Autowired
+	List<ITemplateResolver> templateResolvers;
+
+	//書き出し先のディレクトリ
+	@Value("${blog.export.dir}")
+	String dir;
+
+	//書き出したディレクトリを配信するURLのパス 書き出したページ同士のリンクに付ける
+	@Value("${blog.export.base-path:}")
+	String basePath;
+
+	//描画するスレッド数 0の場合はCPUのコア数
+	@Value("${blog.export.threads:0}")
+	int threads;
+
+	//変更イベントを確認する間隔（ミリ秒）
+	@Value("${blog.export.poll-interval-millis:5000}")
+	long pollIntervalMillis;
+
+	//1回に反映する最大イベント数
+	@Value("${blog.export.batch-size:500}")
+	int batchSize;
+
+	//一覧に表示する本文の抜粋の文字数 記事一覧ページと同じにする
+	@Value("${blog.show.excerpt-length:200}")
+	int excerptLength;
+
+	//変更イベントを保持する日数 保存した通し番号がこれより古い場合は、続きのイベントが削除されているかもしれない
+	@Value("${blog.events.retention-days:7}")
+	int retentionDays;
+
+	//1ページあたりの記事数 記事一覧ページと同じにする
+	private static final int PAGE_SIZE = 20;
+
+	//反映し終えた通し番号を保存するファイル名
+	private static final String SEQ_FILE = ".export-seq";
+
+	//イベントがなくても通し番号を保存し直す間隔（ミリ秒） 保存日時で保持期間を過ぎたと誤判定しないようにする
+	private static final long SEQ_TOUCH_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	//描画の完了を待つ間隔（ミリ秒） 停止を確認できるように待ち時間を区切る
+	private static final long AWAIT_SLICE_MILLIS = 1000;
+
+	private Path root;
+
+	//書き出し用のテンプレートエンジン
+	private TemplateEngine templateEngine;
+
+	//描画するスレッド
+	private ThreadPoolExecutor renderers;
+
+	//変更を反映するスレッド
+	private Thread exporter;
+
+	//停止の合図
+	private final Object signal = new Object();
+
+	//通し番号を最後に保存した時刻
+	private long seqSavedAt;
+
+	//停止処理が始まったか
+	private volatile boolean closed = false;
+
+	@PostConstruct
+	void start() {
+
+		//描画するスレッド数が負でないことを確認する。
+		if (threads < 0) {
+			throw new IllegalArgumentException("描画するスレッド数が負です");
+		}
+
+		//反映する最大イベント数が1未満でないことを確認する。
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("反映する最大イベント数が1未満です");
+		}
+
+		init();
+
+		exporter = new Thread(this::exportLoop, "static-export");
+		exporter.setDaemon(true);
+		exporter.start();
+	}
+
+	//書き出し先・テンプレートエンジン・描画するスレッドを準備する
+	void init() {
+
+		root = Paths.get(dir);
+
+		//リクエストのない描画でもリンクを生成できるように、専用のテンプレートエンジンを作る
+		SpringTemplateEngine engine = new SpringTemplateEngine();
+		engine.setTemplateResolvers(new LinkedHashSet<>(templateResolvers));
+		engine.setLinkBuilder(new StaticLinkBuilder());
+		templateEngine = engine;
+
+		int threadCount = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+		AtomicInteger threadNumber = new AtomicInteger();
+
+		//描画待ちがたまりすぎないよう、待ち行列が満杯なら読み込み側のスレッドで描画する
+		renderers = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(threadCount * 4), runnable -> {
+					Thread thread = new Thread(runnable, "static-export-renderer-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * 停止する
+	 * 書き出し中のページは書き終えずに止めるが、通し番号を保存していないので、再起動後に書き出し直す。
+	 */
+	@PreDestroy
+	void close() {
+		closed = true;
+
+		synchronized (signal) {
+			signal.notifyAll();
+		}
+
+		try {
+			if (exporter != null) {
+				exporter.join(TimeUnit.SECONDS.toMillis(5));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		renderers.shutdownNow();
+	}
+
+	//変更を反映するスレッドの処理
+	private void exportLoop() {
+
+		//イベントはプライマリから読み込むので、記事もプライマリから読み込み、レプリカの遅れで古い内容を書き出さない
+		ReadRoute.setPrimaryForced(true);
+
+		//反映し終えた通し番号 負の場合は保存した通し番号を読み込み、なければ全体を書き出す
+		long seq = -1;
+
+		while (!closed) {
+			try {
+				if (seq < 0) {
+					seq = readSeq();
+				}
+
+				if (seq < 0) {
+					long exported = exportAll();
+					if (exported >= 0) {
+						writeSeq(exported);
+						seq = exported;
+					}
+					continue;
+				}
+
+				List<ArticleEvent> events = eventRepository.getEventsAfter(seq, batchSize);
+
+				if (!events.isEmpty()) {
+					if (!apply(events)) {
+						continue;
+					}
+					seq = events.get(events.size() - 1).getSeq();
+					writeSeq(seq);
+
+					//まだ続きがあるかもしれないので、待たずに読み込む
+					if (events.size() == batchSize) {
+						continue;
+					}
+
+				} else if (System.currentTimeMillis() - seqSavedAt > SEQ_TOUCH_INTERVAL_MILLIS) {
+					writeSeq(seq);
+				}
+
+			} catch (RuntimeException e) {
+				//データベースやディスクの一時的な障害 通し番号は進めていないので、次の確認で同じ変更から反映し直す
+				logger.warn("静的ページの書き出しに失敗しました", e);
+			}
+
+			synchronized (signal) {
+				if (!closed) {
+					try {
+						signal.wait(pollIntervalMillis);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 全てのページを書き出す
+	 * @return 書き出した内容に反映済みの変更イベントの通し番号 停止した場合は-1
+	 */
+	long exportAll() {
+
+		long started = System.currentTimeMillis();
+
+		//読み込みを始める前の通し番号 書き出し中の変更は、この続きのイベントとして後から反映する
+		long latestSeq = eventRepository.getLatestSeq();
+
+		List<Future<?>> tasks = new ArrayList<>();
+
+		//記事一覧ページ
+		int lastPage = lastPage(repository.countArticles());
+		renderListPages(1, lastPage, lastPage, tasks);
+		renderIndex(lastPage, service.getTags(), tasks);
+
+		//記事ごとのページ 本文の全文を使うので、全件を保持せずに1件ずつ描画に渡す
+		BitSet ids = new BitSet();
+		repository.forEachArticle(0, article -> {
+			ids.set(article.getId());
+			tasks.add(renderers.submit(() -> writeArticle(article)));
+		});
+
+		if (!awaitAll(tasks)) {
+			return -1;
+		}
+
+		//前回の書き出しから削除された記事のページと、記事数が減って不要になったページを削除する
+		deleteArticlesExcept(ids);
+		deletePagesAfter(lastPage);
+
+		logger.info("静的ページを書き出しました（{}ページ・{}記事・{}ミリ秒）",
+				lastPage, ids.cardinality(), System.currentTimeMillis() - started);
+
+		return latestSeq;
+	}
+
+	/**
+	 * 変更イベントの記事と、記事のある一覧のページを書き直す
+	 * @param events 変更イベントのリスト
+	 * @return 書き直した場合はtrue 停止した場合はfalse
+	 */
+	boolean apply(List<ArticleEvent> events) {
+
+		//追加・削除された記事のうち最も古い記事のページ このページ以降は区切りがずれるので全て書き直す
+		int shiftedFrom = Integer.MAX_VALUE;
+
+		//更新された記事のあるページ
+		Set<Integer> modifiedPages = new TreeSet<>();
+
+		//変更された記事のID
+		Set<Integer> articleIds = new LinkedHashSet<>();
+
+		for (ArticleEvent event : events) {
+			articleIds.add(event.getArticleId());
+
+			if (event.getArticleDate() == null) {
+				//投稿日を記録する前のイベントは位置が分からないので、全てのページを書き直す
+				shiftedFrom = 1;
+				continue;
+			}
+
+			//古い順に並べたときの位置 削除済みの記事でも、残っている記事のうちより古い記事の数で求まる
+			int page = repository.countArticlesBefore(new ArticleCursor(event.getArticleDate(), event.getArticleId()))
+					/ PAGE_SIZE + 1;
+
+			if (event.getType() == ArticleEventType.MODIFIED) {
+				modifiedPages.add(page);
+			} else {
+				shiftedFrom = Math.min(shiftedFrom, page);
+			}
+		}
+
+		List<Future<?>> tasks = new ArrayList<>();
+
+		int lastPage = lastPage(repository.countArticles());
+
+		//区切りのずれないページは、更新された記事のあるページだけ書き直す
+		for (int page : modifiedPages) {
+			if (page < shiftedFrom && page <= lastPage) {
+				renderListPages(page, page, lastPage, tasks);
+			}
+		}
+
+		//区切りのずれたページ 最後のページが増減すると1つ前のページの前へのリンクも変わるので、そこから書き直す
+		if (shiftedFrom != Integer.MAX_VALUE) {
+			renderListPages(Math.max(1, Math.min(shiftedFrom, lastPage - 1)), lastPage, lastPage, tasks);
+		}
+
+		//タグの記事数も変わるので、index.html は毎回書き直す
+		renderIndex(lastPage, service.getTags(), tasks);
+
+		//記事ごとのページ 削除済みの記事はファイルを削除する
+		for (int id : articleIds) {
+			try {
+				ArticleDAO article = repository.getArticle(id);
+				tasks.add(renderers.submit(() -> writeArticle(article)));
+
+			} catch (NoArticleFoundException e) {
+				StaticFileWriter.delete(articlePath(id));
+			}
+		}
+
+		if (!awaitAll(tasks)) {
+			return false;
+		}
+
+		deletePagesAfter(lastPage);
+
+		return true;
+	}
+
+	/**
+	 * 記事一覧のページを順に描画に渡す
+	 * 最初のページだけ読み飛ばして取得し、以降は前のページの最も新しい記事の続きから取得する。
+	 * @param from 最初のページ番号
+	 * @param to 最後のページ番号
+	 * @param lastPage 記事一覧の最後のページ番号
+	 * @param tasks 描画の完了を待つためのリスト
+	 */
+	private void renderListPages(int from, int to, int lastPage, List<Future<?>> tasks) {
+
+		List<ArticleSummary> summaries = repository.getOldestArticleSummaries((from - 1) * PAGE_SIZE, PAGE_SIZE,
+				excerptLength);
+
+		for (int page = from; page <= to; page++) {
+			renderListPage(page, lastPage, summaries, tasks);
+
+			//記事数を数えた後に削除された場合は、記事が足りなくなったところで終える
+			if (page == to || summaries.size() < PAGE_SIZE) {
+				break;
+			}
+
+			summaries = repository.getArticleSummariesNewerThan(ArticleCursor.of(summaries.get(summaries.size() - 1)),
+					PAGE_SIZE, excerptLength);
+		}
+	}
+
+	//記事一覧の1ページを描画に渡す
+	private void renderListPage(int page, int lastPage, List<ArticleSummary> oldestFirst, List<Future<?>> tasks) {
+
+		//ページ内は記事一覧ページと同じく新しい順に並べる
+		List<ArticleSummary> articles = new ArrayList<>(oldestFirst);
+		Collections.reverse(articles);
+
+		//前へ（より新しい記事）は次の番号のページ、次へ（より古い記事）は前の番号のページ
+		String previousHref = (page < lastPage) ? pageHref(page + 1) : null;
+		String nextHref = (page > 1) ? pageHref(page - 1) : null;
+
+		//タグの記事数は書き込みのたびに変わるので、タグの一覧は毎回書き直す index.html だけに表示する
+		tasks.add(renderers.submit(() -> writeListPage(pagePath(page), articles, Collections.emptyList(),
+				previousHref, nextHref)));
+	}
+
+	//最新の20件の記事を index.html として描画に渡す 次へ（より古い記事）は最後の1つ前のページ
+	private void renderIndex(int lastPage, List<Tag> tags, List<Future<?>> tasks) {
+
+		List<ArticleSummary> articles = repository.getArticleSummariesAfter(null, PAGE_SIZE, excerptLength)
+				.getSummaries();
+		String nextHref = (lastPage > 1) ? pageHref(lastPage - 1) : null;
+
+		tasks.add(renderers.submit(() -> writeListPage(root.resolve("index.html"), articles, tags, null, nextHref)));
+	}
+
+	//記事一覧のページを描画して書き出す
+	private void writeListPage(Path target, List<ArticleSummary> articles, List<Tag> tags, String previousHref,
+			String nextHref) {
+
+		Context context = new Context(Locale.JAPAN);
+		context.setVariable("staticPage", true);
+		context.setVariable("message", null);
+		context.setVariable("messageType", MessageType.NONE);
+		context.setVariable("articles", articles);
+		context.setVariable("articleHrefPrefix", basePath + "/article/");
+		context.setVariable("previousHref", previousHref);
+		context.setVariable("nextHref", nextHref);
+		context.setVariable("tags", tags);
+		context.setVariable("selectedTags", Collections.emptyList());
+
+		String html = templateEngine.process("Show", context);
+		StaticFileWriter.writeWithGzip(target, html.getBytes(StandardCharsets.UTF_8));
+	}
+
+	//記事のページを描画して書き出す
+	private void writeArticle(ArticleDAO article) {
+
+		Context context = new Context(Locale.JAPAN);
+		context.setVariable("staticPage", true);
+		context.setVariable("article", article);
+		context.setVariable("listHref", basePath + "/index.html");
+
+		String html = templateEngine.process("Article", context);
+		StaticFileWriter.writeWithGzip(articlePath(article.getId()), html.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * 描画が全て終わるまで待つ
+	 * @param tasks 描画のリスト
+	 * @return 全て終わった場合はtrue 停止した場合はfalse
+	 */
+	private boolean awaitAll(List<Future<?>> tasks) {
+		for (Future<?> task : tasks) {
+			while (true) {
+				if (closed) {
+					return false;
+				}
+
+				try {
+					task.get(AWAIT_SLICE_MILLIS, TimeUnit.MILLISECONDS);
+					break;
+
+				} catch (TimeoutException e) {
+					//停止していなければ待ち続ける
+
+				} catch (ExecutionException e) {
+					throw new IllegalStateException("静的ページの描画に失敗しました", e.getCause());
+
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	//指定したページより後のページを削除する ページ番号は連続しているので、ファイルがなくなるまで削除する
+	private void deletePagesAfter(int lastPage) {
+		int page = lastPage + 1;
+		while (StaticFileWriter.delete(pagePath(page))) {
+			page++;
+		}
+	}
+
+	//指定したID以外の記事のページを削除する
+	private void deleteArticlesExcept(BitSet ids) {
+
+		Path directory = root.resolve("article");
+		if (!Files.isDirectory(directory)) {
+			return;
+		}
+
+		List<Integer> stale = new ArrayList<>();
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.html")) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+
+				try {
+					int id = Integer.parseInt(name.substring(0, name.length() - ".html".length()));
+					if (id > 0 && !ids.get(id)) {
+						stale.add(id);
+					}
+				} catch (NumberFormatException e) {
+					//書き出したファイル以外は残す
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		for (int id : stale) {
+			StaticFileWriter.delete(articlePath(id));
+		}
+	}
+
+	//保存した通し番号を読み込む ない場合や、イベントの保持期間より前に保存した場合は-1
+	private long readSeq() {
+
+		Path file = root.resolve(SEQ_FILE);
+
+		try {
+			if (!Files.exists(file)) {
+				return -1;
+			}
+
+			if (retentionDays > 0 && Files.getLastModifiedTime(file).toMillis()
+					< System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays)) {
+				logger.info("保存した通し番号が変更イベントの保持期間より古いため、全体を書き出します");
+				return -1;
+			}
+
+			return Long.parseLong(new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim());
+
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+
+		} catch (NumberFormatException e) {
+			logger.warn("保存した通し番号を読み込めないため、全体を書き出します");
+			return -1;
+		}
+	}
+
+	//反映し終えた通し番号を保存する
+	private void writeSeq(long seq) {
+		StaticFileWriter.write(root.resolve(SEQ_FILE), Long.toString(seq).getBytes(StandardCharsets.US_ASCII));
+		seqSavedAt = System.currentTimeMillis();
+	}
+
+	//記事数から最後のページ番号を求める 記事がなくても1ページ目は書き出す
+	private static int lastPage(int articleCount) {
+		return Math.max(1, (articleCount + PAGE_SIZE - 1) / PAGE_SIZE);
+	}
+
+	//記事一覧のページへのリンク
+	private String pageHref(int page) {
+		return basePath + "/page/" + page + ".html";
+	}
+
+	private Path pagePath(int page) {
+		return root.resolve("page").resolve(page + ".html");
+	}
+
+	private Path articlePath(int id) {
+		return root.resolve("article").resolve(id + ".html");
+	}
+}
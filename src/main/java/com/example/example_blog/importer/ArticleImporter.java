@@ -0,0 +1,110 @@
+package com.example.example_blog.importer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.service.ArticleService;
+import com.example.example_blog.service.validation.ArticleError;
+import com.example.example_blog.service.validation.ArticleValidator;
+
+/**
+ * 記事の一括取り込み
+ * リーダから読み込んだ記事をバッチサイズごとにまとめて記事管理サービスに渡す。
+ * メモリに保持するのは1バッチ分の記事だけなので、ファイルの大きさに関わらず使用量は一定になる。
+ * @author Chiba
+ */
+@Component
+public class ArticleImporter {
+
+	@Autowired
+	ArticleService service;
+
+	@Autowired
+	ArticleValidator validator;
+
+	//1回のバッチで追加する記事数
+	@Value("${blog.import.batch-size:1000}")
+	int batchSize;
+
+	//取り込めなかったレコードの詳細を返す上限件数
+	private final int MAX_REJECTED_RECORDS = 100;
+
+	/**
+	 * リーダから全ての記事を読み込んで追加する
+	 * 形式が正しくないレコードや入力チェックが通らないレコードは読み飛ばし、結果に記録する。
+	 * @param reader 記事を読み込むリーダ
+	 * @return 取り込み結果
+	 * @throws IOException ファイルの読み込みに失敗した場合
+	 */
+	public ImportResult importArticles(ArticleRecordReader reader) throws IOException {
+
+		ImportResult result = new ImportResult(MAX_REJECTED_RECORDS);
+
+		//追加待ちの記事
+		List<ArticleDAO> batch = new ArrayList<>(batchSize);
+
+		while (true) {
+			ArticleDAO article;
+
+			try {
+				article = reader.read();
+
+			} catch (IllegalArgumentException e) {
+				//形式が正しくないレコードは読み飛ばす
+				result.addRejected(reader.getLineNumber(), e.getMessage());
+				continue;
+			}
+
+			//ファイルの終端
+			if (article == null) {
+				break;
+			}
+
+			//入力チェック
+			//1件でも不正な記事があると記事管理サービスはバッチ全体を追加しないので、事前に取り除いておく
+			ArticleError error = validator.check(article.getTitle(), article.getContent());
+			if (error != null) {
+				result.addRejected(reader.getLineNumber(), validator.getMessage(error));
+				continue;
+			}
+
+			batch.add(article);
+
+			//バッチサイズに達したら追加する
+			if (batch.size() >= batchSize) {
+				flush(batch, result);
+			}
+		}
+
+		//残りの記事を追加する
+		flush(batch, result);
+
+		return result;
+	}
+
+	/**
+	 * 追加待ちの記事をまとめて追加する
+	 * @param batch 追加待ちの記事 追加後は空にする
+	 * @param result 取り込み結果
+	 */
+	private void flush(List<ArticleDAO> batch, ImportResult result) {
+
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		long start = System.nanoTime();
+
+		int count = service.addArticles(batch);
+
+		result.addBatch(count, (System.nanoTime() - start) / 1_000_000);
+
+		batch.clear();
+	}
+}
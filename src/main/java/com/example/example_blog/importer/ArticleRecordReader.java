@@ -0,0 +1,56 @@
+package com.example.example_blog.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+import com.example.example_blog.repository.ArticleDAO;
+
+/**
+ * 取り込むファイルから記事を1件ずつ読み込むリーダ
+ * ファイル全体をメモリに保持せず、1レコードずつ読み込む。
+ * @author Chiba
+ */
+public interface ArticleRecordReader extends Closeable {
+
+	/**
+	 * 次のレコードを記事オブジェクトとして読み込む
+	 * @return 記事オブジェクト ファイルの終端に達した場合はnull
+	 * @throws IOException ファイルの読み込みに失敗した場合
+	 * @throws IllegalArgumentException レコードの形式が正しくない場合 そのレコードは読み飛ばされる
+	 */
+	public ArticleDAO read() throws IOException;
+
+	/**
+	 * 直前に読み込んだレコードの開始行番号を取得する
+	 * @return 行番号（1始まり）
+	 */
+	public int getLineNumber();
+
+	/**
+	 * 投稿日の文字列を変換する
+	 * ISO-8601形式（例：2021-04-01T12:00:00+09:00）と
+	 * yyyy-mm-dd hh:mm:ss 形式を受け付ける。
+	 * @param value 投稿日の文字列
+	 * @return 投稿日 空値の場合はnull
+	 * @throws IllegalArgumentException 形式が正しくない場合
+	 */
+	public static Timestamp parseDate(String value) {
+
+		//投稿日が指定されていない場合
+		if (value == null || value.equals("")) {
+			return null;
+		}
+
+		try {
+			return Timestamp.from(OffsetDateTime.parse(value).toInstant());
+
+		} catch (DateTimeParseException e) {
+			//ISO-8601形式でなければ yyyy-mm-dd hh:mm:ss 形式として変換する
+			//形式が正しくなければIllegalArgumentExceptionがスローされる
+			return Timestamp.valueOf(value);
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package com.example.example_blog.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.example_blog.repository.ArticleDAO;
+
+/**
+ * CSVファイルから記事を読み込むリーダ
+ * 1行目はヘッダとし、title・content列は必須、date列は任意とする。
+ * 値はダブルクォートで囲むことで、カンマ・改行・ダブルクォート（""と書く）を含められる。
+ * @author Chiba
+ */
+/*
+ * 値の長さと列数に上限を設けないと、閉じられていないダブルクォートや巨大な値を含むファイルで、
+ * 1つの値にファイルの残り全体を読み込んでメモリを使い切ってしまう。
+ * 上限を超えた値は読み捨てながらレコードの終わりまで読み進め、そのレコードだけを不正として読み飛ばす。
+ */
+public class CsvArticleRecordReader implements ArticleRecordReader {
+
+	//1レコードの最大列数
+	private static final int MAX_FIELD_COUNT = 100;
+
+	private final BufferedReader reader;
+
+	//1つの値の最大文字数
+	private final int maxFieldSize;
+
+	//タイトルの列番号
+	private final int titleIndex;
+
+	//本文の列番号
+	private final int contentIndex;
+
+	//投稿日の列番号 列がなければ-1
+	private final int dateIndex;
+
+	//読み込み済みの行数
+	private int lineCount = 0;
+
+	//直前に読み込んだレコードの開始行番号
+	private int recordLineNumber = 0;
+
+	/**
+	 * コンストラクタ
+	 * ヘッダ行を読み込んで、各列の位置を確認する。
+	 * @param reader CSVファイルのリーダ
+	 * @param maxFieldSize 1つの値の最大文字数 これより長い値を含むレコードは不正とする
+	 * @throws IOException ファイルの読み込みに失敗した場合
+	 * @throws IllegalArgumentException ヘッダ行がない、もしくは必須の列がない場合
+	 */
+	public CsvArticleRecordReader(Reader reader, int maxFieldSize) throws IOException {
+
+		//最大文字数が1未満でないことを確認する。
+		if (maxFieldSize < 1) {
+			throw new IllegalArgumentException("値の最大文字数が1未満です");
+		}
+
+		this.reader = new BufferedReader(reader);
+		this.maxFieldSize = maxFieldSize;
+
+		List<String> header = readRecord();
+
+		//ヘッダ行があることを確認する。
+		if (header == null) {
+			throw new IllegalArgumentException("ヘッダ行がありません");
+		}
+
+		this.titleIndex = header.indexOf("title");
+		this.contentIndex = header.indexOf("content");
+		this.dateIndex = header.indexOf("date");
+
+		//タイトルと本文の列があることを確認する。
+		if (titleIndex < 0 || contentIndex < 0) {
+			throw new IllegalArgumentException("ヘッダにtitle列もしくはcontent列がありません");
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ArticleDAO read() throws IOException {
+
+		List<String> fields;
+
+		//空行は読み飛ばす
+		do {
+			fields = readRecord();
+
+			//ファイルの終端
+			if (fields == null) {
+				return null;
+			}
+		} while (fields.size() == 1 && fields.get(0).equals(""));
+
+		//列数がヘッダと合っていることを確認する。
+		if (fields.size() <= Math.max(Math.max(titleIndex, contentIndex), dateIndex)) {
+			throw new IllegalArgumentException("列数が足りません");
+		}
+
+		ArticleDAO article = new ArticleDAO();
+		article.setTitle(fields.get(titleIndex));
+		article.setContent(fields.get(contentIndex));
+
+		if (dateIndex >= 0) {
+			article.setDate(ArticleRecordReader.parseDate(fields.get(dateIndex)));
+		}
+
+		return article;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getLineNumber() {
+		return recordLineNumber;
+	}
+
+	/**
+	 * 1レコード分の値を読み込む
+	 * ダブルクォートで囲まれた値の中の改行はレコードの区切りとしない。
+	 * @return 値のリスト ファイルの終端に達した場合はnull
+	 * @throws IOException ファイルの読み込みに失敗した場合
+	 * @throws IllegalArgumentException 値が長すぎる・列が多すぎる・ダブルクォートが閉じられていない場合
+	 *                                  レコードの終わりまで読み進めてからスローする
+	 */
+	private List<String> readRecord() throws IOException {
+
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+
+		//ダブルクォートで囲まれた値の中にいるか
+		boolean quoted = false;
+
+		//1文字でも読み込んだか
+		boolean read = false;
+
+		//最大文字数を超えた値があるか
+		boolean tooLong = false;
+
+		//最大列数を超えたか
+		boolean tooMany = false;
+
+		recordLineNumber = lineCount + 1;
+
+		int c;
+		while ((c = reader.read()) != -1) {
+			read = true;
+
+			if (quoted) {
+				if (c == '"') {
+					//""はダブルクォート1文字、それ以外は値の終わり
+					reader.mark(1);
+					int next = reader.read();
+
+					if (next == '"') {
+						tooLong |= !append(field, '"');
+					} else {
+						quoted = false;
+						if (next != -1) {
+							reader.reset();
+						}
+					}
+				} else {
+					if (c == '\n') {
+						lineCount++;
+					}
+					tooLong |= !append(field, (char) c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				tooMany |= !addField(fields, field);
+			} else if (c == '\n') {
+				lineCount++;
+				tooMany |= !addField(fields, field);
+				return checked(fields, tooLong, tooMany);
+			} else if (c != '\r') {
+				tooLong |= !append(field, (char) c);
+			}
+		}
+
+		//ファイルの終端
+		if (!read) {
+			return null;
+		}
+
+		lineCount++;
+
+		//ダブルクォートが閉じられないままファイルの終端に達した場合
+		if (quoted) {
+			throw new IllegalArgumentException("ダブルクォートが閉じられていません");
+		}
+
+		//最終行に改行がない場合
+		tooMany |= !addField(fields, field);
+		return checked(fields, tooLong, tooMany);
+	}
+
+	//値に1文字追加する 最大文字数に達している場合は追加せずに false を返す
+	private boolean append(StringBuilder field, char c) {
+		if (field.length() >= maxFieldSize) {
+			return false;
+		}
+		field.append(c);
+		return true;
+	}
+
+	//読み込んだ値をリストに追加して空にする 最大列数に達している場合は追加せずに false を返す
+	private static boolean addField(List<String> fields, StringBuilder field) {
+		boolean added = fields.size() < MAX_FIELD_COUNT;
+		if (added) {
+			fields.add(field.toString());
+		}
+		field.setLength(0);
+		return added;
+	}
+
+	//上限を超えていなければ値のリストを返す
+	private List<String> checked(List<String> fields, boolean tooLong, boolean tooMany) {
+
+		//値の最大文字数チェック
+		if (tooLong) {
+			throw new IllegalArgumentException("値が" + maxFieldSize + "字より長いです");
+		}
+
+		//最大列数チェック
+		if (tooMany) {
+			throw new IllegalArgumentException("列が" + MAX_FIELD_COUNT + "より多いです");
+		}
+
+		return fields;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,143 @@
+package com.example.example_blog.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 記事の取り込み結果
+ * バッチごとの追加件数と、取り込めなかったレコードを保持する。
+ * @author Chiba
+ */
+public class ImportResult {
+
+	/**
+	 * 1バッチ分の結果
+	 */
+	public static class BatchResult {
+
+		//バッチの番号（1始まり）
+		private final int number;
+
+		//追加件数
+		private final int insertedCount;
+
+		//処理時間（ミリ秒）
+		private final long elapsedMillis;
+
+		BatchResult(int number, int insertedCount, long elapsedMillis) {
+			this.number = number;
+			this.insertedCount = insertedCount;
+			this.elapsedMillis = elapsedMillis;
+		}
+
+		//バッチの番号のゲッタ
+		public int getNumber() {
+			return number;
+		}
+
+		//追加件数のゲッタ
+		public int getInsertedCount() {
+			return insertedCount;
+		}
+
+		//処理時間のゲッタ
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+	}
+
+	/**
+	 * 取り込めなかったレコード
+	 */
+	public static class RejectedRecord {
+
+		//レコードの開始行番号
+		private final int lineNumber;
+
+		//取り込めなかった理由
+		private final String reason;
+
+		RejectedRecord(int lineNumber, String reason) {
+			this.lineNumber = lineNumber;
+			this.reason = reason;
+		}
+
+		//行番号のゲッタ
+		public int getLineNumber() {
+			return lineNumber;
+		}
+
+		//理由のゲッタ
+		public String getReason() {
+			return reason;
+		}
+	}
+
+	//バッチごとの結果
+	private final List<BatchResult> batches = new ArrayList<>();
+
+	/*
+	 * ファイルの大きさに関わらずメモリの使用量を抑えるため、
+	 * 取り込めなかったレコードの詳細は先頭から上限件数までしか保持しない。
+	 */
+	private final List<RejectedRecord> rejectedRecords = new ArrayList<>();
+
+	//取り込めなかったレコードの詳細を保持する上限件数
+	private final int maxRejectedRecords;
+
+	//追加件数の合計
+	private int insertedCount = 0;
+
+	//取り込めなかったレコードの件数
+	private int rejectedCount = 0;
+
+	/**
+	 * コンストラクタ
+	 * @param maxRejectedRecords 取り込めなかったレコードの詳細を保持する上限件数
+	 */
+	public ImportResult(int maxRejectedRecords) {
+		this.maxRejectedRecords = maxRejectedRecords;
+	}
+
+	/**
+	 * バッチの結果を追加する
+	 * @param insertedCount 追加件数
+	 * @param elapsedMillis 処理時間（ミリ秒）
+	 */
+	public void addBatch(int insertedCount, long elapsedMillis) {
+		batches.add(new BatchResult(batches.size() + 1, insertedCount, elapsedMillis));
+		this.insertedCount += insertedCount;
+	}
+
+	/**
+	 * 取り込めなかったレコードを追加する
+	 * @param lineNumber レコードの開始行番号
+	 * @param reason 取り込めなかった理由
+	 */
+	public void addRejected(int lineNumber, String reason) {
+		if (rejectedRecords.size() < maxRejectedRecords) {
+			rejectedRecords.add(new RejectedRecord(lineNumber, reason));
+		}
+		rejectedCount++;
+	}
+
+	//バッチごとの結果のゲッタ
+	public List<BatchResult> getBatches() {
+		return batches;
+	}
+
+	//取り込めなかったレコードのゲッタ
+	public List<RejectedRecord> getRejectedRecords() {
+		return rejectedRecords;
+	}
+
+	//追加件数の合計のゲッタ
+	public int getInsertedCount() {
+		return insertedCount;
+	}
+
+	//取り込めなかったレコードの件数のゲッタ
+	public int getRejectedCount() {
+		return rejectedCount;
+	}
+}
@@ -0,0 +1,162 @@
+package com.example.example_blog.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Timestamp;
+
+import com.example.example_blog.repository.ArticleDAO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * NDJSON（1行に1つのJSONオブジェクト）ファイルから記事を読み込むリーダ
+ * 各オブジェクトの title・content は必須、date は任意とする。
+ * @author Chiba
+ */
+/*
+ * BufferedReader.readLine は改行が来るまで1行全体をメモリに読み込むので、改行のない巨大なファイルでメモリを使い切ってしまう。
+ * 1行の長さに上限を設け、超えた行は読み捨てながら改行まで読み進めて、その行だけを不正として読み飛ばす。
+ */
+public class NdjsonArticleRecordReader implements ArticleRecordReader {
+
+	private final BufferedReader reader;
+
+	private final ObjectMapper objectMapper;
+
+	//1行の最大文字数
+	private final int maxLineSize;
+
+	//直前に読み込んだ行番号
+	private int lineNumber = 0;
+
+	/**
+	 * コンストラクタ
+	 * @param reader NDJSONファイルのリーダ
+	 * @param objectMapper JSONの変換に使用するオブジェクト
+	 * @param maxLineSize 1行の最大文字数 これより長い行は不正とする
+	 */
+	public NdjsonArticleRecordReader(Reader reader, ObjectMapper objectMapper, int maxLineSize) {
+
+		//最大文字数が1未満でないことを確認する。
+		if (maxLineSize < 1) {
+			throw new IllegalArgumentException("1行の最大文字数が1未満です");
+		}
+
+		this.reader = new BufferedReader(reader);
+		this.objectMapper = objectMapper;
+		this.maxLineSize = maxLineSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ArticleDAO read() throws IOException {
+
+		String line;
+
+		//空行は読み飛ばす
+		do {
+			line = readLine();
+
+			//ファイルの終端
+			if (line == null) {
+				return null;
+			}
+
+			lineNumber++;
+		} while (line.trim().equals(""));
+
+		JsonNode node;
+		try {
+			node = objectMapper.readTree(line);
+
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("JSONの形式が正しくありません", e);
+		}
+
+		//JSONオブジェクトであることを確認する。
+		if (!node.isObject()) {
+			throw new IllegalArgumentException("JSONオブジェクトではありません");
+		}
+
+		ArticleDAO article = new ArticleDAO();
+		article.setTitle(node.path("title").asText(null));
+		article.setContent(node.path("content").asText(null));
+
+		//投稿日は文字列のほか、エポックミリ秒の数値も受け付ける
+		JsonNode date = node.path("date");
+		if (date.isNumber()) {
+			article.setDate(new Timestamp(date.asLong()));
+		} else {
+			article.setDate(ArticleRecordReader.parseDate(date.asText(null)));
+		}
+
+		return article;
+	}
+
+	/**
+	 * 1行を読み込む 改行（\n・\r\n）は含めない
+	 * @return 行の文字列 ファイルの終端に達した場合はnull
+	 * @throws IOException ファイルの読み込みに失敗した場合
+	 * @throws IllegalArgumentException 行が長すぎる場合 改行まで読み進めてからスローする
+	 */
+	private String readLine() throws IOException {
+
+		StringBuilder line = new StringBuilder();
+
+		//1文字でも読み込んだか
+		boolean read = false;
+
+		//最大文字数を超えたか
+		boolean tooLong = false;
+
+		int c;
+		while ((c = reader.read()) != -1 && c != '\n') {
+			read = true;
+
+			if (line.length() < maxLineSize) {
+				line.append((char) c);
+			} else {
+				tooLong = true;
+			}
+		}
+
+		//ファイルの終端
+		if (!read && c == -1) {
+			return null;
+		}
+
+		//1行の最大文字数チェック 行番号を進めてからスローする
+		if (tooLong) {
+			lineNumber++;
+			throw new IllegalArgumentException("1行が" + maxLineSize + "字より長いです");
+		}
+
+		//\r\n の \r を取り除く
+		int length = line.length();
+		if (length > 0 && line.charAt(length - 1) == '\r') {
+			line.setLength(length - 1);
+		}
+
+		return line.toString();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
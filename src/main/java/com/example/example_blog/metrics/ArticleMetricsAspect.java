@@ -0,0 +1,145 @@
+package com.example.example_blog.metrics;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import com.example.example_blog.repository.NoArticleFoundException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 記事管理サービス・記事リポジトリの計測
+ * メソッドごとの処理時間、全記事取得の行数、記事が見つからなかった回数を記録する。
+ * @author Chiba
+ */
+/*
+ * 記録先のメーターは初回の呼び出し時に作成してメソッド名ごとに保持しておき、
+ * 以降の呼び出しではメーターの検索やタグの組み立てをしないようにしている。
+ */
+@Aspect
+@Component
+public class ArticleMetricsAspect {
+
+	//リポジトリの処理時間のメーター名
+	static final String REPOSITORY_TIMER = "blog.repository.calls";
+
+	//サービスの処理時間のメーター名
+	static final String SERVICE_TIMER = "blog.service.calls";
+
+	//取得した行数のメーター名
+	static final String ROWS_SUMMARY = "blog.repository.rows";
+
+	//記事が見つからなかった回数のメーター名
+	static final String NOT_FOUND_COUNTER = "blog.repository.not.found";
+
+	private final MeterRegistry registry;
+
+	//メソッド名・結果ごとの処理時間のメーター
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+	//メソッド名ごとの行数のメーター
+	private final ConcurrentMap<String, DistributionSummary> rowSummaries = new ConcurrentHashMap<>();
+
+	//メソッド名ごとの記事が見つからなかった回数のメーター
+	private final ConcurrentMap<String, Counter> notFoundCounters = new ConcurrentHashMap<>();
+
+	/**
+	 * コンストラクタ
+	 * @param registry メーターの登録先
+	 */
+	public ArticleMetricsAspect(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * 記事リポジトリのメソッドの計測
+	 */
+	@Around("execution(public * com.example.example_blog.repository.ArticleRepository+.*(..))")
+	public Object measureRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+
+		String method = joinPoint.getSignature().getName();
+		long start = System.nanoTime();
+		String exception = "none";
+
+		try {
+			Object result = joinPoint.proceed();
+
+			//一覧を返すメソッド（全記事取得）は取得した行数も記録する
+			if (result instanceof Collection) {
+				rowSummary(method).record(((Collection<?>) result).size());
+			}
+
+			return result;
+
+		} catch (NoArticleFoundException e) {
+			exception = e.getClass().getSimpleName();
+			notFoundCounter(method).increment();
+			throw e;
+
+		} catch (Throwable e) {
+			exception = e.getClass().getSimpleName();
+			throw e;
+
+		} finally {
+			timer(REPOSITORY_TIMER, method, exception).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * 記事管理サービスのメソッドの計測
+	 */
+	@Around("execution(public * com.example.example_blog.service.ArticleService+.*(..))")
+	public Object measureService(ProceedingJoinPoint joinPoint) throws Throwable {
+
+		String method = joinPoint.getSignature().getName();
+		long start = System.nanoTime();
+		String exception = "none";
+
+		try {
+			return joinPoint.proceed();
+
+		} catch (Throwable e) {
+			exception = e.getClass().getSimpleName();
+			throw e;
+
+		} finally {
+			timer(SERVICE_TIMER, method, exception).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	//処理時間のメーターを取得する
+	private Timer timer(String name, String method, String exception) {
+		return timers.computeIfAbsent(name + ":" + method + ":" + exception,
+				key -> Timer.builder(name)
+						.tag("method", method)
+						.tag("exception", exception)
+						.register(registry));
+	}
+
+	//行数のメーターを取得する
+	private DistributionSummary rowSummary(String method) {
+		return rowSummaries.computeIfAbsent(method,
+				key -> DistributionSummary.builder(ROWS_SUMMARY)
+						.baseUnit("rows")
+						.tag("method", method)
+						.register(registry));
+	}
+
+	//記事が見つからなかった回数のメーターを取得する
+	private Counter notFoundCounter(String method) {
+		return notFoundCounters.computeIfAbsent(method,
+				key -> Counter.builder(NOT_FOUND_COUNTER)
+						.tag("method", method)
+						.register(registry));
+	}
+}
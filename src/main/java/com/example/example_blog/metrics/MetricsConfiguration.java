@@ -0,0 +1,142 @@
+package com.example.example_blog.metrics;
+
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.example.example_blog.controller.PathName;
+import com.example.example_blog.execution.ConnectionLimitingDataSource;
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.service.cache.ArticleCache;
+import com.example.example_blog.service.idempotency.IdempotencyStore;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * 計測の設定
+ * 記事キャッシュの統計をメーターとして登録し、コントローラの計測を組み込む。
+ * 計測結果は /actuator/prometheus でPrometheusの形式で取得できる。
+ * @author Chiba
+ */
+/*
+ * コネクションプールの使用状況（hikaricp.connections.active・pending など）は
+ * Spring BootがHikariCPのメーターとして登録するので、ここでは登録しない。
+ * レプリカの接続プールは ReplicaDataSourceConfiguration で登録する。
+ */
+@Configuration
+public class MetricsConfiguration implements WebMvcConfigurer {
+
+	private final MeterRegistry registry;
+
+	/**
+	 * コンストラクタ
+	 * @param registry メーターの登録先
+	 */
+	public MetricsConfiguration(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * 記事キャッシュの統計のメーター
+	 * キャッシュの既存のカウンタを取得時に読むだけなので、キャッシュの処理には影響しない。
+	 * @param cache 記事キャッシュ
+	 * @return メーターの登録処理
+	 */
+	@Bean
+	public MeterBinder articleCacheMetrics(ArticleCache cache) {
+		return meterRegistry -> {
+			FunctionCounter.builder("blog.cache.requests", cache, ArticleCache::getHitCount)
+					.tag("result", "hit")
+					.register(meterRegistry);
+
+			FunctionCounter.builder("blog.cache.requests", cache, ArticleCache::getMissCount)
+					.tag("result", "miss")
+					.register(meterRegistry);
+
+			FunctionCounter.builder("blog.cache.evictions", cache, ArticleCache::getEvictionCount)
+					.register(meterRegistry);
+
+			//missのうち、同じキーの読み込みに相乗りしてデータベースに問い合わせなかった回数
+			FunctionCounter.builder("blog.cache.coalesced", cache, ArticleCache::getCoalescedCount)
+					.register(meterRegistry);
+
+			//共有キャッシュ（2段目）の統計 ノード内のキャッシュになかった場合だけ数える
+			FunctionCounter.builder("blog.cache.shared.requests", cache, ArticleCache::getSharedHitCount)
+					.tag("result", "hit")
+					.register(meterRegistry);
+
+			FunctionCounter.builder("blog.cache.shared.requests", cache, ArticleCache::getSharedMissCount)
+					.tag("result", "miss")
+					.register(meterRegistry);
+		};
+	}
+
+	/**
+	 * 記事の作成の冪等キーの統計のメーター
+	 * replayed は再送や二重送信で、データベースに書き込まずに最初の結果を返した回数。
+	 * @param store 記事の作成の冪等キーのストア
+	 * @return メーターの登録処理
+	 */
+	@Bean
+	public MeterBinder idempotencyMetrics(IdempotencyStore<ArticleDAO> store) {
+		return meterRegistry -> {
+			FunctionCounter.builder("blog.idempotency.requests", store, IdempotencyStore::getExecuteCount)
+					.tag("result", "executed")
+					.register(meterRegistry);
+
+			FunctionCounter.builder("blog.idempotency.requests", store, IdempotencyStore::getReplayCount)
+					.tag("result", "replayed")
+					.register(meterRegistry);
+
+			Gauge.builder("blog.idempotency.size", store, IdempotencyStore::size)
+					.register(meterRegistry);
+		};
+	}
+
+	/**
+	 * 仮想スレッドで実行する場合の、接続の許可の待ち状況のメーター
+	 * 接続プールの手前で待っているスレッドは hikaricp.connections.pending に現れないので、別に登録する。
+	 * @param dataSource アプリケーションが使用するデータソース
+	 * @return メーターの登録処理
+	 */
+	@Bean
+	public MeterBinder connectionLimiterMetrics(DataSource dataSource) {
+		return meterRegistry -> {
+			ConnectionLimitingDataSource limiter;
+
+			try {
+				//接続数を制限していない場合は登録しない
+				if (!dataSource.isWrapperFor(ConnectionLimitingDataSource.class)) {
+					return;
+				}
+				limiter = dataSource.unwrap(ConnectionLimitingDataSource.class);
+
+			} catch (SQLException e) {
+				return;
+			}
+
+			Gauge.builder("blog.jdbc.permits.waiting", limiter, ConnectionLimitingDataSource::getWaitingThreads)
+					.register(meterRegistry);
+
+			Gauge.builder("blog.jdbc.permits.available", limiter, ConnectionLimitingDataSource::getAvailablePermits)
+					.register(meterRegistry);
+		};
+	}
+
+	/**
+	 * 記事一覧・記事作成・記事更新ページのコントローラに計測を組み込む
+	 */
+	@Override
+	public void addInterceptors(InterceptorRegistry interceptors) {
+		interceptors.addInterceptor(new RenderTimingInterceptor(registry))
+				.addPathPatterns(PathName.SHOW_ARTICLES, PathName.CREATE_ARTICLE, PathName.MODIFY_ARTICLE);
+	}
+}
@@ -0,0 +1,127 @@
+package com.example.example_blog.metrics;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * コントローラの処理時間とページの描画時間の計測
+ * コントローラのメソッドが返るまでを処理時間、そこからレスポンスの完了までを描画時間として記録する。
+ * コントローラ内でページを描画した場合は、{@link #addRenderTime} で加えられた時間を処理時間から除いて描画時間に含める。
+ * リクエスト全体の時間はSpring Bootの http.server.requests で記録される。
+ * @author Chiba
+ */
+public class RenderTimingInterceptor implements HandlerInterceptor {
+
+	//コントローラの処理時間のメーター名
+	static final String HANDLE_TIMER = "blog.controller.handle";
+
+	//ページの描画時間のメーター名
+	static final String RENDER_TIMER = "blog.controller.render";
+
+	//計測開始時刻を格納するリクエスト属性名
+	private static final String START_ATTRIBUTE = RenderTimingInterceptor.class.getName() + ".start";
+
+	//描画開始時刻を格納するリクエスト属性名
+	private static final String RENDER_START_ATTRIBUTE = RenderTimingInterceptor.class.getName() + ".renderStart";
+
+	//コントローラ内での描画時間の合計を格納するリクエスト属性名
+	private static final String HANDLER_RENDER_ATTRIBUTE = RenderTimingInterceptor.class.getName() + ".handlerRender";
+
+	private final MeterRegistry registry;
+
+	//コントローラのメソッドごとの処理時間のメーター
+	private final ConcurrentMap<Method, Timer> handleTimers = new ConcurrentHashMap<>();
+
+	//コントローラのメソッドごとの描画時間のメーター
+	private final ConcurrentMap<Method, Timer> renderTimers = new ConcurrentHashMap<>();
+
+	/**
+	 * コンストラクタ
+	 * @param registry メーターの登録先
+	 */
+	public RenderTimingInterceptor(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * コントローラ内でページを描画した時間を加える
+	 * ビューを返さずにコントローラ内で描画する場合に、描画時間として記録させる。
+	 * @param request リクエスト
+	 * @param nanos 描画にかかった時間（ナノ秒）
+	 */
+	public static void addRenderTime(HttpServletRequest request, long nanos) {
+		Long total = (Long) request.getAttribute(HANDLER_RENDER_ATTRIBUTE);
+		request.setAttribute(HANDLER_RENDER_ATTRIBUTE, (total != null ? total : 0) + nanos);
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+		return true;
+	}
+
+	@Override
+	public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+			ModelAndView modelAndView) {
+
+		Long start = (Long) request.getAttribute(START_ATTRIBUTE);
+
+		if (start == null || !(handler instanceof HandlerMethod)) {
+			return;
+		}
+
+		long now = System.nanoTime();
+
+		//ビューを返した場合だけ、ここからの時間をビューの描画時間とする
+		if (modelAndView != null) {
+			request.setAttribute(RENDER_START_ATTRIBUTE, now);
+		}
+
+		//コントローラ内での描画時間は処理時間に含めない
+		timer(handleTimers, HANDLE_TIMER, (HandlerMethod) handler)
+				.record(now - start - handlerRenderTime(request), TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+
+		//コントローラが例外で終わった場合・ビューを返さずコントローラ内でも描画しなかった場合は描画時間を記録しない
+		Long renderStart = (Long) request.getAttribute(RENDER_START_ATTRIBUTE);
+		Long handlerRender = (Long) request.getAttribute(HANDLER_RENDER_ATTRIBUTE);
+
+		if ((renderStart == null && handlerRender == null) || !(handler instanceof HandlerMethod)) {
+			return;
+		}
+
+		long nanos = handlerRenderTime(request) + ((renderStart != null) ? System.nanoTime() - renderStart : 0);
+		timer(renderTimers, RENDER_TIMER, (HandlerMethod) handler).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	//コントローラ内での描画時間の合計 描画しなかった場合は0
+	private static long handlerRenderTime(HttpServletRequest request) {
+		Long total = (Long) request.getAttribute(HANDLER_RENDER_ATTRIBUTE);
+		return (total != null) ? total : 0;
+	}
+
+	//コントローラのメソッドごとのメーターを取得する
+	private Timer timer(ConcurrentMap<Method, Timer> timers, String name, HandlerMethod handler) {
+		return timers.computeIfAbsent(handler.getMethod(),
+				method -> Timer.builder(name)
+						.tag("controller", handler.getBeanType().getSimpleName())
+						.tag("method", method.getName())
+						.register(registry));
+	}
+}
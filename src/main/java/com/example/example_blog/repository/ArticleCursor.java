@@ -0,0 +1,100 @@
+package com.example.example_blog.repository;
+
+import java.sql.Timestamp;
+
+/**
+ * 記事一覧のページ位置を表すカーソル
+ * 記事一覧は 投稿日の降順・IDの降順 で並べるので、
+ * (投稿日, ID) の組でページの境界となる記事を一意に特定する。
+ * @author Chiba
+ */
+public class ArticleCursor {
+
+	//境界となる記事の投稿日
+	private final Timestamp date;
+
+	//境界となる記事のID
+	private final int id;
+
+	/**
+	 * コンストラクタ
+	 * @param date 境界となる記事の投稿日
+	 * @param id 境界となる記事のID
+	 */
+	public ArticleCursor(Timestamp date, int id) {
+		this.date = date;
+		this.id = id;
+	}
+
+	/**
+	 * 記事オブジェクトの位置を指すカーソルを作成する
+	 * @param article 記事オブジェクト
+	 * @return カーソル
+	 */
+	public static ArticleCursor of(ArticleDAO article) {
+		return new ArticleCursor(article.getDate(), article.getId());
+	}
+
+	/**
+	 * 記事の要約オブジェクトの位置を指すカーソルを作成する
+	 * @param summary 記事の要約オブジェクト
+	 * @return カーソル
+	 */
+	public static ArticleCursor of(ArticleSummary summary) {
+		return new ArticleCursor(summary.getDate(), summary.getId());
+	}
+
+	//投稿日のゲッタ
+	public Timestamp getDate() {
+		return date;
+	}
+
+	//IDのゲッタ
+	public int getId() {
+		return id;
+	}
+
+	/*
+	 * PostgreSQLのtimestamptzはマイクロ秒まで保持しているので、
+	 * ミリ秒だけでなくナノ秒部分も含めて文字列にしないと境界の記事を取りこぼす。
+	 */
+	/**
+	 * URLのパラメータに使用できる文字列に変換する
+	 * 形式：エポックミリ秒_ナノ秒_ID
+	 * @return カーソル文字列
+	 */
+	public String encode() {
+		return date.getTime() + "_" + date.getNanos() + "_" + id;
+	}
+
+	/**
+	 * {@link #encode()} で作成した文字列からカーソルを復元する
+	 * @param value カーソル文字列
+	 * @return カーソル
+	 * @throws IllegalArgumentException カーソル文字列の形式が正しくない場合
+	 */
+	public static ArticleCursor decode(String value) {
+
+		//カーソル文字列がnullでも空値でもないことを確認する。
+		if (value == null || value.equals("")) {
+			throw new IllegalArgumentException("カーソルがnullもしくは空値です");
+		}
+
+		String[] parts = value.split("_");
+
+		//エポックミリ秒・ナノ秒・IDの3つに分かれていることを確認する。
+		if (parts.length != 3) {
+			throw new IllegalArgumentException("カーソルの形式が正しくありません");
+		}
+
+		try {
+			Timestamp date = new Timestamp(Long.parseLong(parts[0]));
+			date.setNanos(Integer.parseInt(parts[1]));
+
+			return new ArticleCursor(date, Integer.parseInt(parts[2]));
+
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("カーソルの形式が正しくありません", e);
+		}
+	}
+}
@@ -20,6 +20,9 @@ public class ArticleDAO {
 	//記事の本文
 	private String content;
 
+	//記事の版番号 更新のたびに1ずつ増える
+	private int version;
+
 
 	//IDのゲッタ
 	public int getId() {
@@ -60,4 +63,14 @@ public class ArticleDAO {
 	public void setContent(String content) {
 		this.content = content;
 	}
+
+	//版番号のゲッタ
+	public int getVersion() {
+		return version;
+	}
+
+	//版番号のセッタ
+	public void setVersion(int version) {
+		this.version = version;
+	}
 }
@@ -0,0 +1,89 @@
+package com.example.example_blog.repository;
+
+import java.sql.Timestamp;
+
+/**
+ * 記事の変更イベントを表すオブジェクト
+ * @author Chiba
+ */
+public class ArticleEvent {
+
+	//イベントの通し番号 コミット順に増える
+	private long seq;
+
+	//変更の種類
+	private ArticleEventType type;
+
+	//変更された記事のID
+	private int articleId;
+
+	//変更後の記事の版番号 削除の場合は削除時の版番号
+	private int version;
+
+	//変更された記事の投稿日 投稿日を記録する前のイベントではnull
+	private Timestamp articleDate;
+
+	//変更日時
+	private Timestamp occurredAt;
+
+
+	//通し番号のゲッタ
+	public long getSeq() {
+		return seq;
+	}
+
+	//通し番号のセッタ
+	public void setSeq(long seq) {
+		this.seq = seq;
+	}
+
+	//変更の種類のゲッタ
+	public ArticleEventType getType() {
+		return type;
+	}
+
+	//変更の種類のセッタ
+	public void setType(ArticleEventType type) {
+		this.type = type;
+	}
+
+	//記事のIDのゲッタ
+	public int getArticleId() {
+		return articleId;
+	}
+
+	//記事のIDのセッタ
+	public void setArticleId(int articleId) {
+		this.articleId = articleId;
+	}
+
+	//版番号のゲッタ
+	public int getVersion() {
+		return version;
+	}
+
+	//版番号のセッタ
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
+	//記事の投稿日のゲッタ
+	public Timestamp getArticleDate() {
+		return articleDate;
+	}
+
+	//記事の投稿日のセッタ
+	public void setArticleDate(Timestamp articleDate) {
+		this.articleDate = articleDate;
+	}
+
+	//変更日時のゲッタ
+	public Timestamp getOccurredAt() {
+		return occurredAt;
+	}
+
+	//変更日時のセッタ
+	public void setOccurredAt(Timestamp occurredAt) {
+		this.occurredAt = occurredAt;
+	}
+}
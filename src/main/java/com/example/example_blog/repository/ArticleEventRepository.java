@@ -0,0 +1,85 @@
+package com.example.example_blog.repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * 記事の変更イベントのリポジトリ
+ * 記事の変更と同じトランザクションでイベントを追加し、利用者は通し番号の順に読み込む。
+ * @author Chiba
+ */
+public interface ArticleEventRepository {
+
+	/**
+	 * PostgreSQLの通知（LISTEN/NOTIFY）のチャネル名
+	 * イベントを追加したトランザクションのコミット時に、このチャネルに通知される。
+	 */
+	public static final String CHANNEL = "article_events";
+
+	/**
+	 * 記事の変更イベントを追加
+	 * 記事を変更したトランザクションの中で呼び出す必要がある。
+	 * @param type 変更の種類
+	 * @param article 変更後の記事オブジェクト 削除の場合は削除した記事 ID・投稿日・版番号を使用する
+	 */
+	public void append(ArticleEventType type, ArticleDAO article);
+
+
+	/**
+	 * 複数の記事の変更イベントを、リストの順にまとめて追加
+	 * 記事を変更したトランザクションの中で呼び出す必要がある。
+	 * @param type 変更の種類
+	 * @param articles 変更後の記事オブジェクトのリスト ID・投稿日・版番号を使用する
+	 */
+	public void appendAll(ArticleEventType type, List<ArticleDAO> articles);
+
+
+	/**
+	 * 指定したIDより大きい記事のうち、追加のイベントがない記事の追加のイベントをまとめて追加
+	 * IDを受け取らずにまとめて追加した記事のイベントに使用する。
+	 * 記事を追加したトランザクションの中で呼び出す必要がある。
+	 * @param afterId 追加前の最大のID
+	 * @return 追加したイベント数
+	 */
+	public int appendCreatedAfter(int afterId);
+
+
+	/**
+	 * 通し番号が指定した番号より大きいイベントを、通し番号の順に取得
+	 * @param seq 前回読み込んだ最後の通し番号
+	 * @param limit 取得する最大件数
+	 * @return イベントのリスト
+	 */
+	public List<ArticleEvent> getEventsAfter(long seq, int limit);
+
+
+	/**
+	 * 最新のイベントの通し番号を取得
+	 * @return 通し番号 イベントがなければ0
+	 */
+	public long getLatestSeq();
+
+
+	/**
+	 * 残っている最も古いイベントの通し番号を取得
+	 * これより前のイベントは削除されているので、これより前から続きを読み込む利用者は変更を取りこぼす。
+	 * @return 通し番号 イベントがなければ0
+	 */
+	public long getOldestSeq();
+
+
+	/**
+	 * 最新のイベントを取得
+	 * @return 最新のイベント イベントがなければnull
+	 */
+	public ArticleEvent getLatestEvent();
+
+
+	/**
+	 * 指定した日時より前のイベントを削除
+	 * 最新のイベントは、削除されたイベントがあることを利用者が判定できるように残す。
+	 * @param time この日時より前のイベントを削除する
+	 * @return 削除件数
+	 */
+	public int deleteEventsBefore(Timestamp time);
+}
@@ -0,0 +1,17 @@
+package com.example.example_blog.repository;
+
+/**
+ * 記事の変更イベントの種類
+ * @author Chiba
+ */
+public enum ArticleEventType {
+
+	//記事の追加
+	CREATED,
+
+	//記事の更新
+	MODIFIED,
+
+	//記事の削除
+	DELETED
+}
@@ -0,0 +1,70 @@
+package com.example.example_blog.repository;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 記事の項目
+ * 記事の一覧を取得するときに、取得する項目（列）を指定するために使用する。
+ * @author Chiba
+ */
+public enum ArticleField {
+
+	//ID
+	ID("id"),
+
+	//タイトル
+	TITLE("title"),
+
+	//投稿日
+	DATE("date"),
+
+	//本文
+	CONTENT("content");
+
+	//全項目
+	private static final Set<ArticleField> ALL = Collections.unmodifiableSet(EnumSet.allOf(ArticleField.class));
+
+	//項目名 列名と同じ
+	private final String fieldName;
+
+	ArticleField(String fieldName) {
+		this.fieldName = fieldName;
+	}
+
+	//項目名のゲッタ
+	public String getFieldName() {
+		return fieldName;
+	}
+
+	/**
+	 * カンマ区切りの項目名から項目を取得する
+	 * @param fields カンマ区切りの項目名 nullもしくは空値の場合は全項目
+	 * @return 項目
+	 */
+	public static Set<ArticleField> parse(String fields) {
+
+		if (fields == null || fields.trim().isEmpty()) {
+			return ALL;
+		}
+
+		Set<ArticleField> result = EnumSet.noneOf(ArticleField.class);
+
+		for (String name : fields.split(",")) {
+			result.add(of(name.trim()));
+		}
+
+		return result;
+	}
+
+	//項目名から項目を取得する
+	private static ArticleField of(String name) {
+		for (ArticleField field : values()) {
+			if (field.fieldName.equals(name)) {
+				return field;
+			}
+		}
+		throw new IllegalArgumentException("項目名が不正です：" + name);
+	}
+}
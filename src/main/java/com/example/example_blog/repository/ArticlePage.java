@@ -0,0 +1,47 @@
+package com.example.example_blog.repository;
+
+import java.util.List;
+
+/**
+ * 記事一覧の1ページ分を表すオブジェクト
+ * ページに含まれる記事と、前後のページを取得するためのカーソルを保持する。
+ * @author Chiba
+ */
+public class ArticlePage {
+
+	//ページに含まれる記事のリスト
+	private final List<ArticleDAO> articles;
+
+	//次のページ（より古い記事）を取得するためのカーソル 次のページがなければnull
+	private final ArticleCursor next;
+
+	//前のページ（より新しい記事）を取得するためのカーソル 前のページがなければnull
+	private final ArticleCursor previous;
+
+	/**
+	 * コンストラクタ
+	 * @param articles ページに含まれる記事のリスト
+	 * @param next 次のページを取得するためのカーソル
+	 * @param previous 前のページを取得するためのカーソル
+	 */
+	public ArticlePage(List<ArticleDAO> articles, ArticleCursor next, ArticleCursor previous) {
+		this.articles = articles;
+		this.next = next;
+		this.previous = previous;
+	}
+
+	//記事リストのゲッタ
+	public List<ArticleDAO> getArticles() {
+		return articles;
+	}
+
+	//次のページのカーソルのゲッタ
+	public ArticleCursor getNext() {
+		return next;
+	}
+
+	//前のページのカーソルのゲッタ
+	public ArticleCursor getPrevious() {
+		return previous;
+	}
+}
@@ -1,10 +1,13 @@
 package com.example.example_blog.repository;
 
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * 記事リポジトリ
  * 記事を管理するデータベースに対してSQL文を実行する。
+ * 書き込みの引数は呼び出し元で入力チェック済みのものとして扱い、ここではチェックしない。
  * @author Chiba
  */
 public interface ArticleRepository {
@@ -12,8 +15,27 @@ public interface ArticleRepository {
 	 * データベースに記事を追加
 	 * @param title 記事のタイトル
 	 * @param content 記事の本文
+	 * @return 追加した記事オブジェクト 採番されたIDと投稿日を含む
 	 */
-	public void addArticle(String title, String content);
+	public ArticleDAO addArticle(String title, String content);
+
+
+	/**
+	 * データベースに複数の記事をまとめて追加
+	 * 記事の投稿日がnullの場合は現在時刻を投稿日にする。
+	 * @param articles 追加する記事のリスト IDは使用しない
+	 * @return 追加件数
+	 */
+	public int addArticles(List<ArticleDAO> articles);
+
+
+	/**
+	 * データベースに複数の記事を1つのSQL文で追加し、追加した記事を返す
+	 * 投稿日は全ての記事で同じ現在時刻になる。
+	 * @param articles 追加する記事のリスト タイトルと本文だけを使用する
+	 * @return 追加した記事オブジェクトのリスト 採番されたIDと投稿日を含み、引数のリストと同じ順に並ぶ
+	 */
+	public List<ArticleDAO> addArticlesReturning(List<ArticleDAO> articles);
 
 
 	/**
@@ -21,9 +43,25 @@ public interface ArticleRepository {
 	 * @param id 記事のID
 	 * @param title 記事のタイトル
 	 * @param content 記事の本文
+	 * @return 更新後の記事オブジェクト
 	 * @throws NoArticleFoundException 更新件数が0件だったときにスローする例外
 	 */
-	public void modifyArticle(int id, String title, String content) throws NoArticleFoundException;
+	public ArticleDAO modifyArticle(int id, String title, String content) throws NoArticleFoundException;
+
+
+	/**
+	 * データベースの記事を、版番号が一致する場合だけ更新
+	 * 更新すると版番号を1増やす。
+	 * @param id 記事のID
+	 * @param version 更新前の記事の版番号（記事を取得したときの版番号）
+	 * @param title 記事のタイトル
+	 * @param content 記事の本文
+	 * @return 更新後の記事オブジェクト
+	 * @throws NoArticleFoundException 記事が存在しなかったときにスローする例外
+	 * @throws VersionMismatchException 記事の版番号が一致しなかったときにスローする例外
+	 */
+	public ArticleDAO modifyArticle(int id, int version, String title, String content)
+			throws NoArticleFoundException, VersionMismatchException;
 
 
 	/**
@@ -42,11 +80,152 @@ public interface ArticleRepository {
 	public List<ArticleDAO> getAllArticles();
 
 
+	/**
+	 * データベースの指定したIDより大きい記事をID順に1件ずつ処理する
+	 * 全件をメモリに保持せず、一定の行数ずつデータベースから読み込む。
+	 * @param afterId このIDより大きい記事を処理する 全ての記事を処理する場合は0
+	 * @param action 記事オブジェクトごとに実行する処理
+	 */
+	public void forEachArticle(int afterId, Consumer<ArticleDAO> action);
+
+
+	/**
+	 * データベースからカーソルより古い記事を指定件数まで新しい順に1件ずつ処理する
+	 * 指定した項目の列だけを取得する。指定しなかった項目は記事オブジェクトでnullになる。
+	 * @param cursor 前回の最後の記事を指すカーソル nullの場合は最新の記事から処理する
+	 * @param limit 処理する記事数
+	 * @param fields 取得する項目 カーソルに必要なIDと投稿日は指定しなくても取得する
+	 * @param action 記事オブジェクトごとに実行する処理
+	 */
+	public void forEachArticleAfter(ArticleCursor cursor, int limit, Set<ArticleField> fields,
+			Consumer<ArticleDAO> action);
+
+
+	/**
+	 * データベースからカーソルより古い記事を1ページ分取得
+	 * @param cursor 前のページの最後の記事を指すカーソル nullの場合は最新の記事から取得する
+	 * @param size 1ページあたりの記事数
+	 * @return 記事一覧のページ
+	 */
+	public ArticlePage getArticlesAfter(ArticleCursor cursor, int size);
+
+
+	/**
+	 * データベースからカーソルより新しい記事を1ページ分取得
+	 * @param cursor 次のページの最初の記事を指すカーソル
+	 * @param size 1ページあたりの記事数
+	 * @return 記事一覧のページ
+	 */
+	public ArticlePage getArticlesBefore(ArticleCursor cursor, int size);
+
+
+	/**
+	 * データベースからカーソルより古い記事の要約を1ページ分取得
+	 * 本文は先頭から指定文字数までの抜粋だけを取得する。
+	 * @param cursor 前のページの最後の記事を指すカーソル nullの場合は最新の記事から取得する
+	 * @param size 1ページあたりの記事数
+	 * @param excerptLength 本文の抜粋の文字数
+	 * @return 記事の要約一覧のページ
+	 */
+	public ArticleSummaryPage getArticleSummariesAfter(ArticleCursor cursor, int size, int excerptLength);
+
+
+	/**
+	 * データベースからカーソルより新しい記事の要約を1ページ分取得
+	 * 本文は先頭から指定文字数までの抜粋だけを取得する。
+	 * @param cursor 次のページの最初の記事を指すカーソル
+	 * @param size 1ページあたりの記事数
+	 * @param excerptLength 本文の抜粋の文字数
+	 * @return 記事の要約一覧のページ
+	 */
+	public ArticleSummaryPage getArticleSummariesBefore(ArticleCursor cursor, int size, int excerptLength);
+
+
+	/**
+	 * データベースから記事の要約を古い順（投稿日の昇順・IDの昇順）に取得
+	 * @param offset 最も古い記事から読み飛ばす記事数
+	 * @param size 取得する記事数
+	 * @param excerptLength 本文の抜粋の文字数
+	 * @return 記事の要約のリスト 古い順に並ぶ
+	 */
+	public List<ArticleSummary> getOldestArticleSummaries(int offset, int size, int excerptLength);
+
+
+	/**
+	 * データベースからカーソルより新しい記事の要約を古い順（投稿日の昇順・IDの昇順）に取得
+	 * @param cursor 直前に取得した最も新しい記事を指すカーソル
+	 * @param size 取得する記事数
+	 * @param excerptLength 本文の抜粋の文字数
+	 * @return 記事の要約のリスト 古い順に並ぶ
+	 */
+	public List<ArticleSummary> getArticleSummariesNewerThan(ArticleCursor cursor, int size, int excerptLength);
+
+
+	/**
+	 * データベースから指定した全てのタグが付いた記事の要約を、カーソルより古い順に1ページ分取得
+	 * 最初のタグの記事を投稿日の降順に辿り、残りのタグが付いているかを1件ずつ確認するので、
+	 * 最初のタグには記事数の最も少ないタグを指定する。
+	 * @param tagIds タグのID 1つ以上
+	 * @param cursor 前のページの最後の記事を指すカーソル nullの場合は最新の記事から取得する
+	 * @param size 1ページあたりの記事数
+	 * @param excerptLength 本文の抜粋の文字数
+	 * @return 記事の要約一覧のページ
+	 */
+	public ArticleSummaryPage getArticleSummariesByTagsAfter(List<Integer> tagIds, ArticleCursor cursor, int size,
+			int excerptLength);
+
+
+	/**
+	 * データベースから指定した全てのタグが付いた記事の要約を、カーソルより新しい順に1ページ分取得
+	 * @param tagIds タグのID 1つ以上 最初のタグには記事数の最も少ないタグを指定する
+	 * @param cursor 次のページの最初の記事を指すカーソル
+	 * @param size 1ページあたりの記事数
+	 * @param excerptLength 本文の抜粋の文字数
+	 * @return 記事の要約一覧のページ
+	 */
+	public ArticleSummaryPage getArticleSummariesByTagsBefore(List<Integer> tagIds, ArticleCursor cursor, int size,
+			int excerptLength);
+
+
+	/**
+	 * データベースからタイトル・本文にキーワードを含む記事を関連度の高い順に1ページ分取得
+	 * @param query 検索キーワード
+	 * @param cursor 前のページの最後の記事を指すカーソル nullの場合は最も関連度の高い記事から取得する
+	 * @param size 1ページあたりの記事数
+	 * @return 検索結果のページ
+	 */
+	public SearchPage searchArticles(String query, SearchCursor cursor, int size);
+
+
+	/**
+	 * データベースの記事数を取得
+	 * @return 記事数
+	 */
+	public int countArticles();
+
+
+	/**
+	 * データベースのカーソルより古い記事の数を取得
+	 * 古い順に並べたときの、カーソルの位置（0始まり）になる。カーソルの記事が削除済みでも求められる。
+	 * @param cursor カーソル
+	 * @return カーソルより古い記事の数
+	 */
+	public int countArticlesBefore(ArticleCursor cursor);
+
+
+	/**
+	 * データベースの記事の最大のIDを取得
+	 * @return 最大のID 記事がなければ0
+	 */
+	public int getMaxId();
+
+
 	/**
 	 * データベースの記事を削除
 	 * @param id 記事のID
+	 * @return 削除した記事オブジェクト
 	 * @throws NoArticleFoundException 削除件数が0件だったときにスローする例外
 	 */
-	public void deleteArticle(int id) throws NoArticleFoundException;
+	public ArticleDAO deleteArticle(int id) throws NoArticleFoundException;
 
 }
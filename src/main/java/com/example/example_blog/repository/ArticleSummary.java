@@ -0,0 +1,77 @@
+package com.example.example_blog.repository;
+
+import java.sql.Timestamp;
+
+/**
+ * 記事一覧に表示する記事の要約を表すオブジェクト
+ * 本文の全文ではなく、先頭の一部（抜粋）だけを保持する。
+ * @author Chiba
+ */
+public class ArticleSummary {
+
+	//記事のID
+	private int id;
+
+	//記事のタイトル
+	private String title;
+
+	//記事の投稿日
+	private Timestamp date;
+
+	//本文の抜粋
+	private String excerpt;
+
+	//本文が抜粋より長いか
+	private boolean truncated;
+
+
+	//IDのゲッタ
+	public int getId() {
+		return id;
+	}
+
+	//IDのセッタ
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	//タイトルのゲッタ
+	public String getTitle() {
+		return title;
+	}
+
+	//タイトルのセッタ
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	//投稿日のゲッタ
+	public Timestamp getDate() {
+		return date;
+	}
+
+	//投稿日のセッタ
+	public void setDate(Timestamp date) {
+		this.date = date;
+	}
+
+	//本文の抜粋のゲッタ
+	public String getExcerpt() {
+		return excerpt;
+	}
+
+	//本文の抜粋のセッタ
+	public void setExcerpt(String excerpt) {
+		this.excerpt = excerpt;
+	}
+
+	//本文が抜粋より長いかのゲッタ
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	//本文が抜粋より長いかのセッタ
+	public void setTruncated(boolean truncated) {
+		this.truncated = truncated;
+	}
+}
@@ -0,0 +1,47 @@
+package com.example.example_blog.repository;
+
+import java.util.List;
+
+/**
+ * 記事の要約一覧の1ページ分を表すオブジェクト
+ * ページに含まれる記事の要約と、前後のページを取得するためのカーソルを保持する。
+ * @author Chiba
+ */
+public class ArticleSummaryPage {
+
+	//ページに含まれる記事の要約のリスト
+	private final List<ArticleSummary> summaries;
+
+	//次のページ（より古い記事）を取得するためのカーソル 次のページがなければnull
+	private final ArticleCursor next;
+
+	//前のページ（より新しい記事）を取得するためのカーソル 前のページがなければnull
+	private final ArticleCursor previous;
+
+	/**
+	 * コンストラクタ
+	 * @param summaries ページに含まれる記事の要約のリスト
+	 * @param next 次のページを取得するためのカーソル
+	 * @param previous 前のページを取得するためのカーソル
+	 */
+	public ArticleSummaryPage(List<ArticleSummary> summaries, ArticleCursor next, ArticleCursor previous) {
+		this.summaries = summaries;
+		this.next = next;
+		this.previous = previous;
+	}
+
+	//記事の要約リストのゲッタ
+	public List<ArticleSummary> getSummaries() {
+		return summaries;
+	}
+
+	//次のページのカーソルのゲッタ
+	public ArticleCursor getNext() {
+		return next;
+	}
+
+	//前のページのカーソルのゲッタ
+	public ArticleCursor getPrevious() {
+		return previous;
+	}
+}
@@ -0,0 +1,63 @@
+package com.example.example_blog.repository;
+
+import java.sql.Timestamp;
+
+/**
+ * 記事の作成の冪等キーを表すオブジェクト
+ * @author Chiba
+ */
+public class IdempotencyKey {
+
+	//冪等キー
+	private String key;
+
+	//要求内容の指紋
+	private String fingerprint;
+
+	//作成した記事のID 作成中はnull
+	private Integer articleId;
+
+	//登録日時
+	private Timestamp createdAt;
+
+
+	//冪等キーのゲッタ
+	public String getKey() {
+		return key;
+	}
+
+	//冪等キーのセッタ
+	public void setKey(String key) {
+		this.key = key;
+	}
+
+	//要求内容の指紋のゲッタ
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	//要求内容の指紋のセッタ
+	public void setFingerprint(String fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
+	//作成した記事のIDのゲッタ
+	public Integer getArticleId() {
+		return articleId;
+	}
+
+	//作成した記事のIDのセッタ
+	public void setArticleId(Integer articleId) {
+		this.articleId = articleId;
+	}
+
+	//登録日時のゲッタ
+	public Timestamp getCreatedAt() {
+		return createdAt;
+	}
+
+	//登録日時のセッタ
+	public void setCreatedAt(Timestamp createdAt) {
+		this.createdAt = createdAt;
+	}
+}
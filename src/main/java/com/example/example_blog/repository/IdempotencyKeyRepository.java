@@ -0,0 +1,55 @@
+package com.example.example_blog.repository;
+
+import java.sql.Timestamp;
+
+/**
+ * 記事の作成の冪等キーのリポジトリ
+ * 全てのサーバで共有し、同じキーの作成を1回だけ実行させる。
+ * 記事の追加とは別のトランザクション（自動コミット）で呼び出す。
+ * @author Chiba
+ */
+public interface IdempotencyKeyRepository {
+
+	/**
+	 * 冪等キーを作成中として登録
+	 * @param key 冪等キー
+	 * @param fingerprint 要求内容の指紋
+	 * @return 登録できた場合はtrue 登録済みの場合はfalse
+	 */
+	public boolean insert(String key, String fingerprint);
+
+
+	/**
+	 * 冪等キーを取得
+	 * @param key 冪等キー
+	 * @return 冪等キーオブジェクト 登録されていなければnull
+	 */
+	public IdempotencyKey find(String key);
+
+
+	/**
+	 * 作成した記事のIDを設定し、作成済みにする
+	 * @param key 冪等キー
+	 * @param articleId 作成した記事のID
+	 */
+	public void setArticleId(String key, int articleId);
+
+
+	/**
+	 * 作成中の冪等キーを削除
+	 * 作成に失敗した場合に、再送を受け付けられるようにする。
+	 * @param key 冪等キー
+	 * @return 削除した場合はtrue
+	 */
+	public boolean deletePending(String key);
+
+
+	/**
+	 * 有効期限切れの冪等キーを削除
+	 * @param key 冪等キー nullの場合は全ての冪等キー
+	 * @param createdBefore この日時より前に登録された冪等キーは削除する
+	 * @param pendingCreatedBefore この日時より前に登録されて作成中のままの冪等キーは、作成したサーバが停止したとみなして削除する
+	 * @return 削除した件数
+	 */
+	public int deleteExpired(String key, Timestamp createdBefore, Timestamp pendingCreatedBefore);
+}
@@ -0,0 +1,28 @@
+package com.example.example_blog.repository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * ノンブロッキングの記事リポジトリ
+ * R2DBCでデータベースの記事を読み込む。読み込みのみを提供する。
+ * @author Chiba
+ */
+public interface ReactiveArticleRepository {
+
+	/**
+	 * IDから記事を取得する
+	 * @param id 記事のID
+	 * @return 記事オブジェクト 見つからない場合は空
+	 */
+	public Mono<ArticleDAO> getArticle(int id);
+
+	/**
+	 * カーソルより古い記事を新しい順に取得する
+	 * 1ページ分をまとめて読み込んで接続を返してから、メモリ上の記事を順に流す。
+	 * @param cursor 前のページの最後の記事を指すカーソル nullの場合は最新の記事から取得する
+	 * @param limit 取得する記事数
+	 * @return 記事オブジェクトの列
+	 */
+	public Flux<ArticleDAO> getArticlesAfter(ArticleCursor cursor, int limit);
+}
@@ -0,0 +1,18 @@
+package com.example.example_blog.repository;
+
+/**
+ * スキーマ情報のリポジトリ
+ * テーブルの定義をデータベースのカタログ（information_schema）から取得する。
+ * @author Chiba
+ */
+public interface SchemaRepository {
+	/**
+	 * 文字列の列の最大文字数を取得
+	 * @param table テーブル名
+	 * @param column 列名
+	 * @return 最大文字数（varchar(n) の n）
+	 * @throws IllegalStateException 列が存在しないか、最大文字数が定義されていない場合
+	 */
+	public int getMaxLength(String table, String column);
+
+}
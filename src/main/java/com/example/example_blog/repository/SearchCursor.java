@@ -0,0 +1,77 @@
+package com.example.example_blog.repository;
+
+/**
+ * 検索結果のページ位置を表すカーソル
+ * 検索結果は 関連度の降順・IDの降順 で並べるので、
+ * (関連度, ID) の組でページの境界となる記事を一意に特定する。
+ * @author Chiba
+ */
+public class SearchCursor {
+
+	//境界となる記事の関連度
+	private final float rank;
+
+	//境界となる記事のID
+	private final int id;
+
+	/**
+	 * コンストラクタ
+	 * @param rank 境界となる記事の関連度
+	 * @param id 境界となる記事のID
+	 */
+	public SearchCursor(float rank, int id) {
+		this.rank = rank;
+		this.id = id;
+	}
+
+	//関連度のゲッタ
+	public float getRank() {
+		return rank;
+	}
+
+	//IDのゲッタ
+	public int getId() {
+		return id;
+	}
+
+	/*
+	 * Float.toStringは元の値に戻せる桁数で出力されるので、
+	 * 復元した関連度でデータベースの値と正確に比較できる。
+	 */
+	/**
+	 * URLのパラメータに使用できる文字列に変換する
+	 * 形式：関連度_ID
+	 * @return カーソル文字列
+	 */
+	public String encode() {
+		return Float.toString(rank) + "_" + id;
+	}
+
+	/**
+	 * {@link #encode()} で作成した文字列からカーソルを復元する
+	 * @param value カーソル文字列
+	 * @return カーソル
+	 * @throws IllegalArgumentException カーソル文字列の形式が正しくない場合
+	 */
+	public static SearchCursor decode(String value) {
+
+		//カーソル文字列がnullでも空値でもないことを確認する。
+		if (value == null || value.equals("")) {
+			throw new IllegalArgumentException("カーソルがnullもしくは空値です");
+		}
+
+		String[] parts = value.split("_");
+
+		//関連度・IDの2つに分かれていることを確認する。
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("カーソルの形式が正しくありません");
+		}
+
+		try {
+			return new SearchCursor(Float.parseFloat(parts[0]), Integer.parseInt(parts[1]));
+
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("カーソルの形式が正しくありません", e);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.example.example_blog.repository;
+
+import java.util.List;
+
+/**
+ * 検索結果の1ページ分を表すオブジェクト
+ * ページに含まれる記事と、次のページを取得するためのカーソルを保持する。
+ * @author Chiba
+ */
+public class SearchPage {
+
+	//ページに含まれる記事のリスト 関連度の高い順
+	private final List<ArticleDAO> articles;
+
+	//次のページを取得するためのカーソル 次のページがなければnull
+	private final SearchCursor next;
+
+	/**
+	 * コンストラクタ
+	 * @param articles ページに含まれる記事のリスト
+	 * @param next 次のページを取得するためのカーソル
+	 */
+	public SearchPage(List<ArticleDAO> articles, SearchCursor next) {
+		this.articles = articles;
+		this.next = next;
+	}
+
+	//記事リストのゲッタ
+	public List<ArticleDAO> getArticles() {
+		return articles;
+	}
+
+	//次のページのカーソルのゲッタ
+	public SearchCursor getNext() {
+		return next;
+	}
+}
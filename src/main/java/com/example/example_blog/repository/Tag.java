@@ -0,0 +1,74 @@
+package com.example.example_blog.repository;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * タグを表すオブジェクト
+ * @author Chiba
+ */
+public class Tag {
+
+	//タグのID
+	private int id;
+
+	//タグ名
+	private String name;
+
+	//タグの付いた記事数
+	private int articleCount;
+
+
+	//タグのIDのゲッタ
+	public int getId() {
+		return id;
+	}
+
+	//タグのIDのセッタ
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	//タグ名のゲッタ
+	public String getName() {
+		return name;
+	}
+
+	//タグ名のセッタ
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	//記事数のゲッタ
+	public int getArticleCount() {
+		return articleCount;
+	}
+
+	//記事数のセッタ
+	public void setArticleCount(int articleCount) {
+		this.articleCount = articleCount;
+	}
+
+	/**
+	 * 入力されたタグの文字列からタグ名を取り出す
+	 * カンマ・読点・空白（全角を含む）で区切る。前後の空白は取り除き、空のタグと重複したタグは無視する。
+	 * @param tags 入力されたタグの文字列 nullの場合は空
+	 * @return タグ名 入力された順に並ぶ
+	 */
+	public static Set<String> parseNames(String tags) {
+
+		Set<String> names = new LinkedHashSet<>();
+
+		if (tags == null) {
+			return names;
+		}
+
+		for (String name : tags.split("[,、，\\s\\u3000]+")) {
+			if (!name.isEmpty()) {
+				names.add(name);
+			}
+		}
+
+		return names;
+	}
+}
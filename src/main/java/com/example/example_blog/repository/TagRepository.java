@@ -0,0 +1,56 @@
+package com.example.example_blog.repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * タグのリポジトリ
+ * タグと、記事とタグの対応を管理する。
+ * @author Chiba
+ */
+public interface TagRepository {
+
+	/**
+	 * 記事の付いているタグを記事数の多い順に取得
+	 * @param limit 取得する最大件数
+	 * @return タグのリスト
+	 */
+	public List<Tag> getTags(int limit);
+
+
+	/**
+	 * タグ名からタグを取得
+	 * @param names タグ名
+	 * @return タグのリスト 存在しないタグ名は含まない
+	 */
+	public List<Tag> getTagsByName(Collection<String> names);
+
+
+	/**
+	 * 記事に付いているタグ名を取得
+	 * @param articleId 記事のID
+	 * @return タグ名のリスト 名前順に並ぶ
+	 */
+	public List<String> getTagNames(int articleId);
+
+
+	/**
+	 * 記事に付けるタグを設定
+	 * 存在しないタグは作成し、付け外ししたタグの記事数を増減する。
+	 * 記事を書き込むトランザクションの中で呼び出す必要がある。
+	 * @param articleId 記事のID
+	 * @param articleDate 記事の投稿日
+	 * @param names 記事に付けるタグ名 現在付いていてこれに含まれないタグは外す
+	 */
+	public void setArticleTags(int articleId, Timestamp articleDate, Set<String> names);
+
+
+	/**
+	 * 記事に付いているタグを全て外す
+	 * 記事を削除したトランザクションの中で呼び出す必要がある。
+	 * @param articleId 記事のID
+	 */
+	public void removeArticleTags(int articleId);
+}
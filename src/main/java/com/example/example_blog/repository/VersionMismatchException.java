@@ -0,0 +1,25 @@
+package com.example.example_blog.repository;
+
+/**
+ * 更新しようとした記事の版番号が、データベースの記事の版番号と一致しない場合にスローする例外
+ * 記事を取得してから更新するまでの間に、他の更新が行われたことを表す。
+ * @author Chiba
+ */
+public class VersionMismatchException extends Exception {
+
+	//データベースの記事の現在の版番号
+	private final int currentVersion;
+
+	/**
+	 * コンストラクタ
+	 * @param currentVersion データベースの記事の現在の版番号
+	 */
+	public VersionMismatchException(int currentVersion) {
+		this.currentVersion = currentVersion;
+	}
+
+	//現在の版番号のゲッタ
+	public int getCurrentVersion() {
+		return currentVersion;
+	}
+}
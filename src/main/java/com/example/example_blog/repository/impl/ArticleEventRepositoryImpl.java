@@ -0,0 +1,247 @@
+package com.example.example_blog.repository.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.ArticleEvent;
+import com.example.example_blog.repository.ArticleEventRepository;
+import com.example.example_blog.repository.ArticleEventType;
+
+/**
+ * 記事の変更イベントのリポジトリを実装するクラス
+ * @author Chiba
+ */
+/*
+ * bigserial の番号は採番順であってコミット順ではないので、同時に追加すると、
+ * 小さい番号のトランザクションが後からコミットされ、続きから読んでいる利用者が読み飛ばすことがある。
+ * 追加の前にトランザクション単位の勧告的ロックを取り、イベントの追加からコミットまでを直列化することで、
+ * 番号の順にコミットされるようにしている。ロックはイベントの追加時だけなので、記事の書き込み自体は並行に行われる。
+ */
+@Repository
+public class ArticleEventRepositoryImpl implements ArticleEventRepository {
+
+	@Autowired
+	NamedParameterJdbcTemplate jdbcTemplate;
+
+	//イベントの追加を直列化する勧告的ロックの識別子
+	private static final String LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('" + CHANNEL + "'));";
+
+	//コミット時に利用者へ通知するSQL 通知はトランザクションがコミットされたときに届く
+	private static final String NOTIFY_SQL = "SELECT pg_notify('" + CHANNEL + "', '');";
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void append(ArticleEventType type, ArticleDAO article) {
+
+		//変更の種類がnullでないことを確認する。
+		if (type == null) {
+			throw new IllegalArgumentException("変更の種類がnullです");
+		}
+
+		//記事オブジェクトがnullでないことを確認する。
+		if (article == null) {
+			throw new IllegalArgumentException("記事オブジェクトがnullです");
+		}
+
+		//イベントの追加を直列化する
+		jdbcTemplate.getJdbcOperations().execute(LOCK_SQL);
+
+		//イベントを追加するSQL文の設定
+		final String sql = "INSERT INTO article_events (article_id, type, version, article_date)"
+				+ " VALUES (:articleId, :type, :version, :articleDate);";
+
+		SqlParameterSource parameters = new MapSqlParameterSource("articleId", article.getId())
+				.addValue("type", type.name())
+				.addValue("version", article.getVersion())
+				.addValue("articleDate", article.getDate());
+
+		jdbcTemplate.update(sql, parameters);
+
+		//コミット時に通知する
+		jdbcTemplate.getJdbcOperations().execute(NOTIFY_SQL);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void appendAll(ArticleEventType type, List<ArticleDAO> articles) {
+
+		//変更の種類がnullでないことを確認する。
+		if (type == null) {
+			throw new IllegalArgumentException("変更の種類がnullです");
+		}
+
+		//記事のリストがnullでないことを確認する。
+		if (articles == null) {
+			throw new IllegalArgumentException("記事のリストがnullです");
+		}
+
+		if (articles.isEmpty()) {
+			return;
+		}
+
+		//イベントの追加を直列化する
+		jdbcTemplate.getJdbcOperations().execute(LOCK_SQL);
+
+		//イベントを追加するSQL文の設定
+		final String sql = "INSERT INTO article_events (article_id, type, version, article_date)"
+				+ " VALUES (:articleId, :type, :version, :articleDate);";
+
+		SqlParameterSource[] parameters = new SqlParameterSource[articles.size()];
+
+		for (int i = 0; i < parameters.length; i++) {
+			parameters[i] = new MapSqlParameterSource("articleId", articles.get(i).getId())
+					.addValue("type", type.name())
+					.addValue("version", articles.get(i).getVersion())
+					.addValue("articleDate", articles.get(i).getDate());
+		}
+
+		//1回の通信でまとめて追加する
+		jdbcTemplate.batchUpdate(sql, parameters);
+
+		//コミット時に通知する
+		jdbcTemplate.getJdbcOperations().execute(NOTIFY_SQL);
+	}
+
+	/*
+	 * READ COMMITTEDでは、他のトランザクションが追加した記事はコミット済みのものしか見えず、
+	 * コミット済みの記事には同じトランザクションで追加したイベントがある。
+	 * イベントがない記事は、このトランザクションで追加した記事だけになる。
+	 */
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional(propagation = Propagation.MANDATORY)
+	public int appendCreatedAfter(int afterId) {
+
+		//イベントの追加を直列化する
+		jdbcTemplate.getJdbcOperations().execute(LOCK_SQL);
+
+		//イベントのない記事の追加のイベントを、IDの順に追加するSQL文の設定
+		final String sql = "INSERT INTO article_events (article_id, type, version, article_date)"
+				+ " SELECT a.id, :type, a.version, a.date FROM articles a"
+				+ " WHERE a.id > :afterId"
+				+ " AND NOT EXISTS (SELECT 1 FROM article_events e WHERE e.article_id = a.id AND e.type = :type)"
+				+ " ORDER BY a.id;";
+
+		SqlParameterSource parameters = new MapSqlParameterSource("afterId", afterId)
+				.addValue("type", ArticleEventType.CREATED.name());
+
+		int count = jdbcTemplate.update(sql, parameters);
+
+		//コミット時に通知する
+		if (count > 0) {
+			jdbcTemplate.getJdbcOperations().execute(NOTIFY_SQL);
+		}
+
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ArticleEvent> getEventsAfter(long seq, int limit) {
+
+		//取得する最大件数が1未満でないことを確認する。
+		if (limit < 1) {
+			throw new IllegalArgumentException("取得する最大件数が1未満です");
+		}
+
+		//通し番号の続きからイベントを取得するSQL文の設定 主キーのインデックスを辿るので、テーブル全体は走査しない
+		final String sql = "SELECT seq, type, article_id, version, occurred_at, article_date FROM article_events"
+				+ " WHERE seq > :seq ORDER BY seq LIMIT :limit;";
+
+		SqlParameterSource parameters = new MapSqlParameterSource("seq", seq)
+				.addValue("limit", limit);
+
+		return jdbcTemplate.query(sql, parameters, this::mapEvent);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getLatestSeq() {
+
+		final String sql = "SELECT coalesce(max(seq), 0) FROM article_events;";
+
+		return jdbcTemplate.queryForObject(sql, new MapSqlParameterSource(), Long.class);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getOldestSeq() {
+
+		final String sql = "SELECT coalesce(min(seq), 0) FROM article_events;";
+
+		return jdbcTemplate.queryForObject(sql, new MapSqlParameterSource(), Long.class);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ArticleEvent getLatestEvent() {
+
+		//主キーのインデックスを末尾から1件だけ辿る
+		final String sql = "SELECT seq, type, article_id, version, occurred_at, article_date FROM article_events"
+				+ " ORDER BY seq DESC LIMIT 1;";
+
+		List<ArticleEvent> latest = jdbcTemplate.query(sql, new MapSqlParameterSource(), this::mapEvent);
+
+		return latest.isEmpty() ? null : latest.get(0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int deleteEventsBefore(Timestamp time) {
+
+		//日時がnullでないことを確認する。
+		if (time == null) {
+			throw new IllegalArgumentException("日時がnullです");
+		}
+
+		/*
+		 * 最新のイベントまで削除すると、残っている最も古い通し番号から削除されたイベントがあるかを判定できなくなり、
+		 * 最新の通し番号も0に戻ってしまうので、最新のイベントは残す
+		 */
+		final String sql = "DELETE FROM article_events WHERE occurred_at < :time"
+				+ " AND seq < (SELECT max(seq) FROM article_events);";
+
+		return jdbcTemplate.update(sql, new MapSqlParameterSource("time", time));
+	}
+
+	//取得した行をイベントオブジェクトにする
+	private ArticleEvent mapEvent(ResultSet rs, int rowNum) throws SQLException {
+		ArticleEvent event = new ArticleEvent();
+		event.setSeq(rs.getLong(1));
+		event.setType(ArticleEventType.valueOf(rs.getString(2)));
+		event.setArticleId(rs.getInt(3));
+		event.setVersion(rs.getInt(4));
+		event.setOccurredAt(rs.getTimestamp(5));
+		event.setArticleDate(rs.getTimestamp(6));
+		return event;
+	}
+}
@@ -1,20 +1,46 @@
 package com.example.example_blog.repository.impl;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.example_blog.datasource.ReplicaRead;
+import com.example.example_blog.repository.ArticleCursor;
 import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.ArticleField;
+import com.example.example_blog.repository.ArticlePage;
 import com.example.example_blog.repository.ArticleRepository;
+import com.example.example_blog.repository.ArticleSummary;
+import com.example.example_blog.repository.ArticleSummaryPage;
 import com.example.example_blog.repository.NoArticleFoundException;
+import com.example.example_blog.repository.SearchCursor;
+import com.example.example_blog.repository.SearchPage;
+import com.example.example_blog.repository.VersionMismatchException;
 
 /**
  * 記事リポジトリを実装するクラス
@@ -22,6 +48,9 @@ import com.example.example_blog.repository.NoArticleFoundException;
  */
 /*
  * @Repository：ArticleRepositoryImpl.java がリポジトリであることを示すアノテーション
+ *
+ * 書き込みの引数は、呼び出し元のサービスが ArticleValidator で入力チェックを済ませているので、ここではチェックしない。
+ * チェック漏れがあっても、列の長さと NOT NULL の制約でデータベースが拒否する。
  */
 @Repository
 public class ArticleRepositoryImpl implements ArticleRepository {
@@ -29,11 +58,13 @@ public class ArticleRepositoryImpl implements ArticleRepository {
 	@Autowired
 	NamedParameterJdbcTemplate jdbcTemplate;
 
-	//タイトルの最大文字数
-	private final int MAX_TITLE_SIZE = 30;
+	//まとめて追加するときにPostgreSQLのCOPYを使用するか
+	@Value("${blog.import.use-copy:false}")
+	boolean useCopy;
 
-	//本文の最大文字数
-	private final int MAX_CONTENT_SIZE = 1000;
+	//全件を順に読み込むときに1回で取得する行数
+	@Value("${blog.repository.fetch-size:500}")
+	int fetchSize;
 
 	/**
 	 * {@inheritDoc}
@@ -42,28 +73,7 @@ public class ArticleRepositoryImpl implements ArticleRepository {
 	 * @inheritDoc：スーパクラスやインタフェースのドキュメントコメントを継承する
 	 */
 	@Override
-	public void addArticle(String title, String content) {
-
-		//タイトルがnullでも空値でもないことを確認する。
-		if (title == null || title.equals("")) {
-			throw new IllegalArgumentException("タイトルがnullもしくは空値です");
-		}
-
-		//本文がnullでも空値でもないことを確認する。
-		if (content == null || content.equals("")) {
-			throw new IllegalArgumentException("本文がnullもしくは空値です");
-		}
-
-		//タイトルの最大文字数チェック
-		if (title.length() > MAX_TITLE_SIZE) {
-			throw new IllegalArgumentException("タイトルが" + MAX_TITLE_SIZE + "字より多いです");
-		}
-
-		//本文の最大文字数チェック
-		if (content.length() > MAX_CONTENT_SIZE) {
-			throw new IllegalArgumentException("本文が" + MAX_TITLE_SIZE + "字より多いです");
-		}
-
+	public ArticleDAO addArticle(String title, String content) {
 
 		/*
 		 * 記事を追加するSQL文の設定
@@ -74,8 +84,12 @@ public class ArticleRepositoryImpl implements ArticleRepository {
 		 * now() ... PostgreSQLの関数
 		 *           PostgreSQLの現在時刻を取得する
 		 *
+		 * RETURNING ... 追加した行の値を返す
+		 *               採番されたIDと投稿日を、改めてSELECTせずに受け取る
+		 *
 		 */
-		final String sql = "INSERT INTO articles (title, date, content) VALUES (:title, now(), :content);";
+		final String sql = "INSERT INTO articles (title, date, content) VALUES (:title, now(), :content)"
+				+ " RETURNING " + ArticleRowMapper.COLUMNS + ";";
 
 		/*
 		 * SQL文に入れる引数のリスト化
@@ -91,66 +105,246 @@ public class ArticleRepositoryImpl implements ArticleRepository {
 
 		/*
 		 * SQL文と当てはめるパラメータを引数に渡し、SQL文を実行する。
+		 * 追加した行を記事オブジェクトに変換して返却する。
 		 */
-		jdbcTemplate.update(sql, parameters);
+		return jdbcTemplate.queryForObject(sql, parameters, ArticleRowMapper.INSTANCE);
 
 	}
 
+	/*
+	 * 1行ずつINSERTすると、行数分だけデータベースとの往復が発生する。
+	 * バッチ更新では複数行を1回の往復で送り、COPYではさらにSQLの解析も1回で済む。
+	 */
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void modifyArticle(int id, String title, String content) throws NoArticleFoundException {
+	public int addArticles(List<ArticleDAO> articles) {
 
-		//タイトルがnullでも空値でもないことを確認する。
-		if (title == null || title.equals("")) {
-			throw new IllegalArgumentException("タイトルがnullもしくは空値です");
+		//記事のリストがnullでないことを確認する。
+		if (articles == null) {
+			throw new IllegalArgumentException("記事のリストがnullです");
 		}
 
-		//本文がnullでも空値でもないことを確認する。
-		if (content == null || content.equals("")) {
-			throw new IllegalArgumentException("本文がnullもしくは空値です");
+		//追加する記事がなければ何もしない
+		if (articles.isEmpty()) {
+			return 0;
 		}
 
-		//タイトルの最大文字数チェック
-		if (title.length() > MAX_TITLE_SIZE) {
-			throw new IllegalArgumentException("タイトルが" + MAX_TITLE_SIZE + "字より多いです");
+		//COPYを使用する設定の場合
+		if (useCopy) {
+			return copyArticles(articles);
 		}
 
-		//本文の最大文字数チェック
-		if (content.length() > MAX_CONTENT_SIZE) {
-			throw new IllegalArgumentException("本文が" + MAX_TITLE_SIZE + "字より多いです");
+		/*
+		 * 記事を追加するSQL文の設定
+		 * 投稿日がnullの場合はPostgreSQLの現在時刻を投稿日にする
+		 */
+		final String sql = "INSERT INTO articles (title, date, content) VALUES (:title, COALESCE(:date, now()), :content)";
+
+		//記事ごとにSQL文に入れる引数をリスト化
+		SqlParameterSource[] batchParameters = new SqlParameterSource[articles.size()];
+
+		for (int i = 0; i < batchParameters.length; i++) {
+			ArticleDAO article = articles.get(i);
+
+			//投稿日はnullの場合もあるので、型を明示しておく
+			batchParameters[i] = new MapSqlParameterSource("title", article.getTitle())
+					.addValue("date", article.getDate(), Types.TIMESTAMP)
+					.addValue("content", article.getContent());
 		}
 
-		//IDが1未満でないことを確認する。
-		if (id < 1) {
-			throw new IllegalArgumentException("IDが1未満です");
+		//まとめてSQL文を実行し、記事ごとの追加件数を取得する。
+		int[] counts = jdbcTemplate.batchUpdate(sql, batchParameters);
+
+		//追加件数を合計する
+		int total = 0;
+		for (int count : counts) {
+
+			//ドライバが複数行のINSERTに書き換えた場合は件数が返らないので、1件として数える
+			total += (count == Statement.SUCCESS_NO_INFO) ? 1 : count;
 		}
 
+		return total;
+	}
 
-		//記事を更新するSQL文を設定
-		final String sql = "UPDATE articles set title = :title, content = :content WHERE id = :id;";
+	/*
+	 * VALUES に記事の数だけ行を並べると、記事数ごとに別のSQL文になり、文の解析と準備済み文のキャッシュが無駄になる。
+	 * タイトルと本文を配列で1つずつ渡して unnest で行に展開すれば、記事数に関わらず同じSQL文になる。
+	 * WITH ORDINALITY の順に追加するのでIDは引数の順に採番され、ID順に並べれば引数の順に戻る。
+	 */
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ArticleDAO> addArticlesReturning(List<ArticleDAO> articles) {
+
+		//記事のリストがnullでないことを確認する。
+		if (articles == null) {
+			throw new IllegalArgumentException("記事のリストがnullです");
+		}
+
+		//追加する記事がなければ何もしない
+		if (articles.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		//タイトルと本文をそれぞれ配列にする
+		String[] titles = new String[articles.size()];
+		String[] contents = new String[articles.size()];
+
+		for (int i = 0; i < titles.length; i++) {
+			titles[i] = articles.get(i).getTitle();
+			contents[i] = articles.get(i).getContent();
+		}
+
+		//配列を行に展開して記事を追加し、追加した行を返すSQL文の設定
+		final String sql = "INSERT INTO articles (title, date, content)"
+				+ " SELECT t.title, now(), t.content FROM unnest(?, ?) WITH ORDINALITY AS t(title, content, n) ORDER BY t.n"
+				+ " RETURNING " + ArticleRowMapper.COLUMNS + ";";
+
+		List<ArticleDAO> added = jdbcTemplate.getJdbcOperations().query(connection -> {
+			PreparedStatement statement = connection.prepareStatement(sql);
+			statement.setArray(1, connection.createArrayOf("varchar", titles));
+			statement.setArray(2, connection.createArrayOf("varchar", contents));
+			return statement;
+		}, ArticleRowMapper.INSTANCE);
+
+		//RETURNINGの順序は保証されないので、採番順（引数の順）に並べ替える
+		added.sort(Comparator.comparingInt(ArticleDAO::getId));
+
+		return added;
+	}
+
+	/**
+	 * PostgreSQLのCOPYで記事をまとめて追加する
+	 * @param articles 追加する記事のリスト
+	 * @return 追加件数
+	 */
+	private int copyArticles(List<ArticleDAO> articles) {
+
+		//COPYで送るCSVを作成する
+		StringBuilder csv = new StringBuilder();
+
+		//投稿日がnullの記事に設定する現在時刻
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+
+		for (ArticleDAO article : articles) {
+			Timestamp date = article.getDate() != null ? article.getDate() : now;
+
+			/*
+			 * 投稿日はUTCのISO-8601（例 2021-04-01T03:00:00.123Z）で送る
+			 * Timestamp.toString() はJVMのタイムゾーンの日時をオフセットなしで出力するので、
+			 * サーバのTimeZoneの設定がJVMと異なると、別の時刻として解釈されてしまう
+			 */
+			csv.append(quoteCsv(article.getTitle())).append(',')
+					.append(date.toInstant().toString()).append(',')
+					.append(quoteCsv(article.getContent())).append('\n');
+		}
+
+		//記事を追加するCOPY文の設定
+		final String sql = "COPY articles (title, date, content) FROM STDIN WITH (FORMAT csv)";
+
+		//PostgreSQLのドライバの接続を取り出してCOPYを実行し、追加件数を取得する。
+		Long count = jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Long>) connection -> {
+			try {
+				CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+				return copyManager.copyIn(sql, new StringReader(csv.toString()));
+
+			} catch (IOException e) {
+				throw new SQLException("COPYの実行に失敗しました", e);
+			}
+		});
+
+		return count.intValue();
+	}
+
+	/**
+	 * CSVの1項目として出力できるように、値をダブルクォートで囲む
+	 * @param value 値
+	 * @return ダブルクォートで囲んだ値
+	 */
+	private String quoteCsv(String value) {
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ArticleDAO modifyArticle(int id, String title, String content) throws NoArticleFoundException {
+
+		//記事を更新し、更新後の行を返すSQL文を設定
+		final String sql = "UPDATE articles set title = :title, content = :content, version = version + 1 WHERE id = :id"
+				+ " RETURNING " + ArticleRowMapper.COLUMNS + ";";
 
 		//SQL文に入れる引数のリスト化
 		SqlParameterSource parameters = new MapSqlParameterSource("title", title)
 				.addValue("content", content)
 				.addValue("id", id);
 
-		//SQL文を実行し、更新件数を取得する。
-		int count = jdbcTemplate.update(sql, parameters);
+		//SQL文を実行し、更新後の行を取得する。
+		List<ArticleDAO> updated = jdbcTemplate.query(sql, parameters, ArticleRowMapper.INSTANCE);
 
 		//更新件数が0だった場合
 		//更新に失敗したとしてNoArticleFoundExceptionをスローする
-		if (count == 0) {
+		if (updated.isEmpty()) {
+			throw new NoArticleFoundException();
+		}
+
+		//更新後の記事を返却
+		return updated.get(0);
+	}
+
+	/*
+	 * 行ロック（SELECT ... FOR UPDATE）で編集中の記事を押さえると、編集画面を開いている間ずっと他の更新を待たせることになる。
+	 * 取得時の版番号をWHERE句の条件にして更新し（比較して置き換え）、一致しなければ更新しない。
+	 * 読み込みと更新の間にロックを持たないので、競合しない更新どうしは待ち合わせずに済む。
+	 */
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ArticleDAO modifyArticle(int id, int version, String title, String content)
+			throws NoArticleFoundException, VersionMismatchException {
+
+		//版番号が一致する場合だけ記事を更新し、更新後の行を返すSQL文を設定
+		final String sql = "UPDATE articles set title = :title, content = :content, version = version + 1"
+				+ " WHERE id = :id AND version = :version"
+				+ " RETURNING " + ArticleRowMapper.COLUMNS + ";";
+
+		//SQL文に入れる引数のリスト化
+		SqlParameterSource parameters = new MapSqlParameterSource("title", title)
+				.addValue("content", content)
+				.addValue("id", id)
+				.addValue("version", version);
+
+		//SQL文を実行し、更新後の行を取得する。
+		List<ArticleDAO> updated = jdbcTemplate.query(sql, parameters, ArticleRowMapper.INSTANCE);
+
+		//更新できた場合は更新後の記事を返却
+		if (!updated.isEmpty()) {
+			return updated.get(0);
+		}
+
+		//更新件数が0だった場合は、記事がないのか版番号が違うのかを確かめる
+		List<Integer> currentVersion = jdbcTemplate.queryForList("SELECT version FROM articles WHERE id = :id;",
+				new MapSqlParameterSource("id", id), Integer.class);
+
+		//記事がない場合は、更新に失敗したとしてNoArticleFoundExceptionをスローする
+		if (currentVersion.isEmpty()) {
 			throw new NoArticleFoundException();
 		}
 
+		//記事がある場合は、他の更新が先に行われている
+		throw new VersionMismatchException(currentVersion.get(0));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
+	@ReplicaRead
 	public ArticleDAO getArticle(int id) throws NoArticleFoundException {
 
 		//IDが1未満でないことを確認する。
@@ -165,16 +359,13 @@ public class ArticleRepositoryImpl implements ArticleRepository {
 		try {
 
 			//記事を取得するSQLの設定
-			final String sql = "SELECT * FROM articles WHERE id = :id;";
+			final String sql = "SELECT " + ArticleRowMapper.COLUMNS + " FROM articles WHERE id = :id;";
 
 			//SQL文に入れる引数のリスト化
 			SqlParameterSource parameters = new MapSqlParameterSource("id", id);
 
-			//取得処理を実行
-			Map<String, Object> result = jdbcTemplate.queryForMap(sql, parameters);
-
-			//取得結果をオブジェクトに変換
-			dao = toArticleDAO(result);
+			//取得処理を実行し、取得結果をオブジェクトに変換
+			dao = jdbcTemplate.queryForObject(sql, parameters, ArticleRowMapper.INSTANCE);
 
 		} catch (IncorrectResultSizeDataAccessException e) {
 			//IncorrectResultSizeDataAccessException SQL文の実行結果が1行でない場合スローされる
@@ -191,89 +382,670 @@ public class ArticleRepositoryImpl implements ArticleRepository {
 	 * {@inheritDoc}
 	 */
 	@Override
+	@ReplicaRead
 	public List<ArticleDAO> getAllArticles() {
 
 		//全ての記事を取得するSQLの設定
-		final String sql = "SELECT * FROM articles ORDER BY date DESC;";
+		final String sql = "SELECT " + ArticleRowMapper.COLUMNS + " FROM articles ORDER BY date DESC;";
 
 		//SQL文に入れる引数のリスト化（引数なし）
 		SqlParameterSource parameters = new MapSqlParameterSource();
 
+		//取得処理を実行し、記事リストを返却
+		//1個もなければ要素数0の記事リストになる
+		return jdbcTemplate.query(sql, parameters, ArticleRowMapper.INSTANCE);
+	}
+
+	/*
+	 * PostgreSQLのJDBCドライバは、自動コミットが無効でないとフェッチサイズを無視して全行を一度に読み込む。
+	 * そのため読み取り専用のトランザクション内で実行し、フェッチサイズ分ずつ読み込ませる。
+	 */
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@ReplicaRead
+	@Transactional(readOnly = true)
+	public void forEachArticle(int afterId, Consumer<ArticleDAO> action) {
+
+		//指定したIDより大きい記事をID順に取得するSQLの設定
+		final String sql = "SELECT " + ArticleRowMapper.COLUMNS + " FROM articles WHERE id > ? ORDER BY id;";
+
+		//フェッチサイズを設定したSQL文を作成し、1行ずつ記事オブジェクトに変換して渡す
+		jdbcTemplate.getJdbcOperations().query(connection -> {
+			PreparedStatement statement = connection.prepareStatement(sql,
+					ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			statement.setFetchSize(fetchSize);
+			statement.setInt(1, afterId);
+			return statement;
+		}, (RowCallbackHandler) rs -> action.accept(ArticleRowMapper.INSTANCE.mapRow(rs, rs.getRow())));
+	}
+
+	/*
+	 * 本文は最大1000文字あるので、一覧で本文を使わない場合は列ごと取得しないことで、
+	 * データベースからの読み込みと転送の量を減らしている。
+	 */
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@ReplicaRead
+	public void forEachArticleAfter(ArticleCursor cursor, int limit, Set<ArticleField> fields,
+			Consumer<ArticleDAO> action) {
+
+		//処理する記事数が1未満でないことを確認する。
+		if (limit < 1) {
+			throw new IllegalArgumentException("処理する記事数が1未満です");
+		}
+
+		//カーソルに必要なIDと投稿日に、指定された列を加える 列番号は並び順で決まる
+		boolean withTitle = fields.contains(ArticleField.TITLE);
+		boolean withContent = fields.contains(ArticleField.CONTENT);
+
+		final String columns = "id, date" + (withTitle ? ", title" : "") + (withContent ? ", content" : "");
+
+		SqlParameterSource parameters;
+		final String sql;
+
+		if (cursor == null) {
+			sql = "SELECT " + columns + " FROM articles ORDER BY date DESC, id DESC LIMIT :limit;";
+
+			parameters = new MapSqlParameterSource("limit", limit);
+		} else {
+			sql = "SELECT " + columns + " FROM articles WHERE (date, id) < (:date, :id) ORDER BY date DESC, id DESC LIMIT :limit;";
+
+			parameters = new MapSqlParameterSource("date", cursor.getDate())
+					.addValue("id", cursor.getId())
+					.addValue("limit", limit);
+		}
+
+		//1行ずつ記事オブジェクトに変換して渡す
+		jdbcTemplate.query(sql, parameters, (RowCallbackHandler) rs -> {
+			ArticleDAO dao = new ArticleDAO();
+			int column = 1;
+
+			dao.setId(rs.getInt(column++));
+			dao.setDate(rs.getTimestamp(column++));
+
+			if (withTitle) {
+				dao.setTitle(rs.getString(column++));
+			}
+			if (withContent) {
+				dao.setContent(rs.getString(column++));
+			}
+
+			action.accept(dao);
+		});
+	}
+
+	/*
+	 * OFFSETを使ったページングは読み飛ばす行もすべて走査するため、後ろのページほど遅くなる。
+	 * (date, id) の複合インデックスを境界の値から辿るキーセット方式にすることで、
+	 * どのページでも1ページ分の行だけを読むようにしている。
+	 */
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@ReplicaRead
+	public ArticlePage getArticlesAfter(ArticleCursor cursor, int size) {
+
+		//1ページあたりの記事数が1未満でないことを確認する。
+		if (size < 1) {
+			throw new IllegalArgumentException("1ページあたりの記事数が1未満です");
+		}
+
+		//次のページがあるかを判定するため、1件多く取得する
+		List<ArticleDAO> articleList = queryAfter(ArticleRowMapper.COLUMNS, new MapSqlParameterSource(),
+				cursor, size + 1, ArticleRowMapper.INSTANCE);
+
+		//1件多く取得できた場合は次のページがある
+		boolean hasNext = articleList.size() > size;
+		if (hasNext) {
+			articleList.remove(size);
+		}
+
+		//次のページは、このページの最後の記事より古い記事
+		ArticleCursor next = hasNext ? ArticleCursor.of(articleList.get(articleList.size() - 1)) : null;
+
+		//カーソルが指定されていれば前のページがある。前のページは、このページの最初の記事より新しい記事
+		ArticleCursor previous = (cursor != null && !articleList.isEmpty()) ? ArticleCursor.of(articleList.get(0)) : null;
+
+		return new ArticlePage(articleList, next, previous);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@ReplicaRead
+	public ArticlePage getArticlesBefore(ArticleCursor cursor, int size) {
+
+		//1ページあたりの記事数が1未満でないことを確認する。
+		if (size < 1) {
+			throw new IllegalArgumentException("1ページあたりの記事数が1未満です");
+		}
+
+		//カーソルがnullでないことを確認する。
+		if (cursor == null) {
+			throw new IllegalArgumentException("カーソルがnullです");
+		}
+
+		//前のページがあるかを判定するため、1件多く取得する
+		List<ArticleDAO> articleList = queryBefore(ArticleRowMapper.COLUMNS, new MapSqlParameterSource(),
+				cursor, size + 1, ArticleRowMapper.INSTANCE);
+
+		/*
+		 * 最新の記事まで1ページ分に満たない場合は、
+		 * 件数が欠けたページを表示しないように先頭のページを返す
+		 */
+		if (articleList.size() < size + 1) {
+			return getArticlesAfter(null, size);
+		}
+
+		//1件多く取得できているので前のページがある
+		articleList.remove(size);
+
+		//表示順（投稿日の降順）に並べ替える
+		Collections.reverse(articleList);
+
+		//次のページは、このページの最後の記事より古い記事
+		ArticleCursor next = ArticleCursor.of(articleList.get(articleList.size() - 1));
+
+		//前のページは、このページの最初の記事より新しい記事
+		ArticleCursor previous = ArticleCursor.of(articleList.get(0));
+
+		return new ArticlePage(articleList, next, previous);
+	}
+
+	/*
+	 * 記事一覧の画面では本文の全文は表示しないので、本文（最大1000文字）を left で切り詰めてから取得する。
+	 * 全文は編集画面などで記事を1件取得するときだけ読み込む。
+	 */
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@ReplicaRead
+	public ArticleSummaryPage getArticleSummariesAfter(ArticleCursor cursor, int size, int excerptLength) {
+
+		//1ページあたりの記事数が1未満でないことを確認する。
+		if (size < 1) {
+			throw new IllegalArgumentException("1ページあたりの記事数が1未満です");
+		}
+
+		//抜粋の文字数が1未満でないことを確認する。
+		if (excerptLength < 1) {
+			throw new IllegalArgumentException("抜粋の文字数が1未満です");
+		}
+
+		//次のページがあるかを判定するため、1件多く取得する
+		List<ArticleSummary> summaryList = queryAfter(ArticleSummaryRowMapper.COLUMNS,
+				new MapSqlParameterSource("excerptLength", excerptLength),
+				cursor, size + 1, ArticleSummaryRowMapper.INSTANCE);
+
+		//1件多く取得できた場合は次のページがある
+		boolean hasNext = summaryList.size() > size;
+		if (hasNext) {
+			summaryList.remove(size);
+		}
+
+		//次のページは、このページの最後の記事より古い記事
+		ArticleCursor next = hasNext ? ArticleCursor.of(summaryList.get(summaryList.size() - 1)) : null;
+
+		//カーソルが指定されていれば前のページがある。前のページは、このページの最初の記事より新しい記事
+		ArticleCursor previous = (cursor != null && !summaryList.isEmpty()) ? ArticleCursor.of(summaryList.get(0)) : null;
+
+		return new ArticleSummaryPage(summaryList, next, previous);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@ReplicaRead
+	public ArticleSummaryPage getArticleSummariesBefore(ArticleCursor cursor, int size, int excerptLength) {
+
+		//1ページあたりの記事数が1未満でないことを確認する。
+		if (size < 1) {
+			throw new IllegalArgumentException("1ページあたりの記事数が1未満です");
+		}
+
+		//抜粋の文字数が1未満でないことを確認する。
+		if (excerptLength < 1) {
+			throw new IllegalArgumentException("抜粋の文字数が1未満です");
+		}
+
+		//カーソルがnullでないことを確認する。
+		if (cursor == null) {
+			throw new IllegalArgumentException("カーソルがnullです");
+		}
+
+		//前のページがあるかを判定するため、1件多く取得する
+		List<ArticleSummary> summaryList = queryBefore(ArticleSummaryRowMapper.COLUMNS,
+				new MapSqlParameterSource("excerptLength", excerptLength),
+				cursor, size + 1, ArticleSummaryRowMapper.INSTANCE);
+
+		//最新の記事まで1ページ分に満たない場合は、先頭のページを返す
+		if (summaryList.size() < size + 1) {
+			return getArticleSummariesAfter(null, size, excerptLength);
+		}
+
+		//1件多く取得できているので前のページがある
+		summaryList.remove(size);
+
+		//表示順（投稿日の降順）に並べ替える
+		Collections.reverse(summaryList);
+
+		//次のページは、このページの最後の記事より古い記事
+		ArticleCursor next = ArticleCursor.of(summaryList.get(summaryList.size() - 1));
+
+		//前のページは、このページの最初の記事より新しい記事
+		ArticleCursor previous = ArticleCursor.of(summaryList.get(0));
+
+		return new ArticleSummaryPage(summaryList, next, previous);
+	}
+
+	/*
+	 * 記事一覧を古い記事から数えたページに区切る場合に使用する。
+	 * OFFSETは読み飛ばす行もインデックスから読むので、最初の1回だけ使い、続きはカーソルで取得する。
+	 */
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@ReplicaRead
+	public List<ArticleSummary> getOldestArticleSummaries(int offset, int size, int excerptLength) {
+
+		//読み飛ばす記事数が負でないことを確認する。
+		if (offset < 0) {
+			throw new IllegalArgumentException("読み飛ばす記事数が負です");
+		}
+
+		//取得する記事数が1未満でないことを確認する。
+		if (size < 1) {
+			throw new IllegalArgumentException("取得する記事数が1未満です");
+		}
+
+		//抜粋の文字数が1未満でないことを確認する。
+		if (excerptLength < 1) {
+			throw new IllegalArgumentException("抜粋の文字数が1未満です");
+		}
+
+		//古い記事から読み飛ばして取得するSQLの設定
+		final String sql = "SELECT " + ArticleSummaryRowMapper.COLUMNS
+				+ " FROM articles ORDER BY date ASC, id ASC LIMIT :limit OFFSET :offset;";
+
+		MapSqlParameterSource parameters = new MapSqlParameterSource("excerptLength", excerptLength)
+				.addValue("limit", size)
+				.addValue("offset", offset);
+
 		//取得処理を実行
-		List<Map<String, Object>> resultList = jdbcTemplate.queryForList(sql, parameters);
+		return jdbcTemplate.query(sql, parameters, ArticleSummaryRowMapper.INSTANCE);
+	}
 
-		//検索結果を記事オブジェクトのリストに変換する
-		//1個もなければ要素数0の記事リストを作る
-		List<ArticleDAO> articleList = new ArrayList<>();
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@ReplicaRead
+	public List<ArticleSummary> getArticleSummariesNewerThan(ArticleCursor cursor, int size, int excerptLength) {
 
-		for (Map<String, Object> result : resultList) {
+		//取得する記事数が1未満でないことを確認する。
+		if (size < 1) {
+			throw new IllegalArgumentException("取得する記事数が1未満です");
+		}
 
-			//検索結果を記事オブジェクトに変換
-			ArticleDAO dao = toArticleDAO(result);
+		//抜粋の文字数が1未満でないことを確認する。
+		if (excerptLength < 1) {
+			throw new IllegalArgumentException("抜粋の文字数が1未満です");
+		}
 
-			//記事オブジェクトを記事リストに追加
-			articleList.add(dao);
+		//カーソルがnullでないことを確認する。
+		if (cursor == null) {
+			throw new IllegalArgumentException("カーソルがnullです");
 		}
 
-		//記事リストを返却
-		return articleList;
+		//カーソルより新しい記事をカーソルに近い順（古い順）に取得する
+		return queryBefore(ArticleSummaryRowMapper.COLUMNS, new MapSqlParameterSource("excerptLength", excerptLength),
+				cursor, size, ArticleSummaryRowMapper.INSTANCE);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void deleteArticle(int id) throws NoArticleFoundException {
+	@ReplicaRead
+	public ArticleSummaryPage getArticleSummariesByTagsAfter(List<Integer> tagIds, ArticleCursor cursor, int size,
+			int excerptLength) {
 
-		//IDが1未満でないことを確認する。
-		if (id < 1) {
-			throw new IllegalArgumentException("IDが1未満です");
+		//タグのIDが1つ以上あることを確認する。
+		if (tagIds == null || tagIds.isEmpty()) {
+			throw new IllegalArgumentException("タグのIDがnullもしくは空です");
 		}
 
+		//1ページあたりの記事数が1未満でないことを確認する。
+		if (size < 1) {
+			throw new IllegalArgumentException("1ページあたりの記事数が1未満です");
+		}
 
-		//記事を削除するSQL文を設定
-		final String sql = "DELETE FROM articles WHERE id = :id;";
+		//抜粋の文字数が1未満でないことを確認する。
+		if (excerptLength < 1) {
+			throw new IllegalArgumentException("抜粋の文字数が1未満です");
+		}
 
-		//SQL文に入れる引数のリスト化
-		SqlParameterSource parameters = new MapSqlParameterSource("id", id);
+		//次のページがあるかを判定するため、1件多く取得する
+		List<ArticleSummary> summaryList = queryByTags(tagIds, cursor, false, size + 1, excerptLength);
 
-		//SQL文を実行し、削除件数を取得する。
-		int count = jdbcTemplate.update(sql, parameters);
+		//1件多く取得できた場合は次のページがある
+		boolean hasNext = summaryList.size() > size;
+		if (hasNext) {
+			summaryList.remove(size);
+		}
 
-		//削除件数が0だった場合
-		//削除に失敗したとしてNoArticleFoundExceptionをスローする
-		if (count == 0) {
-			throw new NoArticleFoundException();
+		//次のページは、このページの最後の記事より古い記事
+		ArticleCursor next = hasNext ? ArticleCursor.of(summaryList.get(summaryList.size() - 1)) : null;
+
+		//カーソルが指定されていれば前のページがある。前のページは、このページの最初の記事より新しい記事
+		ArticleCursor previous = (cursor != null && !summaryList.isEmpty()) ? ArticleCursor.of(summaryList.get(0)) : null;
+
+		return new ArticleSummaryPage(summaryList, next, previous);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@ReplicaRead
+	public ArticleSummaryPage getArticleSummariesByTagsBefore(List<Integer> tagIds, ArticleCursor cursor, int size,
+			int excerptLength) {
+
+		//タグのIDが1つ以上あることを確認する。
+		if (tagIds == null || tagIds.isEmpty()) {
+			throw new IllegalArgumentException("タグのIDがnullもしくは空です");
 		}
 
+		//1ページあたりの記事数が1未満でないことを確認する。
+		if (size < 1) {
+			throw new IllegalArgumentException("1ページあたりの記事数が1未満です");
+		}
+
+		//抜粋の文字数が1未満でないことを確認する。
+		if (excerptLength < 1) {
+			throw new IllegalArgumentException("抜粋の文字数が1未満です");
+		}
+
+		//カーソルがnullでないことを確認する。
+		if (cursor == null) {
+			throw new IllegalArgumentException("カーソルがnullです");
+		}
+
+		//前のページがあるかを判定するため、1件多く取得する
+		List<ArticleSummary> summaryList = queryByTags(tagIds, cursor, true, size + 1, excerptLength);
+
+		//最新の記事まで1ページ分に満たない場合は、先頭のページを返す
+		if (summaryList.size() < size + 1) {
+			return getArticleSummariesByTagsAfter(tagIds, null, size, excerptLength);
+		}
+
+		//1件多く取得できているので前のページがある
+		summaryList.remove(size);
+
+		//表示順（投稿日の降順）に並べ替える
+		Collections.reverse(summaryList);
+
+		//次のページは、このページの最後の記事より古い記事
+		ArticleCursor next = ArticleCursor.of(summaryList.get(summaryList.size() - 1));
+
+		//前のページは、このページの最初の記事より新しい記事
+		ArticleCursor previous = ArticleCursor.of(summaryList.get(0));
+
+		return new ArticleSummaryPage(summaryList, next, previous);
 	}
 
 	/*
-	 * 検索結果を記事オブジェクトに変換する処理は一件取得・全件取得の両方にある。
-	 * そのため、処理をメソッド化して一か所にまとめておく。
+	 * article_tags の主キー (tag_id, article_date, article_id) を最初のタグで絞り込んで投稿日の順に辿り、
+	 * 記事のテーブルは取得する行だけを主キーで読む。読む行数はタグの付いた記事全体ではなくページの記事数に比例する。
+	 * 残りのタグは (article_id, tag_id) のインデックスで記事ごとに確認するので、
+	 * 最初のタグに記事数の少ないタグを指定するほど、確認して読み飛ばす行が少なくなる。
 	 */
 	/**
-	 * 取得した記事を記事オブジェクトに変換する
-	 * @param result 記事の取得結果
-	 * @return 記事オブジェクト
+	 * 指定した全てのタグが付いた記事の要約を、カーソルを境に取得する
+	 * @param tagIds タグのID 最初のタグの記事を辿る
+	 * @param cursor 境界となる記事を指すカーソル
+	 * @param before trueの場合はカーソルより新しい記事をカーソルに近い順に、falseの場合はカーソルより古い記事を新しい順に取得する
+	 * @param limit 取得する最大件数
+	 * @param excerptLength 本文の抜粋の文字数
+	 * @return 記事の要約のリスト
 	 */
-	private ArticleDAO toArticleDAO(Map<String, Object> result) {
+	private List<ArticleSummary> queryByTags(List<Integer> tagIds, ArticleCursor cursor, boolean before, int limit,
+			int excerptLength) {
 
-		ArticleDAO dao = new ArticleDAO();
+		MapSqlParameterSource parameters = new MapSqlParameterSource("excerptLength", excerptLength)
+				.addValue("tagId", tagIds.get(0))
+				.addValue("limit", limit);
 
-		//IDのセット
-		dao.setId((int) result.get("id"));
+		StringBuilder sql = new StringBuilder("SELECT ").append(ArticleSummaryRowMapper.COLUMNS)
+				.append(" FROM article_tags t JOIN articles ON articles.id = t.article_id WHERE t.tag_id = :tagId");
 
-		//タイトルのセット
-		dao.setTitle((String) result.get("title"));
+		//残りのタグが全て付いている記事だけにする
+		if (tagIds.size() > 1) {
+			List<Integer> otherTagIds = tagIds.subList(1, tagIds.size());
 
-		//日付のセット
-		dao.setDate((Timestamp) result.get("date"));
+			sql.append(" AND (SELECT count(*) FROM article_tags o WHERE o.article_id = t.article_id AND o.tag_id IN (:otherTagIds)) = :otherTagCount");
 
-		//本文のセット
-		dao.setContent((String) result.get("content"));
+			parameters.addValue("otherTagIds", otherTagIds)
+					.addValue("otherTagCount", otherTagIds.size());
+		}
 
-		return dao;
+		if (cursor != null) {
+			sql.append(before ? " AND (t.article_date, t.article_id) > (:date, :id)"
+					: " AND (t.article_date, t.article_id) < (:date, :id)");
+
+			parameters.addValue("date", cursor.getDate())
+					.addValue("id", cursor.getId());
+		}
+
+		sql.append(before ? " ORDER BY t.article_date ASC, t.article_id ASC"
+				: " ORDER BY t.article_date DESC, t.article_id DESC");
+
+		sql.append(" LIMIT :limit;");
+
+		//取得処理を実行
+		return jdbcTemplate.query(sql.toString(), parameters, ArticleSummaryRowMapper.INSTANCE);
+	}
+
+	/**
+	 * カーソルより古い行を、投稿日の降順・IDの降順に指定件数まで取得する
+	 * @param <T> 1行を変換したオブジェクトの型
+	 * @param columns SELECT句に指定する列
+	 * @param parameters 列に含まれるパラメータ カーソルと件数のパラメータを追加する
+	 * @param cursor カーソル nullの場合は最新の記事から取得する
+	 * @param limit 取得する件数
+	 * @param rowMapper 1行を変換する処理
+	 * @return 取得結果のリスト
+	 */
+	private <T> List<T> queryAfter(String columns, MapSqlParameterSource parameters, ArticleCursor cursor,
+			int limit, RowMapper<T> rowMapper) {
+
+		final String sql;
+
+		if (cursor == null) {
+			//最新の記事から取得するSQLの設定
+			sql = "SELECT " + columns + " FROM articles ORDER BY date DESC, id DESC LIMIT :limit;";
+		} else {
+			//カーソルより古い記事を取得するSQLの設定
+			sql = "SELECT " + columns + " FROM articles WHERE (date, id) < (:date, :id) ORDER BY date DESC, id DESC LIMIT :limit;";
+
+			parameters.addValue("date", cursor.getDate())
+					.addValue("id", cursor.getId());
+		}
+
+		parameters.addValue("limit", limit);
+
+		//取得処理を実行
+		return jdbcTemplate.query(sql, parameters, rowMapper);
+	}
+
+	/**
+	 * カーソルより新しい行を、カーソルに近い順（投稿日の昇順・IDの昇順）に指定件数まで取得する
+	 * @param <T> 1行を変換したオブジェクトの型
+	 * @param columns SELECT句に指定する列
+	 * @param parameters 列に含まれるパラメータ カーソルと件数のパラメータを追加する
+	 * @param cursor カーソル
+	 * @param limit 取得する件数
+	 * @param rowMapper 1行を変換する処理
+	 * @return 取得結果のリスト
+	 */
+	private <T> List<T> queryBefore(String columns, MapSqlParameterSource parameters, ArticleCursor cursor,
+			int limit, RowMapper<T> rowMapper) {
+
+		//カーソルより新しい記事を、カーソルに近い順に取得するSQLの設定
+		final String sql = "SELECT " + columns + " FROM articles WHERE (date, id) > (:date, :id) ORDER BY date ASC, id ASC LIMIT :limit;";
+
+		parameters.addValue("date", cursor.getDate())
+				.addValue("id", cursor.getId())
+				.addValue("limit", limit);
+
+		//取得処理を実行
+		return jdbcTemplate.query(sql, parameters, rowMapper);
+	}
+
+	/*
+	 * タイトル・本文を2文字ずつに区切った語（articles_bigram関数）のtsvectorを生成列に保持し、GINインデックスを張っている。
+	 * 検索キーワードも同じく2文字ずつに区切り、全ての語を含む記事だけをインデックスから取り出すので、
+	 * ILIKEのように全行を走査せずに済む。
+	 */
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@ReplicaRead
+	public SearchPage searchArticles(String query, SearchCursor cursor, int size) {
+
+		//検索キーワードがnullでも空値でもないことを確認する。
+		if (query == null || query.equals("")) {
+			throw new IllegalArgumentException("検索キーワードがnullもしくは空値です");
+		}
+
+		//1ページあたりの記事数が1未満でないことを確認する。
+		if (size < 1) {
+			throw new IllegalArgumentException("1ページあたりの記事数が1未満です");
+		}
+
+		/*
+		 * キーワードに一致する記事と関連度を求めるSQL
+		 * 関連度は ts_rank で計算する
+		 */
+		final String hits = "SELECT " + ArticleRowMapper.COLUMNS + ", ts_rank(search_vector, q) AS rank"
+				+ " FROM articles, plainto_tsquery('simple', articles_bigram(:query)) AS q"
+				+ " WHERE search_vector @@ q";
+
+		//次のページがあるかを判定するため、1件多く取得する
+		MapSqlParameterSource parameters = new MapSqlParameterSource("query", query)
+				.addValue("limit", size + 1);
+		final String sql;
+
+		if (cursor == null) {
+			//最も関連度の高い記事から取得するSQLの設定
+			sql = "SELECT * FROM (" + hits + ") AS hits ORDER BY rank DESC, id DESC LIMIT :limit;";
+		} else {
+			//カーソルより関連度の低い記事を取得するSQLの設定
+			sql = "SELECT * FROM (" + hits + ") AS hits WHERE (rank, id) < (:rank, :id) ORDER BY rank DESC, id DESC LIMIT :limit;";
+
+			parameters.addValue("rank", cursor.getRank())
+					.addValue("id", cursor.getId());
+		}
+
+		//取得結果を記事オブジェクトと関連度に変換する
+		List<ArticleDAO> articleList = new ArrayList<>(size + 1);
+		float[] ranks = new float[size + 1];
+
+		jdbcTemplate.query(sql, parameters, (RowCallbackHandler) rs -> {
+			ranks[articleList.size()] = rs.getFloat(6);
+			articleList.add(ArticleRowMapper.INSTANCE.mapRow(rs, rs.getRow()));
+		});
+
+		//1件多く取得できた場合は次のページがある
+		boolean hasNext = articleList.size() > size;
+		if (hasNext) {
+			articleList.remove(size);
+		}
+
+		//次のページは、このページの最後の記事より関連度の低い記事
+		SearchCursor next = hasNext ? new SearchCursor(ranks[size - 1], articleList.get(size - 1).getId()) : null;
+
+		return new SearchPage(articleList, next);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@ReplicaRead
+	public int countArticles() {
+
+		//記事数を取得するSQL文を設定
+		final String sql = "SELECT count(*) FROM articles;";
+
+		return jdbcTemplate.queryForObject(sql, new MapSqlParameterSource(), Integer.class);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@ReplicaRead
+	public int countArticlesBefore(ArticleCursor cursor) {
+
+		//カーソルがnullでないことを確認する。
+		if (cursor == null) {
+			throw new IllegalArgumentException("カーソルがnullです");
+		}
+
+		//カーソルより古い記事数を取得するSQL文を設定 (投稿日, ID) のインデックスの範囲を数える
+		final String sql = "SELECT count(*) FROM articles WHERE (date, id) < (:date, :id);";
+
+		SqlParameterSource parameters = new MapSqlParameterSource("date", cursor.getDate())
+				.addValue("id", cursor.getId());
+
+		return jdbcTemplate.queryForObject(sql, parameters, Integer.class);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getMaxId() {
+
+		//最大のIDを取得するSQL文を設定 主キーのインデックスの末尾を読むだけで済む
+		final String sql = "SELECT coalesce(max(id), 0) FROM articles;";
+
+		return jdbcTemplate.queryForObject(sql, new MapSqlParameterSource(), Integer.class);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ArticleDAO deleteArticle(int id) throws NoArticleFoundException {
+
+		//記事を削除し、削除した記事を返すSQL文を設定
+		final String sql = "DELETE FROM articles WHERE id = :id RETURNING " + ArticleRowMapper.COLUMNS + ";";
+
+		//SQL文に入れる引数のリスト化
+		SqlParameterSource parameters = new MapSqlParameterSource("id", id);
+
+		//SQL文を実行し、削除した記事を取得する。
+		List<ArticleDAO> deleted = jdbcTemplate.query(sql, parameters, ArticleRowMapper.INSTANCE);
+
+		//削除件数が0だった場合
+		//削除に失敗したとしてNoArticleFoundExceptionをスローする
+		if (deleted.isEmpty()) {
+			throw new NoArticleFoundException();
+		}
+
+		return deleted.get(0);
 	}
 
 }
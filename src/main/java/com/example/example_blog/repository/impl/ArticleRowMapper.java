@@ -0,0 +1,63 @@
+package com.example.example_blog.repository.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import com.example.example_blog.repository.ArticleDAO;
+
+/**
+ * 取得結果の1行を記事オブジェクトに変換するクラス
+ * @author Chiba
+ */
+/*
+ * 列名で取り出すMapを1行ごとに作ると、Mapと数値のボクシングの分だけ無駄なオブジェクトができる。
+ * SELECT句の列の並び順を COLUMNS で固定し、列番号で直接取り出して記事オブジェクトに詰める。
+ */
+public final class ArticleRowMapper implements RowMapper<ArticleDAO> {
+
+	/**
+	 * SELECT句に指定する列の並び
+	 * mapRowの列番号はこの並び順に対応している。
+	 */
+	public static final String COLUMNS = "id, title, date, content, version";
+
+	/**
+	 * 状態を持たないので、インスタンスは1つを使い回す
+	 */
+	public static final ArticleRowMapper INSTANCE = new ArticleRowMapper();
+
+	private ArticleRowMapper() {
+	}
+
+	/**
+	 * 取得結果の現在の行を記事オブジェクトに変換する
+	 * @param rs 取得結果
+	 * @param rowNum 行番号
+	 * @return 記事オブジェクト
+	 * @throws SQLException 列の値が取り出せなかった場合
+	 */
+	@Override
+	public ArticleDAO mapRow(ResultSet rs, int rowNum) throws SQLException {
+
+		ArticleDAO dao = new ArticleDAO();
+
+		//IDのセット
+		dao.setId(rs.getInt(1));
+
+		//タイトルのセット
+		dao.setTitle(rs.getString(2));
+
+		//日付のセット
+		dao.setDate(rs.getTimestamp(3));
+
+		//本文のセット
+		dao.setContent(rs.getString(4));
+
+		//版番号のセット
+		dao.setVersion(rs.getInt(5));
+
+		return dao;
+	}
+}
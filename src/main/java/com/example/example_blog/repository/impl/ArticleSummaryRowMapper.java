@@ -0,0 +1,65 @@
+package com.example.example_blog.repository.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import com.example.example_blog.repository.ArticleSummary;
+
+/**
+ * 取得結果の1行を記事の要約オブジェクトに変換するクラス
+ * @author Chiba
+ */
+/*
+ * 本文の抜粋はPostgreSQLの left 関数で切り出すので、本文の全文はデータベースから転送されない。
+ * left・char_length はバイト数ではなく文字数で数えるので、マルチバイト文字の途中で切れることはない。
+ */
+public final class ArticleSummaryRowMapper implements RowMapper<ArticleSummary> {
+
+	/**
+	 * SELECT句に指定する列の並び
+	 * 抜粋の文字数は :excerptLength パラメータで指定する。
+	 * mapRowの列番号はこの並び順に対応している。
+	 */
+	public static final String COLUMNS =
+			"id, title, date, left(content, :excerptLength), char_length(content) > :excerptLength";
+
+	/**
+	 * 状態を持たないので、インスタンスは1つを使い回す
+	 */
+	public static final ArticleSummaryRowMapper INSTANCE = new ArticleSummaryRowMapper();
+
+	private ArticleSummaryRowMapper() {
+	}
+
+	/**
+	 * 取得結果の現在の行を記事の要約オブジェクトに変換する
+	 * @param rs 取得結果
+	 * @param rowNum 行番号
+	 * @return 記事の要約オブジェクト
+	 * @throws SQLException 列の値が取り出せなかった場合
+	 */
+	@Override
+	public ArticleSummary mapRow(ResultSet rs, int rowNum) throws SQLException {
+
+		ArticleSummary summary = new ArticleSummary();
+
+		//IDのセット
+		summary.setId(rs.getInt(1));
+
+		//タイトルのセット
+		summary.setTitle(rs.getString(2));
+
+		//日付のセット
+		summary.setDate(rs.getTimestamp(3));
+
+		//本文の抜粋のセット
+		summary.setExcerpt(rs.getString(4));
+
+		//本文が抜粋より長いかのセット
+		summary.setTruncated(rs.getBoolean(5));
+
+		return summary;
+	}
+}
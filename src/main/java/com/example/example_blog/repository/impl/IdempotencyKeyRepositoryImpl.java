@@ -0,0 +1,122 @@
+package com.example.example_blog.repository.impl;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import com.example.example_blog.repository.IdempotencyKey;
+import com.example.example_blog.repository.IdempotencyKeyRepository;
+
+/**
+ * 記事の作成の冪等キーのリポジトリを実装するクラス
+ * @author Chiba
+ */
+/*
+ * 登録は主キーの一意制約で判定する（INSERT … ON CONFLICT DO NOTHING）。
+ * 同時に複数のサーバが同じキーを登録しようとしても、行を追加できるのは1つだけになる。
+ */
+@Repository
+public class IdempotencyKeyRepositoryImpl implements IdempotencyKeyRepository {
+
+	@Autowired
+	NamedParameterJdbcTemplate jdbcTemplate;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean insert(String key, String fingerprint) {
+
+		//冪等キーがnullでないことを確認する。
+		if (key == null) {
+			throw new IllegalArgumentException("冪等キーがnullです");
+		}
+
+		//要求内容の指紋がnullでないことを確認する。
+		if (fingerprint == null) {
+			throw new IllegalArgumentException("要求内容の指紋がnullです");
+		}
+
+		final String sql = "INSERT INTO idempotency_keys (idempotency_key, fingerprint) VALUES (:key, :fingerprint)"
+				+ " ON CONFLICT (idempotency_key) DO NOTHING;";
+
+		SqlParameterSource parameters = new MapSqlParameterSource("key", key)
+				.addValue("fingerprint", fingerprint);
+
+		return jdbcTemplate.update(sql, parameters) == 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IdempotencyKey find(String key) {
+
+		final String sql = "SELECT idempotency_key, fingerprint, article_id, created_at FROM idempotency_keys"
+				+ " WHERE idempotency_key = :key;";
+
+		List<IdempotencyKey> found = jdbcTemplate.query(sql, new MapSqlParameterSource("key", key), (rs, rowNum) -> {
+			IdempotencyKey idempotencyKey = new IdempotencyKey();
+			idempotencyKey.setKey(rs.getString(1));
+			idempotencyKey.setFingerprint(rs.getString(2));
+			idempotencyKey.setArticleId((Integer) rs.getObject(3));
+			idempotencyKey.setCreatedAt(rs.getTimestamp(4));
+			return idempotencyKey;
+		});
+
+		return found.isEmpty() ? null : found.get(0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setArticleId(String key, int articleId) {
+
+		final String sql = "UPDATE idempotency_keys SET article_id = :articleId WHERE idempotency_key = :key;";
+
+		SqlParameterSource parameters = new MapSqlParameterSource("key", key)
+				.addValue("articleId", articleId);
+
+		jdbcTemplate.update(sql, parameters);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean deletePending(String key) {
+
+		final String sql = "DELETE FROM idempotency_keys WHERE idempotency_key = :key AND article_id IS NULL;";
+
+		return jdbcTemplate.update(sql, new MapSqlParameterSource("key", key)) == 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int deleteExpired(String key, Timestamp createdBefore, Timestamp pendingCreatedBefore) {
+
+		//日時がnullでないことを確認する。
+		if (createdBefore == null || pendingCreatedBefore == null) {
+			throw new IllegalArgumentException("日時がnullです");
+		}
+
+		//冪等キーを指定した場合は主キーで1件だけ、指定しない場合は登録日時のインデックスで探す
+		final String sql = "DELETE FROM idempotency_keys WHERE "
+				+ ((key != null) ? "idempotency_key = :key AND " : "")
+				+ "(created_at < :createdBefore OR (article_id IS NULL AND created_at < :pendingCreatedBefore));";
+
+		SqlParameterSource parameters = new MapSqlParameterSource("key", key)
+				.addValue("createdBefore", createdBefore)
+				.addValue("pendingCreatedBefore", pendingCreatedBefore);
+
+		return jdbcTemplate.update(sql, parameters);
+	}
+}
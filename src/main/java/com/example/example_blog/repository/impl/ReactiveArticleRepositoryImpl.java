@@ -0,0 +1,111 @@
+package com.example.example_blog.repository.impl;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import com.example.example_blog.repository.ArticleCursor;
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.ReactiveArticleRepository;
+
+import io.r2dbc.spi.Row;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * ノンブロッキングの記事リポジトリを実装するクラス
+ * @author Chiba
+ */
+/*
+ * 取得する列の並びは ArticleRowMapper と同じにして、列番号で記事オブジェクトに詰める。
+ *
+ * 複数行を購読側の要求に合わせてポータルから読み込むと、受信の遅いクライアントの数だけ接続を使い続け、
+ * 同時に応答できるクライアントの数が接続プールの大きさで頭打ちになる。
+ * 1ページ分（最大でも1ページあたりの最大記事数）をまとめて読み込んで接続を返し、
+ * クライアントへはメモリ上の記事を流す。
+ */
+@Repository
+public class ReactiveArticleRepositoryImpl implements ReactiveArticleRepository {
+
+	@Autowired
+	DatabaseClient databaseClient;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Mono<ArticleDAO> getArticle(int id) {
+
+		//IDが1未満でないことを確認する。
+		if (id < 1) {
+			throw new IllegalArgumentException("IDが1未満です");
+		}
+
+		return databaseClient.sql("SELECT " + ArticleRowMapper.COLUMNS + " FROM articles WHERE id = :id")
+				.bind("id", id)
+				.map(ReactiveArticleRepositoryImpl::toArticle)
+				.one();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Flux<ArticleDAO> getArticlesAfter(ArticleCursor cursor, int limit) {
+
+		//取得する記事数が1未満でないことを確認する。
+		if (limit < 1) {
+			throw new IllegalArgumentException("取得する記事数が1未満です");
+		}
+
+		Flux<ArticleDAO> articles;
+
+		if (cursor == null) {
+			//最新の記事から取得する
+			articles = databaseClient.sql("SELECT " + ArticleRowMapper.COLUMNS
+					+ " FROM articles ORDER BY date DESC, id DESC LIMIT :limit")
+					.bind("limit", limit)
+					.map(ReactiveArticleRepositoryImpl::toArticle)
+					.all();
+		} else {
+			//カーソルより古い記事を取得する
+			articles = databaseClient.sql("SELECT " + ArticleRowMapper.COLUMNS
+					+ " FROM articles WHERE (date, id) < (:date, :id) ORDER BY date DESC, id DESC LIMIT :limit")
+					.bind("date", cursor.getDate().toInstant().atOffset(ZoneOffset.UTC))
+					.bind("id", cursor.getId())
+					.bind("limit", limit)
+					.map(ReactiveArticleRepositoryImpl::toArticle)
+					.all();
+		}
+
+		//全行を読み込んで接続を返してから流す
+		return articles.collectList().flatMapIterable(list -> list);
+	}
+
+	//取得結果の1行を記事オブジェクトに変換する 列の並びは ArticleRowMapper.COLUMNS
+	private static ArticleDAO toArticle(Row row) {
+
+		ArticleDAO dao = new ArticleDAO();
+
+		//IDのセット
+		dao.setId(row.get(0, Integer.class));
+
+		//タイトルのセット
+		dao.setTitle(row.get(1, String.class));
+
+		//日付のセット R2DBCでは timestamptz は OffsetDateTime で取り出す
+		dao.setDate(Timestamp.from(row.get(2, OffsetDateTime.class).toInstant()));
+
+		//本文のセット
+		dao.setContent(row.get(3, String.class));
+
+		//版番号のセット
+		dao.setVersion(row.get(4, Integer.class));
+
+		return dao;
+	}
+}
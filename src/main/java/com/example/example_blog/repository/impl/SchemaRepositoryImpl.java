@@ -0,0 +1,51 @@
+package com.example.example_blog.repository.impl;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import com.example.example_blog.repository.SchemaRepository;
+
+/**
+ * スキーマ情報のリポジトリを実装するクラス
+ * @author Chiba
+ */
+@Repository
+public class SchemaRepositoryImpl implements SchemaRepository {
+
+	@Autowired
+	NamedParameterJdbcTemplate jdbcTemplate;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getMaxLength(String table, String column) {
+
+		//テーブル名・列名がnullでも空値でもないことを確認する。
+		if (table == null || table.equals("") || column == null || column.equals("")) {
+			throw new IllegalArgumentException("テーブル名もしくは列名がnullもしくは空値です");
+		}
+
+		//現在のスキーマの列の最大文字数を取得するSQL文の設定
+		final String sql = "SELECT character_maximum_length FROM information_schema.columns"
+				+ " WHERE table_schema = current_schema() AND table_name = :table AND column_name = :column;";
+
+		SqlParameterSource parameters = new MapSqlParameterSource("table", table)
+				.addValue("column", column);
+
+		List<Integer> lengths = jdbcTemplate.queryForList(sql, parameters, Integer.class);
+
+		//マイグレーションが適用されていない場合や、列の型が varchar(n) でない場合
+		if (lengths.isEmpty() || lengths.get(0) == null) {
+			throw new IllegalStateException(table + "." + column + " の最大文字数が取得できません");
+		}
+
+		return lengths.get(0);
+	}
+
+}
@@ -0,0 +1,202 @@
+package com.example.example_blog.repository.impl;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.example_blog.datasource.ReplicaRead;
+import com.example.example_blog.repository.Tag;
+import com.example.example_blog.repository.TagRepository;
+
+/**
+ * タグのリポジトリを実装するクラス
+ * @author Chiba
+ */
+/*
+ * タグの記事数は、付け外しのたびに増減させて保持する。一覧の表示のたびに COUNT(*) で数えると、
+ * 記事が増えるほど表示が遅くなる。
+ *
+ * 同じタグの記事数を複数のトランザクションが同時に増減すると、行ロックを取る順番によってはデッドロックになるので、
+ * 増減する前にタグのIDの順に行ロックを取る。
+ */
+@Repository
+public class TagRepositoryImpl implements TagRepository {
+
+	@Autowired
+	NamedParameterJdbcTemplate jdbcTemplate;
+
+	//取得結果の1行をタグオブジェクトに変換する
+	private static final RowMapper<Tag> TAG_ROW_MAPPER = (rs, rowNum) -> {
+		Tag tag = new Tag();
+		tag.setId(rs.getInt(1));
+		tag.setName(rs.getString(2));
+		tag.setArticleCount(rs.getInt(3));
+		return tag;
+	};
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@ReplicaRead
+	public List<Tag> getTags(int limit) {
+
+		//取得する最大件数が1未満でないことを確認する。
+		if (limit < 1) {
+			throw new IllegalArgumentException("取得する最大件数が1未満です");
+		}
+
+		//記事数の多い順にタグを取得するSQL文の設定 記事数のインデックスを先頭から読む
+		final String sql = "SELECT id, name, article_count FROM tags WHERE article_count > 0"
+				+ " ORDER BY article_count DESC, name LIMIT :limit;";
+
+		return jdbcTemplate.query(sql, new MapSqlParameterSource("limit", limit), TAG_ROW_MAPPER);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@ReplicaRead
+	public List<Tag> getTagsByName(Collection<String> names) {
+
+		//タグ名がnullでないことを確認する。
+		if (names == null) {
+			throw new IllegalArgumentException("タグ名がnullです");
+		}
+
+		if (names.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		final String sql = "SELECT id, name, article_count FROM tags WHERE name IN (:names);";
+
+		return jdbcTemplate.query(sql, new MapSqlParameterSource("names", names), TAG_ROW_MAPPER);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<String> getTagNames(int articleId) {
+
+		//記事に付いているタグ名を取得するSQL文の設定
+		final String sql = "SELECT g.name FROM article_tags t JOIN tags g ON g.id = t.tag_id"
+				+ " WHERE t.article_id = :articleId ORDER BY g.name;";
+
+		return jdbcTemplate.queryForList(sql, new MapSqlParameterSource("articleId", articleId), String.class);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void setArticleTags(int articleId, Timestamp articleDate, Set<String> names) {
+
+		//タグ名がnullでないことを確認する。
+		if (names == null) {
+			throw new IllegalArgumentException("タグ名がnullです");
+		}
+
+		//投稿日がnullでないことを確認する。
+		if (articleDate == null) {
+			throw new IllegalArgumentException("投稿日がnullです");
+		}
+
+		//存在しないタグを作成する
+		if (!names.isEmpty()) {
+			final String insertTagSql = "INSERT INTO tags (name) VALUES (:name) ON CONFLICT (name) DO NOTHING;";
+
+			//同時に同じタグを作成する場合に一意制約の待ちが循環しないよう、名前の順に作成する
+			SqlParameterSource[] tagParameters = new TreeSet<>(names).stream()
+					.map(name -> new MapSqlParameterSource("name", name))
+					.toArray(SqlParameterSource[]::new);
+
+			jdbcTemplate.batchUpdate(insertTagSql, tagParameters);
+		}
+
+		//付けるタグのID
+		Set<Integer> newIds = new HashSet<>();
+		for (Tag tag : getTagsByName(names)) {
+			newIds.add(tag.getId());
+		}
+
+		//現在付いているタグのID
+		final String currentSql = "SELECT tag_id FROM article_tags WHERE article_id = :articleId;";
+		Set<Integer> currentIds = new HashSet<>(jdbcTemplate.queryForList(currentSql,
+				new MapSqlParameterSource("articleId", articleId), Integer.class));
+
+		//新しく付けるタグと外すタグ
+		List<Integer> added = new ArrayList<>(newIds);
+		added.removeAll(currentIds);
+
+		List<Integer> removed = new ArrayList<>(currentIds);
+		removed.removeAll(newIds);
+
+		if (added.isEmpty() && removed.isEmpty()) {
+			return;
+		}
+
+		//記事数を増減するタグの行ロックを、IDの順に取る
+		List<Integer> changed = new ArrayList<>(added);
+		changed.addAll(removed);
+		lockTags(changed);
+
+		if (!added.isEmpty()) {
+			final String insertSql = "INSERT INTO article_tags (tag_id, article_date, article_id)"
+					+ " VALUES (:tagId, :articleDate, :articleId);";
+
+			SqlParameterSource[] parameters = added.stream()
+					.map(tagId -> new MapSqlParameterSource("tagId", tagId)
+							.addValue("articleDate", articleDate)
+							.addValue("articleId", articleId))
+					.toArray(SqlParameterSource[]::new);
+
+			jdbcTemplate.batchUpdate(insertSql, parameters);
+
+			jdbcTemplate.update("UPDATE tags SET article_count = article_count + 1 WHERE id IN (:ids);",
+					new MapSqlParameterSource("ids", added));
+		}
+
+		if (!removed.isEmpty()) {
+			jdbcTemplate.update("DELETE FROM article_tags WHERE article_id = :articleId AND tag_id IN (:ids);",
+					new MapSqlParameterSource("articleId", articleId).addValue("ids", removed));
+
+			jdbcTemplate.update("UPDATE tags SET article_count = article_count - 1 WHERE id IN (:ids);",
+					new MapSqlParameterSource("ids", removed));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void removeArticleTags(int articleId) {
+
+		//外すだけなので投稿日は使用しない
+		setArticleTags(articleId, new Timestamp(0), Collections.emptySet());
+	}
+
+	//タグの行ロックをIDの順に取る
+	private void lockTags(List<Integer> ids) {
+		final String sql = "SELECT id FROM tags WHERE id IN (:ids) ORDER BY id FOR UPDATE;";
+
+		jdbcTemplate.queryForList(sql, new MapSqlParameterSource("ids", ids), Integer.class);
+	}
+}
@@ -0,0 +1,533 @@
+package com.example.example_blog.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.example_blog.datasource.ReadRoute;
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.ArticleEvent;
+import com.example.example_blog.repository.ArticleEventRepository;
+import com.example.example_blog.repository.ArticleEventType;
+import com.example.example_blog.repository.ArticleRepository;
+import com.example.example_blog.repository.NoArticleFoundException;
+import com.example.example_blog.repository.SearchCursor;
+import com.example.example_blog.repository.SearchPage;
+
+/**
+ * メモリ上の転置インデックスによる記事検索
+ * タイトル・本文を2文字ずつの語に区切って索引を作り、BM25で関連度を計算する。
+ * データベースに問い合わせずに検索するので、データベースの負荷を減らしたい場合に使用する。
+ * blog.search.engine=memory の場合だけ有効になる。
+ * @author Chiba
+ */
+/*
+ * 起動時にデータベースの全記事を順に読み込んで索引を作り、
+ * 以降は変更イベントのテーブルを通し番号の順に読み込んで、変更された記事だけを索引に反映する。
+ * 記事管理サービスから直接索引を書き換えると、トランザクションがロールバックした場合に
+ * 追加されていない記事が索引に残り、削除されていない記事が索引から消えてしまう。
+ * 変更イベントは記事の変更と同じトランザクションで追加されるので、コミットされた変更だけが反映される。
+ * 他のサーバでの書き込みのイベントも同じテーブルにあるので、一定間隔の読み込みで反映される。
+ *
+ * イベントの内容ではなく、反映する時点の記事をプライマリから読み込んで索引を置き換えるので、
+ * 同じイベントを2回反映しても結果は変わらない。
+ */
+@Component
+@ConditionalOnProperty(name = "blog.search.engine", havingValue = "memory")
+public class ArticleSearchIndex {
+
+	//BM25のパラメータ 出現回数による関連度の飽和の度合い
+	private static final float K1 = 1.2f;
+
+	//BM25のパラメータ 記事の長さによる補正の度合い
+	private static final float B = 0.75f;
+
+	private static final Logger logger = LoggerFactory.getLogger(ArticleSearchIndex.class);
+
+	@Autowired
+	ArticleRepository repository;
+
+	@Autowired
+	ArticleEventRepository eventRepository;
+
+	//1回に読み込む最大イベント数
+	@Value("${blog.events.batch-size:500}")
+	int batchSize;
+
+	//他のサーバでの書き込みを反映するために変更イベントを読み込む間隔（ミリ秒）
+	@Value("${blog.search.follow-interval-millis:5000}")
+	long followIntervalMillis;
+
+	//語ごとのポスティングリスト
+	private final Map<Integer, PostingList> postings = new HashMap<>();
+
+	/*
+	 * IDは連番なので、記事と記事の語数はIDを添字とする配列で保持する。
+	 * 検索中に記事ごとにMapを引かずに済む。
+	 */
+	private ArticleDAO[] articles = new ArticleDAO[1024];
+
+	//記事ごとの語数
+	private int[] lengths = new int[1024];
+
+	//索引にある記事数
+	private int articleCount = 0;
+
+	//索引にある全記事の語数の合計
+	private long totalLength = 0;
+
+	//検索は同時に行えるが、索引の更新中は検索できないようにする
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	//変更イベントの反映は1つのスレッドずつ行う 古い内容で新しい内容を上書きしないように
+	private final Object followLock = new Object();
+
+	//索引に反映した最後の変更イベントの通し番号 followLock で同期する
+	private long followedSeq = 0;
+
+	//変更イベントを一定間隔で読み込むスレッド
+	private Thread follower;
+
+	//停止処理が始まったか
+	private volatile boolean closed = false;
+
+	/**
+	 * データベースの全記事を読み込んで索引を作る
+	 * 読み込み始める前の最新の通し番号から、変更イベントの反映を始める。
+	 */
+	@PostConstruct
+	public void build() {
+
+		//読み込む最大イベント数が1未満でないことを確認する。
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("読み込む最大イベント数が1未満です");
+		}
+
+		//通し番号はプライマリから取得するので、記事もプライマリから読み込む
+		withPrimary(() -> {
+			synchronized (followLock) {
+				followedSeq = eventRepository.getLatestSeq();
+				repository.forEachArticle(0, this::index);
+			}
+		});
+
+		follower = new Thread(this::followLoop, "article-search-index-follower");
+		follower.setDaemon(true);
+		follower.start();
+	}
+
+	/**
+	 * 停止する
+	 */
+	@PreDestroy
+	void close() {
+		closed = true;
+		follower.interrupt();
+	}
+
+	/**
+	 * 前回の続きから変更イベントを読み込み、変更された記事を索引に反映する
+	 */
+	public void follow() {
+		withPrimary(() -> {
+			synchronized (followLock) {
+				List<ArticleEvent> events;
+
+				do {
+					events = eventRepository.getEventsAfter(followedSeq, batchSize);
+
+					for (ArticleEvent event : events) {
+						apply(event);
+						followedSeq = event.getSeq();
+					}
+
+				} while (events.size() == batchSize && !closed);
+			}
+		});
+	}
+
+	/**
+	 * トランザクションのコミット後に変更イベントを索引に反映する
+	 * トランザクション中でなければすぐに反映する。
+	 * 反映できなかった場合も、一定間隔の読み込みで追いつくので、呼び出し元には例外をスローしない。
+	 */
+	public void followAfterCommit() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCommit() {
+					followQuietly();
+				}
+			});
+		} else {
+			followQuietly();
+		}
+	}
+
+	//変更イベントを反映する 失敗した場合は次の読み込みに任せる
+	private void followQuietly() {
+		try {
+			follow();
+		} catch (RuntimeException e) {
+			logger.warn("検索インデックスに変更を反映できませんでした", e);
+		}
+	}
+
+	//一定間隔で変更イベントを読み込むスレッドの処理
+	private void followLoop() {
+		while (!closed) {
+			try {
+				Thread.sleep(followIntervalMillis);
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			followQuietly();
+		}
+	}
+
+	//変更イベントの記事を索引に反映する 反映する時点で記事がなければ取り除く
+	private void apply(ArticleEvent event) {
+
+		if (event.getType() == ArticleEventType.DELETED) {
+			remove(event.getArticleId());
+			return;
+		}
+
+		try {
+			index(repository.getArticle(event.getArticleId()));
+		} catch (NoArticleFoundException e) {
+			//イベントの後に削除された記事
+			remove(event.getArticleId());
+		}
+	}
+
+	//プライマリでの実行を強制して実行する 既に強制されている場合は、そのままにする
+	private static void withPrimary(Runnable action) {
+		boolean forced = ReadRoute.isPrimaryForced();
+		ReadRoute.setPrimaryForced(true);
+		try {
+			action.run();
+		} finally {
+			ReadRoute.setPrimaryForced(forced);
+		}
+	}
+
+	/**
+	 * 記事を索引に追加する すでにある場合は置き換える
+	 * @param article 記事オブジェクト
+	 */
+	public void index(ArticleDAO article) {
+
+		int id = article.getId();
+
+		//記事の語と出現回数を数える
+		int[] terms = BigramTokenizer.tokenize(article.getTitle() + " " + article.getContent());
+		Arrays.sort(terms);
+
+		lock.writeLock().lock();
+		try {
+
+			//すでにある場合は古い内容を取り除く
+			removeLocked(id);
+
+			//配列が足りなければ拡張する
+			if (id >= articles.length) {
+				int capacity = Math.max(articles.length * 2, id + 1);
+				articles = Arrays.copyOf(articles, capacity);
+				lengths = Arrays.copyOf(lengths, capacity);
+			}
+
+			//同じ語が続く範囲ごとに、出現回数としてポスティングリストに追加する
+			int start = 0;
+			for (int i = 1; i <= terms.length; i++) {
+				if (i == terms.length || terms[i] != terms[start]) {
+					PostingList list = postings.get(terms[start]);
+
+					if (list == null) {
+						list = new PostingList();
+						postings.put(terms[start], list);
+					}
+
+					list.put(id, i - start);
+					start = i;
+				}
+			}
+
+			articles[id] = article;
+			lengths[id] = terms.length;
+			articleCount++;
+			totalLength += terms.length;
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 記事を索引から取り除く
+	 * @param id 記事のID
+	 */
+	public void remove(int id) {
+		lock.writeLock().lock();
+		try {
+			removeLocked(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 記事を索引から取り除く 書き込みロックを取得してから呼び出す
+	 * @param id 記事のID
+	 */
+	private void removeLocked(int id) {
+
+		//索引にない場合は何もしない
+		if (id >= articles.length || articles[id] == null) {
+			return;
+		}
+
+		ArticleDAO old = articles[id];
+
+		//古い内容の語をポスティングリストから取り除く
+		for (int term : BigramTokenizer.distinctTerms(old.getTitle() + " " + old.getContent())) {
+			PostingList list = postings.get(term);
+
+			if (list != null) {
+				list.remove(id);
+
+				//空になったリストは捨てる
+				if (list.size() == 0) {
+					postings.remove(term);
+				}
+			}
+		}
+
+		articleCount--;
+		totalLength -= lengths[id];
+		articles[id] = null;
+		lengths[id] = 0;
+	}
+
+	/**
+	 * キーワードの全ての語を含む記事を関連度の高い順に1ページ分取得する
+	 * @param query 検索キーワード
+	 * @param cursor 前のページの最後の記事を指すカーソル nullの場合は最も関連度の高い記事から取得する
+	 * @param size 1ページあたりの記事数
+	 * @return 検索結果のページ
+	 */
+	public SearchPage search(String query, SearchCursor cursor, int size) {
+
+		int[] terms = BigramTokenizer.distinctTerms(query);
+
+		//語がなければ該当なし
+		if (terms.length == 0) {
+			return new SearchPage(Collections.emptyList(), null);
+		}
+
+		lock.readLock().lock();
+		try {
+
+			//キーワードの語ごとのポスティングリスト 1つでもなければ該当なし
+			PostingList[] lists = new PostingList[terms.length];
+			for (int i = 0; i < terms.length; i++) {
+				lists[i] = postings.get(terms[i]);
+
+				if (lists[i] == null) {
+					return new SearchPage(Collections.emptyList(), null);
+				}
+			}
+
+			//短いリストから突き合わせると比較回数が少なくなる
+			Arrays.sort(lists, (a, b) -> Integer.compare(a.size(), b.size()));
+
+			//語ごとの重み（IDF）
+			float[] idf = new float[lists.length];
+			for (int i = 0; i < lists.length; i++) {
+				int df = lists[i].size();
+				idf[i] = (float) Math.log(1 + (articleCount - df + 0.5) / (df + 0.5));
+			}
+
+			float averageLength = (float) totalLength / articleCount;
+
+			//関連度の上位 size + 1 件だけを保持する（次のページの有無の判定用に1件多く）
+			TopArticles top = new TopArticles(size + 1);
+
+			//リストごとの探索位置 記事IDは昇順なので、前回の位置から先だけを探せばよい
+			int[] positions = new int[lists.length];
+
+			PostingList shortest = lists[0];
+
+			candidates:
+			for (int p = 0; p < shortest.size(); p++) {
+				int id = shortest.articleIdAt(p);
+				positions[0] = p;
+
+				//他の全てのリストにもこの記事があることを確認する
+				for (int i = 1; i < lists.length; i++) {
+					int found = lists[i].find(id, positions[i]);
+
+					if (found < 0) {
+						positions[i] = -found - 1;
+						continue candidates;
+					}
+					positions[i] = found;
+				}
+
+				//BM25で関連度を計算する
+				float norm = K1 * (1 - B + B * lengths[id] / averageLength);
+				float score = 0;
+				for (int i = 0; i < lists.length; i++) {
+					int tf = lists[i].frequencyAt(positions[i]);
+					score += idf[i] * tf * (K1 + 1) / (tf + norm);
+				}
+
+				//カーソル以前の記事は読み飛ばす
+				if (cursor != null && !isAfter(score, id, cursor.getRank(), cursor.getId())) {
+					continue;
+				}
+
+				top.offer(score, id);
+			}
+
+			//関連度の高い順に取り出す
+			int count = top.size();
+			float[] scores = new float[count];
+			int[] ids = new int[count];
+			top.drainDescending(scores, ids);
+
+			//1件多く取得できた場合は次のページがある
+			boolean hasNext = count > size;
+			int pageSize = hasNext ? size : count;
+
+			List<ArticleDAO> articleList = new ArrayList<>(pageSize);
+			for (int i = 0; i < pageSize; i++) {
+				articleList.add(articles[ids[i]]);
+			}
+
+			//次のページは、このページの最後の記事より関連度の低い記事
+			SearchCursor next = hasNext ? new SearchCursor(scores[size - 1], ids[size - 1]) : null;
+
+			return new SearchPage(articleList, next);
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 表示順で (score, id) が (rank, cursorId) より後ろにあるか
+	 * 表示順は関連度の降順・IDの降順
+	 */
+	private static boolean isAfter(float score, int id, float rank, int cursorId) {
+		return score < rank || (score == rank && id < cursorId);
+	}
+
+	/**
+	 * 関連度の上位の記事を上限件数まで保持するヒープ
+	 * 根が保持している中で最も順位の低い記事になるようにし、
+	 * 上限を超えたらより順位の高い記事と入れ替える。
+	 */
+	private static final class TopArticles {
+
+		private final float[] scores;
+
+		private final int[] ids;
+
+		private int size = 0;
+
+		TopArticles(int capacity) {
+			scores = new float[capacity];
+			ids = new int[capacity];
+		}
+
+		int size() {
+			return size;
+		}
+
+		//記事を追加する 上限に達している場合は根より順位が高ければ入れ替える
+		void offer(float score, int id) {
+			if (size < scores.length) {
+				scores[size] = score;
+				ids[size] = id;
+				siftUp(size++);
+			} else if (isAfter(scores[0], ids[0], score, id)) {
+				scores[0] = score;
+				ids[0] = id;
+				siftDown(0);
+			}
+		}
+
+		//順位の高い順に配列へ取り出す
+		void drainDescending(float[] outScores, int[] outIds) {
+			for (int i = size - 1; i >= 0; i--) {
+				outScores[i] = scores[0];
+				outIds[i] = ids[0];
+				size--;
+				scores[0] = scores[size];
+				ids[0] = ids[size];
+				siftDown(0);
+			}
+		}
+
+		//aの位置の記事がbの位置の記事より順位が低いか
+		private boolean lower(int a, int b) {
+			return isAfter(scores[a], ids[a], scores[b], ids[b]);
+		}
+
+		private void siftUp(int index) {
+			while (index > 0) {
+				int parent = (index - 1) / 2;
+				if (!lower(index, parent)) {
+					break;
+				}
+				swap(index, parent);
+				index = parent;
+			}
+		}
+
+		private void siftDown(int index) {
+			while (true) {
+				int left = index * 2 + 1;
+				if (left >= size) {
+					break;
+				}
+				int child = (left + 1 < size && lower(left + 1, left)) ? left + 1 : left;
+				if (!lower(child, index)) {
+					break;
+				}
+				swap(index, child);
+				index = child;
+			}
+		}
+
+		private void swap(int a, int b) {
+			float score = scores[a];
+			scores[a] = scores[b];
+			scores[b] = score;
+			int id = ids[a];
+			ids[a] = ids[b];
+			ids[b] = id;
+		}
+	}
+}
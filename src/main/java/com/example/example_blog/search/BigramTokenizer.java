@@ -0,0 +1,91 @@
+package com.example.example_blog.search;
+
+import java.util.Arrays;
+
+/**
+ * 文字列を2文字ずつの語に区切るクラス
+ * 日本語は単語の間に空白がないため、連続する2文字を1つの語として扱う。
+ * @author Chiba
+ */
+/*
+ * 語は文字列にせず、2文字の文字コードを上位16ビット・下位16ビットに詰めたint値で表す。
+ * 語ごとにStringを作らずに済み、転置インデックスのキーとしてもそのまま使える。
+ * 空白で区切られた1文字だけの語は、下位16ビットを0にした値で表す。
+ */
+public final class BigramTokenizer {
+
+	private BigramTokenizer() {
+	}
+
+	/**
+	 * 文字列を語に区切る
+	 * 英字は小文字にそろえ、空白をまたぐ2文字は語にしない。
+	 * @param text 文字列
+	 * @return 語の配列 出現順で、重複を含む
+	 */
+	public static int[] tokenize(String text) {
+
+		int length = text.length();
+
+		//語の数は文字数を超えない
+		int[] terms = new int[length];
+		int count = 0;
+
+		//直前の文字 空白の直後は-1
+		int previous = -1;
+
+		//空白で区切られたまとまりの文字数
+		int runLength = 0;
+
+		for (int i = 0; i < length; i++) {
+			char c = Character.toLowerCase(text.charAt(i));
+
+			if (Character.isWhitespace(c)) {
+
+				//1文字だけのまとまりは1文字の語にする
+				if (runLength == 1) {
+					terms[count++] = previous << 16;
+				}
+
+				previous = -1;
+				runLength = 0;
+				continue;
+			}
+
+			if (previous >= 0) {
+				terms[count++] = (previous << 16) | c;
+			}
+
+			previous = c;
+			runLength++;
+		}
+
+		//末尾が1文字だけのまとまりの場合
+		if (runLength == 1) {
+			terms[count++] = previous << 16;
+		}
+
+		return Arrays.copyOf(terms, count);
+	}
+
+	/**
+	 * 文字列を重複のない語に区切る
+	 * @param text 文字列
+	 * @return 語の配列 昇順で、重複を含まない
+	 */
+	public static int[] distinctTerms(String text) {
+
+		int[] terms = tokenize(text);
+		Arrays.sort(terms);
+
+		//重複を詰める
+		int count = 0;
+		for (int i = 0; i < terms.length; i++) {
+			if (i == 0 || terms[i] != terms[i - 1]) {
+				terms[count++] = terms[i];
+			}
+		}
+
+		return Arrays.copyOf(terms, count);
+	}
+}
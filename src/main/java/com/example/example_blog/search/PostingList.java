@@ -0,0 +1,100 @@
+package com.example.example_blog.search;
+
+import java.util.Arrays;
+
+/**
+ * 転置インデックスの1語分のポスティングリスト
+ * 語を含む記事のIDと、記事内での出現回数を記事IDの昇順に保持する。
+ * @author Chiba
+ */
+/*
+ * List<Integer>では要素ごとにオブジェクトができるので、int配列で保持する。
+ * 記事IDの昇順に並べておくことで、二分探索と複数リストの突き合わせができる。
+ */
+final class PostingList {
+
+	//記事IDの配列 先頭からsize件が有効
+	private int[] articleIds = new int[4];
+
+	//記事内での出現回数の配列 articleIdsと同じ位置に対応する
+	private int[] frequencies = new int[4];
+
+	//有効な件数
+	private int size = 0;
+
+	/**
+	 * 記事を追加する すでにある場合は出現回数を置き換える
+	 * @param articleId 記事のID
+	 * @param frequency 記事内での出現回数
+	 */
+	void put(int articleId, int frequency) {
+
+		int index = Arrays.binarySearch(articleIds, 0, size, articleId);
+
+		//すでにある場合
+		if (index >= 0) {
+			frequencies[index] = frequency;
+			return;
+		}
+
+		//挿入位置
+		index = -index - 1;
+
+		//配列が一杯なら拡張する
+		if (size == articleIds.length) {
+			articleIds = Arrays.copyOf(articleIds, size * 2);
+			frequencies = Arrays.copyOf(frequencies, size * 2);
+		}
+
+		//挿入位置以降を1つ後ろにずらす 新しい記事はIDが最も大きいので、通常は末尾への追加になる
+		System.arraycopy(articleIds, index, articleIds, index + 1, size - index);
+		System.arraycopy(frequencies, index, frequencies, index + 1, size - index);
+
+		articleIds[index] = articleId;
+		frequencies[index] = frequency;
+		size++;
+	}
+
+	/**
+	 * 記事を取り除く
+	 * @param articleId 記事のID
+	 */
+	void remove(int articleId) {
+
+		int index = Arrays.binarySearch(articleIds, 0, size, articleId);
+
+		if (index < 0) {
+			return;
+		}
+
+		//取り除く位置以降を1つ前に詰める
+		System.arraycopy(articleIds, index + 1, articleIds, index, size - index - 1);
+		System.arraycopy(frequencies, index + 1, frequencies, index, size - index - 1);
+		size--;
+	}
+
+	/**
+	 * 指定した位置以降から記事を探す
+	 * @param articleId 記事のID
+	 * @param from 探し始める位置
+	 * @return 見つかった位置 見つからなければ挿入位置をpとして -(p + 1)
+	 */
+	int find(int articleId, int from) {
+		return Arrays.binarySearch(articleIds, from, size, articleId);
+	}
+
+	//指定した位置の記事IDのゲッタ
+	int articleIdAt(int index) {
+		return articleIds[index];
+	}
+
+	//指定した位置の出現回数のゲッタ
+	int frequencyAt(int index) {
+		return frequencies[index];
+	}
+
+	//件数のゲッタ
+	int size() {
+		return size;
+	}
+}
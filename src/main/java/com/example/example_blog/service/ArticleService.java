@@ -1,8 +1,20 @@
 package com.example.example_blog.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
+import com.example.example_blog.repository.ArticleCursor;
 import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.ArticleField;
+import com.example.example_blog.repository.ArticlePage;
+import com.example.example_blog.repository.ArticleSummaryPage;
+import com.example.example_blog.repository.SearchCursor;
+import com.example.example_blog.repository.SearchPage;
+import com.example.example_blog.repository.Tag;
+import com.example.example_blog.service.validation.ArticleCommand;
 
 /**
  * 記事管理サービス
@@ -15,17 +27,118 @@ public interface ArticleService {
 	 * データベースに記事を追加する
 	 * @param title 記事のタイトル
 	 * @param content 記事の本文
+	 * @return 追加した記事
 	 */
-	public void addArticle(String title, String content);
+	public ArticleDAO addArticle(String title, String content);
+
+	/**
+	 * データベースにタグを付けて記事を追加する
+	 * 記事とタグは1つのトランザクションで追加する。
+	 * @param title 記事のタイトル
+	 * @param content 記事の本文
+	 * @param tags 記事に付けるタグ名
+	 * @return 追加した記事
+	 */
+	public ArticleDAO addArticle(String title, String content, Set<String> tags);
+
+	/**
+	 * データベースに入力チェック済みの記事を追加する
+	 * タグが指定されている場合は、記事とタグを1つのトランザクションで追加する。
+	 * @param command 入力チェック済みの書き込み内容
+	 * @return 追加した記事
+	 */
+	public ArticleDAO addArticle(ArticleCommand command);
+
+	/**
+	 * 記事の追加を受け付ける
+	 * 書き込み待ちの列を使用する場合（blog.write-behind.enabled=true）は、列に入れて他の記事とまとめて追加する。
+	 * 使用しない場合と、呼び出し元のトランザクション中の場合は、その場で追加して完了済みのFutureを返す。
+	 * @param title 記事のタイトル
+	 * @param content 記事の本文
+	 * @return 追加が終わったときに、追加した記事オブジェクトで完了するFuture
+	 * @throws WriteQueueFullException 書き込み待ちの列が満杯の場合
+	 */
+	public CompletableFuture<ArticleDAO> submitArticle(String title, String content) throws WriteQueueFullException;
+
+	/**
+	 * 入力チェック済みの記事の追加を受け付ける
+	 * 書き込み待ちの列はタグを扱わないので、タグが指定されている場合は列を使わずにその場で追加する。
+	 * @param command 入力チェック済みの書き込み内容
+	 * @return 追加が終わったときに、追加した記事オブジェクトで完了するFuture
+	 * @throws WriteQueueFullException 書き込み待ちの列が満杯の場合
+	 */
+	public CompletableFuture<ArticleDAO> submitArticle(ArticleCommand command) throws WriteQueueFullException;
+
+	/**
+	 * データベースに複数の記事をまとめて追加する
+	 * 全ての記事を1つのトランザクションで追加し、1件でも失敗した場合は1件も追加しない。
+	 * @param articles 追加する記事 投稿日がnullの場合は現在時刻を投稿日にする
+	 * @return 追加件数
+	 */
+	public int addArticles(Collection<ArticleDAO> articles);
 
 	/**
 	 * データベースの記事を更新する
 	 * @param id 記事のID
 	 * @param title 記事のタイトル
 	 * @param content 記事の本文
+	 * @return 更新後の記事
+	 * @throws UpdateFailedException 指定されたIDの記事が見つからなかった場合にスローする例外
+	 */
+	public ArticleDAO modifyArticle(int id, String title, String content) throws UpdateFailedException;
+
+	/**
+	 * データベースの記事を、取得したときから他の更新が行われていない場合だけ更新する
+	 * @param id 記事のID
+	 * @param version 記事を取得したときの版番号
+	 * @param title 記事のタイトル
+	 * @param content 記事の本文
+	 * @return 更新後の記事
+	 * @throws UpdateFailedException 指定されたIDの記事が見つからなかった場合にスローする例外
+	 * @throws UpdateConflictException 記事の版番号が一致せず、他の更新と競合した場合にスローする例外
+	 */
+	public ArticleDAO modifyArticle(int id, int version, String title, String content)
+			throws UpdateFailedException, UpdateConflictException;
+
+	/**
+	 * データベースの記事とタグを、取得したときから他の更新が行われていない場合だけ更新する
+	 * @param id 記事のID
+	 * @param version 記事を取得したときの版番号
+	 * @param title 記事のタイトル
+	 * @param content 記事の本文
+	 * @param tags 記事に付けるタグ名 現在付いていてこれに含まれないタグは外す
+	 * @return 更新後の記事
 	 * @throws UpdateFailedException 指定されたIDの記事が見つからなかった場合にスローする例外
+	 * @throws UpdateConflictException 記事の版番号が一致せず、他の更新と競合した場合にスローする例外
 	 */
-	public void modifyArticle(int id, String title, String content) throws UpdateFailedException;
+	public ArticleDAO modifyArticle(int id, int version, String title, String content, Set<String> tags)
+			throws UpdateFailedException, UpdateConflictException;
+
+	/**
+	 * データベースの記事を、入力チェック済みの内容で、取得したときから他の更新が行われていない場合だけ更新する
+	 * @param id 記事のID
+	 * @param version 記事を取得したときの版番号
+	 * @param command 入力チェック済みの書き込み内容 タグがnullの場合はタグを変更しない
+	 * @return 更新後の記事
+	 * @throws UpdateFailedException 指定されたIDの記事が見つからなかった場合にスローする例外
+	 * @throws UpdateConflictException 記事の版番号が一致せず、他の更新と競合した場合にスローする例外
+	 */
+	public ArticleDAO modifyArticle(int id, int version, ArticleCommand command)
+			throws UpdateFailedException, UpdateConflictException;
+
+	/**
+	 * 記事に付いているタグ名を取得する
+	 * @param id 記事のID
+	 * @return タグ名のリスト 名前順に並ぶ
+	 */
+	public List<String> getArticleTags(int id);
+
+	/**
+	 * 記事の付いているタグを記事数の多い順に取得する
+	 * 記事数は書き込み時に増減させた値で、取得のたびに数えない。
+	 * @return タグのリスト
+	 */
+	public List<Tag> getTags();
 
 	/**
 	 * データベースの記事を取得する
@@ -41,6 +154,86 @@ public interface ArticleService {
 	 */
 	public List<ArticleDAO> getAllArticles();
 
+	/**
+	 * データベースからカーソルより古い記事を1ページ分取得する
+	 * @param cursor 前のページの最後の記事を指すカーソル nullの場合は最新の記事から取得する
+	 * @param size 1ページあたりの記事数
+	 * @return 記事一覧のページ
+	 */
+	public ArticlePage getArticlesAfter(ArticleCursor cursor, int size);
+
+	/**
+	 * データベースからカーソルより古い記事を指定件数まで新しい順に取得し、1件ずつ処理する
+	 * 取得した記事をリストにためずに処理するので、件数が多くてもメモリを使わない。
+	 * 記事キャッシュは使用しない。
+	 * @param cursor 前回の最後の記事を指すカーソル nullの場合は最新の記事から取得する
+	 * @param size 取得する記事数
+	 * @param fields 取得する項目 IDと投稿日は指定しなくても取得する
+	 * @param action 記事ごとの処理
+	 * @return 続きの記事を取得するためのカーソル 続きがなければnull
+	 */
+	public ArticleCursor forEachArticleAfter(ArticleCursor cursor, int size, Set<ArticleField> fields,
+			Consumer<ArticleDAO> action);
+
+	/**
+	 * データベースからカーソルより新しい記事を1ページ分取得する
+	 * @param cursor 次のページの最初の記事を指すカーソル
+	 * @param size 1ページあたりの記事数
+	 * @return 記事一覧のページ
+	 */
+	public ArticlePage getArticlesBefore(ArticleCursor cursor, int size);
+
+	/**
+	 * データベースからカーソルより古い記事の要約を1ページ分取得する
+	 * 記事一覧の表示用で、本文は先頭から指定文字数までの抜粋だけを取得する。
+	 * @param cursor 前のページの最後の記事を指すカーソル nullの場合は最新の記事から取得する
+	 * @param size 1ページあたりの記事数
+	 * @param excerptLength 本文の抜粋の文字数
+	 * @return 記事の要約一覧のページ
+	 */
+	public ArticleSummaryPage getArticleSummariesAfter(ArticleCursor cursor, int size, int excerptLength);
+
+	/**
+	 * データベースからカーソルより新しい記事の要約を1ページ分取得する
+	 * 記事一覧の表示用で、本文は先頭から指定文字数までの抜粋だけを取得する。
+	 * @param cursor 次のページの最初の記事を指すカーソル
+	 * @param size 1ページあたりの記事数
+	 * @param excerptLength 本文の抜粋の文字数
+	 * @return 記事の要約一覧のページ
+	 */
+	public ArticleSummaryPage getArticleSummariesBefore(ArticleCursor cursor, int size, int excerptLength);
+
+	/**
+	 * 指定した全てのタグが付いた記事の要約を、カーソルより古い順に1ページ分取得する
+	 * @param tags タグ名 1つ以上
+	 * @param cursor 前のページの最後の記事を指すカーソル nullの場合は最新の記事から取得する
+	 * @param size 1ページあたりの記事数
+	 * @param excerptLength 本文の抜粋の文字数
+	 * @return 記事の要約一覧のページ 存在しないタグが含まれる場合は空のページ
+	 */
+	public ArticleSummaryPage getArticleSummariesByTagsAfter(Set<String> tags, ArticleCursor cursor, int size,
+			int excerptLength);
+
+	/**
+	 * 指定した全てのタグが付いた記事の要約を、カーソルより新しい順に1ページ分取得する
+	 * @param tags タグ名 1つ以上
+	 * @param cursor 次のページの最初の記事を指すカーソル
+	 * @param size 1ページあたりの記事数
+	 * @param excerptLength 本文の抜粋の文字数
+	 * @return 記事の要約一覧のページ 存在しないタグが含まれる場合は空のページ
+	 */
+	public ArticleSummaryPage getArticleSummariesByTagsBefore(Set<String> tags, ArticleCursor cursor, int size,
+			int excerptLength);
+
+	/**
+	 * タイトル・本文にキーワードを含む記事を関連度の高い順に1ページ分取得する
+	 * @param query 検索キーワード
+	 * @param cursor 前のページの最後の記事を指すカーソル nullの場合は最も関連度の高い記事から取得する
+	 * @param size 1ページあたりの記事数
+	 * @return 検索結果のページ
+	 */
+	public SearchPage searchArticles(String query, SearchCursor cursor, int size);
+
 	/**
 	 * データベースの記事を削除する
 	 * @param id 記事のID
@@ -48,4 +241,10 @@ public interface ArticleService {
 	 */
 	public void deleteArticle(int id) throws DeleteFailedException;
 
+	/**
+	 * 現在の記事の版を取得する
+	 * 記事の追加・更新・削除のたびに次の版になる。版はデータベースから取得するので、全てのサーバで同じになる。
+	 * @return 記事の版
+	 */
+	public ContentVersion getContentVersion();
 }
@@ -0,0 +1,49 @@
+package com.example.example_blog.service;
+
+/**
+ * 記事の版
+ * 記事が書き込まれるたびに番号が増える。表示結果をキャッシュする側は、
+ * 番号が変わっていなければ記事は変わっていないとみなしてよい。
+ * @author Chiba
+ */
+/*
+ * 番号はデータベースの変更イベント（article_events）の最新の通し番号で、記事の書き込みと同じトランザクションで増える。
+ * サーバごとに数えた番号では、他のサーバでの書き込みを共有キャッシュの通知で受け取れない構成のときに番号が変わらず、
+ * 古い一覧のまま304を返し続けてしまう。データベースの番号なら、どのサーバから見ても書き込みのたびに変わる。
+ */
+public final class ContentVersion {
+
+	//版の番号
+	private final long version;
+
+	//最終更新日時（ミリ秒） 分からない場合は-1
+	private final long lastModified;
+
+	/**
+	 * コンストラクタ
+	 * @param version 版の番号
+	 * @param lastModified 最終更新日時（ミリ秒） 分からない場合は-1
+	 */
+	public ContentVersion(long version, long lastModified) {
+		this.version = version;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * 版を表す文字列
+	 * @return 番号の文字列
+	 */
+	public String getTag() {
+		return "v" + version;
+	}
+
+	//版の番号のゲッタ
+	public long getVersion() {
+		return version;
+	}
+
+	//最終更新日時のゲッタ
+	public long getLastModified() {
+		return lastModified;
+	}
+}
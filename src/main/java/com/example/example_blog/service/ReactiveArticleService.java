@@ -0,0 +1,30 @@
+package com.example.example_blog.service;
+
+import com.example.example_blog.repository.ArticleCursor;
+import com.example.example_blog.repository.ArticleDAO;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * ノンブロッキングの記事管理サービス
+ * ArticleService の読み込みと同じ処理を、スレッドを止めずに行う。
+ * @author Chiba
+ */
+public interface ReactiveArticleService {
+
+	/**
+	 * データベースからIDに対応する記事を取得する
+	 * @param id 記事のID
+	 * @return 記事オブジェクト 見つからなかった場合は AcquisitionFailedException で失敗する
+	 */
+	public Mono<ArticleDAO> getArticle(int id);
+
+	/**
+	 * カーソルより古い記事を1ページ分、新しい順に取得する
+	 * @param cursor 前のページの最後の記事を指すカーソル nullの場合は最新の記事から取得する
+	 * @param size 1ページあたりの記事数
+	 * @return 記事オブジェクトの列
+	 */
+	public Flux<ArticleDAO> getArticlesAfter(ArticleCursor cursor, int size);
+}
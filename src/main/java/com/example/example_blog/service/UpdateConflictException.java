@@ -0,0 +1,17 @@
+package com.example.example_blog.service;
+
+/**
+ * 記事の更新が他の更新と競合した例外
+ * 記事を取得してから更新するまでの間に、他の更新が行われた場合にスローする。
+ * @author Chiba
+ */
+public class UpdateConflictException extends Exception {
+
+	/**
+	 * 内部例外を保持するコンストラクタ
+	 * @param cause キャッチした例外
+	 */
+	public UpdateConflictException(Throwable cause) {
+		super(cause);
+	}
+}
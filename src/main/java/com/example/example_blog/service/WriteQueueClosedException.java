@@ -0,0 +1,17 @@
+package com.example.example_blog.service;
+
+/**
+ * 停止処理中で、記事の書き込み待ちの列が記事の追加を受け付けなかった例外
+ * 列が満杯の場合と違い、Futureの完了時にもスローされるので非検査例外にする。
+ * @author Chiba
+ */
+public class WriteQueueClosedException extends IllegalStateException {
+
+	/**
+	 * メッセージを保持するコンストラクタ
+	 * @param message 例外メッセージ
+	 */
+	public WriteQueueClosedException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,16 @@
+package com.example.example_blog.service;
+
+/**
+ * 記事の書き込み待ちの列が満杯で、記事の追加を受け付けられなかった例外
+ * @author Chiba
+ */
+public class WriteQueueFullException extends Exception {
+
+	/**
+	 * メッセージを保持するコンストラクタ
+	 * @param message 例外メッセージ
+	 */
+	public WriteQueueFullException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,412 @@
+package com.example.example_blog.service.cache;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.example_blog.datasource.ReadRoute;
+import com.example.example_blog.repository.ArticleCursor;
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.ArticlePage;
+import com.example.example_blog.repository.ArticleSummaryPage;
+import com.example.example_blog.repository.Tag;
+import com.example.example_blog.service.cache.BoundedCache.Loader;
+
+/**
+ * 記事のキャッシュ
+ * 記事管理サービスがリポジトリを呼び出す前に参照し、データベースへの問い合わせを減らす。
+ * 記事の書き込み時には、影響する値を無効化する必要がある。
+ * @author Chiba
+ */
+/*
+ * キャッシュした記事オブジェクトは複数のリクエストで共有されるので、
+ * 取得した側で記事オブジェクトを書き換えてはいけない。
+ *
+ * 複数のノードで動かす場合は、共有キャッシュ（SharedCache）を2段目のキャッシュにする。
+ * IDごとの記事と全記事リストは、ノード内になければ共有キャッシュから取得し、共有キャッシュにもなければ
+ * データベースから読み込んで両方に格納する。どのノードが読み込んだ値も他のノードで使われるので、
+ * ノードを追加しても、それぞれがデータベースから読み込み直すことはない。
+ * 書き込み時は共有キャッシュの値を無効化し、他のノードにノード内のキャッシュの無効化を通知する。
+ *
+ * 共有キャッシュの値は全てのノードで有効期間の間使われるので、古い値を格納しないようにする。
+ * 共有キャッシュにない値はレプリカではなくプライマリから読み込み、レプリカの遅れで古い値を格納しない。
+ * 無効化の前に読み込み始めた古い値は、無効化した値の保留期間の間は格納されない（SharedCache.invalidate）。
+ * 無効化はトランザクションの終了後にもう一度行うので、保留期間はコミットの時点から数える。
+ */
+@Component
+public class ArticleCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(ArticleCache.class);
+
+	//共有キャッシュのキーの接頭辞 変換の形式を変えたときに古い形式の値を読まないよう、形式の版を含める
+	private static final String SHARED_KEY_PREFIX = "blog:article:v" + ArticleCodec.FORMAT_VERSION + ":";
+
+	//共有キャッシュの全記事リストのキー
+	private static final String SHARED_ALL_ARTICLES_KEY = SHARED_KEY_PREFIX + "all";
+
+	//一覧を無効化する通知
+	private static final String LISTS_MESSAGE = "lists";
+
+	//記事とその記事を含む一覧を無効化する通知の接頭辞 記事のIDを続ける
+	private static final String ARTICLE_MESSAGE_PREFIX = "article:";
+
+	//共有キャッシュで無効化した値を格納させない期間（ミリ秒） 読み込みにかかる時間より長くする
+	private static final long SHARED_HOLD_MILLIS = 2000;
+
+	//全記事リストをキャッシュするときのキー
+	private static final String ALL_ARTICLES_KEY = "all";
+
+	//タグの一覧をキャッシュするときのキー
+	private static final String TAGS_KEY = "tags";
+
+	//IDごとの記事のキャッシュ
+	private final BoundedCache<Integer, ArticleDAO> articleCache;
+
+	//記事一覧のページのキャッシュ
+	private final BoundedCache<String, ArticlePage> pageCache;
+
+	//記事の要約一覧のページのキャッシュ
+	private final BoundedCache<String, ArticleSummaryPage> summaryPageCache;
+
+	//全記事リストのキャッシュ
+	private final BoundedCache<String, List<ArticleDAO>> allArticlesCache;
+
+	//タグの一覧のキャッシュ
+	private final BoundedCache<String, List<Tag>> tagsCache;
+
+	//複数のノードで共有するキャッシュ blog.cache.shared=redis の場合だけ存在する
+	@Autowired(required = false)
+	SharedCache sharedCache;
+
+	//このノードの識別子 自分が送った無効化の通知を無視するために使う
+	private final String nodeId = UUID.randomUUID().toString();
+
+	//共有キャッシュに格納する有効期間（ミリ秒）
+	private final long sharedTtlMillis;
+
+	//共有キャッシュから取得できた回数
+	private final AtomicLong sharedHitCount = new AtomicLong();
+
+	//共有キャッシュにもなく読み込んだ回数
+	private final AtomicLong sharedMissCount = new AtomicLong();
+
+	//一覧のキャッシュに反映済みの、データベースの変更イベントの通し番号
+	private final AtomicLong observedVersion = new AtomicLong();
+
+	/**
+	 * コンストラクタ
+	 * @param maxSize IDごとの記事・ページ・要約のページそれぞれの最大件数
+	 * @param ttlSeconds 有効期間（秒）
+	 */
+	public ArticleCache(@Value("${blog.cache.max-size:1000}") int maxSize,
+			@Value("${blog.cache.ttl-seconds:60}") long ttlSeconds) {
+
+		this.articleCache = new BoundedCache<>(maxSize, ttlSeconds * 1000);
+		this.sharedTtlMillis = ttlSeconds * 1000;
+		this.pageCache = new BoundedCache<>(maxSize, ttlSeconds * 1000);
+		this.summaryPageCache = new BoundedCache<>(maxSize, ttlSeconds * 1000);
+
+		//全記事リストは1件しかない
+		this.allArticlesCache = new BoundedCache<>(1, ttlSeconds * 1000);
+
+		//タグの一覧も1件しかない
+		this.tagsCache = new BoundedCache<>(1, ttlSeconds * 1000);
+	}
+
+	/**
+	 * 共有キャッシュがある場合は、他のノードからの無効化の通知を受け取る
+	 */
+	@PostConstruct
+	void subscribe() {
+		if (sharedCache != null) {
+			sharedCache.subscribe(this::remoteInvalidated);
+		}
+	}
+
+	/**
+	 * 記事を取得する
+	 * @param <E> 読み込み時にスローされる例外の型
+	 * @param id 記事のID
+	 * @param loader キャッシュにない場合に記事を読み込む処理
+	 * @return 記事オブジェクト
+	 * @throws E 読み込みに失敗したときにスローする例外
+	 */
+	public <E extends Exception> ArticleDAO getArticle(int id, Loader<ArticleDAO, E> loader) throws E {
+		return articleCache.get(id,
+				() -> loadShared(SHARED_KEY_PREFIX + id, loader, ArticleCodec::encode, ArticleCodec::decode));
+	}
+
+	/**
+	 * 記事一覧のページを取得する
+	 * @param <E> 読み込み時にスローされる例外の型
+	 * @param direction ページの方向（after：カーソルより古い記事、before：カーソルより新しい記事）
+	 * @param cursor カーソル
+	 * @param size 1ページあたりの記事数
+	 * @param loader キャッシュにない場合にページを読み込む処理
+	 * @return 記事一覧のページ
+	 * @throws E 読み込みに失敗したときにスローする例外
+	 */
+	public <E extends Exception> ArticlePage getPage(String direction, ArticleCursor cursor, int size,
+			Loader<ArticlePage, E> loader) throws E {
+
+		//方向・カーソル・記事数の組をキーにする
+		String key = direction + ":" + (cursor != null ? cursor.encode() : "") + ":" + size;
+
+		return pageCache.get(key, loader);
+	}
+
+	/**
+	 * 記事の要約一覧のページを取得する
+	 * @param <E> 読み込み時にスローされる例外の型
+	 * @param direction ページの方向（after：カーソルより古い記事、before：カーソルより新しい記事）
+	 *                  タグで絞り込む場合は、方向に絞り込みの条件を続けた文字列
+	 * @param cursor カーソル
+	 * @param size 1ページあたりの記事数
+	 * @param excerptLength 本文の抜粋の文字数
+	 * @param loader キャッシュにない場合にページを読み込む処理
+	 * @return 記事の要約一覧のページ
+	 * @throws E 読み込みに失敗したときにスローする例外
+	 */
+	public <E extends Exception> ArticleSummaryPage getSummaryPage(String direction, ArticleCursor cursor, int size,
+			int excerptLength, Loader<ArticleSummaryPage, E> loader) throws E {
+
+		//方向・カーソル・記事数・抜粋の文字数の組をキーにする
+		String key = direction + ":" + (cursor != null ? cursor.encode() : "") + ":" + size + ":" + excerptLength;
+
+		return summaryPageCache.get(key, loader);
+	}
+
+	/**
+	 * 全記事リストを取得する
+	 * @param <E> 読み込み時にスローされる例外の型
+	 * @param loader キャッシュにない場合に全記事リストを読み込む処理
+	 * @return 記事のリスト
+	 * @throws E 読み込みに失敗したときにスローする例外
+	 */
+	public <E extends Exception> List<ArticleDAO> getAllArticles(Loader<List<ArticleDAO>, E> loader) throws E {
+		return allArticlesCache.get(ALL_ARTICLES_KEY,
+				() -> loadShared(SHARED_ALL_ARTICLES_KEY, loader, ArticleCodec::encodeList, ArticleCodec::decodeList));
+	}
+
+	/**
+	 * 記事の付いているタグの一覧を取得する
+	 * @param <E> 読み込み時にスローされる例外の型
+	 * @param loader キャッシュにない場合にタグの一覧を読み込む処理
+	 * @return タグのリスト
+	 * @throws E 読み込みに失敗したときにスローする例外
+	 */
+	public <E extends Exception> List<Tag> getTags(Loader<List<Tag>, E> loader) throws E {
+		return tagsCache.get(TAGS_KEY, loader);
+	}
+
+	/**
+	 * 記事が追加されたときの無効化
+	 * 新しい記事は既存の記事には影響しないので、一覧だけを無効化する。
+	 */
+	public void articleAdded() {
+		invalidate(this::invalidateLists, LISTS_MESSAGE);
+	}
+
+	/**
+	 * 記事が更新・削除されたときの無効化
+	 * その記事と、その記事を含む可能性がある一覧を無効化する。
+	 * @param id 記事のID
+	 */
+	public void articleChanged(int id) {
+		invalidate(() -> {
+			articleCache.invalidate(id);
+			invalidateLists();
+		}, ARTICLE_MESSAGE_PREFIX + id);
+	}
+
+	/**
+	 * データベースの記事の版を反映する
+	 * 前回より進んでいれば、他のノードで書き込まれたとみなして一覧のキャッシュを無効化する。
+	 * 無効化の通知が届かない構成でも、新しい版のページが古い一覧から描画されることはない。
+	 * 一覧はプライマリから読み込み直させること（レプリカが遅れていると、古い一覧をキャッシュし直してしまう）。
+	 * @param version データベースの変更イベントの最新の通し番号
+	 */
+	public void observeVersion(long version) {
+		if (observedVersion.getAndAccumulate(version, Math::max) < version) {
+			invalidateLists();
+		}
+	}
+
+	/**
+	 * 無効化する
+	 * 共有キャッシュがある場合は、共有キャッシュの値も破棄して他のノードに通知する。
+	 * トランザクション中の場合は、コミット前の古い内容が他のリクエストで読み込まれてキャッシュされる可能性があるので、
+	 * トランザクションの終了後にもう一度無効化する。
+	 * @param invalidation ノード内のキャッシュの無効化
+	 * @param message 他のノードへの通知の内容
+	 */
+	private void invalidate(Runnable invalidation, String message) {
+		Runnable all = () -> {
+			invalidation.run();
+			invalidateShared(message);
+		};
+
+		all.run();
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCompletion(int status) {
+					all.run();
+				}
+			});
+		}
+	}
+
+	//共有キャッシュの値を無効化し、他のノードに通知する
+	private void invalidateShared(String message) {
+		if (sharedCache == null) {
+			return;
+		}
+
+		if (message.startsWith(ARTICLE_MESSAGE_PREFIX)) {
+			String id = message.substring(ARTICLE_MESSAGE_PREFIX.length());
+			sharedCache.invalidate(SHARED_HOLD_MILLIS, SHARED_KEY_PREFIX + id, SHARED_ALL_ARTICLES_KEY);
+		} else {
+			sharedCache.invalidate(SHARED_HOLD_MILLIS, SHARED_ALL_ARTICLES_KEY);
+		}
+
+		sharedCache.publish(nodeId + " " + message);
+	}
+
+	/**
+	 * 他のノードからの無効化の通知を受け取ったときの無効化
+	 * 共有キャッシュの値は通知元のノードが破棄しているので、ノード内のキャッシュだけを無効化する。
+	 * @param notification 通知元のノードの識別子と無効化の内容
+	 */
+	void remoteInvalidated(String notification) {
+		int separator = notification.indexOf(' ');
+
+		//自分が送った通知は無視する
+		if (separator < 0 || notification.substring(0, separator).equals(nodeId)) {
+			return;
+		}
+
+		String message = notification.substring(separator + 1);
+
+		if (message.startsWith(ARTICLE_MESSAGE_PREFIX)) {
+			try {
+				articleCache.invalidate(Integer.parseInt(message.substring(ARTICLE_MESSAGE_PREFIX.length())));
+			} catch (NumberFormatException e) {
+				//形式が分からない場合は、記事も全て無効化する
+				logger.warn("無効化の通知の形式が正しくありません：{}", notification);
+				articleCache.invalidateAll();
+			}
+		}
+
+		invalidateLists();
+	}
+
+	/**
+	 * 共有キャッシュから取得し、なければプライマリから読み込んで共有キャッシュに格納する
+	 * @param <V> 値の型
+	 * @param <E> 読み込み時にスローされる例外の型
+	 * @param key 共有キャッシュのキー
+	 * @param loader 共有キャッシュにない場合に値を読み込む処理
+	 * @param encoder 値をバイト列に変換する処理
+	 * @param decoder バイト列を値に変換する処理
+	 * @return 値
+	 * @throws E 読み込みに失敗したときにスローする例外
+	 */
+	private <V, E extends Exception> V loadShared(String key, Loader<V, E> loader, Function<V, byte[]> encoder,
+			Function<byte[], V> decoder) throws E {
+
+		//共有キャッシュを使用しない場合
+		if (sharedCache == null) {
+			return loader.load();
+		}
+
+		byte[] bytes = sharedCache.get(key);
+
+		if (bytes != null) {
+			try {
+				V value = decoder.apply(bytes);
+				sharedHitCount.incrementAndGet();
+				return value;
+
+			} catch (IllegalArgumentException e) {
+				//形式の異なる値や壊れた値は、破棄して読み込み直す
+				logger.warn("共有キャッシュの値を変換できませんでした：{}", key, e);
+				sharedCache.delete(key);
+			}
+		}
+
+		sharedMissCount.incrementAndGet();
+
+		V value;
+
+		//既にプライマリでの実行を強制されている場合は、そのままにする
+		boolean forced = ReadRoute.isPrimaryForced();
+		ReadRoute.setPrimaryForced(true);
+
+		try {
+			value = loader.load();
+		} finally {
+			ReadRoute.setPrimaryForced(forced);
+		}
+
+		sharedCache.putIfAbsent(key, encoder.apply(value), sharedTtlMillis);
+
+		return value;
+	}
+
+	//一覧の無効化
+	private void invalidateLists() {
+		pageCache.invalidateAll();
+		summaryPageCache.invalidateAll();
+		allArticlesCache.invalidateAll();
+		tagsCache.invalidateAll();
+	}
+
+	//キャッシュから取得できた回数のゲッタ
+	public long getHitCount() {
+		return articleCache.getHitCount() + pageCache.getHitCount() + summaryPageCache.getHitCount()
+				+ allArticlesCache.getHitCount() + tagsCache.getHitCount();
+	}
+
+	//キャッシュになく読み込んだ回数のゲッタ
+	public long getMissCount() {
+		return articleCache.getMissCount() + pageCache.getMissCount() + summaryPageCache.getMissCount()
+				+ allArticlesCache.getMissCount() + tagsCache.getMissCount();
+	}
+
+	//共有キャッシュから取得できた回数のゲッタ
+	public long getSharedHitCount() {
+		return sharedHitCount.get();
+	}
+
+	//共有キャッシュにもなく読み込んだ回数のゲッタ
+	public long getSharedMissCount() {
+		return sharedMissCount.get();
+	}
+
+	//キャッシュになく、他のリクエストの読み込みの結果を受け取った回数のゲッタ
+	public long getCoalescedCount() {
+		return articleCache.getCoalescedCount() + pageCache.getCoalescedCount()
+				+ summaryPageCache.getCoalescedCount() + allArticlesCache.getCoalescedCount()
+				+ tagsCache.getCoalescedCount();
+	}
+
+	//破棄した回数のゲッタ
+	public long getEvictionCount() {
+		return articleCache.getEvictionCount() + pageCache.getEvictionCount() + summaryPageCache.getEvictionCount()
+				+ allArticlesCache.getEvictionCount() + tagsCache.getEvictionCount();
+	}
+}
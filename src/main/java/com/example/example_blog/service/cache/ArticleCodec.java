@@ -0,0 +1,200 @@
+package com.example.example_blog.service.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.example_blog.repository.ArticleDAO;
+
+/**
+ * 共有キャッシュに格納する記事オブジェクトのバイト列への変換
+ * 形式：形式の版(1バイト) 以降、記事ごとに
+ *   ID(int) 版番号(int) 投稿日のエポックミリ秒(long) 投稿日のナノ秒(int) タイトル 本文
+ * 文字列は 長さ(int、nullの場合は-1) とUTF-8のバイト列、投稿日がnullの場合はエポックミリ秒を Long.MIN_VALUE にする。
+ * @author Chiba
+ */
+/*
+ * Javaの標準のシリアライズは、クラス名やフィールド名の記述が値ごとに付くので大きく、変換も遅い。
+ * 項目が固定なので、項目の値だけを決まった順に書き込む。
+ * 項目を変える場合は形式の版を上げる。古い版の値は読み込まず、キャッシュにないものとして扱う。
+ */
+public final class ArticleCodec {
+
+	/**
+	 * 形式の版
+	 */
+	public static final byte FORMAT_VERSION = 1;
+
+	private ArticleCodec() {
+	}
+
+	/**
+	 * 記事オブジェクトをバイト列に変換する
+	 * @param article 記事オブジェクト
+	 * @return バイト列
+	 */
+	public static byte[] encode(ArticleDAO article) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(FORMAT_VERSION);
+			write(out, article);
+
+		} catch (IOException e) {
+			//ByteArrayOutputStreamへの書き込みでは発生しない
+			throw new UncheckedIOException(e);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * 記事オブジェクトのリストをバイト列に変換する
+	 * 形式の版の後に記事数(int)を書き込み、記事を順に続ける。
+	 * @param articles 記事オブジェクトのリスト
+	 * @return バイト列
+	 */
+	public static byte[] encodeList(List<ArticleDAO> articles) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * (articles.size() + 1));
+
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(FORMAT_VERSION);
+			out.writeInt(articles.size());
+
+			for (ArticleDAO article : articles) {
+				write(out, article);
+			}
+
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * バイト列を記事オブジェクトに変換する
+	 * @param bytes {@link #encode(ArticleDAO)} で変換したバイト列
+	 * @return 記事オブジェクト
+	 * @throws IllegalArgumentException 形式の版が異なる場合と、バイト列が壊れている場合
+	 */
+	public static ArticleDAO decode(byte[] bytes) {
+		try (DataInputStream in = open(bytes)) {
+			return read(in);
+
+		} catch (IOException e) {
+			throw new IllegalArgumentException("記事のバイト列が壊れています", e);
+		}
+	}
+
+	/**
+	 * バイト列を記事オブジェクトのリストに変換する
+	 * @param bytes {@link #encodeList(List)} で変換したバイト列
+	 * @return 記事オブジェクトのリスト
+	 * @throws IllegalArgumentException 形式の版が異なる場合と、バイト列が壊れている場合
+	 */
+	public static List<ArticleDAO> decodeList(byte[] bytes) {
+		try (DataInputStream in = open(bytes)) {
+			int size = in.readInt();
+
+			if (size < 0) {
+				throw new IllegalArgumentException("記事数が負です");
+			}
+
+			List<ArticleDAO> articles = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				articles.add(read(in));
+			}
+
+			return articles;
+
+		} catch (IOException e) {
+			throw new IllegalArgumentException("記事のバイト列が壊れています", e);
+		}
+	}
+
+	//形式の版を確認して読み込みを始める
+	private static DataInputStream open(byte[] bytes) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+		byte version = in.readByte();
+		if (version != FORMAT_VERSION) {
+			throw new IllegalArgumentException("形式の版が異なります：" + version);
+		}
+
+		return in;
+	}
+
+	//記事1件分を書き込む
+	private static void write(DataOutputStream out, ArticleDAO article) throws IOException {
+		out.writeInt(article.getId());
+		out.writeInt(article.getVersion());
+
+		Timestamp date = article.getDate();
+		out.writeLong(date != null ? date.getTime() : Long.MIN_VALUE);
+		out.writeInt(date != null ? date.getNanos() : 0);
+
+		writeString(out, article.getTitle());
+		writeString(out, article.getContent());
+	}
+
+	//記事1件分を読み込む
+	private static ArticleDAO read(DataInputStream in) throws IOException {
+		ArticleDAO article = new ArticleDAO();
+		article.setId(in.readInt());
+		article.setVersion(in.readInt());
+
+		long millis = in.readLong();
+		int nanos = in.readInt();
+
+		if (millis != Long.MIN_VALUE) {
+			//ナノ秒を設定するとミリ秒未満が置き換わるので、マイクロ秒まで元に戻る
+			Timestamp date = new Timestamp(millis);
+			date.setNanos(nanos);
+			article.setDate(date);
+		}
+
+		article.setTitle(readString(in));
+		article.setContent(readString(in));
+
+		return article;
+	}
+
+	//文字列を書き込む writeUTF は64KBまでしか書けないので、長さとUTF-8のバイト列で書き込む
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	//文字列を読み込む
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+
+		if (length < 0) {
+			return null;
+		}
+
+		//壊れたバイト列で大きな配列を確保しないよう、残りのバイト数と比べる
+		if (length > in.available()) {
+			throw new IOException("文字列の長さが残りのバイト数より長いです");
+		}
+
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,208 @@
+package com.example.example_blog.service.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 件数と有効期限で上限を設けたキャッシュ
+ * 件数が上限を超えた場合は最も長く参照されていないものから破棄し、
+ * 有効期限を過ぎたものは参照時に破棄する。
+ * @author Chiba
+ * @param <K> キーの型
+ * @param <V> 値の型
+ */
+public class BoundedCache<K, V> {
+
+	/**
+	 * キャッシュにない値を読み込む処理
+	 * @param <V> 値の型
+	 * @param <E> 読み込み時にスローされる例外の型
+	 */
+	public interface Loader<V, E extends Exception> {
+
+		/**
+		 * 値を読み込む
+		 * @return 読み込んだ値
+		 * @throws E 読み込みに失敗したときにスローする例外
+		 */
+		V load() throws E;
+	}
+
+	//キャッシュの1件分 値と有効期限を保持する
+	private static class Entry<V> {
+
+		private final V value;
+
+		private final long expiresAt;
+
+		Entry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	//最大件数
+	private final int maxSize;
+
+	//有効期間（ミリ秒）
+	private final long ttlMillis;
+
+	/*
+	 * LinkedHashMapのアクセス順モードを使うと、参照されるたびに末尾へ移動するので、
+	 * 先頭が最も長く参照されていないものになる。
+	 */
+	private final LinkedHashMap<K, Entry<V>> map;
+
+	/*
+	 * 無効化のたびに1増やす世代番号
+	 * 読み込み中に無効化された場合、読み込んだ値は古い可能性があるのでキャッシュしない。
+	 */
+	private long generation;
+
+	//キャッシュから取得できた回数
+	private long hitCount;
+
+	//キャッシュになく読み込んだ回数
+	private long missCount;
+
+	//件数超過・期限切れで破棄した回数
+	private long evictionCount;
+
+	//同じキーの同時の読み込みを1回にまとめる
+	private final SingleFlight<K, V> singleFlight = new SingleFlight<>();
+
+	/**
+	 * コンストラクタ
+	 * @param maxSize 最大件数
+	 * @param ttlMillis 有効期間（ミリ秒）
+	 */
+	public BoundedCache(int maxSize, long ttlMillis) {
+
+		//最大件数が1未満でないことを確認する。
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("最大件数が1未満です");
+		}
+
+		//有効期間が1未満でないことを確認する。
+		if (ttlMillis < 1) {
+			throw new IllegalArgumentException("有効期間が1未満です");
+		}
+
+		this.maxSize = maxSize;
+		this.ttlMillis = ttlMillis;
+		this.map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+
+			//匿名クラスの中では Entry が継承した Map.Entry を指すので、このクラスの Entry はクラス名で修飾する
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, BoundedCache.Entry<V>> eldest) {
+
+				//最大件数を超えたら最も長く参照されていないものを破棄する
+				if (size() > BoundedCache.this.maxSize) {
+					evictionCount++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * キャッシュから値を取得する
+	 * キャッシュにない場合は読み込んでキャッシュに格納する。
+	 * @param <E> 読み込み時にスローされる例外の型
+	 * @param key キー
+	 * @param loader キャッシュにない場合に値を読み込む処理
+	 * @return 値
+	 * @throws E 読み込みに失敗したときにスローする例外 この場合はキャッシュに格納しない
+	 */
+	public <E extends Exception> V get(K key, Loader<V, E> loader) throws E {
+
+		//読み込み開始時点の世代番号
+		long loadGeneration;
+
+		synchronized (this) {
+			Entry<V> entry = map.get(key);
+
+			if (entry != null) {
+
+				//有効期限内ならキャッシュの値を返す
+				if (entry.expiresAt > System.currentTimeMillis()) {
+					hitCount++;
+					return entry.value;
+				}
+
+				//有効期限切れなら破棄する
+				map.remove(key);
+				evictionCount++;
+			}
+
+			missCount++;
+			loadGeneration = generation;
+		}
+
+		/*
+		 * 読み込みはデータベースへの問い合わせになるので、ロックの外で行う。
+		 * 同じキーを同時に読み込む場合は最初の1つだけが読み込み、他はその結果を受け取る。
+		 * 有効期限が切れた瞬間に同じキーへの要求が集中しても、データベースへの問い合わせは1回になる。
+		 */
+		return singleFlight.load(key, () -> {
+			V value = loader.load();
+
+			synchronized (this) {
+
+				//読み込み中に無効化されていなければキャッシュに格納する
+				if (loadGeneration == generation) {
+					map.put(key, new Entry<V>(value, System.currentTimeMillis() + ttlMillis));
+				}
+			}
+
+			return value;
+		});
+	}
+
+	/**
+	 * 指定したキーの値を破棄する
+	 * @param key キー
+	 */
+	public synchronized void invalidate(K key) {
+		generation++;
+		map.remove(key);
+
+		//無効化より前に始まった読み込みの結果は、以降の取得では待たない
+		singleFlight.forget(key);
+	}
+
+	/**
+	 * 全ての値を破棄する
+	 */
+	public synchronized void invalidateAll() {
+		generation++;
+		map.clear();
+		singleFlight.forgetAll();
+	}
+
+	//現在の件数のゲッタ
+	public synchronized int size() {
+		return map.size();
+	}
+
+	//キャッシュから取得できた回数のゲッタ
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	//キャッシュになく読み込んだ回数のゲッタ
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	//破棄した回数のゲッタ
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	//キャッシュになく、他の読み込みの結果を受け取った回数のゲッタ 読み込んだ回数にも含まれる
+	public long getCoalescedCount() {
+		return singleFlight.getCoalescedCount();
+	}
+}
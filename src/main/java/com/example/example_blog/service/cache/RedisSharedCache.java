@@ -0,0 +1,277 @@
+package com.example.example_blog.service.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+
+/**
+ * Redisのプロトコルで接続する共有キャッシュ
+ * Redis（もしくはRedisのプロトコルを話すサーバ）に値を格納し、無効化をPub/Subで他のノードに通知する。
+ * @author Chiba
+ */
+/*
+ * Lettuceの接続はスレッドセーフで、複数のスレッドのコマンドを1つの接続に多重化するので、接続プールは使わない。
+ * Pub/Subの購読中の接続では他のコマンドを実行できないので、購読用の接続は別に作る。
+ *
+ * 共有キャッシュはデータベースの手前の最適化なので、応答が遅い・接続できない場合は短いタイムアウトで諦め、
+ * キャッシュにないものとしてデータベースから読み込む。
+ * 起動時にRedisが停止していてもアプリケーションは起動できるように、接続は最初に使うときに行い、
+ * 接続できなければ一定時間後に接続し直す。一度接続した後の切断は、Lettuceが自動で再接続する。
+ * 購読できるまでの間は他のノードからの無効化の通知を受け取れないので、ノード内のキャッシュは有効期間が過ぎるまで残る。
+ *
+ * 無効化した値は破棄する代わりに、保留期間の間だけ空の値（墓標）で上書きする。
+ * 格納は値がない場合だけ（SET NX）行うので、無効化の前に読み込み始めた古い値は墓標があるうちは格納されない。
+ */
+public class RedisSharedCache implements SharedCache, AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(RedisSharedCache.class);
+
+	//無効化を通知するチャネル名
+	static final String CHANNEL = "blog:cache:invalidate";
+
+	//無効化した値の代わりに格納する墓標
+	private static final byte[] TOMBSTONE = new byte[0];
+
+	//接続できなかった後、次に接続を試みるまでの間隔（ミリ秒）
+	private static final long RECONNECT_INTERVAL_MILLIS = 5000;
+
+	private final RedisClient client;
+
+	//コマンドのタイムアウト（ミリ秒）
+	private final long timeoutMillis;
+
+	//コマンド用の接続 キーは文字列、値はバイト列 接続するまではnull
+	private volatile StatefulRedisConnection<String, byte[]> connection;
+
+	//購読用の接続 購読するまではnull
+	private volatile StatefulRedisPubSubConnection<String, String> pubSubConnection;
+
+	//無効化の通知を受け取る処理 subscribe されるまではnull
+	private volatile Consumer<String> listener;
+
+	//次に接続を試みる時刻 this で同期する
+	private long nextConnectAt;
+
+	//閉じたか this で同期する
+	private boolean closed;
+
+	/**
+	 * コンストラクタ
+	 * 接続は最初に使うときに行う。
+	 * @param client Redisのクライアント 閉じるときに一緒に閉じる
+	 * @param timeoutMillis コマンドのタイムアウト（ミリ秒）
+	 */
+	public RedisSharedCache(RedisClient client, long timeoutMillis) {
+
+		//タイムアウトが1未満でないことを確認する。
+		if (timeoutMillis < 1) {
+			throw new IllegalArgumentException("タイムアウトが1未満です");
+		}
+
+		this.client = client;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public byte[] get(String key) {
+		StatefulRedisConnection<String, byte[]> current = connection();
+		if (current == null) {
+			return null;
+		}
+
+		try {
+			byte[] value = current.sync().get(key);
+
+			//墓標は値がないものとして扱う
+			return (value != null && value.length > 0) ? value : null;
+
+		} catch (RedisException e) {
+			logger.warn("共有キャッシュから取得できませんでした：{}", key, e);
+			return null;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void putIfAbsent(String key, byte[] value, long ttlMillis) {
+		StatefulRedisConnection<String, byte[]> current = connection();
+		if (current == null) {
+			return;
+		}
+
+		try {
+			current.sync().set(key, value, SetArgs.Builder.nx().px(ttlMillis));
+
+		} catch (RedisException e) {
+			logger.warn("共有キャッシュに格納できませんでした：{}", key, e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void invalidate(long holdMillis, String... keys) {
+		StatefulRedisConnection<String, byte[]> current = connection();
+		if (current == null) {
+			return;
+		}
+
+		try {
+			for (String key : keys) {
+				current.sync().set(key, TOMBSTONE, SetArgs.Builder.px(holdMillis));
+			}
+
+		} catch (RedisException e) {
+			//無効化できなかった値は有効期間が過ぎるまで残る
+			logger.warn("共有キャッシュの値を無効化できませんでした", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void delete(String... keys) {
+		StatefulRedisConnection<String, byte[]> current = connection();
+		if (current == null) {
+			return;
+		}
+
+		try {
+			current.sync().del(keys);
+
+		} catch (RedisException e) {
+			//破棄できなかった値は有効期間が過ぎるまで残る
+			logger.warn("共有キャッシュから破棄できませんでした", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void publish(String message) {
+		StatefulRedisConnection<String, byte[]> current = connection();
+		if (current == null) {
+			//通知できなかった他のノードのキャッシュは有効期間が過ぎるまで残る
+			logger.warn("共有キャッシュに接続していないため、無効化を通知できませんでした：{}", message);
+			return;
+		}
+
+		try {
+			current.sync().publish(CHANNEL, message.getBytes(StandardCharsets.UTF_8));
+
+		} catch (RedisException e) {
+			//通知できなかった他のノードのキャッシュは有効期間が過ぎるまで残る
+			logger.warn("無効化を通知できませんでした：{}", message, e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 接続できない場合は、後で接続できたときに購読する。
+	 */
+	@Override
+	public void subscribe(Consumer<String> listener) {
+		this.listener = listener;
+		connect();
+	}
+
+	/**
+	 * 接続を閉じる
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+
+		if (pubSubConnection != null) {
+			pubSubConnection.close();
+		}
+		if (connection != null) {
+			connection.close();
+		}
+		client.shutdown();
+	}
+
+	//コマンド用の接続を取得する 接続していなければ接続し、接続できなければnull
+	private StatefulRedisConnection<String, byte[]> connection() {
+		StatefulRedisConnection<String, byte[]> current = connection;
+
+		if (current != null && (listener == null || pubSubConnection != null)) {
+			return current;
+		}
+
+		return connect();
+	}
+
+	//接続していないものを接続する 前回接続できなかった場合は、一定時間たつまで接続を試みない
+	private synchronized StatefulRedisConnection<String, byte[]> connect() {
+
+		if (closed || System.currentTimeMillis() < nextConnectAt) {
+			return connection;
+		}
+
+		try {
+			if (connection == null) {
+				StatefulRedisConnection<String, byte[]> opened =
+						client.connect(RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE));
+				opened.setTimeout(Duration.ofMillis(timeoutMillis));
+				connection = opened;
+			}
+
+			if (listener != null && pubSubConnection == null) {
+				pubSubConnection = connectPubSub(listener);
+			}
+
+		} catch (RedisException e) {
+			nextConnectAt = System.currentTimeMillis() + RECONNECT_INTERVAL_MILLIS;
+			logger.warn("共有キャッシュに接続できませんでした {}ミリ秒後に接続し直します", RECONNECT_INTERVAL_MILLIS, e);
+		}
+
+		return connection;
+	}
+
+	//購読用の接続を作って購読する 購読できなかった場合は接続を閉じる
+	private StatefulRedisPubSubConnection<String, String> connectPubSub(Consumer<String> listener) {
+		StatefulRedisPubSubConnection<String, String> opened = client.connectPubSub();
+
+		try {
+			opened.addListener(new RedisPubSubAdapter<String, String>() {
+
+				@Override
+				public void message(String channel, String message) {
+					if (CHANNEL.equals(channel)) {
+						listener.accept(message);
+					}
+				}
+			});
+
+			//再接続した場合、Lettuceが購読し直す
+			opened.sync().subscribe(CHANNEL);
+			return opened;
+
+		} catch (RedisException e) {
+			opened.close();
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.example.example_blog.service.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * 複数のノードで共有するキャッシュ（2段目のキャッシュ）
+ * 記事キャッシュは、ノード内のキャッシュ（1段目）になかった値をここから探し、ここにもなければデータベースから読み込む。
+ * 値はバイト列で格納するので、変換は記事キャッシュが行う。
+ * 共有キャッシュに接続できない場合はキャッシュにないものとして扱い、例外はスローしない。
+ * @author Chiba
+ */
+public interface SharedCache {
+
+	/**
+	 * 値を取得する
+	 * @param key キー
+	 * @return 値 キャッシュにない場合と接続できない場合はnull
+	 */
+	public byte[] get(String key);
+
+
+	/**
+	 * 値が格納されていない場合だけ格納する
+	 * invalidate で無効化してから保留期間の間は格納しない。
+	 * @param key キー
+	 * @param value 値
+	 * @param ttlMillis 有効期間（ミリ秒）
+	 */
+	public void putIfAbsent(String key, byte[] value, long ttlMillis);
+
+
+	/**
+	 * 値を無効化する
+	 * 無効化の前に読み込み始めた古い値が格納されないように、保留期間の間は putIfAbsent で格納させない。
+	 * @param holdMillis 保留期間（ミリ秒）
+	 * @param keys キー
+	 */
+	public void invalidate(long holdMillis, String... keys);
+
+
+	/**
+	 * 値を破棄する
+	 * @param keys キー
+	 */
+	public void delete(String... keys);
+
+
+	/**
+	 * 他のノードに無効化を通知する
+	 * @param message 無効化の内容
+	 */
+	public void publish(String message);
+
+
+	/**
+	 * 他のノードからの無効化の通知を受け取る
+	 * 接続が切れて再接続した場合も、引き続き受け取る。
+	 * @param listener 無効化の内容を受け取る処理 通知を受け取ったスレッドで呼び出すので、すぐに終わる処理にする
+	 */
+	public void subscribe(Consumer<String> listener);
+}
@@ -0,0 +1,33 @@
+package com.example.example_blog.service.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+
+/**
+ * 共有キャッシュの設定
+ * blog.cache.shared=redis の場合だけ、Redisの共有キャッシュを登録する。
+ * 登録しない場合、記事キャッシュはノード内のキャッシュだけを使用する。
+ * @author Chiba
+ */
+@Configuration
+@ConditionalOnProperty(name = "blog.cache.shared", havingValue = "redis")
+public class SharedCacheConfiguration {
+
+	/**
+	 * Redisの共有キャッシュ
+	 * @param uri 接続先 例：redis://localhost:6379
+	 * @param timeoutMillis コマンドのタイムアウト（ミリ秒）
+	 * @return 共有キャッシュ
+	 */
+	@Bean(destroyMethod = "close")
+	public RedisSharedCache redisSharedCache(@Value("${blog.cache.redis.uri:redis://localhost:6379}") String uri,
+			@Value("${blog.cache.redis.timeout-millis:200}") long timeoutMillis) {
+
+		return new RedisSharedCache(RedisClient.create(RedisURI.create(uri)), timeoutMillis);
+	}
+}
@@ -0,0 +1,127 @@
+package com.example.example_blog.service.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.example.example_blog.service.cache.BoundedCache.Loader;
+
+/**
+ * 同じキーの読み込みの相乗り
+ * 同じキーの読み込みが同時に要求された場合、最初の1つだけが読み込み、
+ * 後から来たものは読み込みを終えるのを待って同じ結果（例外を含む）を受け取る。
+ * @author Chiba
+ * @param <K> キーの型
+ * @param <V> 値の型
+ */
+/*
+ * 人気の記事のキャッシュが有効期限切れになった瞬間に数千のリクエストが来ても、
+ * データベースへの問い合わせは1回で済む。
+ * 読み込み中のものだけを保持し、読み込みを終えたら取り除くので、結果を保持するのはキャッシュの役割になる。
+ */
+public class SingleFlight<K, V> {
+
+	//読み込み中のキーと、その結果
+	private final Map<K, CompletableFuture<V>> calls = new HashMap<>();
+
+	//他の読み込みの結果を受け取った回数
+	private long coalescedCount;
+
+	/**
+	 * 値を読み込む
+	 * 同じキーを読み込み中であれば、読み込まずにその結果を待つ。
+	 * @param <E> 読み込み時にスローされる例外の型
+	 * @param key キー
+	 * @param loader 値を読み込む処理
+	 * @return 値
+	 * @throws E 読み込みに失敗したときにスローする例外 待っていた場合も同じ例外をスローする
+	 */
+	public <E extends Exception> V load(K key, Loader<V, E> loader) throws E {
+
+		CompletableFuture<V> call;
+
+		//最初に要求した場合は自分で読み込む
+		boolean owner = false;
+
+		synchronized (this) {
+			call = calls.get(key);
+
+			if (call != null) {
+				coalescedCount++;
+			} else {
+				call = new CompletableFuture<>();
+				calls.put(key, call);
+				owner = true;
+			}
+		}
+
+		if (owner) {
+			return execute(key, call, loader);
+		}
+
+		//読み込み中であれば、その結果を待つ
+		return await(call);
+	}
+
+	/**
+	 * 読み込み中の結果を使わないようにする
+	 * 書き込みの後に呼び出すと、以降は書き込み前に始まった読み込みを待たずに読み込み直す。
+	 * @param key キー
+	 */
+	public synchronized void forget(K key) {
+		calls.remove(key);
+	}
+
+	/**
+	 * 全てのキーの読み込み中の結果を使わないようにする
+	 */
+	public synchronized void forgetAll() {
+		calls.clear();
+	}
+
+	//他の読み込みの結果を受け取った回数のゲッタ
+	public synchronized long getCoalescedCount() {
+		return coalescedCount;
+	}
+
+	//読み込んで、待っているものに結果を渡す
+	private <E extends Exception> V execute(K key, CompletableFuture<V> call, Loader<V, E> loader) throws E {
+		try {
+			V value = loader.load();
+			call.complete(value);
+			return value;
+
+		} catch (Throwable e) {
+			call.completeExceptionally(e);
+			throw e;
+
+		} finally {
+			synchronized (this) {
+				//読み込み中に忘れられて、別の読み込みが始まっている場合はそちらを残す
+				calls.remove(key, call);
+			}
+		}
+	}
+
+	//他の読み込みの結果を待つ
+	@SuppressWarnings("unchecked")
+	private static <V, E extends Exception> V await(CompletableFuture<V> call) throws E {
+		try {
+			return call.join();
+
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+
+			//同じキーは同じ処理で読み込むので、スローされる例外も同じ型になる
+			throw (E) cause;
+		}
+	}
+}
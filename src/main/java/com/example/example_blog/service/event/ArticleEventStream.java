@@ -0,0 +1,501 @@
+package com.example.example_blog.service.event;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import com.example.example_blog.repository.ArticleEvent;
+import com.example.example_blog.repository.ArticleEventRepository;
+
+/**
+ * 記事の変更イベントの配信
+ * 変更イベントのテーブルを通し番号の順に読み込み、購読しているクライアントにServer-Sent Eventsで送る。
+ * イベントのIDには通し番号を使うので、クライアントは切断後に Last-Event-ID を送れば続きから受け取れる。
+ * @author Chiba
+ */
+/*
+ * 一定間隔でテーブルを問い合わせるだけだと、間隔を短くするほど変更がないときの問い合わせが増え、
+ * 長くするほど配信が遅れる。
+ * PostgreSQLの LISTEN/NOTIFY で、イベントを追加したトランザクションのコミットを通知してもらい、
+ * 通知を受けたらすぐに前回の続きを読み込む。通知は取りこぼしても次の通知や一定間隔の読み込みで追いつくので、
+ * 通知は読み込むきっかけにだけ使い、配信するイベントは必ずテーブルから読む。
+ *
+ * 読み込みは主キー（通し番号）のインデックスで続きから行うので、テーブル全体は走査しない。
+ * 購読者ごとに読み込まず、配信用のスレッドが最も遅れている購読者の位置から1回だけ読み込み、全員に振り分ける。
+ *
+ * クライアントへの送信は、受信の遅いクライアントでは書き込みが終わるまで止まる。
+ * 配信用のスレッドが送信すると1つの遅いクライアントが全員への配信を止めてしまうので、
+ * 配信用のスレッドは購読者ごとの送信待ちの列に入れるだけにして、送信は購読者ごとに別のスレッドで行う。
+ * 送信待ちの列が満杯になるほど遅れた購読者は接続を終了する。クライアントは再接続すれば、続きをテーブルから受け取れる。
+ *
+ * 保持期間を過ぎたイベントは削除するので、削除されたイベントより前の位置からは続きを受け取れない。
+ * そのまま送ると削除を含む変更を黙って取りこぼすので、購読を断るか接続を終了し、全体を読み込み直させる。
+ */
+@Component
+public class ArticleEventStream {
+
+	private static final Logger logger = LoggerFactory.getLogger(ArticleEventStream.class);
+
+	@Autowired
+	ArticleEventRepository repository;
+
+	@Autowired
+	DataSourceProperties dataSourceProperties;
+
+	//1回に読み込む最大イベント数
+	@Value("${blog.events.batch-size:500}")
+	int batchSize;
+
+	//通知がなくても読み込む間隔（ミリ秒） 通知を取りこぼした場合はこの間隔で追いつく
+	@Value("${blog.events.poll-interval-millis:5000}")
+	long pollIntervalMillis;
+
+	//接続を維持するためのコメントを送る間隔（秒） 切断したクライアントもこのときに取り除く
+	@Value("${blog.events.keepalive-seconds:15}")
+	long keepaliveSeconds;
+
+	//購読者ごとの送信待ちの最大件数 これを超えて遅れた購読者は接続を終了する
+	@Value("${blog.events.subscriber-buffer-size:1000}")
+	int subscriberBufferSize;
+
+	//イベントを保持する日数 これより古いイベントは削除する 0の場合は削除しない
+	@Value("${blog.events.retention-days:7}")
+	int retentionDays;
+
+	//古いイベントを削除する間隔（ミリ秒）
+	private static final long CLEANUP_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	//通知を待つ最大時間（ミリ秒） 停止を確認できるように待ち時間を区切る
+	private static final int LISTEN_TIMEOUT_MILLIS = 1000;
+
+	//購読中のクライアント
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+	//読み込みのきっかけ
+	private final Object signal = new Object();
+
+	//きっかけがあったか signal で同期する
+	private boolean signalled = false;
+
+	private Thread dispatcher;
+
+	private Thread listener;
+
+	//購読者へ送信するスレッド 送信中の購読者ごとに1つ使う
+	private ExecutorService senders;
+
+	//停止処理が始まったか
+	private volatile boolean closed = false;
+
+	@PostConstruct
+	void start() {
+
+		//読み込む最大イベント数が1未満でないことを確認する。
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("読み込む最大イベント数が1未満です");
+		}
+
+		//送信待ちの最大件数が1未満でないことを確認する。
+		if (subscriberBufferSize < 1) {
+			throw new IllegalArgumentException("送信待ちの最大件数が1未満です");
+		}
+
+		AtomicInteger threadNumber = new AtomicInteger();
+
+		//送信中の購読者の数だけスレッドを使い、送信を終えたスレッドは一定時間後に終了する
+		senders = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+				runnable -> {
+					Thread thread = new Thread(runnable, "article-event-sender-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+
+		dispatcher = new Thread(this::dispatchLoop, "article-event-dispatcher");
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+
+		listener = new Thread(this::listenLoop, "article-event-listener");
+		listener.setDaemon(true);
+		listener.start();
+	}
+
+	/**
+	 * 変更イベントを購読する
+	 * @param afterSeq この通し番号より後のイベントから送る
+	 * @return イベントを送るSseEmitter
+	 * @throws EventsExpiredException 通し番号より後のイベントの一部が、保持期間を過ぎて削除されている場合
+	 */
+	public SseEmitter subscribe(long afterSeq) throws EventsExpiredException {
+
+		//通し番号が負でないことを確認する。
+		if (afterSeq < 0) {
+			throw new IllegalArgumentException("通し番号が負です");
+		}
+
+		if (closed) {
+			throw new IllegalStateException("変更イベントの配信は停止しています");
+		}
+
+		//削除されたイベントより前から再開する場合
+		if (isExpired(afterSeq, repository.getOldestSeq())) {
+			throw new EventsExpiredException("通し番号" + afterSeq + "より後の変更イベントの一部は削除されています");
+		}
+
+		//タイムアウトせず、接続の確認はコメントの送信で行う
+		SseEmitter emitter = new SseEmitter(0L);
+		Subscription subscription = new Subscription(emitter, afterSeq, subscriberBufferSize);
+
+		emitter.onCompletion(() -> subscriptions.remove(subscription));
+		emitter.onTimeout(() -> subscriptions.remove(subscription));
+		emitter.onError(e -> subscriptions.remove(subscription));
+
+		subscriptions.add(subscription);
+
+		//購読した時点までのイベントをすぐに送る
+		signal();
+
+		return emitter;
+	}
+
+	/**
+	 * 最新のイベントの通し番号を取得する
+	 * @return 通し番号 イベントがなければ0
+	 */
+	public long getLatestSeq() {
+		return repository.getLatestSeq();
+	}
+
+	/**
+	 * 停止する
+	 * 購読中のクライアントの接続を終了する。クライアントは再接続すれば続きから受け取れる。
+	 */
+	@PreDestroy
+	void close() {
+		closed = true;
+		signal();
+
+		try {
+			dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+			listener.join(LISTEN_TIMEOUT_MILLIS * 2);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		//送信中のものは、送信を終えたスレッドが接続を終了する
+		for (Subscription subscription : subscriptions) {
+			drop(subscription);
+		}
+		subscriptions.clear();
+
+		senders.shutdown();
+
+		try {
+			senders.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	//読み込みのきっかけを知らせる
+	private void signal() {
+		synchronized (signal) {
+			signalled = true;
+			signal.notifyAll();
+		}
+	}
+
+	//きっかけがあるか、一定時間たつまで待つ
+	private void awaitSignal(long timeoutMillis) throws InterruptedException {
+		synchronized (signal) {
+			if (!signalled) {
+				signal.wait(timeoutMillis);
+			}
+			signalled = false;
+		}
+	}
+
+	//配信用のスレッドの処理
+	private void dispatchLoop() {
+
+		long nextKeepalive = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(keepaliveSeconds);
+		long nextCleanup = System.currentTimeMillis();
+
+		while (!closed) {
+			try {
+				awaitSignal(pollIntervalMillis);
+
+				if (closed) {
+					return;
+				}
+
+				dispatch();
+
+				long now = System.currentTimeMillis();
+
+				if (now >= nextKeepalive) {
+					keepalive();
+					nextKeepalive = now + TimeUnit.SECONDS.toMillis(keepaliveSeconds);
+				}
+
+				if (retentionDays > 0 && now >= nextCleanup) {
+					cleanup(now);
+					nextCleanup = now + CLEANUP_INTERVAL_MILLIS;
+				}
+
+			} catch (InterruptedException e) {
+				return;
+
+			} catch (RuntimeException e) {
+				//データベースに接続できない場合など 次のきっかけでもう一度読み込む
+				logger.warn("変更イベントを配信できませんでした", e);
+			}
+		}
+	}
+
+	//最も遅れている購読者の位置から読み込み、それぞれの購読者に未送信のイベントを送る
+	private void dispatch() {
+
+		if (subscriptions.isEmpty()) {
+			return;
+		}
+
+		/*
+		 * 購読してから削除されたイベントより前にいる購読者は、接続を終了する
+		 * 再接続すると購読を断られるので、クライアントは全体を読み込み直す
+		 */
+		long oldest = repository.getOldestSeq();
+		for (Subscription subscription : subscriptions) {
+			if (isExpired(subscription.lastSeq, oldest)) {
+				logger.info("未送信の変更イベントが削除されたので、購読者の接続を終了します");
+				drop(subscription);
+			}
+		}
+
+		if (subscriptions.isEmpty()) {
+			return;
+		}
+
+		long from = Long.MAX_VALUE;
+		for (Subscription subscription : subscriptions) {
+			from = Math.min(from, subscription.lastSeq);
+		}
+
+		List<ArticleEvent> events;
+
+		do {
+			events = repository.getEventsAfter(from, batchSize);
+
+			for (Subscription subscription : subscriptions) {
+				send(subscription, events);
+			}
+
+			if (!events.isEmpty()) {
+				from = events.get(events.size() - 1).getSeq();
+			}
+
+		} while (events.size() == batchSize && !closed);
+	}
+
+	//購読者の送信待ちの列に未送信のイベントを入れる
+	private void send(Subscription subscription, List<ArticleEvent> events) {
+		for (ArticleEvent event : events) {
+			if (event.getSeq() <= subscription.lastSeq) {
+				continue;
+			}
+
+			if (!enqueue(subscription, SseEmitter.event()
+					.id(String.valueOf(event.getSeq()))
+					.data(event, MediaType.APPLICATION_JSON))) {
+				return;
+			}
+
+			subscription.lastSeq = event.getSeq();
+		}
+	}
+
+	//接続を維持するためのコメントを送る
+	private void keepalive() {
+		for (Subscription subscription : subscriptions) {
+			enqueue(subscription, SseEmitter.event().comment("keepalive"));
+		}
+	}
+
+	//送信待ちの列に入れて、送信するスレッドがなければ送信を始める 列が満杯の場合は購読者を取り除いて false を返す
+	private boolean enqueue(Subscription subscription, SseEventBuilder event) {
+
+		if (!subscription.pending.offer(event)) {
+			logger.info("変更イベントの送信が{}件遅れたので、購読者の接続を終了します", subscriberBufferSize);
+			drop(subscription);
+			return false;
+		}
+
+		schedule(subscription);
+		return true;
+	}
+
+	//購読者を取り除く 接続の終了は送信するスレッドで行い、配信用のスレッドは送信を待たない
+	private void drop(Subscription subscription) {
+		subscriptions.remove(subscription);
+		subscription.dropped = true;
+		subscription.pending.clear();
+		schedule(subscription);
+	}
+
+	//購読者の送信を始める 送信中であれば、送信中のスレッドが列に入れたものも送る
+	private void schedule(Subscription subscription) {
+		if (subscription.sending.compareAndSet(false, true)) {
+			try {
+				senders.execute(() -> drain(subscription));
+
+			} catch (RuntimeException e) {
+				//停止した後は送信しない
+				subscription.sending.set(false);
+			}
+		}
+	}
+
+	//送信待ちの列が空になるまで送る
+	private void drain(Subscription subscription) {
+		while (true) {
+			SseEventBuilder event;
+
+			while (!subscription.dropped && (event = subscription.pending.poll()) != null) {
+				try {
+					subscription.emitter.send(event);
+
+				} catch (IOException | IllegalStateException e) {
+					//クライアントが切断した場合
+					subscriptions.remove(subscription);
+					subscription.dropped = true;
+					subscription.emitter.completeWithError(e);
+					return;
+				}
+			}
+
+			if (subscription.dropped) {
+				subscription.emitter.complete();
+				return;
+			}
+
+			subscription.sending.set(false);
+
+			//送信を終える間に列に入れられたものがあれば、続けて送る
+			if (subscription.pending.isEmpty() || !subscription.sending.compareAndSet(false, true)) {
+				return;
+			}
+		}
+	}
+
+	//通し番号より後のイベントが削除されているか 残っている最も古いイベントの直前までなら取りこぼしはない
+	private static boolean isExpired(long afterSeq, long oldestSeq) {
+		return oldestSeq > 0 && afterSeq < oldestSeq - 1;
+	}
+
+	//保持する日数より古いイベントを削除する
+	private void cleanup(long now) {
+		int count = repository.deleteEventsBefore(new Timestamp(now - TimeUnit.DAYS.toMillis(retentionDays)));
+
+		if (count > 0) {
+			logger.info("{}日より古い変更イベントを{}件削除しました", retentionDays, count);
+		}
+	}
+
+	/*
+	 * LISTEN は接続を占有し続けるので、接続プールの接続は使わずに専用の接続を作る。
+	 * 接続が切れた場合は作り直し、その間のイベントは作り直した後の読み込みで追いつく。
+	 */
+	//通知を受け取るスレッドの処理
+	private void listenLoop() {
+
+		while (!closed) {
+			try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+					dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("LISTEN " + ArticleEventRepository.CHANNEL);
+				}
+
+				PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+				//接続していなかった間のイベントを読み込む
+				signal();
+
+				while (!closed) {
+					PGNotification[] notifications = pgConnection.getNotifications(LISTEN_TIMEOUT_MILLIS);
+
+					if (notifications != null && notifications.length > 0) {
+						signal();
+					}
+				}
+
+			} catch (SQLException e) {
+				if (closed) {
+					return;
+				}
+
+				//通知を受け取れない間も、一定間隔の読み込みで配信は続く
+				logger.warn("変更イベントの通知を受け取れませんでした {}ミリ秒後に接続し直します", pollIntervalMillis, e);
+
+				try {
+					Thread.sleep(pollIntervalMillis);
+				} catch (InterruptedException ie) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 購読中のクライアント
+	 */
+	private static final class Subscription {
+
+		final SseEmitter emitter;
+
+		//送信待ちのイベント
+		final BlockingQueue<SseEventBuilder> pending;
+
+		//送信するスレッドが動いているか
+		final AtomicBoolean sending = new AtomicBoolean();
+
+		//送信待ちの列に入れた最後の通し番号 配信用のスレッドだけが更新する
+		volatile long lastSeq;
+
+		//取り除かれたか 送信するスレッドが接続を終了する
+		volatile boolean dropped;
+
+		Subscription(SseEmitter emitter, long lastSeq, int bufferSize) {
+			this.emitter = emitter;
+			this.lastSeq = lastSeq;
+			this.pending = new ArrayBlockingQueue<>(bufferSize);
+		}
+	}
+}
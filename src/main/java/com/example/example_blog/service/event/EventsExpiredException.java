@@ -0,0 +1,17 @@
+package com.example.example_blog.service.event;
+
+/**
+ * 再開する位置より後の変更イベントの一部が、保持期間を過ぎて削除されている例外
+ * 続きから受け取っても変更を取りこぼすので、利用者は全体を読み込み直す必要がある。
+ * @author Chiba
+ */
+public class EventsExpiredException extends Exception {
+
+	/**
+	 * メッセージを保持するコンストラクタ
+	 * @param message 例外メッセージ
+	 */
+	public EventsExpiredException(String message) {
+		super(message);
+	}
+}
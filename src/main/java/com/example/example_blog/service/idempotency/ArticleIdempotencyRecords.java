@@ -0,0 +1,167 @@
+package com.example.example_blog.service.idempotency;
+
+import java.sql.Timestamp;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.ArticleRepository;
+import com.example.example_blog.repository.IdempotencyKey;
+import com.example.example_blog.repository.IdempotencyKeyRepository;
+import com.example.example_blog.repository.NoArticleFoundException;
+
+/**
+ * データベースに記録する記事の作成の冪等キー
+ * 作成済みのキーには作成した記事のIDを記録し、再送された場合はIDから記事を読み込んで返す。
+ * @author Chiba
+ */
+/*
+ * 記事の追加と作成した記事のIDの記録は、1つのトランザクションで行う。
+ * 別々にコミットすると、IDの記録に失敗した場合やその間にサーバが停止した場合に、キーが書き込み中のまま残る。
+ * 書き込み中の有効期間が過ぎるとキーが削除され、再送でもう一度記事が作成されてしまう。
+ *
+ * 書き込み中のまま一定時間（書き込み中の有効期間）を過ぎた登録は、書き込んでいたサーバが停止したとみなして削除する。
+ * 削除しないと、有効期間（既定では1日）が過ぎるまで同じキーの再送が待ち続けることになる。
+ */
+public class ArticleIdempotencyRecords implements IdempotencyRecords<ArticleDAO> {
+
+	private static final Logger logger = LoggerFactory.getLogger(ArticleIdempotencyRecords.class);
+
+	//有効期限切れのキーをまとめて削除する間隔（ミリ秒）
+	private static final long CLEANUP_INTERVAL_MILLIS = 60 * 60 * 1000;
+
+	private final IdempotencyKeyRepository repository;
+
+	private final ArticleRepository articleRepository;
+
+	private final PlatformTransactionManager transactionManager;
+
+	//有効期間（ミリ秒）
+	private final long ttlMillis;
+
+	//書き込み中の有効期間（ミリ秒）
+	private final long pendingTtlMillis;
+
+	//次に有効期限切れのキーをまとめて削除する日時（ミリ秒）
+	private final AtomicLong nextCleanup = new AtomicLong();
+
+	/**
+	 * コンストラクタ
+	 * @param repository 冪等キーのリポジトリ
+	 * @param articleRepository 作成済みの記事を読み込むリポジトリ
+	 * @param transactionManager 記事の追加とIDの記録のトランザクションを管理する
+	 * @param ttlMillis 有効期間（ミリ秒）
+	 * @param pendingTtlMillis 書き込み中の有効期間（ミリ秒） 記事の作成にかかる時間より長くする
+	 */
+	public ArticleIdempotencyRecords(IdempotencyKeyRepository repository, ArticleRepository articleRepository,
+			PlatformTransactionManager transactionManager, long ttlMillis, long pendingTtlMillis) {
+
+		//有効期間が1未満でないことを確認する。
+		if (ttlMillis < 1 || pendingTtlMillis < 1) {
+			throw new IllegalArgumentException("有効期間が1未満です");
+		}
+
+		this.repository = repository;
+		this.articleRepository = articleRepository;
+		this.transactionManager = transactionManager;
+		this.ttlMillis = ttlMillis;
+		this.pendingTtlMillis = pendingTtlMillis;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Record<ArticleDAO> register(String key, String fingerprint) {
+
+		long now = System.currentTimeMillis();
+		cleanup(now);
+
+		while (true) {
+			//有効期限切れの登録は、登録されていないものとして扱う
+			repository.deleteExpired(key, new Timestamp(now - ttlMillis), new Timestamp(now - pendingTtlMillis));
+
+			if (repository.insert(key, fingerprint)) {
+				return null;
+			}
+
+			IdempotencyKey registered = repository.find(key);
+
+			//登録を確認する間に削除された場合は、登録からやり直す
+			if (registered == null) {
+				continue;
+			}
+
+			if (registered.getArticleId() == null) {
+				return new Record<>(registered.getFingerprint(), null);
+			}
+
+			return new Record<>(registered.getFingerprint(), load(registered.getArticleId()));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <E extends Exception> ArticleDAO execute(String key, IdempotencyStore.Action<ArticleDAO, E> action)
+			throws E {
+
+		//書き込みは既定の伝播（REQUIRED）で、このトランザクションに参加する
+		TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+		ArticleDAO article;
+
+		try {
+			article = action.execute();
+			repository.setArticleId(key, article.getId());
+
+		} catch (Throwable e) {
+			transactionManager.rollback(status);
+			throw e;
+		}
+
+		transactionManager.commit(status);
+		return article;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void remove(String key) {
+		repository.deletePending(key);
+	}
+
+	//作成済みの記事を読み込む 作成後に削除された場合は、IDだけを持つ記事オブジェクトを返す
+	private ArticleDAO load(int id) {
+		try {
+			return articleRepository.getArticle(id);
+
+		} catch (NoArticleFoundException e) {
+			ArticleDAO article = new ArticleDAO();
+			article.setId(id);
+			return article;
+		}
+	}
+
+	//一定間隔で有効期限切れのキーをまとめて削除する 削除するのは間隔ごとに1つのスレッドだけ
+	private void cleanup(long now) {
+		long next = nextCleanup.get();
+
+		if (now < next || !nextCleanup.compareAndSet(next, now + CLEANUP_INTERVAL_MILLIS)) {
+			return;
+		}
+
+		int count = repository.deleteExpired(null, new Timestamp(now - ttlMillis),
+				new Timestamp(now - pendingTtlMillis));
+
+		if (count > 0) {
+			logger.info("有効期限切れの冪等キーを{}件削除しました", count);
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.example.example_blog.service.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.ArticleRepository;
+import com.example.example_blog.repository.IdempotencyKeyRepository;
+
+/**
+ * 冪等キーのストアの設定
+ * @author Chiba
+ */
+/*
+ * サーバ内のストアだけでは、ロードバランサが再送を別のサーバに振り分けると記事が二重に作成される。
+ * データベースの冪等キーのテーブルを全てのサーバで共有し、同じキーの作成はどのサーバでも1回だけにする。
+ * サーバ内のストアは、同じサーバへの二重送信をデータベースに問い合わせずに待ち合わせるために残している。
+ */
+@Configuration
+public class IdempotencyConfiguration {
+
+	/**
+	 * 記事の作成の冪等キーのストア
+	 * 記事作成ページとJSON APIで共用する。結果として追加した記事を保持する。
+	 * @param repository 冪等キーのリポジトリ
+	 * @param articleRepository 作成済みの記事を読み込むリポジトリ
+	 * @param transactionManager 記事の追加と冪等キーの記録のトランザクションを管理する
+	 * @param maxSize 最大件数
+	 * @param ttlSeconds 有効期間（秒）
+	 * @param pendingTtlSeconds 作成中の有効期間（秒） 作成したサーバが停止した場合に、再送を受け付けるまでの時間
+	 * @return 冪等キーのストア
+	 */
+	@Bean
+	public IdempotencyStore<ArticleDAO> articleCreateIdempotency(
+			IdempotencyKeyRepository repository,
+			ArticleRepository articleRepository,
+			PlatformTransactionManager transactionManager,
+			@Value("${blog.idempotency.max-size:10000}") int maxSize,
+			@Value("${blog.idempotency.ttl-seconds:86400}") long ttlSeconds,
+			@Value("${blog.idempotency.pending-ttl-seconds:60}") long pendingTtlSeconds) {
+
+		return new IdempotencyStore<>(maxSize, ttlSeconds * 1000,
+				new ArticleIdempotencyRecords(repository, articleRepository, transactionManager,
+						ttlSeconds * 1000, pendingTtlSeconds * 1000));
+	}
+}
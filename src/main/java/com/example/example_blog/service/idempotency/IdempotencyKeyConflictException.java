@@ -0,0 +1,9 @@
+package com.example.example_blog.service.idempotency;
+
+/**
+ * 冪等キーが別の内容の書き込みで使用済みの例外
+ * 同じ冪等キーで、最初とは違う内容の書き込みが送られた場合にスローする。
+ * @author Chiba
+ */
+public class IdempotencyKeyConflictException extends Exception {
+}
@@ -0,0 +1,70 @@
+package com.example.example_blog.service.idempotency;
+
+/**
+ * 全てのサーバで共有する冪等キーの記録
+ * 同じキーを最初に登録できたサーバだけが書き込みを実行し、他のサーバはその結果を返す。
+ * @author Chiba
+ * @param <V> 結果の型
+ */
+public interface IdempotencyRecords<V> {
+
+	/**
+	 * 登録済みの冪等キーの内容
+	 * @param <V> 結果の型
+	 */
+	public static final class Record<V> {
+
+		//要求内容の指紋
+		private final String fingerprint;
+
+		//書き込みの結果 書き込み中はnull
+		private final V value;
+
+		/**
+		 * コンストラクタ
+		 * @param fingerprint 要求内容の指紋
+		 * @param value 書き込みの結果 書き込み中はnull
+		 */
+		public Record(String fingerprint, V value) {
+			this.fingerprint = fingerprint;
+			this.value = value;
+		}
+
+		//要求内容の指紋のゲッタ
+		public String getFingerprint() {
+			return fingerprint;
+		}
+
+		//書き込みの結果のゲッタ
+		public V getValue() {
+			return value;
+		}
+	}
+
+	/**
+	 * 冪等キーを書き込み中として登録する
+	 * @param key 冪等キー
+	 * @param fingerprint 要求内容の指紋
+	 * @return 登録できた場合はnull 登録済みの場合は登録済みの内容
+	 */
+	public Record<V> register(String key, String fingerprint);
+
+	/**
+	 * 書き込みを実行し、同じトランザクションで書き込みの結果を記録する
+	 * 書き込みと記録のどちらかが失敗した場合は、どちらも行われない。
+	 * @param <E> 書き込み時にスローされる例外の型
+	 * @param key 書き込み中として登録した冪等キー
+	 * @param action 書き込み
+	 * @return 書き込みの結果
+	 * @throws E 書き込みに失敗したときにスローする例外
+	 */
+	public <E extends Exception> V execute(String key, IdempotencyStore.Action<V, E> action) throws E;
+
+	/**
+	 * 書き込み中の登録を取り消す
+	 * 書き込みに失敗した場合に、再送を受け付けられるようにする。
+	 * 結果を記録済みの登録は取り消さない。
+	 * @param key 冪等キー
+	 */
+	public void remove(String key);
+}
@@ -0,0 +1,316 @@
+package com.example.example_blog.service.idempotency;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 冪等キーごとに書き込みの結果を保持するストア
+ * 同じ冪等キーの書き込みが再送された場合は、書き込みを実行せずに最初の結果を返す。
+ * 件数が上限を超えた場合は最も古いものから破棄し、有効期限を過ぎたものは参照時に破棄する。
+ * 共有する記録（IdempotencyRecords）を指定した場合は、他のサーバに送られた同じキーの書き込みも1回だけ実行する。
+ * @author Chiba
+ * @param <V> 結果の型
+ */
+/*
+ * 二重送信では、最初の書き込みが終わる前に同じキーの書き込みが届く。
+ * キーを登録した時点で結果のFutureを格納しておき、後から届いたものはFutureの完了を待って同じ結果を返す。
+ * 最初の書き込みが失敗した場合は何も書き込まれていないので、キーを取り除いて、待っていたものに書き込みをやり直させる。
+ *
+ * サーバ内の二重送信はこのストアのFutureで待ち合わせ、共有する記録にはキーごとに1つのスレッドだけが問い合わせる。
+ * 他のサーバで書き込み中の場合は、記録が作成済みになるか、書き込み中の有効期間が過ぎて削除されるまで問い合わせを繰り返す。
+ */
+public class IdempotencyStore<V> {
+
+	/**
+	 * 冪等キーで保護する書き込み
+	 * @param <V> 結果の型
+	 * @param <E> 書き込み時にスローされる例外の型
+	 */
+	public interface Action<V, E extends Exception> {
+
+		/**
+		 * 書き込みを実行する
+		 * @return 書き込みの結果
+		 * @throws E 書き込みに失敗したときにスローする例外
+		 */
+		V execute() throws E;
+	}
+
+	//ストアの1件分 要求内容の指紋・結果・有効期限を保持する
+	private static class Entry<V> {
+
+		private final String fingerprint;
+
+		private final CompletableFuture<V> result = new CompletableFuture<>();
+
+		private final long expiresAt;
+
+		Entry(String fingerprint, long expiresAt) {
+			this.fingerprint = fingerprint;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * 冪等キーの最大文字数
+	 */
+	public static final int MAX_KEY_SIZE = 255;
+
+	//他のサーバで書き込み中の場合に、記録を問い合わせ直す間隔（ミリ秒）
+	private static final long SHARED_POLL_MILLIS = 50;
+
+	//最大件数
+	private final int maxSize;
+
+	//有効期間（ミリ秒）
+	private final long ttlMillis;
+
+	//有効期間は全て同じなので、登録順に並べれば先頭が最も古いものになる
+	private final LinkedHashMap<String, Entry<V>> map;
+
+	//全てのサーバで共有する記録 nullの場合はこのサーバ内だけで判定する
+	private final IdempotencyRecords<V> records;
+
+	//書き込みを実行した回数
+	private long executeCount;
+
+	//書き込みを実行せずに最初の結果を返した回数
+	private long replayCount;
+
+	/**
+	 * コンストラクタ
+	 * @param maxSize 最大件数
+	 * @param ttlMillis 有効期間（ミリ秒） 再送されうる期間より長くする
+	 */
+	public IdempotencyStore(int maxSize, long ttlMillis) {
+		this(maxSize, ttlMillis, null);
+	}
+
+	/**
+	 * 全てのサーバで共有する記録を使用するコンストラクタ
+	 * @param maxSize 最大件数
+	 * @param ttlMillis 有効期間（ミリ秒） 再送されうる期間より長くする
+	 * @param records 全てのサーバで共有する記録 nullの場合はこのサーバ内だけで判定する
+	 */
+	public IdempotencyStore(int maxSize, long ttlMillis, IdempotencyRecords<V> records) {
+
+		//最大件数が1未満でないことを確認する。
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("最大件数が1未満です");
+		}
+
+		//有効期間が1未満でないことを確認する。
+		if (ttlMillis < 1) {
+			throw new IllegalArgumentException("有効期間が1未満です");
+		}
+
+		this.maxSize = maxSize;
+		this.ttlMillis = ttlMillis;
+		this.records = records;
+		this.map = new LinkedHashMap<String, Entry<V>>() {
+
+			//匿名クラスの中では Entry が継承した Map.Entry を指すので、このクラスの Entry はクラス名で修飾する
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, IdempotencyStore.Entry<V>> eldest) {
+
+				//最大件数を超えたら最も古いものを破棄する
+				return size() > IdempotencyStore.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * 冪等キーが初めてなら書き込みを実行し、登録済みなら最初の結果を返す
+	 * @param <E> 書き込み時にスローされる例外の型
+	 * @param key 冪等キー
+	 * @param fingerprint 要求内容の指紋（{@link #fingerprint(Object...)}） 同じキーで違う内容が送られていないかの確認に使う
+	 * @param action 書き込み
+	 * @return 書き込みの結果
+	 * @throws E 書き込みに失敗したときにスローする例外 この場合は結果を保持しない
+	 * @throws IdempotencyKeyConflictException 同じキーで違う内容の書き込みが登録済みの場合
+	 */
+	public <E extends Exception> V execute(String key, String fingerprint, Action<V, E> action)
+			throws E, IdempotencyKeyConflictException {
+
+		//冪等キーがnullでも空値でもないことを確認する。
+		if (key == null || key.equals("")) {
+			throw new IllegalArgumentException("冪等キーがnullもしくは空値です");
+		}
+
+		//冪等キーの最大文字数チェック
+		if (key.length() > MAX_KEY_SIZE) {
+			throw new IllegalArgumentException("冪等キーが" + MAX_KEY_SIZE + "字より多いです");
+		}
+
+		//要求内容の指紋がnullでないことを確認する。
+		if (fingerprint == null) {
+			throw new IllegalArgumentException("要求内容の指紋がnullです");
+		}
+
+		while (true) {
+			Entry<V> entry;
+			boolean owner = false;
+
+			synchronized (this) {
+				entry = map.get(key);
+
+				//有効期限切れなら破棄する
+				if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+					map.remove(key);
+					entry = null;
+				}
+
+				if (entry == null) {
+					//初めてのキーなら登録して、このスレッドが書き込みを実行する
+					entry = new Entry<>(fingerprint, System.currentTimeMillis() + ttlMillis);
+					map.put(key, entry);
+					owner = true;
+
+				} else if (!entry.fingerprint.equals(fingerprint)) {
+					//同じキーで違う内容が送られた場合は、最初の結果を返しても要求と合わない
+					throw new IdempotencyKeyConflictException();
+
+				} else {
+					replayCount++;
+				}
+			}
+
+			if (owner) {
+				return executeOwned(key, entry, fingerprint, action);
+			}
+
+			try {
+				//最初の書き込みが終わるのを待って同じ結果を返す
+				return entry.result.join();
+
+			} catch (CancellationException e) {
+				//最初の書き込みが失敗した場合は、登録からやり直す
+			}
+		}
+	}
+
+	//キーを登録したスレッドで書き込みを実行する
+	private <E extends Exception> V executeOwned(String key, Entry<V> entry, String fingerprint, Action<V, E> action)
+			throws E, IdempotencyKeyConflictException {
+
+		boolean completed = false;
+
+		try {
+			V value = (records != null) ? executeShared(key, fingerprint, action) : executeAction(action);
+			entry.result.complete(value);
+			completed = true;
+			return value;
+
+		} finally {
+			if (!completed) {
+				//何も書き込まれていないので、キーを取り除いて再送を受け付ける
+				synchronized (this) {
+					map.remove(key, entry);
+				}
+				entry.result.cancel(false);
+			}
+		}
+	}
+
+	//共有する記録に登録できた場合だけ書き込みを実行し、他のサーバで登録済みの場合はその結果を返す
+	private <E extends Exception> V executeShared(String key, String fingerprint, Action<V, E> action)
+			throws E, IdempotencyKeyConflictException {
+
+		while (true) {
+			IdempotencyRecords.Record<V> record = records.register(key, fingerprint);
+
+			if (record == null) {
+				try {
+					//書き込みと結果の記録は1つのトランザクションで行う
+					return records.execute(key, () -> executeAction(action));
+
+				} catch (Throwable e) {
+					/*
+					 * 書き込みと結果の記録はどちらも取り消されているので、登録を取り消して再送を受け付ける
+					 * コミットの成否が分からない場合でも、結果を記録済みの登録は取り消されない
+					 */
+					records.remove(key);
+					throw e;
+				}
+			}
+
+			if (!record.getFingerprint().equals(fingerprint)) {
+				throw new IdempotencyKeyConflictException();
+			}
+
+			if (record.getValue() != null) {
+				synchronized (this) {
+					replayCount++;
+				}
+				return record.getValue();
+			}
+
+			//他のサーバで書き込み中
+			try {
+				Thread.sleep(SHARED_POLL_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("他のサーバの書き込みの完了を待つ間に割り込まれました", e);
+			}
+		}
+	}
+
+	//書き込みを実行する
+	private <E extends Exception> V executeAction(Action<V, E> action) throws E {
+		synchronized (this) {
+			executeCount++;
+		}
+		return action.execute();
+	}
+
+	/**
+	 * 要求内容の指紋を作成する
+	 * 各項目の文字数と内容をつなげた文字列のSHA-256を16進数にする。
+	 * 文字数を含めるので、項目の区切りが違うだけの内容が同じ指紋になることはない。
+	 * @param values 要求内容の項目 nullの項目はnullとして区別する
+	 * @return 要求内容の指紋（64文字）
+	 */
+	public static String fingerprint(Object... values) {
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			//SHA-256は全てのJavaの実装で使用できる
+			throw new IllegalStateException(e);
+		}
+
+		for (Object value : values) {
+			String text = (value != null) ? value.toString() : null;
+			String field = (text != null) ? text.length() + ":" + text : "-1:";
+			digest.update(field.getBytes(StandardCharsets.UTF_8));
+		}
+
+		StringBuilder hex = new StringBuilder(64);
+		for (byte b : digest.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+
+		return hex.toString();
+	}
+
+	//現在の件数のゲッタ
+	public synchronized int size() {
+		return map.size();
+	}
+
+	//書き込みを実行した回数のゲッタ
+	public synchronized long getExecuteCount() {
+		return executeCount;
+	}
+
+	//最初の結果を返した回数のゲッタ
+	public synchronized long getReplayCount() {
+		return replayCount;
+	}
+}
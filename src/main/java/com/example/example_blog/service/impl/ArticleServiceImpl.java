@@ -1,103 +1,264 @@
 package com.example.example_blog.service.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.example_blog.repository.ArticleCursor;
 import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.ArticleEvent;
+import com.example.example_blog.repository.ArticleEventRepository;
+import com.example.example_blog.repository.ArticleEventType;
+import com.example.example_blog.repository.ArticleField;
+import com.example.example_blog.repository.ArticlePage;
 import com.example.example_blog.repository.ArticleRepository;
+import com.example.example_blog.repository.ArticleSummaryPage;
 import com.example.example_blog.repository.NoArticleFoundException;
+import com.example.example_blog.repository.SearchCursor;
+import com.example.example_blog.repository.SearchPage;
+import com.example.example_blog.repository.Tag;
+import com.example.example_blog.repository.TagRepository;
+import com.example.example_blog.repository.VersionMismatchException;
+import com.example.example_blog.search.ArticleSearchIndex;
 import com.example.example_blog.service.AcquisitionFailedException;
 import com.example.example_blog.service.ArticleService;
+import com.example.example_blog.service.ContentVersion;
 import com.example.example_blog.service.DeleteFailedException;
+import com.example.example_blog.service.UpdateConflictException;
 import com.example.example_blog.service.UpdateFailedException;
+import com.example.example_blog.service.WriteQueueFullException;
+import com.example.example_blog.service.cache.ArticleCache;
+import com.example.example_blog.service.queue.ArticleWriteQueue;
+import com.example.example_blog.service.validation.ArticleCommand;
+import com.example.example_blog.service.validation.ArticleError;
+import com.example.example_blog.service.validation.ArticleValidationException;
+import com.example.example_blog.service.validation.ArticleValidator;
 
 /**
  * 記事管理サービスの実装クラス
  * @author Chiba
  */
+/*
+ * 記事の書き込みメソッドは、記事の行と変更イベントの行を同じトランザクションで書き込む（トランザクショナルアウトボックス）。
+ * 記事だけが書き込まれてイベントが失われたり、ロールバックされた変更のイベントが残ったりしない。
+ *
+ * 書き込みの入力チェックは ArticleValidator で1回だけ行う。文字列を受け取るメソッドはチェックして ArticleCommand を作り、
+ * ArticleCommand を受け取るメソッドとリポジトリはチェックを繰り返さない。
+ */
 @Service
 public class ArticleServiceImpl implements ArticleService {
 
 	@Autowired
 	ArticleRepository repository;
 
-	//タイトルの最大文字数
-	private final int MAX_TITLE_SIZE = 30;
+	@Autowired
+	ArticleCache cache;
+
+	@Autowired
+	ArticleEventRepository events;
+
+	@Autowired
+	TagRepository tagRepository;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	ArticleValidator validator;
+
+	//メモリ上の検索インデックス blog.search.engine=memory の場合だけ存在する
+	@Autowired(required = false)
+	ArticleSearchIndex searchIndex;
+
+	//記事の追加の書き込み待ちの列 blog.write-behind.enabled=true の場合だけ存在する
+	@Autowired(required = false)
+	ArticleWriteQueue writeQueue;
 
-	//本文の最大文字数
-	private final int MAX_CONTENT_SIZE = 1000;
+	//1ページあたりの最大記事数
+	private final int MAX_PAGE_SIZE = 100;
+
+	//1件ずつ処理する場合の最大記事数
+	private final int MAX_STREAM_SIZE = 1000;
+
+	//タグの一覧に表示する最大タグ数
+	private final int MAX_TAG_LIST_SIZE = 50;
 
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void addArticle(String title, String content) {
+	@Transactional
+	public ArticleDAO addArticle(String title, String content) {
+		return addArticle(validator.validate(title, content));
+	}
 
-		//タイトルがnullでも空値でもないことを確認する。
-		if (title == null || title.equals("")) {
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional
+	public ArticleDAO addArticle(String title, String content, Set<String> tags) {
 
-			// この例外メッセージは画面表示には使用しないが、例外発生時の原因調査に使えるので書いておく
-			throw new IllegalArgumentException("タイトルがnullもしくは空値です");
+		//タグ名がnullでないことを確認する。nullはタグを変更しない意味になるので、追加では受け付けない
+		if (tags == null) {
+			throw new IllegalArgumentException("タグ名がnullです");
 		}
 
-		//本文がnullでも空値でもないことを確認する。
-		if (content == null || content.equals("")) {
-			throw new IllegalArgumentException("本文がnullもしくは空値です");
-		}
+		return addArticle(validator.validate(title, content, tags));
+	}
 
-		//タイトルの最大文字数チェック
-		if (title.length() > MAX_TITLE_SIZE) {
-			throw new IllegalArgumentException("タイトルが" + MAX_TITLE_SIZE + "字より多いです");
-		}
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional
+	public ArticleDAO addArticle(ArticleCommand command) {
+
+		//記事を追加
+		ArticleDAO article = repository.addArticle(command.getTitle(), command.getContent());
 
-		//本文の最大文字数チェック
-		if (content.length() > MAX_CONTENT_SIZE) {
-			throw new IllegalArgumentException("本文が" + MAX_TITLE_SIZE + "字より多いです");
+		//タグを付ける
+		if (command.getTags() != null && !command.getTags().isEmpty()) {
+			tagRepository.setArticleTags(article.getId(), article.getDate(), command.getTags());
 		}
 
-		//記事を追加
-		repository.addArticle(title, content);
+		//変更イベントを追加
+		events.append(ArticleEventType.CREATED, article);
 
+		return articleAdded(article);
 	}
 
+	/*
+	 * 書き込み待ちの列がない場合は、呼び出したスレッドで追加して完了済みのFutureを返す。
+	 * 呼び出し元は、どちらの場合もFutureの完了を待てば追加後の記事を受け取れる。
+	 */
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void modifyArticle(int id, String title, String content) throws UpdateFailedException {
+	public CompletableFuture<ArticleDAO> submitArticle(String title, String content) throws WriteQueueFullException {
 
-		//タイトルがnullでも空値でもないことを確認する。
-		if (title == null || title.equals("")) {
-			throw new IllegalArgumentException("タイトルがnullもしくは空値です");
+		//入力チェック 列に入れてから失敗すると、まとめた他の記事まで追加できなくなる
+		return submitArticle(validator.validate(title, content));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompletableFuture<ArticleDAO> submitArticle(ArticleCommand command) throws WriteQueueFullException {
+
+		//書き込み待ちの列を使用しない場合と、記事とタグを1つのトランザクションで追加する場合
+		//呼び出し元のトランザクション中の場合も、列では別のトランザクションになってしまうので、ここで追加する
+		//自分自身の呼び出しには @Transactional が効かないので、トランザクションを明示的に開始する
+		if (writeQueue == null || (command.getTags() != null && !command.getTags().isEmpty())
+				|| TransactionSynchronizationManager.isActualTransactionActive()) {
+			ArticleDAO article = new TransactionTemplate(transactionManager).execute(status -> addArticle(command));
+			return CompletableFuture.completedFuture(article);
 		}
 
-		//本文がnullでも空値でもないことを確認する。
-		if (content == null || content.equals("")) {
-			throw new IllegalArgumentException("本文がnullもしくは空値です");
+		//追加が終わったら、記事ごとにキャッシュの無効化と検索インデックスへの追加をする
+		return writeQueue.submit(command.getTitle(), command.getContent()).thenApply(this::articleAdded);
+	}
+
+	/**
+	 * 記事を追加した後の処理
+	 * @param article 追加した記事
+	 * @return 追加した記事
+	 */
+	private ArticleDAO articleAdded(ArticleDAO article) {
+
+		//記事一覧のキャッシュを無効化
+		cache.articleAdded();
+
+		//コミット後に検索インデックスに反映
+		if (searchIndex != null) {
+			searchIndex.followAfterCommit();
 		}
 
-		//タイトルの最大文字数チェック
-		if (title.length() > MAX_TITLE_SIZE) {
-			throw new IllegalArgumentException("タイトルが" + MAX_TITLE_SIZE + "字より多いです");
+		return article;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional
+	public int addArticles(Collection<ArticleDAO> articles) {
+
+		//記事のコレクションがnullでないことを確認する。
+		if (articles == null) {
+			throw new IllegalArgumentException("記事のコレクションがnullです");
 		}
 
-		//本文の最大文字数チェック
-		if (content.length() > MAX_CONTENT_SIZE) {
-			throw new IllegalArgumentException("本文が" + MAX_TITLE_SIZE + "字より多いです");
+		//入力チェック 1件でも通らなければ1件も追加しない
+		for (ArticleDAO article : articles) {
+			ArticleError error = validator.check(article.getTitle(), article.getContent());
+			if (error != null) {
+				throw new ArticleValidationException(error, validator.getMessage(error));
+			}
 		}
 
-		//IDが1未満でないことを確認する。
-		if (id < 1) {
-			throw new IllegalArgumentException("IDが1未満です");
+		//追加前の最大ID これより後のイベントのない記事が、今回追加した記事になる
+		int maxId = repository.getMaxId();
+
+		//記事をまとめて追加
+		int count = repository.addArticles(new ArrayList<>(articles));
+
+		//変更イベントを追加
+		events.appendCreatedAfter(maxId);
+
+		//記事一覧のキャッシュを無効化
+		cache.articleAdded();
+
+		//コミット後に検索インデックスに反映 採番されたIDは変更イベントから分かる
+		if (searchIndex != null) {
+			searchIndex.followAfterCommit();
 		}
 
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional
+	public ArticleDAO modifyArticle(int id, String title, String content) throws UpdateFailedException {
+
+		//入力チェック
+		ArticleCommand command = validator.validate(title, content);
+		validator.requireValidId(id);
+
 
 		try {
 			//記事の更新
-			repository.modifyArticle(id, title, content);
+			ArticleDAO article = repository.modifyArticle(id, command.getTitle(), command.getContent());
+
+			//変更イベントを追加
+			events.append(ArticleEventType.MODIFIED, article);
+
+			//コミット後に検索インデックスの記事を置き換え
+			if (searchIndex != null) {
+				searchIndex.followAfterCommit();
+			}
+
+			return article;
 
 		} catch (NoArticleFoundException e) {
 			//指定されたIDの記事が見つからなかった場合
@@ -106,8 +267,109 @@ public class ArticleServiceImpl implements ArticleService {
 			 * こうすることで、例外が発生したときにどこで発生したのか、大元をたどって探すことができる
 			 */
 			throw new UpdateFailedException(e);
+
+		} finally {
+			/*
+			 * 更新件数が0件でも、他の経路で削除された記事がキャッシュに残っている可能性があるので、
+			 * 成否にかかわらずキャッシュを無効化する
+			 */
+			cache.articleChanged(id);
+		}
+
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional
+	public ArticleDAO modifyArticle(int id, int version, String title, String content)
+			throws UpdateFailedException, UpdateConflictException {
+
+		//タグは変更しない
+		return modifyArticle(id, version, validator.validate(title, content));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional
+	public ArticleDAO modifyArticle(int id, int version, String title, String content, Set<String> tags)
+			throws UpdateFailedException, UpdateConflictException {
+
+		//タグ名がnullでないことを確認する。nullはタグを変更しない意味になるので、ここでは受け付けない
+		if (tags == null) {
+			throw new IllegalArgumentException("タグ名がnullです");
+		}
+
+		return modifyArticle(id, version, validator.validate(title, content, tags));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional
+	public ArticleDAO modifyArticle(int id, int version, ArticleCommand command)
+			throws UpdateFailedException, UpdateConflictException {
+
+		//IDが1未満でないことを確認する。書き込み内容はチェック済み
+		validator.requireValidId(id);
+
+		try {
+			//版番号が一致する場合だけ記事を更新
+			ArticleDAO article = repository.modifyArticle(id, version, command.getTitle(), command.getContent());
+
+			//タグを付け替える 記事の行ロックを取った後なので、同じ記事のタグを同時に付け替えることはない
+			if (command.getTags() != null) {
+				tagRepository.setArticleTags(article.getId(), article.getDate(), command.getTags());
+			}
+
+			//変更イベントを追加
+			events.append(ArticleEventType.MODIFIED, article);
+
+			//コミット後に検索インデックスの記事を置き換え
+			if (searchIndex != null) {
+				searchIndex.followAfterCommit();
+			}
+
+			return article;
+
+		} catch (NoArticleFoundException e) {
+			//指定されたIDの記事が見つからなかった場合
+			throw new UpdateFailedException(e);
+
+		} catch (VersionMismatchException e) {
+			//取得してから更新するまでに、他の更新が行われていた場合
+			throw new UpdateConflictException(e);
+
+		} finally {
+			//更新できなかった場合も、キャッシュに古い版の記事が残っている可能性があるので無効化する
+			cache.articleChanged(id);
 		}
+	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<String> getArticleTags(int id) {
+
+		//IDが1未満でないことを確認する。
+		validator.requireValidId(id);
+
+		return tagRepository.getTagNames(id);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Tag> getTags() {
+
+		//タグの一覧の取得 キャッシュになければデータベースから取得する
+		return cache.getTags(() -> tagRepository.getTags(MAX_TAG_LIST_SIZE));
 	}
 
 	/**
@@ -117,13 +379,11 @@ public class ArticleServiceImpl implements ArticleService {
 	public ArticleDAO getArticle(int id) throws AcquisitionFailedException {
 
 		//IDが1未満でないことを確認する。
-		if (id < 1) {
-			throw new IllegalArgumentException("IDが1未満です");
-		}
+		validator.requireValidId(id);
 
 		try {
-			//記事の取得
-			ArticleDAO dao = repository.getArticle(id);
+			//記事の取得 キャッシュになければデータベースから取得する
+			ArticleDAO dao = cache.getArticle(id, () -> repository.getArticle(id));
 
 			//記事の返却
 			return dao;
@@ -140,8 +400,8 @@ public class ArticleServiceImpl implements ArticleService {
 	@Override
 	public List<ArticleDAO> getAllArticles() {
 
-		//記事リストの取得
-		List<ArticleDAO> daoList = repository.getAllArticles();
+		//記事リストの取得 キャッシュになければデータベースから取得する
+		List<ArticleDAO> daoList = cache.getAllArticles(() -> repository.getAllArticles());
 
 		//記事リストの返却
 		return daoList;
@@ -151,21 +411,310 @@ public class ArticleServiceImpl implements ArticleService {
 	 * {@inheritDoc}
 	 */
 	@Override
+	public ArticlePage getArticlesAfter(ArticleCursor cursor, int size) {
+
+		//1ページあたりの記事数が範囲内であることを確認する。
+		if (size < 1 || size > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("1ページあたりの記事数が1未満もしくは" + MAX_PAGE_SIZE + "より多いです");
+		}
+
+		//ページの取得 キャッシュになければデータベースから取得する
+		ArticlePage page = cache.getPage("after", cursor, size, () -> repository.getArticlesAfter(cursor, size));
+
+		//ページの返却
+		return page;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ArticleCursor forEachArticleAfter(ArticleCursor cursor, int size, Set<ArticleField> fields,
+			Consumer<ArticleDAO> action) {
+
+		//記事数が1未満もしくは最大数より多くないことを確認する。
+		if (size < 1 || size > MAX_STREAM_SIZE) {
+			throw new IllegalArgumentException("記事数が1未満もしくは" + MAX_STREAM_SIZE + "より多いです");
+		}
+
+		//項目がnullでないことを確認する。
+		if (fields == null) {
+			throw new IllegalArgumentException("項目がnullです");
+		}
+
+		//続きがあるかを判定するため1件多く取得し、最後の1件は処理せずに続きのカーソルにする
+		int[] count = { 0 };
+		ArticleDAO[] last = { null };
+		boolean[] hasNext = { false };
+
+		repository.forEachArticleAfter(cursor, size + 1, fields, article -> {
+			if (count[0]++ < size) {
+				action.accept(article);
+				last[0] = article;
+			} else {
+				hasNext[0] = true;
+			}
+		});
+
+		return hasNext[0] ? ArticleCursor.of(last[0]) : null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ArticlePage getArticlesBefore(ArticleCursor cursor, int size) {
+
+		//1ページあたりの記事数が範囲内であることを確認する。
+		if (size < 1 || size > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("1ページあたりの記事数が1未満もしくは" + MAX_PAGE_SIZE + "より多いです");
+		}
+
+		//カーソルがnullでないことを確認する。
+		if (cursor == null) {
+			throw new IllegalArgumentException("カーソルがnullです");
+		}
+
+		//ページの取得 キャッシュになければデータベースから取得する
+		ArticlePage page = cache.getPage("before", cursor, size, () -> repository.getArticlesBefore(cursor, size));
+
+		//ページの返却
+		return page;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ArticleSummaryPage getArticleSummariesAfter(ArticleCursor cursor, int size, int excerptLength) {
+
+		//1ページあたりの記事数が範囲内であることを確認する。
+		if (size < 1 || size > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("1ページあたりの記事数が1未満もしくは" + MAX_PAGE_SIZE + "より多いです");
+		}
+
+		//抜粋の文字数が範囲内であることを確認する。
+		if (excerptLength < 1 || excerptLength > validator.getMaxContentSize()) {
+			throw new IllegalArgumentException("抜粋の文字数が1未満もしくは" + validator.getMaxContentSize() + "より多いです");
+		}
+
+		//ページの取得 キャッシュになければデータベースから取得する
+		ArticleSummaryPage page = cache.getSummaryPage("after", cursor, size, excerptLength,
+				() -> repository.getArticleSummariesAfter(cursor, size, excerptLength));
+
+		//ページの返却
+		return page;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ArticleSummaryPage getArticleSummariesBefore(ArticleCursor cursor, int size, int excerptLength) {
+
+		//1ページあたりの記事数が範囲内であることを確認する。
+		if (size < 1 || size > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("1ページあたりの記事数が1未満もしくは" + MAX_PAGE_SIZE + "より多いです");
+		}
+
+		//抜粋の文字数が範囲内であることを確認する。
+		if (excerptLength < 1 || excerptLength > validator.getMaxContentSize()) {
+			throw new IllegalArgumentException("抜粋の文字数が1未満もしくは" + validator.getMaxContentSize() + "より多いです");
+		}
+
+		//カーソルがnullでないことを確認する。
+		if (cursor == null) {
+			throw new IllegalArgumentException("カーソルがnullです");
+		}
+
+		//ページの取得 キャッシュになければデータベースから取得する
+		ArticleSummaryPage page = cache.getSummaryPage("before", cursor, size, excerptLength,
+				() -> repository.getArticleSummariesBefore(cursor, size, excerptLength));
+
+		//ページの返却
+		return page;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ArticleSummaryPage getArticleSummariesByTagsAfter(Set<String> tags, ArticleCursor cursor, int size,
+			int excerptLength) {
+
+		//入力チェック
+		validateTagFilter(tags, size, excerptLength);
+
+		//ページの取得 キャッシュになければデータベースから取得する
+		ArticleSummaryPage page = cache.getSummaryPage("after:" + tagFilterKey(tags), cursor, size, excerptLength,
+				() -> {
+					List<Integer> tagIds = resolveTagFilter(tags);
+					return (tagIds != null)
+							? repository.getArticleSummariesByTagsAfter(tagIds, cursor, size, excerptLength)
+							: new ArticleSummaryPage(Collections.emptyList(), null, null);
+				});
+
+		//ページの返却
+		return page;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ArticleSummaryPage getArticleSummariesByTagsBefore(Set<String> tags, ArticleCursor cursor, int size,
+			int excerptLength) {
+
+		//入力チェック
+		validateTagFilter(tags, size, excerptLength);
+
+		//カーソルがnullでないことを確認する。
+		if (cursor == null) {
+			throw new IllegalArgumentException("カーソルがnullです");
+		}
+
+		//ページの取得 キャッシュになければデータベースから取得する
+		ArticleSummaryPage page = cache.getSummaryPage("before:" + tagFilterKey(tags), cursor, size, excerptLength,
+				() -> {
+					List<Integer> tagIds = resolveTagFilter(tags);
+					return (tagIds != null)
+							? repository.getArticleSummariesByTagsBefore(tagIds, cursor, size, excerptLength)
+							: new ArticleSummaryPage(Collections.emptyList(), null, null);
+				});
+
+		//ページの返却
+		return page;
+	}
+
+	//タグで絞り込む場合の入力チェック
+	private void validateTagFilter(Set<String> tags, int size, int excerptLength) {
+
+		//タグ名が1つ以上あることを確認する。
+		if (tags == null || tags.isEmpty()) {
+			throw new IllegalArgumentException("タグ名がnullもしくは空です");
+		}
+
+		//絞り込むタグの最大数チェック
+		if (tags.size() > validator.getMaxTagCount()) {
+			throw new IllegalArgumentException(validator.getMessage(ArticleError.TOO_MANY_TAGS));
+		}
+
+		//1ページあたりの記事数が範囲内であることを確認する。
+		if (size < 1 || size > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("1ページあたりの記事数が1未満もしくは" + MAX_PAGE_SIZE + "より多いです");
+		}
+
+		//抜粋の文字数が範囲内であることを確認する。
+		if (excerptLength < 1 || excerptLength > validator.getMaxContentSize()) {
+			throw new IllegalArgumentException("抜粋の文字数が1未満もしくは" + validator.getMaxContentSize() + "より多いです");
+		}
+	}
+
+	//キャッシュのキーにする絞り込みの条件 タグの指定順によらず同じキーにする
+	private String tagFilterKey(Set<String> tags) {
+		return "tags=" + String.join(",", new TreeSet<>(tags));
+	}
+
+	/**
+	 * タグ名をタグのIDに変換する
+	 * 記事数の少ないタグから辿るほど読み飛ばす記事が少ないので、記事数の少ない順に並べる。
+	 * @param tags タグ名
+	 * @return タグのIDのリスト 存在しないタグが含まれる場合は、該当する記事がないのでnull
+	 */
+	private List<Integer> resolveTagFilter(Set<String> tags) {
+
+		List<Tag> found = tagRepository.getTagsByName(tags);
+
+		if (found.size() < tags.size()) {
+			return null;
+		}
+
+		return found.stream()
+				.sorted(Comparator.comparingInt(Tag::getArticleCount))
+				.map(Tag::getId)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SearchPage searchArticles(String query, SearchCursor cursor, int size) {
+
+		//検索キーワードがnullでも空値でもないことを確認する。
+		if (query == null || query.equals("")) {
+			throw new IllegalArgumentException("検索キーワードがnullもしくは空値です");
+		}
+
+		//1ページあたりの記事数が範囲内であることを確認する。
+		if (size < 1 || size > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("1ページあたりの記事数が1未満もしくは" + MAX_PAGE_SIZE + "より多いです");
+		}
+
+		/*
+		 * 検索キーワードの組み合わせは無数にあり、キャッシュしても再利用されにくいので、
+		 * キャッシュを通さずに検索する
+		 * メモリ上の検索インデックスがある場合はデータベースに問い合わせない
+		 */
+		SearchPage page = (searchIndex != null)
+				? searchIndex.search(query, cursor, size)
+				: repository.searchArticles(query, cursor, size);
+
+		//検索結果の返却
+		return page;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional
 	public void deleteArticle(int id) throws DeleteFailedException {
 
 		//IDが1未満でないことを確認する。
-		if (id < 1) {
-			throw new IllegalArgumentException("IDが1未満です");
-		}
+		validator.requireValidId(id);
 
 		try {
 			//削除の実行
-			repository.deleteArticle(id);
+			ArticleDAO deleted = repository.deleteArticle(id);
+
+			//タグを外して記事数を減らす 記事の行を削除した後なので、同じ記事のタグの付け替えとは競合しない
+			tagRepository.removeArticleTags(id);
+
+			//変更イベントを追加
+			events.append(ArticleEventType.DELETED, deleted);
+
+			//コミット後に検索インデックスから取り除く
+			if (searchIndex != null) {
+				searchIndex.followAfterCommit();
+			}
 
 		} catch (NoArticleFoundException e) {
 			//指定されたIDの記事が見つからなかった場合
 			throw new DeleteFailedException(e);
 
+		} finally {
+			//削除した記事と記事一覧のキャッシュを無効化
+			cache.articleChanged(id);
 		}
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ContentVersion getContentVersion() {
+
+		//変更イベントは記事の書き込みと同じトランザクションで追加されるので、最新の通し番号を版にする
+		ArticleEvent latest = events.getLatestEvent();
+
+		ContentVersion version = (latest != null)
+				? new ContentVersion(latest.getSeq(), latest.getOccurredAt().getTime())
+				: new ContentVersion(0, -1);
+
+		//他のノードで書き込まれていれば、一覧のキャッシュを読み込み直させる
+		cache.observeVersion(version.getVersion());
+
+		return version;
+	}
 }
@@ -0,0 +1,61 @@
+package com.example.example_blog.service.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.example_blog.repository.ArticleCursor;
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.NoArticleFoundException;
+import com.example.example_blog.repository.ReactiveArticleRepository;
+import com.example.example_blog.service.AcquisitionFailedException;
+import com.example.example_blog.service.ReactiveArticleService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * ノンブロッキングの記事管理サービスを実装するクラス
+ * @author Chiba
+ */
+/*
+ * 記事キャッシュは読み込み時にスレッドを止めて待つので、ここでは使用しない。
+ */
+@Service
+public class ReactiveArticleServiceImpl implements ReactiveArticleService {
+
+	@Autowired
+	ReactiveArticleRepository repository;
+
+	//1ページあたりの最大記事数
+	private final int MAX_PAGE_SIZE = 100;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Mono<ArticleDAO> getArticle(int id) {
+
+		//IDが1未満でないことを確認する。
+		if (id < 1) {
+			throw new IllegalArgumentException("IDが1未満です");
+		}
+
+		//見つからなかった場合は ArticleService と同じ例外にする
+		return repository.getArticle(id)
+				.switchIfEmpty(Mono.error(() -> new AcquisitionFailedException(new NoArticleFoundException())));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Flux<ArticleDAO> getArticlesAfter(ArticleCursor cursor, int size) {
+
+		//1ページあたりの記事数が範囲内であることを確認する。
+		if (size < 1 || size > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("1ページあたりの記事数が1未満もしくは" + MAX_PAGE_SIZE + "より多いです");
+		}
+
+		return repository.getArticlesAfter(cursor, size);
+	}
+}
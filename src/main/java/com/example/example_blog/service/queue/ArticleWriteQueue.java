@@ -0,0 +1,283 @@
+package com.example.example_blog.service.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.ArticleEventRepository;
+import com.example.example_blog.repository.ArticleEventType;
+import com.example.example_blog.repository.ArticleRepository;
+import com.example.example_blog.service.WriteQueueClosedException;
+import com.example.example_blog.service.WriteQueueFullException;
+
+/**
+ * 記事の追加の書き込み待ちの列
+ * blog.write-behind.enabled=true の場合だけ有効になる。
+ * 追加する記事を上限のある列にためておき、書き込み用のスレッドが一定件数または一定時間ごとにまとめて追加する。
+ * 呼び出し元には、追加が終わったときに完了するCompletableFutureを返す。
+ * @author Chiba
+ */
+/*
+ * 記事の作成が集中すると、リクエストごとに接続を取得して1行ずつINSERT・コミットするので、接続プールの空き待ちになる。
+ * 書き込み用のスレッドが1つの接続で複数の記事を1つのSQL文・1回のコミットで追加すれば（グループコミット）、
+ * 接続の使用数とコミットの回数は記事数ではなくまとめた回数になる。
+ *
+ * 列が満杯の場合は一定時間だけ空きを待ち、空かなければ WriteQueueFullException で断る（背圧）。
+ * 列を無制限にすると、データベースが追いつかない間にメモリを使い果たし、応答時間も際限なく伸びる。
+ */
+@Component
+@ConditionalOnProperty(name = "blog.write-behind.enabled", havingValue = "true")
+public class ArticleWriteQueue {
+
+	private static final Logger logger = LoggerFactory.getLogger(ArticleWriteQueue.class);
+
+	@Autowired
+	ArticleRepository repository;
+
+	@Autowired
+	ArticleEventRepository events;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	//列にためられる最大記事数
+	@Value("${blog.write-behind.capacity:1000}")
+	int capacity;
+
+	//1回にまとめて追加する最大記事数
+	@Value("${blog.write-behind.batch-size:100}")
+	int batchSize;
+
+	//最初の記事を受け取ってから追加するまでに、後続の記事を待つ最大時間（ミリ秒）
+	@Value("${blog.write-behind.max-delay-millis:5}")
+	long maxDelayMillis;
+
+	//列が満杯のときに空きを待つ最大時間（ミリ秒）
+	@Value("${blog.write-behind.offer-timeout-millis:100}")
+	long offerTimeoutMillis;
+
+	//停止時に残りの記事の追加を待つ最大時間（ミリ秒）
+	@Value("${blog.write-behind.shutdown-timeout-millis:10000}")
+	long shutdownTimeoutMillis;
+
+	private BlockingQueue<PendingArticle> queue;
+
+	private Thread flusher;
+
+	//記事と変更イベントを同じトランザクションで追加する
+	private TransactionTemplate transactionTemplate;
+
+	//停止処理が始まったか 以降の記事は受け付けない
+	private volatile boolean closed = false;
+
+	@PostConstruct
+	void start() {
+
+		//最大記事数が1未満でないことを確認する。
+		if (capacity < 1 || batchSize < 1) {
+			throw new IllegalArgumentException("列の最大記事数もしくはまとめる記事数が1未満です");
+		}
+
+		queue = new ArrayBlockingQueue<>(capacity);
+		transactionTemplate = new TransactionTemplate(transactionManager);
+
+		flusher = new Thread(this::run, "article-write-behind");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	/**
+	 * 記事の追加を受け付ける
+	 * 入力チェックは呼び出し元で済ませておく。
+	 * @param title 記事のタイトル
+	 * @param content 記事の本文
+	 * @return 追加が終わったときに、追加した記事オブジェクトで完了するFuture
+	 * @throws WriteQueueFullException 列が満杯で、待っても空かなかった場合
+	 * @throws WriteQueueClosedException 停止処理中で、列が記事を受け付けなかった場合 Futureもこの例外で失敗することがある
+	 */
+	public CompletableFuture<ArticleDAO> submit(String title, String content) throws WriteQueueFullException {
+
+		if (closed) {
+			throw new WriteQueueClosedException("書き込み待ちの列は停止しています");
+		}
+
+		PendingArticle pending = new PendingArticle(title, content);
+
+		try {
+			if (!queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new WriteQueueFullException("書き込み待ちの列が満杯です");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new WriteQueueFullException("書き込み待ちの列の空きを待つ間に割り込まれました");
+		}
+
+		/*
+		 * 停止の確認と列への追加の間に停止処理が列を空にし終えていると、この記事のFutureは誰にも完了されない
+		 * 追加した後に停止を確認し直し、まだ列に残っていれば取り除いて断る
+		 * 取り除けなかった場合は、書き込み用のスレッドか停止処理が取り出していて、そちらでFutureを完了させる
+		 */
+		if (closed && queue.remove(pending)) {
+			throw new WriteQueueClosedException("書き込み待ちの列は停止しています");
+		}
+
+		return pending.future;
+	}
+
+	/**
+	 * 列にたまっている記事数を取得する
+	 * @return 記事数
+	 */
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	/**
+	 * 停止する
+	 * 新しい記事は受け付けず、列に残っている記事を追加し終わるまで待つ。
+	 * 待ちきれなかった記事のFutureは例外で完了させる。
+	 */
+	@PreDestroy
+	void close() {
+		closed = true;
+
+		try {
+			flusher.join(shutdownTimeoutMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		//時間内に追加できなかった記事と、停止の直前に受け付けた記事
+		List<PendingArticle> rest = new ArrayList<>();
+		queue.drainTo(rest);
+
+		if (!rest.isEmpty()) {
+			logger.warn("停止までに追加できなかった記事が{}件あります", rest.size());
+
+			for (PendingArticle pending : rest) {
+				pending.future.completeExceptionally(new WriteQueueClosedException("停止したため記事を追加できませんでした"));
+			}
+		}
+	}
+
+	//書き込み用のスレッドの処理 停止後は列が空になるまで追加を続ける
+	private void run() {
+
+		List<PendingArticle> batch = new ArrayList<>(batchSize);
+
+		while (true) {
+			try {
+				//最初の記事を待つ 停止を確認できるように待ち時間を区切る
+				PendingArticle first = queue.poll(100, TimeUnit.MILLISECONDS);
+
+				if (first == null) {
+					if (closed) {
+						return;
+					}
+					continue;
+				}
+
+				batch.add(first);
+
+				//すでにたまっている記事をまとめて取り出し、足りなければ最大時間まで後続の記事を待つ
+				queue.drainTo(batch, batchSize - batch.size());
+
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+
+				while (batch.size() < batchSize && !closed) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						break;
+					}
+
+					PendingArticle next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+
+					batch.add(next);
+					queue.drainTo(batch, batchSize - batch.size());
+				}
+
+				flush(batch);
+
+			} catch (InterruptedException e) {
+				//停止時の待機の中断 列に残った記事は close で例外にする
+				return;
+
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	//まとめて追加し、それぞれのFutureを完了させる
+	private void flush(List<PendingArticle> batch) {
+
+		List<ArticleDAO> articles = new ArrayList<>(batch.size());
+
+		for (PendingArticle pending : batch) {
+			ArticleDAO article = new ArticleDAO();
+			article.setTitle(pending.title);
+			article.setContent(pending.content);
+			articles.add(article);
+		}
+
+		List<ArticleDAO> added;
+
+		try {
+			//記事と変更イベントを1回のコミットで追加する
+			added = transactionTemplate.execute(status -> {
+				List<ArticleDAO> result = repository.addArticlesReturning(articles);
+				events.appendAll(ArticleEventType.CREATED, result);
+				return result;
+			});
+
+		} catch (RuntimeException e) {
+			//1つのトランザクションで追加しているので、失敗した場合はまとめた記事が全て追加されていない
+			logger.error("記事をまとめて追加できませんでした（{}件）", batch.size(), e);
+
+			for (PendingArticle pending : batch) {
+				pending.future.completeExceptionally(e);
+			}
+			return;
+		}
+
+		for (int i = 0; i < batch.size(); i++) {
+			batch.get(i).future.complete(added.get(i));
+		}
+	}
+
+	/**
+	 * 追加を待っている記事
+	 */
+	private static final class PendingArticle {
+
+		final String title;
+
+		final String content;
+
+		final CompletableFuture<ArticleDAO> future = new CompletableFuture<>();
+
+		PendingArticle(String title, String content) {
+			this.title = title;
+			this.content = content;
+		}
+	}
+}
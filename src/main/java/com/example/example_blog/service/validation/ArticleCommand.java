@@ -0,0 +1,48 @@
+package com.example.example_blog.service.validation;
+
+import java.util.Set;
+
+/**
+ * 入力チェック済みの記事の書き込み内容
+ * {@link ArticleValidator} だけが作成するので、このオブジェクトを受け取った層は入力チェックを繰り返さない。
+ * @author Chiba
+ */
+public final class ArticleCommand {
+
+	//記事のタイトル
+	private final String title;
+
+	//記事の本文
+	private final String content;
+
+	//記事に付けるタグ名 nullの場合はタグを変更しない
+	private final Set<String> tags;
+
+	/**
+	 * コンストラクタ
+	 * 入力チェックを済ませた値だけを渡す。
+	 * @param title 記事のタイトル
+	 * @param content 記事の本文
+	 * @param tags 記事に付けるタグ名 nullの場合はタグを変更しない
+	 */
+	ArticleCommand(String title, String content, Set<String> tags) {
+		this.title = title;
+		this.content = content;
+		this.tags = tags;
+	}
+
+	//タイトルのゲッタ
+	public String getTitle() {
+		return title;
+	}
+
+	//本文のゲッタ
+	public String getContent() {
+		return content;
+	}
+
+	//タグ名のゲッタ nullの場合はタグを変更しない
+	public Set<String> getTags() {
+		return tags;
+	}
+}
@@ -0,0 +1,64 @@
+package com.example.example_blog.service.validation;
+
+/**
+ * 記事の入力チェックのエラー
+ * エラーの原因となった項目と、メッセージの書式を持つ。
+ * 書式の %d には、エラーに対応する上限値（最大文字数・最大タグ数）が入る。
+ * @author Chiba
+ */
+public enum ArticleError {
+
+	//IDが1未満
+	ID_INVALID("id", "IDが1未満です", "対象の記事が存在しません。"),
+
+	//タイトルがnullもしくは空値
+	TITLE_EMPTY("title", "タイトルがnullもしくは空値です", "タイトルが入力されていません。"),
+
+	//本文がnullもしくは空値
+	CONTENT_EMPTY("content", "本文がnullもしくは空値です", "本文が入力されていません。"),
+
+	//タイトルが最大文字数より多い
+	TITLE_TOO_LONG("title", "タイトルが%d字より多いです", "タイトルは%d字以内で入力してください。"),
+
+	//本文が最大文字数より多い
+	CONTENT_TOO_LONG("content", "本文が%d字より多いです", "本文は%d字以内で入力してください。"),
+
+	//タグが最大数より多い
+	TOO_MANY_TAGS("tags", "タグが%d個より多いです", "タグは%d個以内で入力してください。"),
+
+	//タグ名がnullもしくは空値
+	TAG_EMPTY("tags", "タグ名がnullもしくは空値です", "タグ名が入力されていません。"),
+
+	//タグ名が最大文字数より多い
+	TAG_TOO_LONG("tags", "タグ名が%d字より多いです", "タグは1つ%d字以内で入力してください。");
+
+	//エラーの原因となった項目名
+	private final String field;
+
+	//例外メッセージの書式 原因調査用
+	private final String messageFormat;
+
+	//画面に表示するメッセージの書式
+	private final String formMessageFormat;
+
+	private ArticleError(String field, String messageFormat, String formMessageFormat) {
+		this.field = field;
+		this.messageFormat = messageFormat;
+		this.formMessageFormat = formMessageFormat;
+	}
+
+	//項目名のゲッタ
+	public String getField() {
+		return field;
+	}
+
+	//例外メッセージの書式のゲッタ
+	String getMessageFormat() {
+		return messageFormat;
+	}
+
+	//画面に表示するメッセージの書式のゲッタ
+	String getFormMessageFormat() {
+		return formMessageFormat;
+	}
+}
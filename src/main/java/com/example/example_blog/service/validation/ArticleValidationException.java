@@ -0,0 +1,27 @@
+package com.example.example_blog.service.validation;
+
+/**
+ * 記事の入力チェックが通らなかった例外
+ * 入力値の不正として扱えるよう IllegalArgumentException を継承し、エラーの種類を保持する。
+ * @author Chiba
+ */
+public class ArticleValidationException extends IllegalArgumentException {
+
+	//入力チェックのエラー
+	private final ArticleError error;
+
+	/**
+	 * コンストラクタ
+	 * @param error 入力チェックのエラー
+	 * @param message 例外メッセージ
+	 */
+	public ArticleValidationException(ArticleError error, String message) {
+		super(message);
+		this.error = error;
+	}
+
+	//入力チェックのエラーのゲッタ
+	public ArticleError getError() {
+		return error;
+	}
+}
@@ -0,0 +1,239 @@
+package com.example.example_blog.service.validation;
+
+import java.util.Set;
+
+/**
+ * 記事の入力チェック
+ * コントローラ・サービス・リポジトリで繰り返していた記事の入力チェックを1か所にまとめる。
+ * 書き込みの入口で1回だけチェックして {@link ArticleCommand} を作成し、それ以降の層はチェックしない。
+ * @author Chiba
+ */
+/*
+ * 上限値は起動時にテーブルの定義から読み込んで int のフィールドに持ち、
+ * チェックは比較を並べただけにする（アノテーションやリフレクションを使った検証は行わない）。
+ * エラーはenumの定数で返し、メッセージも起動時に組み立てておくので、
+ * チェックが通る場合も通らない場合も、チェック自体ではオブジェクトを作らない。
+ */
+public class ArticleValidator {
+
+	//タイトルの最大文字数
+	private final int maxTitleSize;
+
+	//本文の最大文字数
+	private final int maxContentSize;
+
+	//タグ名の最大文字数
+	private final int maxTagSize;
+
+	//1つの記事に付けられる最大タグ数
+	private final int maxTagCount;
+
+	//エラーごとの例外メッセージ enumの順番で並べる
+	private final String[] messages;
+
+	//エラーごとの画面に表示するメッセージ enumの順番で並べる
+	private final String[] formMessages;
+
+	/**
+	 * コンストラクタ
+	 * @param maxTitleSize タイトルの最大文字数
+	 * @param maxContentSize 本文の最大文字数
+	 * @param maxTagSize タグ名の最大文字数
+	 * @param maxTagCount 1つの記事に付けられる最大タグ数
+	 */
+	public ArticleValidator(int maxTitleSize, int maxContentSize, int maxTagSize, int maxTagCount) {
+
+		//上限値が1未満でないことを確認する。
+		if (maxTitleSize < 1 || maxContentSize < 1 || maxTagSize < 1 || maxTagCount < 1) {
+			throw new IllegalArgumentException("入力チェックの上限値が1未満です");
+		}
+
+		this.maxTitleSize = maxTitleSize;
+		this.maxContentSize = maxContentSize;
+		this.maxTagSize = maxTagSize;
+		this.maxTagCount = maxTagCount;
+
+		//メッセージは上限値を埋め込んで組み立てておく
+		ArticleError[] errors = ArticleError.values();
+		messages = new String[errors.length];
+		formMessages = new String[errors.length];
+
+		for (ArticleError error : errors) {
+			int limit = limitOf(error);
+			messages[error.ordinal()] = String.format(error.getMessageFormat(), limit);
+			formMessages[error.ordinal()] = String.format(error.getFormMessageFormat(), limit);
+		}
+	}
+
+	//エラーに対応する上限値
+	private int limitOf(ArticleError error) {
+		switch (error) {
+		case TITLE_TOO_LONG:
+			return maxTitleSize;
+		case CONTENT_TOO_LONG:
+			return maxContentSize;
+		case TOO_MANY_TAGS:
+			return maxTagCount;
+		case TAG_TOO_LONG:
+			return maxTagSize;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * 記事のタイトルと本文をチェックする
+	 * @param title 記事のタイトル
+	 * @param content 記事の本文
+	 * @return 最初に見つかったエラー 問題がなければnull
+	 */
+	public ArticleError check(String title, String content) {
+
+		//タイトルがnullでも空値でもないことを確認する。
+		if (title == null || title.isEmpty()) {
+			return ArticleError.TITLE_EMPTY;
+		}
+
+		//本文がnullでも空値でもないことを確認する。
+		if (content == null || content.isEmpty()) {
+			return ArticleError.CONTENT_EMPTY;
+		}
+
+		//タイトルの最大文字数チェック
+		if (title.length() > maxTitleSize) {
+			return ArticleError.TITLE_TOO_LONG;
+		}
+
+		//本文の最大文字数チェック
+		if (content.length() > maxContentSize) {
+			return ArticleError.CONTENT_TOO_LONG;
+		}
+
+		return null;
+	}
+
+	/**
+	 * 記事に付けるタグ名をチェックする
+	 * @param tags 記事に付けるタグ名 nullの場合はタグを変更しないものとしてチェックしない
+	 * @return 最初に見つかったエラー 問題がなければnull
+	 */
+	public ArticleError checkTags(Set<String> tags) {
+
+		if (tags == null) {
+			return null;
+		}
+
+		//タグ数の最大数チェック
+		if (tags.size() > maxTagCount) {
+			return ArticleError.TOO_MANY_TAGS;
+		}
+
+		for (String tag : tags) {
+
+			//タグ名がnullでも空値でもないことを確認する。
+			if (tag == null || tag.isEmpty()) {
+				return ArticleError.TAG_EMPTY;
+			}
+
+			//タグ名の最大文字数チェック
+			if (tag.length() > maxTagSize) {
+				return ArticleError.TAG_TOO_LONG;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * 記事のIDをチェックする
+	 * @param id 記事のID
+	 * @return エラー 問題がなければnull
+	 */
+	public ArticleError checkId(int id) {
+
+		//IDが1未満でないことを確認する。
+		return (id < 1) ? ArticleError.ID_INVALID : null;
+	}
+
+	/**
+	 * タグを変更しない記事の書き込み内容をチェックする
+	 * @param title 記事のタイトル
+	 * @param content 記事の本文
+	 * @return 入力チェック済みの書き込み内容
+	 * @throws ArticleValidationException 入力チェックが通らなかった場合
+	 */
+	public ArticleCommand validate(String title, String content) {
+		return validate(title, content, null);
+	}
+
+	/**
+	 * 記事の書き込み内容をチェックする
+	 * @param title 記事のタイトル
+	 * @param content 記事の本文
+	 * @param tags 記事に付けるタグ名 nullの場合はタグを変更しない
+	 * @return 入力チェック済みの書き込み内容
+	 * @throws ArticleValidationException 入力チェックが通らなかった場合
+	 */
+	public ArticleCommand validate(String title, String content, Set<String> tags) {
+
+		ArticleError error = check(title, content);
+		if (error == null) {
+			error = checkTags(tags);
+		}
+
+		if (error != null) {
+			throw new ArticleValidationException(error, getMessage(error));
+		}
+
+		return new ArticleCommand(title, content, tags);
+	}
+
+	/**
+	 * 記事のIDをチェックし、不正な場合は例外をスローする
+	 * @param id 記事のID
+	 * @throws ArticleValidationException IDが1未満の場合
+	 */
+	public void requireValidId(int id) {
+		if (id < 1) {
+			throw new ArticleValidationException(ArticleError.ID_INVALID, getMessage(ArticleError.ID_INVALID));
+		}
+	}
+
+	/**
+	 * エラーの例外メッセージを返す 原因調査用
+	 * @param error 入力チェックのエラー
+	 * @return 上限値を含むメッセージ
+	 */
+	public String getMessage(ArticleError error) {
+		return messages[error.ordinal()];
+	}
+
+	/**
+	 * エラーの画面に表示するメッセージを返す
+	 * @param error 入力チェックのエラー
+	 * @return 上限値を含むメッセージ
+	 */
+	public String getFormMessage(ArticleError error) {
+		return formMessages[error.ordinal()];
+	}
+
+	//タイトルの最大文字数のゲッタ
+	public int getMaxTitleSize() {
+		return maxTitleSize;
+	}
+
+	//本文の最大文字数のゲッタ
+	public int getMaxContentSize() {
+		return maxContentSize;
+	}
+
+	//タグ名の最大文字数のゲッタ
+	public int getMaxTagSize() {
+		return maxTagSize;
+	}
+
+	//1つの記事に付けられる最大タグ数のゲッタ
+	public int getMaxTagCount() {
+		return maxTagCount;
+	}
+}
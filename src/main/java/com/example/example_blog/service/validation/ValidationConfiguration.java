@@ -0,0 +1,34 @@
+package com.example.example_blog.service.validation;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.example_blog.repository.SchemaRepository;
+
+/**
+ * 入力チェックの設定
+ * タイトル・本文・タグ名の最大文字数は、マイグレーションで作成したテーブルの列の定義から読み込む。
+ * 列の長さを変えるマイグレーションを追加すれば、入力チェックも合わせて変わる。
+ * @author Chiba
+ */
+@Configuration
+public class ValidationConfiguration {
+
+	/**
+	 * 記事の入力チェック
+	 * @param schemaRepository スキーマ情報のリポジトリ
+	 * @param maxTagCount 1つの記事に付けられる最大タグ数 テーブルの定義にはないので設定で指定する
+	 * @return 記事の入力チェック
+	 */
+	@Bean
+	public ArticleValidator articleValidator(SchemaRepository schemaRepository,
+			@Value("${blog.article.max-tag-count:10}") int maxTagCount) {
+
+		return new ArticleValidator(
+				schemaRepository.getMaxLength("articles", "title"),
+				schemaRepository.getMaxLength("articles", "content"),
+				schemaRepository.getMaxLength("tags", "name"),
+				maxTagCount);
+	}
+}
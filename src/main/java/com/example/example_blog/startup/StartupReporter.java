@@ -0,0 +1,27 @@
+package com.example.example_blog.startup;
+
+import java.lang.management.ManagementFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * 起動にかかった時間を出力する
+ * JVMの起動から、リクエストを受け付けられるようになるまで（ApplicationReadyEvent）の時間をログに出力する。
+ * @author Chiba
+ */
+public class StartupReporter implements ApplicationListener<ApplicationReadyEvent> {
+
+	private static final Logger logger = LoggerFactory.getLogger(StartupReporter.class);
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+
+		//JVMの起動からの経過時間
+		long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+
+		logger.info("起動しました（JVMの起動から{}ミリ秒）", uptime);
+	}
+}
@@ -0,0 +1,12 @@
+-- 記事のテーブル
+-- 以前の schema.sql で作成済みのデータベースでも実行できるよう、既存のものは作り直さない
+
+CREATE TABLE IF NOT EXISTS articles (
+  id serial PRIMARY KEY,
+  title varchar(30) NOT NULL,
+  date timestamptz NOT NULL,
+  content varchar(1000) NOT NULL
+);
+
+-- 記事一覧のキーセットページング用 (投稿日, ID) の複合インデックス
+CREATE INDEX IF NOT EXISTS articles_date_id_idx ON articles (date DESC, id DESC);
@@ -0,0 +1,15 @@
+-- 記事の全文検索
+
+-- 全文検索用に、文字列を2文字ずつ区切って空白でつないだ文字列にする
+-- 日本語は単語の間に空白がないため、2文字ずつの語を検索の単位にする
+CREATE OR REPLACE FUNCTION articles_bigram(t text) RETURNS text AS $$
+  SELECT CASE WHEN length(t) < 2 THEN lower(t)
+    ELSE array_to_string(ARRAY(SELECT substr(lower(t), i, 2) FROM generate_series(1, length(t) - 1) AS i), ' ')
+  END
+$$ LANGUAGE sql IMMUTABLE STRICT;
+
+ALTER TABLE articles ADD COLUMN IF NOT EXISTS search_vector tsvector
+  GENERATED ALWAYS AS (to_tsvector('simple', articles_bigram(title || ' ' || content))) STORED;
+
+-- 全文検索用のGINインデックス
+CREATE INDEX IF NOT EXISTS articles_search_idx ON articles USING gin (search_vector);
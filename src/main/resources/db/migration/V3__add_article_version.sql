@@ -0,0 +1,2 @@
+-- 楽観的排他制御用の版番号 更新のたびに1ずつ増やす
+ALTER TABLE articles ADD COLUMN IF NOT EXISTS version integer NOT NULL DEFAULT 0;
@@ -0,0 +1,14 @@
+-- 記事の変更イベント（トランザクショナルアウトボックス）
+-- 記事の追加・更新・削除と同じトランザクションで1行追加する
+-- seq はコミット順に増える（追加時に pg_advisory_xact_lock で直列化している）ので、利用者は seq の続きから読めばよい
+CREATE TABLE IF NOT EXISTS article_events (
+  seq bigserial PRIMARY KEY,
+  article_id integer NOT NULL,
+  type varchar(10) NOT NULL,
+  version integer NOT NULL,
+  occurred_at timestamptz NOT NULL DEFAULT now()
+);
+
+-- まとめて追加した記事のイベントの重複確認と、古いイベントの削除用
+CREATE INDEX IF NOT EXISTS article_events_article_id_idx ON article_events (article_id);
+CREATE INDEX IF NOT EXISTS article_events_occurred_at_idx ON article_events (occurred_at);
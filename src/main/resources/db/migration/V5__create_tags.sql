@@ -0,0 +1,26 @@
+-- タグのテーブル
+-- article_count はタグの付いた記事数 記事の書き込み時に増減させ、一覧の表示のたびに数えない
+CREATE TABLE IF NOT EXISTS tags (
+  id serial PRIMARY KEY,
+  name varchar(30) NOT NULL UNIQUE,
+  article_count integer NOT NULL DEFAULT 0
+);
+
+-- 記事とタグの対応（多対多）
+-- 記事の投稿日を複製して持ち、主キーを (タグ, 投稿日, 記事ID) にすることで、
+-- タグで絞り込んだ記事一覧を、主キーのインデックスを投稿日の降順に辿るだけで取得できる（記事のテーブルは結果の行だけ読む）
+-- 記事の投稿日は更新しないので、複製した投稿日が記事と食い違うことはない
+-- 記事の削除では、記事の行を削除してからタグを外して記事数を減らす（記事の更新と行ロックを取る順番をそろえる）ので、
+-- 記事への外部キーの確認はコミット時まで遅らせる
+CREATE TABLE IF NOT EXISTS article_tags (
+  tag_id integer NOT NULL REFERENCES tags (id),
+  article_date timestamptz NOT NULL,
+  article_id integer NOT NULL REFERENCES articles (id) DEFERRABLE INITIALLY DEFERRED,
+  PRIMARY KEY (tag_id, article_date, article_id)
+);
+
+-- 記事に付いたタグの取得と、複数のタグで絞り込む場合の他のタグの確認用
+CREATE INDEX IF NOT EXISTS article_tags_article_id_idx ON article_tags (article_id, tag_id);
+
+-- タグの一覧を記事数の多い順に表示する用
+CREATE INDEX IF NOT EXISTS tags_article_count_idx ON tags (article_count DESC, name);
@@ -0,0 +1,5 @@
+-- 記事の変更イベントに記事の投稿日を持たせる
+-- 投稿日は変更しないので、(投稿日, ID) で記事一覧のどの位置の記事かが分かる
+-- 削除のイベントでも、削除した記事が一覧のどこにあったかを記事のテーブルを見ずに求められる
+-- 追加前のイベントは投稿日が分からないのでnullのままにする
+ALTER TABLE article_events ADD COLUMN IF NOT EXISTS article_date timestamptz;
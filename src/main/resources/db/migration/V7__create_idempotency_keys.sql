@@ -0,0 +1,13 @@
+-- 記事の作成の冪等キー
+-- どのサーバに再送されても記事を1回だけ追加するために、キーを主キーにして最初に登録できたサーバだけが作成する
+-- 作成中は article_id がnull 作成が終わったら追加した記事のIDを設定する
+-- fingerprint は要求内容のSHA-256（16進数） 同じキーで違う内容が送られていないかの確認に使う
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+  idempotency_key varchar(255) PRIMARY KEY,
+  fingerprint char(64) NOT NULL,
+  article_id integer,
+  created_at timestamptz NOT NULL DEFAULT now()
+);
+
+-- 有効期限切れのキーの削除用
+CREATE INDEX IF NOT EXISTS idempotency_keys_created_at_idx ON idempotency_keys (created_at);
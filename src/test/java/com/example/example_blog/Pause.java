@@ -0,0 +1,93 @@
+package com.example.example_blog;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 処理を途中で止めておくテスト用の道具
+ * 止めたい処理の中で pause() を呼び、submit() で別のスレッドで実行する。
+ * awaitPaused() で止まるのを待ってから他の処理を割り込ませ、release() で続きを実行させる。
+ * 待ち合わせは時間ではなく、ラッチと数え上げた回数で行う。
+ */
+public final class Pause implements AutoCloseable {
+
+	//待つ最大時間（秒） 超えた場合はテストを失敗させる
+	private static final long TIMEOUT_SECONDS = 5;
+
+	private final CountDownLatch paused = new CountDownLatch(1);
+
+	private final CountDownLatch released = new CountDownLatch(1);
+
+	private final ExecutorService executor;
+
+	/**
+	 * コンストラクタ
+	 * @param threads 同時に実行する処理の数
+	 */
+	public Pause(int threads) {
+		executor = Executors.newFixedThreadPool(threads);
+	}
+
+	/**
+	 * 処理を別のスレッドで実行する
+	 * @param <T> 結果の型
+	 * @param task 処理
+	 * @return 処理の結果
+	 */
+	public <T> Future<T> submit(Callable<T> task) {
+		return executor.submit(task);
+	}
+
+	/**
+	 * 止めたい処理の中で呼ぶ release() が呼ばれるまで戻らない
+	 * @throws InterruptedException 待つ間に割り込まれた場合
+	 */
+	public void pause() throws InterruptedException {
+		paused.countDown();
+		released.await();
+	}
+
+	/**
+	 * 処理が pause() に達するまで待つ
+	 * @throws InterruptedException 待つ間に割り込まれた場合
+	 */
+	public void awaitPaused() throws InterruptedException {
+		if (!paused.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+			throw new AssertionError("処理が止める位置に達しませんでした");
+		}
+	}
+
+	/**
+	 * 止めていた処理の続きを実行させる
+	 */
+	public void release() {
+		released.countDown();
+	}
+
+	/**
+	 * 条件が満たされるまで待つ 待ち始めたスレッドの数などを数えて確かめる場合に使う
+	 * @param condition 条件
+	 * @throws InterruptedException 待つ間に割り込まれた場合
+	 */
+	public static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() > deadline) {
+				throw new AssertionError("条件が満たされませんでした");
+			}
+			Thread.sleep(10);
+		}
+	}
+
+	@Override
+	public void close() {
+		released.countDown();
+		executor.shutdownNow();
+	}
+}
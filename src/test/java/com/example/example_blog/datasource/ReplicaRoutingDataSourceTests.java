@@ -0,0 +1,151 @@
+package com.example.example_blog.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * 読み込みをレプリカに振り分けるデータソースのテスト
+ * プライマリ・レプリカの代わりにH2のデータベースを起動し、
+ * どのデータベースで実行されたかを、データベースごとに異なる名前を登録したテーブルで確認する。
+ */
+class ReplicaRoutingDataSourceTests {
+
+	private EmbeddedDatabase primary;
+
+	private EmbeddedDatabase replica1;
+
+	private EmbeddedDatabase replica2;
+
+	//接続できないレプリカ
+	private DataSource unreachable;
+
+	@BeforeEach
+	void setUp() {
+		primary = createNode("primary");
+		replica1 = createNode("replica1");
+		replica2 = createNode("replica2");
+		unreachable = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/unreachable", "sa", "");
+	}
+
+	@AfterEach
+	void tearDown() {
+		ReadRoute.setPrimaryForced(false);
+		primary.shutdown();
+		replica1.shutdown();
+		replica2.shutdown();
+	}
+
+	@Test
+	void writesGoToPrimary() {
+		ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, Arrays.asList(replica1), 0);
+
+		assertEquals("primary", nodeName(dataSource));
+	}
+
+	@Test
+	void replicaReadsGoToReplica() {
+		ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, Arrays.asList(replica1), 0);
+
+		assertEquals("replica1", replicaRead(dataSource));
+	}
+
+	@Test
+	void replicaReadsAreBalancedAcrossReplicas() {
+		ReplicaRoutingDataSource dataSource =
+				new ReplicaRoutingDataSource(primary, Arrays.asList(replica1, replica2), 0);
+
+		String first = replicaRead(dataSource);
+		String second = replicaRead(dataSource);
+		String third = replicaRead(dataSource);
+
+		assertNotEquals(first, second);
+		assertNotEquals("primary", first);
+		assertNotEquals("primary", second);
+		assertEquals(first, third);
+	}
+
+	@Test
+	void replicaReadsGoToPrimaryRightAfterWrite() {
+		ReplicaRoutingDataSource dataSource =
+				new ReplicaRoutingDataSource(primary, Arrays.asList(replica1), 60_000);
+
+		dataSource.markWritten();
+
+		assertEquals("primary", replicaRead(dataSource));
+	}
+
+	@Test
+	void replicaReadsGoToPrimaryWhenForced() {
+		ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, Arrays.asList(replica1), 0);
+
+		ReadRoute.setPrimaryForced(true);
+
+		assertEquals("primary", replicaRead(dataSource));
+	}
+
+	@Test
+	void unreachableReplicaFallsBackToPrimary() {
+		ReplicaRoutingDataSource dataSource =
+				new ReplicaRoutingDataSource(primary, Collections.singletonList(unreachable), 0);
+
+		assertEquals("primary", replicaRead(dataSource));
+	}
+
+	@Test
+	void unhealthyReplicaIsSkipped() {
+		ReplicaRoutingDataSource dataSource =
+				new ReplicaRoutingDataSource(primary, Arrays.asList(unreachable, replica1), 0);
+
+		dataSource.checkHealth(1);
+
+		for (int i = 0; i < 4; i++) {
+			assertEquals("replica1", replicaRead(dataSource));
+		}
+	}
+
+	//データベースを起動し、名前を登録する
+	private static EmbeddedDatabase createNode(String name) {
+
+		EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2)
+				.generateUniqueName(true)
+				.build();
+
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+		jdbcTemplate.execute("CREATE TABLE node (name varchar(20))");
+		jdbcTemplate.update("INSERT INTO node (name) VALUES (?)", name);
+
+		return database;
+	}
+
+	//実行されたデータベースの名前
+	private static String nodeName(DataSource dataSource) {
+		List<String> names = new JdbcTemplate(dataSource).queryForList("SELECT name FROM node", String.class);
+		return names.get(0);
+	}
+
+	//レプリカでの読み込みとして実行されたデータベースの名前
+	private static String replicaRead(DataSource dataSource) {
+		ReadRoute.beginReplicaRead();
+		try {
+			return nodeName(dataSource);
+		} finally {
+			ReadRoute.endReplicaRead();
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package com.example.example_blog.export;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * 書き出すファイルの書き込みのテスト
+ * 一時ファイルを残さずに置き換わり、圧縮済みのファイルが同じ内容になることを確かめる。
+ */
+class StaticFileWriterTests {
+
+	@TempDir
+	Path root;
+
+	@Test
+	void writeReplacesFileWithoutLeavingTemporaryFiles() throws Exception {
+		Path target = root.resolve("page").resolve("1.html");
+
+		StaticFileWriter.write(target, bytes("old"));
+		StaticFileWriter.write(target, bytes("new"));
+
+		assertArrayEquals(bytes("new"), Files.readAllBytes(target));
+		try (Stream<Path> files = Files.list(target.getParent())) {
+			assertTrue(files.allMatch(target::equals));
+		}
+	}
+
+	@Test
+	void gzipSiblingHasSameContent() throws Exception {
+		Path target = root.resolve("index.html");
+
+		StaticFileWriter.writeWithGzip(target, bytes("<html>記事一覧</html>"));
+
+		assertArrayEquals(bytes("<html>記事一覧</html>"), gunzip(root.resolve("index.html.gz")));
+	}
+
+	@Test
+	void writtenFilesAreReadableByOtherUsers() throws Exception {
+		Assumptions.assumeTrue(root.getFileSystem().supportedFileAttributeViews().contains("posix"));
+
+		Path target = root.resolve("index.html");
+		StaticFileWriter.writeWithGzip(target, bytes("記事一覧"));
+
+		assertEquals(StaticFileWriter.FILE_PERMISSIONS, Files.getPosixFilePermissions(target));
+		assertEquals(StaticFileWriter.FILE_PERMISSIONS, Files.getPosixFilePermissions(root.resolve("index.html.gz")));
+	}
+
+	@Test
+	void deleteRemovesBothFiles() throws Exception {
+		Path target = root.resolve("article").resolve("1.html");
+		StaticFileWriter.writeWithGzip(target, bytes("記事"));
+
+		assertTrue(StaticFileWriter.delete(target));
+
+		assertFalse(Files.exists(target));
+		assertFalse(Files.exists(root.resolve("article").resolve("1.html.gz")));
+		assertFalse(StaticFileWriter.delete(target));
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] gunzip(Path file) throws IOException {
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		}
+	}
+}
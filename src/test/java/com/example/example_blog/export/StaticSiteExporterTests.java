@@ -0,0 +1,384 @@
+package com.example.example_blog.export;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.FileTemplateResolver;
+
+import com.example.example_blog.repository.ArticleCursor;
+import com.example.example_blog.repository.ArticleDAO;
+import com.example.example_blog.repository.ArticleEvent;
+import com.example.example_blog.repository.ArticleEventRepository;
+import com.example.example_blog.repository.ArticleEventType;
+import com.example.example_blog.repository.ArticleField;
+import com.example.example_blog.repository.ArticlePage;
+import com.example.example_blog.repository.ArticleRepository;
+import com.example.example_blog.repository.ArticleSummary;
+import com.example.example_blog.repository.ArticleSummaryPage;
+import com.example.example_blog.repository.NoArticleFoundException;
+import com.example.example_blog.repository.SearchCursor;
+import com.example.example_blog.repository.SearchPage;
+import com.example.example_blog.service.ArticleService;
+
+/**
+ * 静的ページの書き出しのテスト
+ * メモリ上の記事のリポジトリと、記事のIDだけを出力するテンプレートで書き出し、
+ * 変更イベントの反映で書き直されるページと、各ページに並ぶ記事を確かめる。
+ * 書き直されないページは、反映の前に削除しておいて作られないことで確かめる。
+ */
+class StaticSiteExporterTests {
+
+	@TempDir
+	Path directory;
+
+	private FakeArticleRepository repository;
+
+	private StaticSiteExporter exporter;
+
+	private Path root;
+
+	private long seq;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Path templates = Files.createDirectories(directory.resolve("templates"));
+		Files.write(templates.resolve("Show.html"), Arrays.asList(
+				"<ul><li th:each=\"article : ${articles}\" th:text=\"${article.id}\">0</li></ul>",
+				"<a id=\"next\" th:if=\"${nextHref != null}\" th:href=\"${nextHref}\">次へ</a>"),
+				StandardCharsets.UTF_8);
+		Files.write(templates.resolve("Article.html"), Collections.singletonList(
+				"<h1 th:text=\"${article.title}\">タイトル</h1>"), StandardCharsets.UTF_8);
+
+		FileTemplateResolver resolver = new FileTemplateResolver();
+		resolver.setPrefix(templates.toString() + "/");
+		resolver.setSuffix(".html");
+		resolver.setTemplateMode(TemplateMode.HTML);
+		resolver.setCharacterEncoding("UTF-8");
+
+		root = directory.resolve("site");
+		repository = new FakeArticleRepository();
+
+		exporter = new StaticSiteExporter();
+		exporter.repository = repository;
+		exporter.eventRepository = stub(ArticleEventRepository.class, 0L);
+		exporter.service = stub(ArticleService.class, Collections.emptyList());
+		exporter.templateResolvers = Collections.singletonList(resolver);
+		exporter.dir = root.toString();
+		exporter.basePath = "";
+		exporter.threads = 2;
+		exporter.batchSize = 500;
+		exporter.excerptLength = 200;
+		exporter.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		exporter.close();
+	}
+
+	@Test
+	void addedArticleAcrossPageBoundaryCreatesNewLastPage() throws IOException {
+		addArticles(40);
+		exporter.exportAll();
+		Files.delete(root.resolve("page/1.html"));
+
+		ArticleDAO added = repository.add("記事41");
+		assertTrue(exporter.apply(events(ArticleEventType.CREATED, added)));
+
+		assertEquals(range(41, 41), ids("page/3.html"));
+		assertEquals(range(40, 21), ids("page/2.html"));
+		assertFalse(Files.exists(root.resolve("page/1.html")));
+
+		//最後のページが1件でも、index.html には最新の20件を表示する
+		assertEquals(range(41, 22), ids("index.html"));
+		assertTrue(read("index.html").contains("href=\"/page/2.html\""));
+		assertTrue(Files.exists(root.resolve("article/41.html")));
+	}
+
+	@Test
+	void modifiedArticleRewritesOnlyItsPage() throws IOException {
+		addArticles(45);
+		exporter.exportAll();
+		Files.delete(root.resolve("page/2.html"));
+		Files.delete(root.resolve("page/3.html"));
+
+		ArticleDAO modified = repository.modify(3, "更新した記事");
+		assertTrue(exporter.apply(events(ArticleEventType.MODIFIED, modified)));
+
+		assertEquals(range(20, 1), ids("page/1.html"));
+		assertFalse(Files.exists(root.resolve("page/2.html")));
+		assertFalse(Files.exists(root.resolve("page/3.html")));
+		assertTrue(read("article/3.html").contains("更新した記事"));
+	}
+
+	@Test
+	void deletedArticleShiftsLaterPagesAndRemovesEmptyLastPage() throws IOException {
+		addArticles(41);
+		exporter.exportAll();
+		assertEquals(range(41, 41), ids("page/3.html"));
+
+		ArticleDAO deleted = repository.remove(5);
+		assertTrue(exporter.apply(events(ArticleEventType.DELETED, deleted)));
+
+		List<Integer> firstPage = range(21, 1);
+		firstPage.remove(Integer.valueOf(5));
+		assertEquals(firstPage, ids("page/1.html"));
+		assertEquals(range(41, 22), ids("page/2.html"));
+		assertFalse(Files.exists(root.resolve("page/3.html")));
+		assertFalse(Files.exists(root.resolve("article/5.html")));
+
+		//最後のページが20件ちょうどの場合は、index.html と最後のページは同じ記事になる
+		assertEquals(ids("page/2.html"), ids("index.html"));
+	}
+
+	private void addArticles(int count) {
+		for (int i = 1; i <= count; i++) {
+			repository.add("記事" + i);
+		}
+	}
+
+	private List<ArticleEvent> events(ArticleEventType type, ArticleDAO article) {
+		ArticleEvent event = new ArticleEvent();
+		event.setSeq(++seq);
+		event.setType(type);
+		event.setArticleId(article.getId());
+		event.setVersion(article.getVersion());
+		event.setArticleDate(article.getDate());
+		return Collections.singletonList(event);
+	}
+
+	//書き出したページに並ぶ記事のID
+	private List<Integer> ids(String file) throws IOException {
+		Matcher matcher = Pattern.compile("<li>(\\d+)</li>").matcher(read(file));
+		List<Integer> ids = new ArrayList<>();
+		while (matcher.find()) {
+			ids.add(Integer.parseInt(matcher.group(1)));
+		}
+		return ids;
+	}
+
+	private String read(String file) throws IOException {
+		return new String(Files.readAllBytes(root.resolve(file)), StandardCharsets.UTF_8);
+	}
+
+	//from から to まで順に並べたID 新しい順の場合は from を大きくする
+	private static List<Integer> range(int from, int to) {
+		List<Integer> ids = new ArrayList<>();
+		int step = (from <= to) ? 1 : -1;
+		for (int id = from; id != to + step; id += step) {
+			ids.add(id);
+		}
+		return ids;
+	}
+
+	//どのメソッドも同じ値を返すスタブ
+	private static <T> T stub(Class<T> type, Object value) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+				(proxy, method, args) -> value));
+	}
+
+	/**
+	 * メモリ上の記事のリポジトリ
+	 * 書き出しで使用するメソッドだけを実装する。記事の投稿日は追加した順に1秒ずつ進める。
+	 */
+	private static final class FakeArticleRepository implements ArticleRepository {
+
+		//古い順（投稿日の昇順・IDの昇順）
+		private static final Comparator<ArticleDAO> OLDEST_FIRST =
+				Comparator.comparing(ArticleDAO::getDate).thenComparingInt(ArticleDAO::getId);
+
+		private final Map<Integer, ArticleDAO> articles = new TreeMap<>();
+
+		private int maxId;
+
+		ArticleDAO add(String title) {
+			ArticleDAO article = new ArticleDAO();
+			article.setId(++maxId);
+			article.setTitle(title);
+			article.setContent(title + "の本文");
+			article.setDate(new Timestamp(maxId * 1000L));
+			article.setVersion(1);
+			articles.put(article.getId(), article);
+			return article;
+		}
+
+		ArticleDAO modify(int id, String title) {
+			ArticleDAO article = articles.get(id);
+			article.setTitle(title);
+			article.setVersion(article.getVersion() + 1);
+			return article;
+		}
+
+		ArticleDAO remove(int id) {
+			return articles.remove(id);
+		}
+
+		private List<ArticleDAO> oldestFirst() {
+			return articles.values().stream().sorted(OLDEST_FIRST).collect(Collectors.toList());
+		}
+
+		private static ArticleSummary summary(ArticleDAO article) {
+			ArticleSummary summary = new ArticleSummary();
+			summary.setId(article.getId());
+			summary.setTitle(article.getTitle());
+			summary.setDate(article.getDate());
+			summary.setExcerpt(article.getContent());
+			return summary;
+		}
+
+		private static boolean isBefore(ArticleDAO article, ArticleCursor cursor) {
+			int compared = article.getDate().compareTo(cursor.getDate());
+			return compared < 0 || (compared == 0 && article.getId() < cursor.getId());
+		}
+
+		@Override
+		public ArticleDAO getArticle(int id) throws NoArticleFoundException {
+			ArticleDAO article = articles.get(id);
+			if (article == null) {
+				throw new NoArticleFoundException();
+			}
+			return article;
+		}
+
+		@Override
+		public void forEachArticle(int afterId, Consumer<ArticleDAO> action) {
+			articles.values().stream().filter(article -> article.getId() > afterId).forEach(action);
+		}
+
+		@Override
+		public ArticleSummaryPage getArticleSummariesAfter(ArticleCursor cursor, int size, int excerptLength) {
+			List<ArticleDAO> newestFirst = oldestFirst();
+			Collections.reverse(newestFirst);
+			List<ArticleSummary> summaries = newestFirst.stream()
+					.filter(article -> cursor == null || isBefore(article, cursor))
+					.limit(size).map(FakeArticleRepository::summary).collect(Collectors.toList());
+			return new ArticleSummaryPage(summaries, null, null);
+		}
+
+		@Override
+		public List<ArticleSummary> getOldestArticleSummaries(int offset, int size, int excerptLength) {
+			return oldestFirst().stream().skip(offset).limit(size).map(FakeArticleRepository::summary)
+					.collect(Collectors.toList());
+		}
+
+		@Override
+		public List<ArticleSummary> getArticleSummariesNewerThan(ArticleCursor cursor, int size, int excerptLength) {
+			return oldestFirst().stream()
+					.filter(article -> !isBefore(article, cursor) && article.getId() != cursor.getId())
+					.limit(size).map(FakeArticleRepository::summary).collect(Collectors.toList());
+		}
+
+		@Override
+		public int countArticles() {
+			return articles.size();
+		}
+
+		@Override
+		public int countArticlesBefore(ArticleCursor cursor) {
+			return (int) articles.values().stream().filter(article -> isBefore(article, cursor)).count();
+		}
+
+		@Override
+		public ArticleDAO addArticle(String title, String content) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int addArticles(List<ArticleDAO> articles) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<ArticleDAO> addArticlesReturning(List<ArticleDAO> articles) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ArticleDAO modifyArticle(int id, String title, String content) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ArticleDAO modifyArticle(int id, int version, String title, String content) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<ArticleDAO> getAllArticles() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void forEachArticleAfter(ArticleCursor cursor, int limit, Set<ArticleField> fields,
+				Consumer<ArticleDAO> action) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ArticlePage getArticlesAfter(ArticleCursor cursor, int size) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ArticlePage getArticlesBefore(ArticleCursor cursor, int size) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ArticleSummaryPage getArticleSummariesBefore(ArticleCursor cursor, int size, int excerptLength) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ArticleSummaryPage getArticleSummariesByTagsAfter(List<Integer> tagIds, ArticleCursor cursor, int size,
+				int excerptLength) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ArticleSummaryPage getArticleSummariesByTagsBefore(List<Integer> tagIds, ArticleCursor cursor, int size,
+				int excerptLength) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public SearchPage searchArticles(String query, SearchCursor cursor, int size) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int getMaxId() {
+			return maxId;
+		}
+
+		@Override
+		public ArticleDAO deleteArticle(int id) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.example.example_blog.importer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.example_blog.repository.ArticleDAO;
+
+/**
+ * CSVファイルのリーダのテスト
+ * ダブルクォート・改行の扱いと、上限を超えたレコードを読み飛ばして続きを読めることを確かめる。
+ */
+class CsvArticleRecordReaderTests {
+
+	private static CsvArticleRecordReader reader(String csv, int maxFieldSize) throws IOException {
+		return new CsvArticleRecordReader(new StringReader(csv), maxFieldSize);
+	}
+
+	@Test
+	void quotedValueKeepsCommasNewlinesAndEscapedQuotes() throws IOException {
+		CsvArticleRecordReader reader = reader("title,content\n\"a,b\",\"1行目\n\"\"2行目\"\"\"\nc,d\n", 100);
+
+		ArticleDAO first = reader.read();
+		assertEquals("a,b", first.getTitle());
+		assertEquals("1行目\n\"2行目\"", first.getContent());
+		assertEquals(2, reader.getLineNumber());
+
+		ArticleDAO second = reader.read();
+		assertEquals("c", second.getTitle());
+		assertEquals("d", second.getContent());
+		assertEquals(4, reader.getLineNumber());
+
+		assertNull(reader.read());
+	}
+
+	@Test
+	void crlfIsRecordSeparator() throws IOException {
+		CsvArticleRecordReader reader = reader("title,content\r\na,b\r\n\r\nc,d", 100);
+
+		assertEquals("b", reader.read().getContent());
+		assertEquals("d", reader.read().getContent());
+		assertNull(reader.read());
+	}
+
+	@Test
+	void unterminatedQuoteAtEndOfFileIsRejected() throws IOException {
+		CsvArticleRecordReader reader = reader("title,content\na,\"b\nc,d\n", 100);
+
+		assertThrows(IllegalArgumentException.class, reader::read);
+		assertEquals(2, reader.getLineNumber());
+		assertNull(reader.read());
+	}
+
+	@Test
+	void tooLongValueSkipsOnlyThatRecord() throws IOException {
+		CsvArticleRecordReader reader = reader("title,content\na,\"12345\n6789\"\nc,1234567\n", 7);
+
+		assertThrows(IllegalArgumentException.class, reader::read);
+		assertEquals(2, reader.getLineNumber());
+
+		ArticleDAO next = reader.read();
+		assertEquals("c", next.getTitle());
+		assertEquals("1234567", next.getContent());
+		assertEquals(4, reader.getLineNumber());
+	}
+
+	@Test
+	void headerWithoutRequiredColumnIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> reader("title,body\na,b\n", 100));
+		assertThrows(IllegalArgumentException.class, () -> reader("", 100));
+	}
+}
@@ -0,0 +1,90 @@
+package com.example.example_blog.service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 件数と有効期限で上限を設けたキャッシュのテスト
+ * 読み込んだ回数を数え、キャッシュから返したのか読み込み直したのかを確かめる。
+ */
+class BoundedCacheTests {
+
+	@Test
+	void evictsLeastRecentlyUsedEntry() {
+		BoundedCache<Integer, String> cache = new BoundedCache<>(2, 60_000);
+		AtomicInteger loads = new AtomicInteger();
+
+		cache.get(1, () -> load(loads, "1"));
+		cache.get(2, () -> load(loads, "2"));
+
+		//1を参照し直すので、最も長く参照されていないのは2になる
+		cache.get(1, () -> load(loads, "1"));
+		cache.get(3, () -> load(loads, "3"));
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+
+		cache.get(1, () -> load(loads, "1"));
+		assertEquals(3, loads.get());
+
+		cache.get(2, () -> load(loads, "2"));
+		assertEquals(4, loads.get());
+	}
+
+	@Test
+	void reloadsAfterTtl() throws Exception {
+		BoundedCache<Integer, String> cache = new BoundedCache<>(10, 20);
+		AtomicInteger loads = new AtomicInteger();
+
+		cache.get(1, () -> load(loads, "1"));
+		cache.get(1, () -> load(loads, "1"));
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getHitCount());
+
+		Thread.sleep(50);
+
+		cache.get(1, () -> load(loads, "1"));
+		assertEquals(2, loads.get());
+		assertEquals(1, cache.getEvictionCount());
+	}
+
+	@Test
+	void valueLoadedAcrossInvalidationIsNotCached() {
+		BoundedCache<Integer, String> cache = new BoundedCache<>(10, 60_000);
+		AtomicInteger loads = new AtomicInteger();
+
+		//読み込み中に書き込みがあり、無効化された場合
+		String stale = cache.get(1, () -> {
+			cache.invalidate(1);
+			return load(loads, "古い記事");
+		});
+		assertEquals("古い記事", stale);
+		assertEquals(0, cache.size());
+
+		//古い値は格納されていないので読み込み直す
+		assertEquals("新しい記事", cache.get(1, () -> load(loads, "新しい記事")));
+		assertEquals("新しい記事", cache.get(1, () -> load(loads, "使われない")));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void failedLoadIsNotCached() {
+		BoundedCache<Integer, String> cache = new BoundedCache<>(10, 60_000);
+
+		assertThrows(IllegalStateException.class, () -> cache.get(1, () -> {
+			throw new IllegalStateException();
+		}));
+
+		assertEquals(0, cache.size());
+		assertEquals("記事", cache.get(1, () -> "記事"));
+	}
+
+	private static String load(AtomicInteger loads, String value) {
+		loads.incrementAndGet();
+		return value;
+	}
+}
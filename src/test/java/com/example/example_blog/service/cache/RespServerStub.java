@@ -0,0 +1,329 @@
+package com.example.example_blog.service.cache;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * テスト用のRedisのプロトコル（RESP2）を話すサーバ
+ * 共有キャッシュのテストで使うコマンド（PING・GET・SET・DEL・PUBLISH・SUBSCRIBE）だけに応答する。
+ * ループバックアドレスの空いているポートで待ち受ける。
+ */
+class RespServerStub implements AutoCloseable {
+
+	private final ServerSocket serverSocket;
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	//格納した値 キーごとに値と有効期限（エポックミリ秒、0の場合は無期限）
+	private final Map<String, StoredValue> store = new ConcurrentHashMap<>();
+
+	//チャネルごとの購読中のクライアント
+	private final Map<String, Set<Client>> subscribers = new ConcurrentHashMap<>();
+
+	//接続中のソケット
+	private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+
+	private volatile boolean closed = false;
+
+	RespServerStub() throws IOException {
+		serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		executor.execute(this::accept);
+	}
+
+	//待ち受けているアドレス
+	String getHost() {
+		return serverSocket.getInetAddress().getHostAddress();
+	}
+
+	//待ち受けているポート
+	int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		serverSocket.close();
+
+		for (Socket socket : sockets) {
+			socket.close();
+		}
+
+		executor.shutdownNow();
+	}
+
+	//接続を受け付ける
+	private void accept() {
+		while (!closed) {
+			try {
+				Socket socket = serverSocket.accept();
+				sockets.add(socket);
+				executor.execute(() -> serve(socket));
+
+			} catch (IOException e) {
+				//停止した場合
+				return;
+			}
+		}
+	}
+
+	//1つの接続のコマンドを順に処理する
+	private void serve(Socket socket) {
+		Client client = null;
+
+		try (Socket s = socket) {
+			InputStream in = new BufferedInputStream(s.getInputStream());
+			client = new Client(s.getOutputStream());
+
+			byte[][] command;
+			while ((command = readCommand(in)) != null) {
+				handle(client, command);
+			}
+
+		} catch (IOException e) {
+			//クライアントが切断した場合
+		} finally {
+			sockets.remove(socket);
+			for (Set<Client> clients : subscribers.values()) {
+				clients.remove(client);
+			}
+		}
+	}
+
+	//コマンドを処理して応答する
+	private void handle(Client client, byte[][] command) throws IOException {
+		String name = new String(command[0], StandardCharsets.UTF_8).toUpperCase(Locale.ROOT);
+
+		switch (name) {
+		case "PING":
+			client.write("+PONG\r\n");
+			break;
+
+		case "GET": {
+			StoredValue value = read(key(command, 1));
+			client.writeBulk(value != null ? value.bytes : null);
+			break;
+		}
+
+		case "SET": {
+			long expiresAt = 0;
+			boolean ifAbsent = false;
+
+			for (int i = 3; i < command.length; i++) {
+				String option = new String(command[i], StandardCharsets.UTF_8).toUpperCase(Locale.ROOT);
+
+				if (option.equals("NX")) {
+					ifAbsent = true;
+					continue;
+				}
+
+				long amount = Long.parseLong(new String(command[++i], StandardCharsets.UTF_8));
+
+				if (option.equals("PX")) {
+					expiresAt = System.currentTimeMillis() + amount;
+				} else if (option.equals("EX")) {
+					expiresAt = System.currentTimeMillis() + amount * 1000;
+				}
+			}
+
+			//NX の場合は値がないときだけ格納し、格納しなかった場合は nil を返す
+			synchronized (store) {
+				if (ifAbsent && read(key(command, 1)) != null) {
+					client.writeBulk(null);
+					break;
+				}
+				store.put(key(command, 1), new StoredValue(command[2], expiresAt));
+			}
+			client.write("+OK\r\n");
+			break;
+		}
+
+		case "DEL": {
+			int count = 0;
+			for (int i = 1; i < command.length; i++) {
+				if (store.remove(key(command, i)) != null) {
+					count++;
+				}
+			}
+			client.write(":" + count + "\r\n");
+			break;
+		}
+
+		case "PUBLISH": {
+			Set<Client> clients = subscribers.getOrDefault(key(command, 1), ConcurrentHashMap.newKeySet());
+
+			for (Client subscriber : clients) {
+				subscriber.writeMessage(command[1], command[2]);
+			}
+			client.write(":" + clients.size() + "\r\n");
+			break;
+		}
+
+		case "SUBSCRIBE":
+			for (int i = 1; i < command.length; i++) {
+				subscribers.computeIfAbsent(key(command, i), k -> ConcurrentHashMap.newKeySet()).add(client);
+				client.writeSubscribed(command[i], i);
+			}
+			break;
+
+		case "SELECT":
+		case "CLIENT":
+			client.write("+OK\r\n");
+			break;
+
+		default:
+			client.write("-ERR unknown command '" + name + "'\r\n");
+		}
+	}
+
+	//有効期限内の値を取得する
+	private StoredValue read(String key) {
+		StoredValue value = store.get(key);
+
+		if (value != null && value.expiresAt != 0 && value.expiresAt <= System.currentTimeMillis()) {
+			store.remove(key, value);
+			return null;
+		}
+
+		return value;
+	}
+
+	//引数を文字列のキーとして取得する
+	private static String key(byte[][] command, int index) {
+		return new String(command[index], StandardCharsets.UTF_8);
+	}
+
+	//コマンド（バルク文字列の配列）を読み込む 接続が閉じられた場合はnull
+	private static byte[][] readCommand(InputStream in) throws IOException {
+		int type = in.read();
+		if (type == -1) {
+			return null;
+		}
+		if (type != '*') {
+			throw new IOException("配列ではないコマンドです");
+		}
+
+		byte[][] command = new byte[Integer.parseInt(readLine(in))][];
+
+		for (int i = 0; i < command.length; i++) {
+			if (in.read() != '$') {
+				throw new IOException("バルク文字列ではない引数です");
+			}
+
+			byte[] bytes = new byte[Integer.parseInt(readLine(in))];
+			int offset = 0;
+			while (offset < bytes.length) {
+				int read = in.read(bytes, offset, bytes.length - offset);
+				if (read == -1) {
+					throw new EOFException();
+				}
+				offset += read;
+			}
+
+			//末尾のCRLF
+			readLine(in);
+			command[i] = bytes;
+		}
+
+		return command;
+	}
+
+	//CRLFまでの1行を読み込む
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+		int b;
+		while ((b = in.read()) != '\r') {
+			if (b == -1) {
+				throw new EOFException();
+			}
+			line.write(b);
+		}
+		in.read();
+
+		return new String(line.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 格納した値
+	 */
+	private static final class StoredValue {
+
+		final byte[] bytes;
+
+		final long expiresAt;
+
+		StoredValue(byte[] bytes, long expiresAt) {
+			this.bytes = bytes;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * 接続中のクライアント
+	 * 応答と、他の接続からの PUBLISH のメッセージが同時に書き込まれないように同期する。
+	 */
+	private static final class Client {
+
+		final OutputStream out;
+
+		Client(OutputStream out) {
+			this.out = out;
+		}
+
+		synchronized void write(String reply) throws IOException {
+			out.write(reply.getBytes(StandardCharsets.UTF_8));
+			out.flush();
+		}
+
+		synchronized void writeBulk(byte[] bytes) throws IOException {
+			if (bytes == null) {
+				out.write("$-1\r\n".getBytes(StandardCharsets.UTF_8));
+			} else {
+				writeBulkPart(bytes);
+			}
+			out.flush();
+		}
+
+		synchronized void writeSubscribed(byte[] channel, int count) throws IOException {
+			out.write("*3\r\n".getBytes(StandardCharsets.UTF_8));
+			writeBulkPart("subscribe".getBytes(StandardCharsets.UTF_8));
+			writeBulkPart(channel);
+			out.write((":" + count + "\r\n").getBytes(StandardCharsets.UTF_8));
+			out.flush();
+		}
+
+		synchronized void writeMessage(byte[] channel, byte[] message) {
+			try {
+				out.write("*3\r\n".getBytes(StandardCharsets.UTF_8));
+				writeBulkPart("message".getBytes(StandardCharsets.UTF_8));
+				writeBulkPart(channel);
+				writeBulkPart(message);
+				out.flush();
+
+			} catch (IOException e) {
+				//購読中のクライアントが切断した場合 接続の処理の終了時に取り除かれる
+			}
+		}
+
+		private void writeBulkPart(byte[] bytes) throws IOException {
+			out.write(("$" + bytes.length + "\r\n").getBytes(StandardCharsets.UTF_8));
+			out.write(bytes);
+			out.write("\r\n".getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package com.example.example_blog.service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.example_blog.datasource.ReadRoute;
+import com.example.example_blog.repository.ArticleDAO;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.protocol.ProtocolVersion;
+
+/**
+ * 共有キャッシュを2段目にした記事キャッシュのテスト
+ * Redisの代わりにRedisのプロトコルを話すスタブのサーバを起動し、
+ * 記事キャッシュを2つ作って2台のノードとして扱う。
+ */
+class SharedArticleCacheTests {
+
+	private RespServerStub server;
+
+	private final List<RedisSharedCache> sharedCaches = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		server = new RespServerStub();
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		for (RedisSharedCache sharedCache : sharedCaches) {
+			sharedCache.close();
+		}
+		server.close();
+	}
+
+	@Test
+	void articleLoadedByOneNodeIsServedToAnother() {
+		ArticleCache node1 = createNode();
+		ArticleCache node2 = createNode();
+
+		node1.getArticle(1, () -> article(1, "タイトル"));
+
+		ArticleDAO article = node2.getArticle(1, () -> {
+			throw new AssertionError("データベースから読み込まれました");
+		});
+
+		assertArticle(article(1, "タイトル"), article);
+		assertEquals(1, node2.getSharedHitCount());
+	}
+
+	@Test
+	void allArticlesAreShared() {
+		ArticleCache node1 = createNode();
+		ArticleCache node2 = createNode();
+
+		node1.getAllArticles(() -> Arrays.asList(article(1, "記事1"), article(2, "記事2")));
+
+		List<ArticleDAO> articles = node2.getAllArticles(() -> {
+			throw new AssertionError("データベースから読み込まれました");
+		});
+
+		assertEquals(2, articles.size());
+		assertArticle(article(1, "記事1"), articles.get(0));
+		assertArticle(article(2, "記事2"), articles.get(1));
+	}
+
+	@Test
+	void changeOnOneNodeInvalidatesOtherNodes() throws InterruptedException {
+		ArticleCache node1 = createNode();
+		ArticleCache node2 = createNode();
+
+		node1.getArticle(1, () -> article(1, "変更前"));
+		node2.getArticle(1, () -> article(1, "変更前"));
+
+		node1.articleChanged(1);
+
+		//共有キャッシュの値はすぐに無効化される
+		assertNull(sharedCaches.get(0).get(articleKey(1)));
+
+		//他のノードのキャッシュは通知を受け取ったら無効化される
+		long deadline = System.currentTimeMillis() + 5000;
+		String title;
+
+		do {
+			title = node2.getArticle(1, () -> article(1, "変更後")).getTitle();
+
+			if (!title.equals("変更後")) {
+				Thread.sleep(10);
+			}
+		} while (!title.equals("変更後") && System.currentTimeMillis() < deadline);
+
+		assertEquals("変更後", title);
+	}
+
+	@Test
+	void valueLoadedAcrossInvalidationIsNotShared() {
+		ArticleCache node1 = createNode();
+		ArticleCache node2 = createNode();
+
+		//読み込み中に他のノードで更新された場合、読み込んだ古い値は共有キャッシュに格納されない
+		node1.getArticle(1, () -> {
+			node2.articleChanged(1);
+			return article(1, "変更前");
+		});
+
+		assertEquals("変更後", node2.getArticle(1, () -> article(1, "変更後")).getTitle());
+	}
+
+	@Test
+	void sharedMissIsLoadedFromPrimary() {
+		ArticleCache node = createNode();
+
+		node.getArticle(1, () -> {
+			assertTrue(ReadRoute.isPrimaryForced());
+			return article(1, "タイトル");
+		});
+
+		assertFalse(ReadRoute.isPrimaryForced());
+	}
+
+	@Test
+	void sharedCacheDownAtStartupDoesNotPreventStartup() throws Exception {
+		server.close();
+
+		ArticleCache node = createNode();
+
+		assertArticle(article(1, "タイトル"), node.getArticle(1, () -> article(1, "タイトル")));
+	}
+
+	@Test
+	void unreachableSharedCacheFallsBackToLoader() throws Exception {
+		ArticleCache node = createNode();
+
+		server.close();
+
+		ArticleDAO article = node.getArticle(1, () -> article(1, "タイトル"));
+
+		assertArticle(article(1, "タイトル"), article);
+	}
+
+	@Test
+	void codecKeepsAllFields() {
+		ArticleDAO article = article(3, "タイトル");
+		article.getDate().setNanos(123_456_000);
+
+		assertArticle(article, ArticleCodec.decode(ArticleCodec.encode(article)));
+
+		//一部の項目だけを取得した記事オブジェクト
+		ArticleDAO partial = new ArticleDAO();
+		partial.setId(4);
+
+		ArticleDAO decoded = ArticleCodec.decode(ArticleCodec.encode(partial));
+		assertEquals(4, decoded.getId());
+		assertNull(decoded.getTitle());
+		assertNull(decoded.getDate());
+		assertNull(decoded.getContent());
+	}
+
+	@Test
+	void codecRejectsOtherFormatVersion() {
+		byte[] bytes = ArticleCodec.encode(article(1, "タイトル"));
+		bytes[0] = (byte) (ArticleCodec.FORMAT_VERSION + 1);
+
+		assertThrows(IllegalArgumentException.class, () -> ArticleCodec.decode(bytes));
+	}
+
+	//スタブのサーバに接続する記事キャッシュ（1台のノード）を作る
+	private ArticleCache createNode() {
+		RedisClient client = RedisClient.create(RedisURI.create(server.getHost(), server.getPort()));
+
+		//スタブはRESP3（HELLO）に対応していない
+		client.setOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build());
+
+		RedisSharedCache sharedCache = new RedisSharedCache(client, 1000);
+		sharedCaches.add(sharedCache);
+
+		ArticleCache cache = new ArticleCache(100, 60);
+		cache.sharedCache = sharedCache;
+		cache.subscribe();
+
+		return cache;
+	}
+
+	private static String articleKey(int id) {
+		return "blog:article:v" + ArticleCodec.FORMAT_VERSION + ":" + id;
+	}
+
+	private static ArticleDAO article(int id, String title) {
+		ArticleDAO article = new ArticleDAO();
+		article.setId(id);
+		article.setTitle(title);
+		article.setDate(Timestamp.valueOf("2021-04-01 12:34:56"));
+		article.setContent(title + "の本文");
+		article.setVersion(2);
+		return article;
+	}
+
+	private static void assertArticle(ArticleDAO expected, ArticleDAO actual) {
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getTitle(), actual.getTitle());
+		assertEquals(expected.getDate(), actual.getDate());
+		assertEquals(expected.getContent(), actual.getContent());
+		assertEquals(expected.getVersion(), actual.getVersion());
+	}
+}
@@ -0,0 +1,104 @@
+package com.example.example_blog.service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.example_blog.Pause;
+import com.example.example_blog.repository.NoArticleFoundException;
+
+/**
+ * 同じキーの読み込みの相乗りのテスト
+ * 読み込みを途中で止めておき、その間に同じキーを要求したものが読み込まずに結果を受け取ることを確かめる。
+ */
+class SingleFlightTests {
+
+	//同時に要求する数
+	private static final int CALLERS = 8;
+
+	@Test
+	void concurrentLoadsShareOneExecution() throws Exception {
+		SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+		AtomicInteger executions = new AtomicInteger();
+
+		try (Pause pause = new Pause(CALLERS)) {
+			//最初の読み込みを実行中のまま止めておく
+			Future<String> first = pause.submit(() -> singleFlight.load(1, () -> {
+				executions.incrementAndGet();
+				pause.pause();
+				return "記事";
+			}));
+			pause.awaitPaused();
+
+			List<Future<String>> others = new ArrayList<>();
+			for (int i = 1; i < CALLERS; i++) {
+				others.add(pause.submit(() -> singleFlight.load(1, () -> {
+					executions.incrementAndGet();
+					return "別の読み込み";
+				})));
+			}
+
+			//全員が待ち始めてから読み込みを終える
+			Pause.awaitUntil(() -> singleFlight.getCoalescedCount() == CALLERS - 1);
+			pause.release();
+
+			assertEquals("記事", first.get(5, TimeUnit.SECONDS));
+			for (Future<String> other : others) {
+				assertEquals("記事", other.get(5, TimeUnit.SECONDS));
+			}
+			assertEquals(1, executions.get());
+		}
+	}
+
+	@Test
+	void waitersReceiveSameException() throws Exception {
+		SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+
+		try (Pause pause = new Pause(2)) {
+			Future<String> first = pause.submit(() -> singleFlight.load(1, () -> {
+				pause.pause();
+				throw new NoArticleFoundException();
+			}));
+			pause.awaitPaused();
+
+			Future<String> waiter = pause.submit(() -> singleFlight.load(1, () -> "読み込まれない"));
+			Pause.awaitUntil(() -> singleFlight.getCoalescedCount() == 1);
+			pause.release();
+
+			ExecutionException firstError = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+			ExecutionException waiterError = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+			assertEquals(NoArticleFoundException.class, firstError.getCause().getClass());
+			assertEquals(NoArticleFoundException.class, waiterError.getCause().getClass());
+		}
+	}
+
+	@Test
+	void forgottenKeyLoadsAgain() throws Exception {
+		SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+
+		try (Pause pause = new Pause(1)) {
+			//書き込み前に始まった読み込み
+			Future<String> stale = pause.submit(() -> singleFlight.load(1, () -> {
+				pause.pause();
+				return "古い記事";
+			}));
+			pause.awaitPaused();
+
+			//書き込み後の取得は、古い読み込みを待たずに読み込み直す
+			singleFlight.forget(1);
+			assertEquals("新しい記事", singleFlight.load(1, () -> "新しい記事"));
+
+			pause.release();
+			assertEquals("古い記事", stale.get(5, TimeUnit.SECONDS));
+			assertEquals(0, singleFlight.getCoalescedCount());
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package com.example.example_blog.service.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.example_blog.Pause;
+
+/**
+ * 冪等キーのストアのテスト
+ * 書き込みの代わりに実行回数を数える処理を渡し、再送や二重送信で書き込みが繰り返されないことを確かめる。
+ */
+class IdempotencyStoreTests {
+
+	@Test
+	void retriedKeyReturnsFirstResultWithoutExecuting() throws Exception {
+		IdempotencyStore<Integer> store = new IdempotencyStore<>(10, 60_000);
+		AtomicInteger executions = new AtomicInteger();
+
+		int first = store.execute("key", "1", executions::incrementAndGet);
+		int retried = store.execute("key", "1", executions::incrementAndGet);
+
+		assertEquals(1, first);
+		assertEquals(1, retried);
+		assertEquals(1, executions.get());
+		assertEquals(1, store.getReplayCount());
+	}
+
+	@Test
+	void concurrentDuplicateWaitsForFirstResult() throws Exception {
+		IdempotencyStore<Integer> store = new IdempotencyStore<>(10, 60_000);
+		AtomicInteger executions = new AtomicInteger();
+
+		try (Pause pause = new Pause(2)) {
+			//最初の書き込みを実行中のまま止めておく
+			Future<Integer> first = pause.submit(() -> store.execute("key", "1", () -> {
+				pause.pause();
+				return executions.incrementAndGet();
+			}));
+			pause.awaitPaused();
+
+			//二重送信が最初の書き込みの完了を待ち始めてから、最初の書き込みを終わらせる
+			Future<Integer> duplicate = pause.submit(() -> store.execute("key", "1", executions::incrementAndGet));
+			Pause.awaitUntil(() -> store.getReplayCount() == 1);
+			pause.release();
+
+			assertEquals(1, (int) first.get(5, TimeUnit.SECONDS));
+			assertEquals(1, (int) duplicate.get(5, TimeUnit.SECONDS));
+			assertEquals(1, executions.get());
+		}
+	}
+
+	@Test
+	void failedExecutionCanBeRetried() throws Exception {
+		IdempotencyStore<Integer> store = new IdempotencyStore<>(10, 60_000);
+
+		assertThrows(IllegalStateException.class, () -> store.execute("key", "1", () -> {
+			throw new IllegalStateException("書き込みに失敗しました");
+		}));
+
+		assertEquals(0, store.size());
+		assertEquals(2, (int) store.execute("key", "1", () -> 2));
+	}
+
+	@Test
+	void sameKeyWithDifferentContentIsRejected() throws Exception {
+		IdempotencyStore<Integer> store = new IdempotencyStore<>(10, 60_000);
+
+		store.execute("key", "1", () -> 1);
+
+		assertThrows(IdempotencyKeyConflictException.class, () -> store.execute("key", "2", () -> 2));
+	}
+
+	@Test
+	void oldestKeyIsEvictedWhenFull() throws Exception {
+		IdempotencyStore<Integer> store = new IdempotencyStore<>(2, 60_000);
+		AtomicInteger executions = new AtomicInteger();
+
+		store.execute("a", "1", executions::incrementAndGet);
+		store.execute("b", "1", executions::incrementAndGet);
+		store.execute("c", "1", executions::incrementAndGet);
+
+		//最も古いキーは破棄されたので、もう一度実行される
+		store.execute("a", "1", executions::incrementAndGet);
+
+		assertEquals(4, executions.get());
+		assertEquals(2, store.size());
+	}
+
+	@Test
+	void keyRegisteredOnOtherServerIsNotExecutedAgain() throws Exception {
+		InMemoryRecords records = new InMemoryRecords();
+		IdempotencyStore<Integer> server1 = new IdempotencyStore<>(10, 60_000, records);
+		IdempotencyStore<Integer> server2 = new IdempotencyStore<>(10, 60_000, records);
+		AtomicInteger executions = new AtomicInteger();
+
+		int first = server1.execute("key", "1", executions::incrementAndGet);
+		int retried = server2.execute("key", "1", executions::incrementAndGet);
+
+		assertEquals(1, first);
+		assertEquals(1, retried);
+		assertEquals(1, executions.get());
+		assertEquals(1, server2.getReplayCount());
+		assertThrows(IdempotencyKeyConflictException.class, () -> server2.execute("key", "2", () -> 2));
+	}
+
+	@Test
+	void failedExecutionReleasesSharedRecord() throws Exception {
+		InMemoryRecords records = new InMemoryRecords();
+		IdempotencyStore<Integer> server1 = new IdempotencyStore<>(10, 60_000, records);
+		IdempotencyStore<Integer> server2 = new IdempotencyStore<>(10, 60_000, records);
+
+		assertThrows(IllegalStateException.class, () -> server1.execute("key", "1", () -> {
+			throw new IllegalStateException("書き込みに失敗しました");
+		}));
+
+		assertEquals(2, (int) server2.execute("key", "1", () -> 2));
+	}
+
+	@Test
+	void recordedResultIsKeptWhenCommitOutcomeIsUnknown() throws Exception {
+		InMemoryRecords records = new InMemoryRecords();
+		IdempotencyStore<Integer> server1 = new IdempotencyStore<>(10, 60_000, records);
+		IdempotencyStore<Integer> server2 = new IdempotencyStore<>(10, 60_000, records);
+
+		//結果を記録した後にコミットの応答を受け取れなかった場合
+		records.failAfterRecording = true;
+		assertThrows(IllegalStateException.class, () -> server1.execute("key", "1", () -> 1));
+		records.failAfterRecording = false;
+
+		assertEquals(1, (int) server2.execute("key", "1", () -> 2));
+		assertEquals(1, server2.getReplayCount());
+	}
+
+	@Test
+	void fingerprintSeparatesFields() {
+		assertEquals(IdempotencyStore.fingerprint("ab", "c"), IdempotencyStore.fingerprint("ab", "c"));
+		assertNotEquals(IdempotencyStore.fingerprint("ab", "c"), IdempotencyStore.fingerprint("a", "bc"));
+		assertNotEquals(IdempotencyStore.fingerprint("a", null), IdempotencyStore.fingerprint("a", "null"));
+		assertEquals(64, IdempotencyStore.fingerprint("a").length());
+	}
+
+	/**
+	 * サーバ間で共有する記録の代わりに、同じインスタンスを複数のストアに渡す
+	 */
+	private static final class InMemoryRecords implements IdempotencyRecords<Integer> {
+
+		private final Map<String, Record<Integer>> records = new HashMap<>();
+
+		//結果を記録した後に例外をスローするか
+		volatile boolean failAfterRecording = false;
+
+		@Override
+		public synchronized Record<Integer> register(String key, String fingerprint) {
+			Record<Integer> registered = records.get(key);
+			if (registered == null) {
+				records.put(key, new Record<>(fingerprint, null));
+			}
+			return registered;
+		}
+
+		@Override
+		public <E extends Exception> Integer execute(String key, IdempotencyStore.Action<Integer, E> action) throws E {
+			Integer value = action.execute();
+			synchronized (this) {
+				records.put(key, new Record<>(records.get(key).getFingerprint(), value));
+			}
+			if (failAfterRecording) {
+				throw new IllegalStateException("コミットの結果が分かりません");
+			}
+			return value;
+		}
+
+		@Override
+		public synchronized void remove(String key) {
+			if (records.containsKey(key) && records.get(key).getValue() == null) {
+				records.remove(key);
+			}
+		}
+	}
+}